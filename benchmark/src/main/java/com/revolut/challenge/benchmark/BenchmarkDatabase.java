@@ -0,0 +1,122 @@
+package com.revolut.challenge.benchmark;
+
+import com.revolut.challenge.ledger.LedgerEngine;
+import com.revolut.challenge.ledger.LedgerMode;
+import com.revolut.challenge.lock.AccountLockMode;
+import com.revolut.challenge.model.FinancialAccount;
+import com.revolut.challenge.model.Money;
+import com.revolut.challenge.model.enumeration.AccountStatusType;
+import com.revolut.challenge.model.enumeration.Currency;
+import com.revolut.challenge.repository.AccountTransactionRepository;
+import com.revolut.challenge.repository.FinancialAccountRepository;
+import com.revolut.challenge.repository.TransferRepository;
+import com.revolut.challenge.service.AccountTransactionService;
+import com.revolut.challenge.service.BalanceSlotSelection;
+import com.revolut.challenge.service.BalanceSlots;
+import com.revolut.challenge.service.DepositMode;
+import com.revolut.challenge.service.TransferService;
+import com.revolut.challenge.util.LiquibaseUtil;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * In-memory H2 database wired the same way {@code Application} wires it, seeded with a fixed set of accounts.
+ * Every instance uses its own database so benchmark trials never see each other's ledger.
+ */
+public final class BenchmarkDatabase {
+
+    public static final long INITIAL_BALANCE = Money.ofUnits(1_000_000_000_000L);
+    private static final int LOCK_STRIPES = 1024;
+    private static final Duration LOCK_TIMEOUT = Duration.ofSeconds(1);
+    private static final int METADATA_CACHE_SIZE = 10_000;
+
+    private final JdbcConnectionPool dataSource;
+    private final String[] accountNumbers;
+
+    public final DSLContext dataContext;
+    public final FinancialAccountRepository financialAccountRepository;
+    public final AccountTransactionRepository accountTransactionRepository;
+    public final TransferRepository transferRepository;
+    public final AccountTransactionService accountTransactionService;
+    public final TransferService transferService;
+    public final LedgerEngine ledgerEngine;
+
+    public BenchmarkDatabase(int accountCount, int maxConnections) {
+        this(accountCount, maxConnections, LedgerMode.DATABASE, AccountLockMode.DATABASE);
+    }
+
+    public BenchmarkDatabase(int accountCount, int maxConnections, LedgerMode ledgerMode, AccountLockMode lockMode) {
+        this(accountCount, maxConnections, ledgerMode, lockMode, BalanceSlotSelection.HASH);
+    }
+
+    public BenchmarkDatabase(int accountCount, int maxConnections, LedgerMode ledgerMode, AccountLockMode lockMode,
+                             BalanceSlotSelection slotSelection) {
+        this(accountCount, maxConnections, ledgerMode, lockMode, slotSelection, DepositMode.LOCKED);
+    }
+
+    public BenchmarkDatabase(int accountCount, int maxConnections, LedgerMode ledgerMode, AccountLockMode lockMode,
+                             BalanceSlotSelection slotSelection, DepositMode depositMode) {
+        dataSource = JdbcConnectionPool.create("jdbc:h2:mem:benchmark-" + UUID.randomUUID(), "sa", "");
+        dataSource.setMaxConnections(maxConnections);
+        LiquibaseUtil.init(dataSource);
+
+        dataContext = DSL.using(dataSource, SQLDialect.H2);
+        financialAccountRepository = new FinancialAccountRepository(dataContext, METADATA_CACHE_SIZE);
+        accountTransactionRepository = new AccountTransactionRepository(dataContext);
+        transferRepository = new TransferRepository(dataContext);
+
+        accountNumbers = new String[accountCount];
+        for (int i = 0; i < accountCount; i++) {
+            accountNumbers[i] = createAccount(INITIAL_BALANCE, 0);
+        }
+
+        ledgerEngine = ledgerMode == LedgerMode.IN_MEMORY
+                ? new LedgerEngine(dataContext, financialAccountRepository, accountTransactionRepository, transferRepository, 1024, 256)
+                : null;
+        if (ledgerEngine != null)
+            ledgerEngine.start();
+        var lockStrategy = lockMode.createStrategy(financialAccountRepository, LOCK_STRIPES, LOCK_TIMEOUT);
+        var balanceSlots = new BalanceSlots(financialAccountRepository, slotSelection);
+        accountTransactionService = new AccountTransactionService(accountTransactionRepository, financialAccountRepository, dataContext, lockStrategy, ledgerEngine, balanceSlots, depositMode);
+        transferService = new TransferService(financialAccountRepository, transferRepository, accountTransactionRepository, dataContext, lockStrategy, ledgerEngine, balanceSlots);
+    }
+
+    /**
+     * Create one more account, not counted by {@link #accountCount()}
+     *
+     * @param balanceSlots number of slots to split the balance over, {@code 0} not to split it
+     * @return account number
+     */
+    public String createAccount(long balance, int balanceSlots) {
+        String accountNumber = UUID.randomUUID().toString();
+        financialAccountRepository.save(FinancialAccount.builder()
+                .accountNumber(accountNumber)
+                .accountStatusType(AccountStatusType.ACTIVE)
+                .createDatetime(LocalDateTime.now())
+                .balance(balance)
+                .currency(Currency.USD)
+                .balanceSlots(balanceSlots)
+                .build());
+        return accountNumber;
+    }
+
+    public String accountNumber(int index) {
+        return accountNumbers[index];
+    }
+
+    public int accountCount() {
+        return accountNumbers.length;
+    }
+
+    public void close() {
+        if (ledgerEngine != null)
+            ledgerEngine.stop();
+        dataSource.dispose();
+    }
+}
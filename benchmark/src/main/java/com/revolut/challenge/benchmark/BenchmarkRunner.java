@@ -0,0 +1,55 @@
+package com.revolut.challenge.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+
+/**
+ * Runs the selected benchmarks once per configured thread count with the GC profiler attached,
+ * so every result carries throughput and allocation rate ({@code gc.alloc.rate.norm}).
+ * <p>
+ * System properties:
+ * <ul>
+ *     <li>{@code benchmark.include} - regexp of benchmarks to run, defaults to all</li>
+ *     <li>{@code benchmark.threads} - comma separated thread counts, defaults to {@code 1,4,16}</li>
+ *     <li>{@code benchmark.params} - JMH parameter overrides such as {@code accountCount=2,100;contention=1.0}</li>
+ *     <li>{@code benchmark.result-dir} - directory for the JSON results, defaults to {@code target}</li>
+ * </ul>
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        String include = System.getProperty("benchmark.include", "com.revolut.challenge.benchmark.*");
+        String params = System.getProperty("benchmark.params", "");
+        String resultDir = System.getProperty("benchmark.result-dir", "target");
+        int[] threadCounts = Arrays.stream(System.getProperty("benchmark.threads", "1,4,16").split(","))
+                .map(String::trim)
+                .mapToInt(Integer::parseInt)
+                .toArray();
+
+        for (int threads : threadCounts) {
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .include(include)
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(resultDir + "/jmh-threads-" + threads + ".json");
+
+            for (String param : params.split(";")) {
+                if (!param.isBlank()) {
+                    String[] nameAndValues = param.split("=", 2);
+                    options.param(nameAndValues[0].trim(), nameAndValues[1].trim().split(","));
+                }
+            }
+            new Runner(options.build()).run();
+        }
+    }
+}
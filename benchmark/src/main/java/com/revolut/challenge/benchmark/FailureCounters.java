@@ -0,0 +1,26 @@
+package com.revolut.challenge.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Operations that failed on the database (lock timeouts, deadlocks) or timed out waiting for an in-JVM account lock
+ * are reported next to throughput instead of aborting the run.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.EVENTS)
+public class FailureCounters {
+
+    public long databaseFailures;
+
+    public long lockTimeouts;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        databaseFailures = 0;
+        lockTimeouts = 0;
+    }
+}
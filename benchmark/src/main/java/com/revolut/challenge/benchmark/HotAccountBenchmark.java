@@ -0,0 +1,91 @@
+package com.revolut.challenge.benchmark;
+
+import com.revolut.challenge.ledger.LedgerMode;
+import com.revolut.challenge.lock.AccountLockMode;
+import com.revolut.challenge.model.Money;
+import com.revolut.challenge.service.BalanceSlotSelection;
+import com.revolut.challenge.service.DepositMode;
+import org.jooq.exception.DataAccessException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transfers from many accounts to one hot merchant account and deposits to it, with its balance in the account row
+ * ({@code balanceSlots=0}) or split over slot rows. Throughput should grow with the number of slots until it reaches
+ * the thread count. Deposits to an account that is not split can also add to its balance without locking it first
+ * ({@code depositMode=commutative}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class HotAccountBenchmark {
+
+    @Param({"0", "1", "4", "16"})
+    private int balanceSlots;
+
+    @Param({"hash", "round-robin"})
+    private String slotSelection;
+
+    @Param({"locked", "commutative"})
+    private String depositMode;
+
+    @Param("1000")
+    private int accountCount;
+
+    @Param("16")
+    private int maxConnections;
+
+    private BenchmarkDatabase database;
+    private String hotAccountNumber;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new BenchmarkDatabase(accountCount, maxConnections, LedgerMode.DATABASE, AccountLockMode.DATABASE,
+                BalanceSlotSelection.fromValue(slotSelection), DepositMode.fromValue(depositMode));
+        hotAccountNumber = database.createAccount(0, balanceSlots);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public void transferToHotAccount(OperationState operation, FailureCounters failures) {
+        try {
+            database.transferService.createTransfer(database.accountNumber(operation.pickAccount(accountCount, 0)),
+                    hotAccountNumber,
+                    Money.ofUnits(1),
+                    operation.nextTransactionId());
+        } catch (DataAccessException e) {
+            failures.databaseFailures++;
+        }
+    }
+
+    @Benchmark
+    public void depositToHotAccount(OperationState operation, FailureCounters failures) {
+        try {
+            database.accountTransactionService.createDepositTransaction(hotAccountNumber,
+                    Money.ofUnits(1),
+                    operation.nextTransactionId());
+        } catch (DataAccessException e) {
+            failures.databaseFailures++;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.revolut.challenge.benchmark;
+
+import com.revolut.challenge.util.ScalableBloomFilter;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Transaction id filter holding {@code storedKeys} transaction ids: {@code lookupNewId} is the check of a new id
+ * that skips the database, {@code lookupStoredId} of an id that is already used and {@code addId} the insert of an
+ * idempotency key. Ids are UUID strings like the ones clients send. The false positive rate of new ids is reported
+ * as {@code falsePositives} out of {@code newIdLookups}; the memory use of the filter is printed after it is filled.
+ * <p>
+ * Filling the filter with 100M ids takes a while and needs a heap of about 1 GB besides the ids being added.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Dlog4j.configurationFile=log4j2-benchmark.xml"})
+public class IdempotencyFilterBenchmark {
+
+    //Stored ids use positive most significant bits, new ones negative, so they never collide
+    private static final long STORED = 1;
+    private static final long NEW = -1;
+
+    @Param({"10000000", "100000000"})
+    public long storedKeys;
+
+    @Param({"1000000"})
+    public long initialCapacity;
+
+    @Param({"0.01"})
+    public double falsePositiveRate;
+
+    private ScalableBloomFilter filter;
+    private final AtomicLong nextId = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void fill() {
+        filter = new ScalableBloomFilter(initialCapacity, falsePositiveRate);
+        for (long i = 0; i < storedKeys; i++)
+            filter.add(transactionId(STORED, i));
+        nextId.set(storedKeys);
+        System.out.printf("%n%d ids in %d stages use %d MB, expected false positive rate %.5f%n", filter.getCount(),
+                filter.getStages(), filter.getMemoryBytes() / (1024 * 1024), filter.getExpectedFalsePositiveRate());
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class LookupCounters {
+        public long newIdLookups;
+        public long falsePositives;
+        private long sequence;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            newIdLookups = 0;
+            falsePositives = 0;
+        }
+    }
+
+    @Benchmark
+    public boolean lookupNewId(LookupCounters counters) {
+        boolean mightContain = filter.mightContain(transactionId(NEW, counters.sequence++));
+        counters.newIdLookups++;
+        if (mightContain)
+            counters.falsePositives++;
+        return mightContain;
+    }
+
+    @Benchmark
+    public boolean lookupStoredId(LookupCounters counters) {
+        return filter.mightContain(transactionId(STORED, counters.sequence++ % storedKeys));
+    }
+
+    @Benchmark
+    public void addId() {
+        filter.add(transactionId(STORED, nextId.getAndIncrement()));
+    }
+
+    private static String transactionId(long kind, long sequence) {
+        return new UUID(kind * (sequence + 1), sequence * 0x9e3779b97f4a7c15L).toString();
+    }
+}
@@ -0,0 +1,88 @@
+package com.revolut.challenge.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.revolut.challenge.util.JsonUtils;
+import com.revolut.challenge.web.codec.TransferMoneyRequestCodec;
+import com.revolut.challenge.web.dto.CreateWithdrawResponseDTO;
+import com.revolut.challenge.web.dto.TransferMoneyRequestDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading and validating a transfer request and writing its response, once with Jackson databinding and Hibernate
+ * Validator ({@code generic*}) and once with the hand-written codecs ({@code codec*}).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class JsonCodecBenchmark {
+
+    private final TransferMoneyRequestCodec transferRequestCodec = new TransferMoneyRequestCodec();
+    private Validator validator;
+    private ObjectWriter responseWriter;
+    private byte[] transferRequest;
+    private CreateWithdrawResponseDTO response;
+    private ByteArrayOutputStream outputStream;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        validator = Validation.buildDefaultValidatorFactory().getValidator();
+        responseWriter = new ObjectMapper().writerFor(CreateWithdrawResponseDTO.class);
+        transferRequest = JsonUtils.writeValueAsString(new TransferMoneyRequestDTO(UUID.randomUUID().toString(),
+                UUID.randomUUID().toString(), UUID.randomUUID().toString(), 100L)).getBytes(StandardCharsets.UTF_8);
+        response = new CreateWithdrawResponseDTO(UUID.randomUUID().toString());
+        outputStream = new ByteArrayOutputStream(256);
+    }
+
+    @Benchmark
+    public TransferMoneyRequestDTO genericReadTransferRequest() {
+        var dto = JsonUtils.convertToObject(new ByteArrayInputStream(transferRequest), TransferMoneyRequestDTO.class);
+        Set<ConstraintViolation<TransferMoneyRequestDTO>> violations = validator.validate(dto);
+        if (!violations.isEmpty())
+            throw new IllegalStateException(violations.toString());
+        return dto;
+    }
+
+    @Benchmark
+    public TransferMoneyRequestDTO codecReadTransferRequest() {
+        return JsonUtils.convertToObject(new ByteArrayInputStream(transferRequest), transferRequestCodec);
+    }
+
+    @Benchmark
+    public int genericWriteResponse() throws IOException {
+        outputStream.reset();
+        responseWriter.writeValue(outputStream, response);
+        return outputStream.size();
+    }
+
+    @Benchmark
+    public int codecWriteResponse() {
+        outputStream.reset();
+        JsonUtils.writeValue(outputStream, response);
+        return outputStream.size();
+    }
+}
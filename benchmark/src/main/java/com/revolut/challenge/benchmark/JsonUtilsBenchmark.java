@@ -0,0 +1,95 @@
+package com.revolut.challenge.benchmark;
+
+import com.revolut.challenge.model.enumeration.TransactionType;
+import com.revolut.challenge.util.JsonUtils;
+import com.revolut.challenge.web.dto.AccountTransactionDTO;
+import com.revolut.challenge.web.dto.AccountTransactionDetails;
+import com.revolut.challenge.web.dto.TransferMoneyRequestDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class JsonUtilsBenchmark {
+
+    @Param({"1", "100"})
+    private int historySize;
+
+    private TransferMoneyRequestDTO transferRequest;
+    private String transferRequestJson;
+    private AccountTransactionDetails accountTransactionDetails;
+    private byte[] transferRequestBytes;
+    private ByteArrayOutputStream outputStream;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        transferRequest = new TransferMoneyRequestDTO(UUID.randomUUID().toString(),
+                UUID.randomUUID().toString(), UUID.randomUUID().toString(), 100L);
+        transferRequestJson = JsonUtils.writeValueAsString(transferRequest);
+        transferRequestBytes = transferRequestJson.getBytes(StandardCharsets.UTF_8);
+        outputStream = new ByteArrayOutputStream(historySize * 256);
+
+        var transactions = new ArrayList<AccountTransactionDTO>(historySize);
+        for (int i = 0; i < historySize; i++) {
+            transactions.add(AccountTransactionDTO.builder()
+                    .createDatetime(LocalDateTime.now())
+                    .financialAccount(1L)
+                    .amount(BigDecimal.TEN)
+                    .balance(BigDecimal.valueOf(i * 10L))
+                    .transactionType(TransactionType.DEPOSIT)
+                    .transactionId(UUID.randomUUID().toString())
+                    .build());
+        }
+        accountTransactionDetails = new AccountTransactionDetails(transactions);
+    }
+
+    @Benchmark
+    public TransferMoneyRequestDTO transferRequestRoundTrip() {
+        return JsonUtils.convertToObject(JsonUtils.writeValueAsString(transferRequest), TransferMoneyRequestDTO.class);
+    }
+
+    @Benchmark
+    public TransferMoneyRequestDTO readTransferRequest() {
+        return JsonUtils.convertToObject(transferRequestJson, TransferMoneyRequestDTO.class);
+    }
+
+    @Benchmark
+    public String writeAccountTransactionDetails() {
+        return JsonUtils.writeValueAsString(accountTransactionDetails);
+    }
+
+    @Benchmark
+    public TransferMoneyRequestDTO readTransferRequestFromStream() {
+        return JsonUtils.convertToObject(new ByteArrayInputStream(transferRequestBytes), TransferMoneyRequestDTO.class);
+    }
+
+    @Benchmark
+    public int writeAccountTransactionDetailsToStream() {
+        outputStream.reset();
+        JsonUtils.writeValue(outputStream, accountTransactionDetails);
+        return outputStream.size();
+    }
+}
@@ -0,0 +1,95 @@
+package com.revolut.challenge.benchmark;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.config.ConfigurationFactory;
+import org.apache.logging.log4j.core.config.ConfigurationSource;
+import org.apache.logging.log4j.util.Unbox;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Time a transfer request spends logging. {@code sync} is the former setup: the request filter, the controller and
+ * the service write four lines that are formatted and flushed on the request thread. {@code async} is the current
+ * one: only the transfer audit event and one access log line out of every {@link #ACCESS_LOG_SAMPLE_RATE} requests
+ * are logged, and both are queued for appender threads.
+ * <p>
+ * {@code work} burns CPU like the rest of a request would, so the appender threads keep up and the sampled
+ * percentiles show the logging cost of a request rather than the throughput of the disk. Lines are written to
+ * {@code target/logging-benchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Dlog4j.configurationFile=log4j2-benchmark.xml", "-Dlog4j2.isWebapp=false"})
+public class LoggingBenchmark {
+
+    private static final int ACCESS_LOG_SAMPLE_RATE = 100;
+
+    @Param({"sync", "async"})
+    public String pipeline;
+
+    @Param({"1000"})
+    public long work;
+
+    private LoggerContext context;
+    private Logger applicationLog;
+    private Logger accessLog;
+    private Logger auditLog;
+    private final AtomicLong requests = new AtomicLong();
+    private final String fromAccount = UUID.randomUUID().toString();
+    private final String toAccount = UUID.randomUUID().toString();
+    private final String transactionId = UUID.randomUUID().toString();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = new LoggerContext("logging-benchmark-" + pipeline);
+        var source = ConfigurationSource.fromResource("log4j2-logging-" + pipeline + ".xml", getClass().getClassLoader());
+        context.start(ConfigurationFactory.getInstance().getConfiguration(context, source));
+        applicationLog = context.getLogger("com.revolut.challenge.service.TransferService");
+        accessLog = context.getLogger("access");
+        auditLog = context.getLogger("audit");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.stop();
+    }
+
+    @Benchmark
+    public void transferRequest() {
+        Blackhole.consumeCPU(work);
+        long amount = 100L;
+        if ("sync".equals(pipeline)) {
+            applicationLog.info("Received api call on  path {}", "/api/v1/accounts/transfer");
+            applicationLog.info("Create transfer from account {} to account {} with amount {}.", fromAccount, toAccount, amount);
+            applicationLog.info("Successfully transfer from account {} to account {} with amount {}.", fromAccount, toAccount, amount);
+            applicationLog.info("Transfer from account-number={} to account-number={} with amount={} and transaction-id={}.",
+                    fromAccount, toAccount, amount, transactionId);
+        } else {
+            auditLog.info("event=transfer status=DONE transaction_id={} from={} to={} amount_minor={}",
+                    transactionId, fromAccount, toAccount, Unbox.box(amount));
+            if (requests.getAndIncrement() % ACCESS_LOG_SAMPLE_RATE == 0)
+                accessLog.info("{} {} {} {}us", "POST", "/api/v1/accounts/transfer", Unbox.box(201), Unbox.box(work));
+        }
+    }
+}
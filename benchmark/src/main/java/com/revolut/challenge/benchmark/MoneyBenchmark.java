@@ -0,0 +1,60 @@
+package com.revolut.challenge.benchmark;
+
+import com.revolut.challenge.model.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Balance arithmetic of a single transfer request: the requested amount is converted, checked against the source
+ * balance, debited and credited. {@code bigDecimal} is the former representation, {@code minorUnits} the current
+ * one; compare {@code gc.alloc.rate.norm} to see the allocations per request.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class MoneyBenchmark {
+
+    private static final long REQUEST_AMOUNT = 1L;
+
+    private BigDecimal decimalSource = new BigDecimal("1000000000000.00");
+    private BigDecimal decimalTarget = new BigDecimal("0.00");
+    private long minorSource = Money.ofUnits(1_000_000_000_000L);
+    private long minorTarget = 0;
+
+    @Benchmark
+    public BigDecimal bigDecimal() {
+        var amount = BigDecimal.valueOf(REQUEST_AMOUNT);
+        if (amount.abs().compareTo(decimalSource) > 0) {
+            decimalSource = decimalSource.add(decimalTarget);
+            decimalTarget = BigDecimal.ZERO.setScale(2);
+        }
+        decimalSource = decimalSource.subtract(amount.abs());
+        decimalTarget = decimalTarget.add(amount.abs());
+        return decimalTarget;
+    }
+
+    @Benchmark
+    public long minorUnits() {
+        var amount = Money.ofUnits(REQUEST_AMOUNT);
+        if (Money.abs(amount) > minorSource) {
+            minorSource = Money.add(minorSource, minorTarget);
+            minorTarget = 0;
+        }
+        minorSource = Money.subtract(minorSource, Money.abs(amount));
+        minorTarget = Money.add(minorTarget, Money.abs(amount));
+        return minorTarget;
+    }
+}
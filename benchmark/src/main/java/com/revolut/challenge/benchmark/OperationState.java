@@ -0,0 +1,45 @@
+package com.revolut.challenge.benchmark;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Per-thread operation generator: unique transaction ids and account picks.
+ * <p>
+ * {@code contention} is the probability an operation targets the hot pair (account 0 and 1), in either direction;
+ * every other operation picks accounts uniformly.
+ */
+@State(Scope.Thread)
+public class OperationState {
+
+    private final String transactionPrefix = UUID.randomUUID().toString();
+    private final SplittableRandom random = new SplittableRandom();
+    private long sequence;
+
+    int source;
+    int target;
+
+    public String nextTransactionId() {
+        return transactionPrefix + '-' + sequence++;
+    }
+
+    public int pickAccount(int accountCount, double contention) {
+        if (random.nextDouble() < contention) {
+            return 0;
+        }
+        return random.nextInt(accountCount);
+    }
+
+    public void pickPair(int accountCount, double contention) {
+        if (accountCount == 2 || random.nextDouble() < contention) {
+            source = random.nextInt(2);
+            target = 1 - source;
+            return;
+        }
+        source = random.nextInt(accountCount);
+        target = (source + 1 + random.nextInt(accountCount - 1)) % accountCount;
+    }
+}
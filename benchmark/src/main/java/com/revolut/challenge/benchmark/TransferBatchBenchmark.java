@@ -0,0 +1,83 @@
+package com.revolut.challenge.benchmark;
+
+import com.revolut.challenge.exception.InsufficientBalanceException;
+import com.revolut.challenge.model.Money;
+import com.revolut.challenge.service.TransferBatcher;
+import org.jooq.exception.DataAccessException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transfers applied one transaction each ({@code batchSize} 0) compared to group commit through {@link TransferBatcher}.
+ * Only meaningful with several benchmark threads, a single thread never fills a batch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class TransferBatchBenchmark {
+
+    @Param({"0", "16", "64"})
+    private int batchSize;
+
+    @Param("200")
+    private long windowMicros;
+
+    @Param("1000")
+    private int accountCount;
+
+    @Param({"0.0", "0.5"})
+    private double contention;
+
+    @Param("16")
+    private int maxConnections;
+
+    private BenchmarkDatabase database;
+    private TransferBatcher transferBatcher;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new BenchmarkDatabase(accountCount, maxConnections);
+        if (batchSize > 1) {
+            transferBatcher = new TransferBatcher(database.transferService, batchSize, windowMicros);
+            transferBatcher.start();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (transferBatcher != null)
+            transferBatcher.stop();
+        database.close();
+    }
+
+    @Benchmark
+    public void createTransfer(OperationState operation, FailureCounters failures) {
+        operation.pickPair(accountCount, contention);
+        var fromAccountNumber = database.accountNumber(operation.source);
+        var toAccountNumber = database.accountNumber(operation.target);
+        try {
+            if (transferBatcher != null)
+                transferBatcher.createTransfer(fromAccountNumber, toAccountNumber, Money.ofUnits(1), operation.nextTransactionId());
+            else
+                database.transferService.createTransfer(fromAccountNumber, toAccountNumber, Money.ofUnits(1), operation.nextTransactionId());
+        } catch (InsufficientBalanceException | DataAccessException e) {
+            failures.databaseFailures++;
+        }
+    }
+}
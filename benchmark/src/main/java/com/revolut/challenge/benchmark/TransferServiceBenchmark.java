@@ -0,0 +1,67 @@
+package com.revolut.challenge.benchmark;
+
+import com.revolut.challenge.ledger.LedgerMode;
+import com.revolut.challenge.lock.AccountLockMode;
+import com.revolut.challenge.model.Money;
+import org.jooq.exception.DataAccessException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class TransferServiceBenchmark {
+
+    @Param({"2", "1000"})
+    private int accountCount;
+
+    @Param({"0.0", "0.5", "1.0"})
+    private double contention;
+
+    @Param("16")
+    private int maxConnections;
+
+    @Param({"database", "in-memory"})
+    private String ledger;
+
+    private BenchmarkDatabase database;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new BenchmarkDatabase(accountCount, maxConnections, LedgerMode.fromValue(ledger), AccountLockMode.DATABASE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public void createTransfer(OperationState operation, FailureCounters failures) {
+        operation.pickPair(accountCount, contention);
+        try {
+            database.transferService.createTransfer(database.accountNumber(operation.source),
+                    database.accountNumber(operation.target),
+                    Money.ofUnits(1),
+                    operation.nextTransactionId());
+        } catch (DataAccessException e) {
+            failures.databaseFailures++;
+        }
+    }
+}
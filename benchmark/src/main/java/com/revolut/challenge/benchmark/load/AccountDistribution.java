@@ -0,0 +1,67 @@
+package com.revolut.challenge.benchmark.load;
+
+import java.util.SplittableRandom;
+
+/**
+ * Picks the index of the account an operation touches.
+ */
+public interface AccountDistribution {
+
+    int next(SplittableRandom random);
+
+    /**
+     * Every account is equally likely.
+     */
+    static AccountDistribution uniform(int accountCount) {
+        return random -> random.nextInt(accountCount);
+    }
+
+    /**
+     * Account {@code k} (0-based) is picked with probability proportional to {@code 1 / (k + 1)^exponent}.
+     */
+    static AccountDistribution zipf(int accountCount, double exponent) {
+        double[] cumulative = new double[accountCount];
+        double sum = 0;
+        for (int i = 0; i < accountCount; i++) {
+            sum += 1 / Math.pow(i + 1, exponent);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < accountCount; i++) {
+            cumulative[i] /= sum;
+        }
+        return random -> {
+            double value = random.nextDouble();
+            int low = 0;
+            int high = accountCount - 1;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (cumulative[middle] < value) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        };
+    }
+
+    /**
+     * Account 0 gets {@code hotShare} of all picks, the remainder is uniform over every account.
+     */
+    static AccountDistribution hot(int accountCount, double hotShare) {
+        return random -> random.nextDouble() < hotShare ? 0 : random.nextInt(accountCount);
+    }
+
+    static AccountDistribution of(String name, int accountCount, double zipfExponent, double hotShare) {
+        switch (name) {
+            case "uniform":
+                return uniform(accountCount);
+            case "zipf":
+                return zipf(accountCount, zipfExponent);
+            case "hot":
+                return hot(accountCount, hotShare);
+            default:
+                throw new IllegalArgumentException("Unknown account distribution " + name);
+        }
+    }
+}
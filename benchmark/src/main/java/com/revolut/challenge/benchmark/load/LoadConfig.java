@@ -0,0 +1,67 @@
+package com.revolut.challenge.benchmark.load;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Load generator settings, read from system properties with the defaults below.
+ */
+@Value
+@Builder
+public class LoadConfig {
+
+    String baseUrl;
+    int rate;
+    int clients;
+    Duration warmup;
+    Duration duration;
+    Map<Operation, Integer> mix;
+    int accountCount;
+    String distribution;
+    double zipfExponent;
+    double hotShare;
+    long initialBalance;
+    long amount;
+    int clientThreads;
+    Duration requestTimeout;
+    String reportPath;
+
+    public static LoadConfig fromSystemProperties() {
+        return LoadConfig.builder()
+                .baseUrl(System.getProperty("load.base-url", "http://localhost:4000/api/v1"))
+                .rate(Integer.parseInt(System.getProperty("load.rate", "200")))
+                .clients(Integer.parseInt(System.getProperty("load.clients", "0")))
+                .warmup(Duration.ofSeconds(Long.parseLong(System.getProperty("load.warmup", "10"))))
+                .duration(Duration.ofSeconds(Long.parseLong(System.getProperty("load.duration", "60"))))
+                .mix(parseMix(System.getProperty("load.mix", "transfer=60,deposit=15,withdraw=10,account=10,transactions=5")))
+                .accountCount(Integer.parseInt(System.getProperty("load.accounts", "100")))
+                .distribution(System.getProperty("load.distribution", "uniform"))
+                .zipfExponent(Double.parseDouble(System.getProperty("load.zipf-exponent", "1.0")))
+                .hotShare(Double.parseDouble(System.getProperty("load.hot-share", "0.9")))
+                .initialBalance(Long.parseLong(System.getProperty("load.initial-balance", "1000000000")))
+                .amount(Long.parseLong(System.getProperty("load.amount", "1")))
+                .clientThreads(Integer.parseInt(System.getProperty("load.client-threads", "16")))
+                .requestTimeout(Duration.ofSeconds(Long.parseLong(System.getProperty("load.request-timeout", "30"))))
+                .reportPath(System.getProperty("load.report", "target/load-report.json"))
+                .build();
+    }
+
+    static Map<Operation, Integer> parseMix(String mix) {
+        var weights = new EnumMap<Operation, Integer>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] keyAndWeight = entry.split("=");
+            int weight = Integer.parseInt(keyAndWeight[1].trim());
+            if (weight > 0) {
+                weights.put(Operation.fromKey(keyAndWeight[0].trim()), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("Operation mix is empty: " + mix);
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,265 @@
+package com.revolut.challenge.benchmark.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.revolut.challenge.model.enumeration.Currency;
+import com.revolut.challenge.util.JsonUtils;
+import com.revolut.challenge.web.dto.CreateAccountRequestDTO;
+import com.revolut.challenge.web.dto.CreateAccountResponseDTO;
+import com.revolut.challenge.web.dto.CreateDepositRequestDTO;
+import com.revolut.challenge.web.dto.CreateWithdrawRequestDTO;
+import com.revolut.challenge.web.dto.TransferMoneyRequestDTO;
+import lombok.extern.log4j.Log4j2;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop HTTP load generator: requests are started at a fixed arrival rate no matter how fast the service
+ * answers, and latency is measured from each request's scheduled start (see {@link OperationStats}).
+ * <p>
+ * With {@code load.clients} set it runs closed-loop instead: that many clients each send their next request as soon
+ * as the previous one is answered, which measures the throughput the service sustains at a fixed concurrency.
+ * <p>
+ * Start the service, then run
+ * {@code java -cp benchmark/target/benchmarks.jar com.revolut.challenge.benchmark.load.LoadGenerator}
+ * with the {@code load.*} system properties documented in {@link LoadConfig}.
+ */
+@Log4j2
+public final class LoadGenerator {
+
+    private static final String JSON_CONTENT_TYPE = "application/json";
+
+    private final LoadConfig config;
+    private final HttpClient httpClient;
+    private final ExecutorService clientExecutor;
+    private final AccountDistribution accountDistribution;
+    private final Operation[] weightedOperations;
+    private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+    private final Phaser inFlight = new Phaser(1);
+    private String[] accountNumbers;
+
+    public LoadGenerator(LoadConfig config) {
+        this.config = config;
+        this.clientExecutor = Executors.newFixedThreadPool(config.getClientThreads());
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(clientExecutor)
+                .build();
+        this.accountDistribution = AccountDistribution.of(config.getDistribution(), config.getAccountCount(),
+                config.getZipfExponent(), config.getHotShare());
+        this.weightedOperations = config.getMix().entrySet().stream()
+                .flatMap(entry -> Collections.nCopies(entry.getValue(), entry.getKey()).stream())
+                .toArray(Operation[]::new);
+        config.getMix().keySet().forEach(operation -> stats.put(operation, new OperationStats()));
+    }
+
+    public static void main(String[] args) throws Exception {
+        var generator = new LoadGenerator(LoadConfig.fromSystemProperties());
+        try {
+            generator.run();
+        } finally {
+            generator.clientExecutor.shutdownNow();
+        }
+    }
+
+    public void run() throws IOException, InterruptedException {
+        createAccounts();
+
+        long start = System.nanoTime();
+        long measureStart = start + config.getWarmup().toNanos();
+        long end = measureStart + config.getDuration().toNanos();
+        var random = new SplittableRandom();
+
+        if (config.getClients() > 0) {
+            log.info("Running {} concurrent clients for {}s after {}s warmup against {}", config.getClients(),
+                    config.getDuration().toSeconds(), config.getWarmup().toSeconds(), config.getBaseUrl());
+            for (int i = 0; i < config.getClients(); i++) {
+                inFlight.register();
+                sendNext(random.split(), measureStart, end);
+            }
+            LockSupport.parkNanos(end - System.nanoTime());
+        } else {
+            log.info("Sending {} requests/s for {}s after {}s warmup to {}", config.getRate(),
+                    config.getDuration().toSeconds(), config.getWarmup().toSeconds(), config.getBaseUrl());
+            sendAtFixedRate(random, start, measureStart, end);
+        }
+
+        try {
+            inFlight.awaitAdvanceInterruptibly(inFlight.arrive(), config.getRequestTimeout().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            log.warn("{} requests still in flight after {}s", inFlight.getUnarrivedParties(), config.getRequestTimeout().toSeconds());
+        }
+
+        writeReport(config.getDuration().toNanos() / 1e9);
+    }
+
+    private void sendAtFixedRate(SplittableRandom random, long start, long measureStart, long end) {
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / config.getRate();
+        for (long i = 0; ; i++) {
+            long scheduled = start + i * intervalNanos;
+            if (scheduled >= end) {
+                break;
+            }
+            long delay = scheduled - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            inFlight.register();
+            send(random, scheduled, scheduled >= measureStart)
+                    .whenComplete((ignored, error) -> inFlight.arriveAndDeregister());
+        }
+    }
+
+    /**
+     * One closed-loop client: the next request is sent when the previous one completes, until the run ends.
+     */
+    private void sendNext(SplittableRandom random, long measureStart, long end) {
+        long now = System.nanoTime();
+        if (now >= end) {
+            inFlight.arriveAndDeregister();
+            return;
+        }
+        send(random, now, now >= measureStart)
+                .whenComplete((ignored, error) -> sendNext(random, measureStart, end));
+    }
+
+    private CompletableFuture<Void> send(SplittableRandom random, long scheduled, boolean measured) {
+        Operation operation = weightedOperations[random.nextInt(weightedOperations.length)];
+        HttpRequest request = buildRequest(operation, random);
+        OperationStats operationStats = stats.get(operation);
+
+        long sent = System.nanoTime();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, error) -> {
+                    long completed = System.nanoTime();
+                    if (measured) {
+                        operationStats.record(completed - scheduled, completed - sent,
+                                error == null ? response.statusCode() : OperationStats.TRANSPORT_ERROR);
+                    }
+                    return null;
+                });
+    }
+
+    private HttpRequest buildRequest(Operation operation, SplittableRandom random) {
+        int account = accountDistribution.next(random);
+        String accountNumber = accountNumbers[account];
+        switch (operation) {
+            case TRANSFER:
+                return post("/accounts/transfer", new TransferMoneyRequestDTO(UUID.randomUUID().toString(),
+                        accountNumber, accountNumbers[pickOtherAccount(random, account)], config.getAmount()));
+            case DEPOSIT:
+                return post("/accounts/deposit", new CreateDepositRequestDTO(UUID.randomUUID().toString(),
+                        accountNumber, config.getAmount()));
+            case WITHDRAW:
+                var withdraw = new CreateWithdrawRequestDTO();
+                withdraw.setTransactionId(UUID.randomUUID().toString());
+                withdraw.setAccountNumber(accountNumber);
+                withdraw.setAmount(config.getAmount());
+                return post("/accounts/withdraw", withdraw);
+            case GET_ACCOUNT:
+                return get("/accounts/" + accountNumber);
+            case GET_TRANSACTIONS:
+                return get("/accounts/" + accountNumber + "/transaction");
+            default:
+                throw new IllegalStateException("Unsupported operation " + operation);
+        }
+    }
+
+    /**
+     * Transfer targets follow the same distribution as sources, redrawn a few times to avoid the source itself.
+     */
+    private int pickOtherAccount(SplittableRandom random, int account) {
+        for (int attempt = 0; attempt < 8; attempt++) {
+            int candidate = accountDistribution.next(random);
+            if (candidate != account) {
+                return candidate;
+            }
+        }
+        return (account + 1 + random.nextInt(accountNumbers.length - 1)) % accountNumbers.length;
+    }
+
+    private void createAccounts() throws IOException, InterruptedException {
+        if (config.getAccountCount() < 2) {
+            throw new IllegalArgumentException("At least two accounts are needed for transfers");
+        }
+        log.info("Creating {} accounts with balance {}", config.getAccountCount(), config.getInitialBalance());
+        accountNumbers = new String[config.getAccountCount()];
+        for (int i = 0; i < accountNumbers.length; i++) {
+            HttpResponse<String> created = httpClient.send(post("/accounts", new CreateAccountRequestDTO(Currency.USD)),
+                    HttpResponse.BodyHandlers.ofString());
+            accountNumbers[i] = JsonUtils.convertToObject(created.body(), CreateAccountResponseDTO.class).getAccountNumber();
+
+            HttpResponse<Void> deposited = httpClient.send(post("/accounts/deposit", new CreateDepositRequestDTO(
+                    UUID.randomUUID().toString(), accountNumbers[i], config.getInitialBalance())), HttpResponse.BodyHandlers.discarding());
+            if (deposited.statusCode() != 201) {
+                throw new IllegalStateException("Initial deposit failed with status " + deposited.statusCode());
+            }
+        }
+    }
+
+    private HttpRequest post(String path, Object body) {
+        return HttpRequest.newBuilder(URI.create(config.getBaseUrl() + path))
+                .timeout(config.getRequestTimeout())
+                .header("Content-Type", JSON_CONTENT_TYPE)
+                .POST(HttpRequest.BodyPublishers.ofString(JsonUtils.writeValueAsString(body)))
+                .build();
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(config.getBaseUrl() + path))
+                .timeout(config.getRequestTimeout())
+                .header("Accept", JSON_CONTENT_TYPE)
+                .GET()
+                .build();
+    }
+
+    private void writeReport(double measuredSeconds) throws IOException {
+        var operations = new LinkedHashMap<String, Object>();
+        stats.forEach((operation, operationStats) -> operations.put(operation.getKey(), operationStats.report(measuredSeconds)));
+
+        var settings = new LinkedHashMap<String, Object>();
+        settings.put("baseUrl", config.getBaseUrl());
+        if (config.getClients() > 0) {
+            settings.put("clients", config.getClients());
+        } else {
+            settings.put("rate", config.getRate());
+        }
+        settings.put("warmupSeconds", config.getWarmup().toSeconds());
+        settings.put("durationSeconds", config.getDuration().toSeconds());
+        settings.put("accounts", config.getAccountCount());
+        settings.put("distribution", config.getDistribution());
+        settings.put("mix", config.getMix());
+
+        var report = new LinkedHashMap<String, Object>();
+        report.put("timestamp", Instant.now().toString());
+        report.put("settings", settings);
+        report.put("operations", operations);
+
+        Path reportPath = Path.of(config.getReportPath());
+        if (reportPath.getParent() != null) {
+            Files.createDirectories(reportPath.getParent());
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(reportPath.toFile(), report);
+        log.info("Load report written to {}", reportPath.toAbsolutePath());
+    }
+}
@@ -0,0 +1,31 @@
+package com.revolut.challenge.benchmark.load;
+
+/**
+ * Endpoints driven by the load generator. The names are the keys of {@code load.mix}.
+ */
+public enum Operation {
+    TRANSFER("transfer"),
+    DEPOSIT("deposit"),
+    WITHDRAW("withdraw"),
+    GET_ACCOUNT("account"),
+    GET_TRANSACTIONS("transactions");
+
+    private final String key;
+
+    Operation(String key) {
+        this.key = key;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public static Operation fromKey(String key) {
+        for (Operation operation : values()) {
+            if (operation.key.equals(key)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Unknown operation " + key);
+    }
+}
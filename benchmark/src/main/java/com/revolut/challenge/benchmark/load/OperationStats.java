@@ -0,0 +1,81 @@
+package com.revolut.challenge.benchmark.load;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency and status statistics of one operation type.
+ * <p>
+ * {@code correctedLatency} is measured from the time the request was <em>scheduled</em> to be sent, so time spent
+ * waiting behind a slow server counts against it (coordinated omission correction). {@code serviceTime} is measured
+ * from the time the request was actually handed to the HTTP client, which is what a closed-loop tool would report.
+ */
+final class OperationStats {
+
+    static final int TRANSPORT_ERROR = -1;
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Recorder correctedLatency = new Recorder(SIGNIFICANT_DIGITS);
+    private final Recorder serviceTime = new Recorder(SIGNIFICANT_DIGITS);
+    private final Map<Integer, LongAdder> statusCodes = new ConcurrentHashMap<>();
+    private final LongAdder errors = new LongAdder();
+
+    void record(long correctedLatencyNanos, long serviceTimeNanos, int statusCode) {
+        correctedLatency.recordValue(TimeUnit.NANOSECONDS.toMicros(correctedLatencyNanos));
+        serviceTime.recordValue(TimeUnit.NANOSECONDS.toMicros(serviceTimeNanos));
+        statusCodes.computeIfAbsent(statusCode, code -> new LongAdder()).increment();
+        if (statusCode == TRANSPORT_ERROR || statusCode >= 500) {
+            errors.increment();
+        }
+    }
+
+    Map<String, Object> report(double measuredSeconds) {
+        Histogram corrected = correctedLatency.getIntervalHistogram();
+        Histogram uncorrected = serviceTime.getIntervalHistogram();
+
+        var codes = new TreeMap<String, Long>();
+        statusCodes.forEach((code, count) -> codes.put(code == TRANSPORT_ERROR ? "transport-error" : String.valueOf(code), count.sum()));
+
+        var report = new LinkedHashMap<String, Object>();
+        report.put("count", corrected.getTotalCount());
+        report.put("throughput", corrected.getTotalCount() / measuredSeconds);
+        report.put("errors", errors.sum());
+        report.put("statusCodes", codes);
+        report.put("latencyMicros", percentiles(corrected));
+        report.put("serviceTimeMicros", percentiles(uncorrected));
+        report.put("latencyHistogram", encode(corrected));
+        return report;
+    }
+
+    static Map<String, Object> percentiles(Histogram histogram) {
+        var percentiles = new LinkedHashMap<String, Object>();
+        percentiles.put("mean", histogram.getMean());
+        percentiles.put("p50", histogram.getValueAtPercentile(50));
+        percentiles.put("p90", histogram.getValueAtPercentile(90));
+        percentiles.put("p99", histogram.getValueAtPercentile(99));
+        percentiles.put("p99.9", histogram.getValueAtPercentile(99.9));
+        percentiles.put("p99.99", histogram.getValueAtPercentile(99.99));
+        percentiles.put("max", histogram.getMaxValue());
+        return percentiles;
+    }
+
+    /**
+     * Compressed, base64 encoded histogram so runs can be merged or re-plotted with HdrHistogram tooling.
+     */
+    private static String encode(Histogram histogram) {
+        ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+        int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+        return Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), length));
+    }
+}
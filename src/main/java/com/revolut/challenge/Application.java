@@ -2,30 +2,51 @@ package com.revolut.challenge;
 
 import com.revolut.challenge.exception.ConstraintViolationException;
 import com.revolut.challenge.exception.TransferBaseException;
+import com.revolut.challenge.ledger.LedgerEngine;
+import com.revolut.challenge.ledger.LedgerMode;
+import com.revolut.challenge.lock.AccountLockMode;
 import com.revolut.challenge.repository.AccountTransactionRepository;
+import com.revolut.challenge.repository.BalanceCache;
+import com.revolut.challenge.repository.BalanceReadMode;
 import com.revolut.challenge.repository.FinancialAccountRepository;
+import com.revolut.challenge.repository.IdempotentResponseRepository;
+import com.revolut.challenge.repository.TransactionIdFilter;
 import com.revolut.challenge.repository.TransferRepository;
 import com.revolut.challenge.service.AccountTransactionService;
+import com.revolut.challenge.service.BalanceSlotSelection;
+import com.revolut.challenge.service.BalanceSlots;
+import com.revolut.challenge.service.DepositMode;
 import com.revolut.challenge.service.FinancialAccountService;
+import com.revolut.challenge.service.TransferBatcher;
 import com.revolut.challenge.service.TransferService;
+import com.revolut.challenge.util.ConnectionLimitDataSource;
 import com.revolut.challenge.util.JsonUtils;
+import com.revolut.challenge.web.rest.AccessLog;
 import com.revolut.challenge.web.rest.AccountController;
+import com.revolut.challenge.web.rest.BoundedRequestExecutor;
+import com.revolut.challenge.web.rest.HttpThreadMode;
+import com.revolut.challenge.web.rest.RequestExecutionMode;
+import com.revolut.challenge.web.rest.ResponseReplay;
 import com.revolut.challenge.web.rest.TransactionController;
 import com.revolut.challenge.web.rest.TransferController;
+import com.revolut.challenge.web.rest.VirtualThreadPool;
 import lombok.extern.log4j.Log4j2;
 import org.apache.commons.lang3.StringUtils;
 import org.jooq.DSLContext;
 import org.jooq.SQLDialect;
 import org.jooq.impl.DSL;
+import spark.Route;
 import spark.Spark;
+import spark.embeddedserver.EmbeddedServers;
+import spark.embeddedserver.jetty.EmbeddedJettyFactory;
 
 import javax.sql.DataSource;
-import javax.validation.ConstraintViolation;
 import javax.validation.Validation;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
-import java.util.stream.Collectors;
+import java.time.Duration;
 
+import static com.revolut.challenge.web.rest.JsonRoute.json;
 import static spark.Spark.*;
 
 
@@ -36,31 +57,140 @@ public final class Application {
     private static final Integer MIN_THREAD_SIZE = Integer.valueOf(System.getProperty("http-min-thread", "3"));
     private static final Integer MAX_THREAD_SIZE = Integer.valueOf(System.getProperty("http-max-thread", "10"));
     private static final Integer IDEL_TIME_MILLIS = Integer.valueOf(System.getProperty("http-timeout", "1000"));
+    private static final String ACCOUNT_LOCK = System.getProperty("account-lock", AccountLockMode.DATABASE.getValue());
+    private static final Integer ACCOUNT_LOCK_STRIPES = Integer.valueOf(System.getProperty("account-lock-stripes", "1024"));
+    private static final String ACCOUNT_LOCK_TIMEOUT_MILLIS = System.getProperty("account-lock-timeout");
+    private static final String HTTP_THREADS = System.getProperty("http-threads", HttpThreadMode.PLATFORM.getValue());
+    static final Integer DB_MAX_CONNECTIONS = Integer.valueOf(System.getProperty("db-max-connections", "10"));
+    private static final Long DB_CONNECTION_TIMEOUT_MILLIS = Long.valueOf(System.getProperty("db-connection-timeout", "30000"));
+    private static final Integer LEDGER_RING_SIZE = Integer.valueOf(System.getProperty("ledger-ring-size", "1024"));
+    private static final Integer LEDGER_JOURNAL_BATCH = Integer.valueOf(System.getProperty("ledger-journal-batch", "256"));
+    private static final Integer TRANSFER_BATCH_SIZE = Integer.valueOf(System.getProperty("transfer-batch-size", "0"));
+    private static final Long TRANSFER_BATCH_WINDOW_MICROS = Long.valueOf(System.getProperty("transfer-batch-window", "500"));
+    private static final String REQUEST_EXECUTION = System.getProperty("request-execution", RequestExecutionMode.DIRECT.getValue());
+    private static final Integer REQUEST_EXECUTOR_THREADS = Integer.valueOf(System.getProperty("request-executor-threads", "8"));
+    private static final Integer REQUEST_EXECUTOR_QUEUE = Integer.valueOf(System.getProperty("request-executor-queue", "64"));
+    private static final Integer REQUEST_EXECUTOR_RETRY_AFTER = Integer.valueOf(System.getProperty("request-executor-retry-after", "1"));
+    private static final Integer ACCOUNT_CACHE_SIZE = Integer.valueOf(System.getProperty("account-cache-size", "10000"));
+    private static final Integer BALANCE_CACHE_SIZE = Integer.valueOf(System.getProperty("balance-cache-size", "10000"));
+    private static final String BALANCE_CACHE_MODE = System.getProperty("balance-cache", BalanceReadMode.STRICT.getValue());
+    private static final Long BALANCE_CACHE_STALENESS_MILLIS = Long.valueOf(System.getProperty("balance-cache-staleness", "100"));
+    private static final String DEPOSIT_MODE = System.getProperty("deposit-mode", DepositMode.LOCKED.getValue());
+    private static final String BALANCE_SLOT_SELECTION = System.getProperty("balance-slot-selection", BalanceSlotSelection.HASH.getValue());
+    private static final Long IDEMPOTENCY_FILTER_CAPACITY = Long.valueOf(System.getProperty("idempotency-filter-capacity", "1000000"));
+    private static final Double IDEMPOTENCY_FILTER_FALSE_POSITIVE_RATE = Double.valueOf(System.getProperty("idempotency-filter-fpp", "0.01"));
+    private static final Long RESPONSE_REPLAY_TTL_SECONDS = Long.valueOf(System.getProperty("response-replay-ttl", "86400"));
+    private static final Integer RESPONSE_REPLAY_CACHE_SIZE = Integer.valueOf(System.getProperty("response-replay-cache-size", "10000"));
+    private static final Integer ACCESS_LOG_SAMPLE_RATE = Integer.valueOf(System.getProperty("access-log-sample", "100"));
     public static final String JSON_CONTENT_TYPE = "application/json";
+    public static final String NDJSON_CONTENT_TYPE = "application/x-ndjson";
+
+    private final LedgerEngine ledgerEngine;
+    private final TransferBatcher transferBatcher;
+    private final BoundedRequestExecutor requestExecutor;
+    private final ResponseReplay responseReplay;
 
     public Application(final DataSource dataSource, String port) {
+        this(dataSource, port, LedgerMode.DATABASE);
+    }
+
+    /**
+     * Database schema must be up to date before the application is created, because the idempotency filter and the
+     * in-memory ledger load existing transaction ids at startup.
+     */
+    public Application(final DataSource dataSource, String port, LedgerMode ledgerMode) {
 
-        DSLContext dataContext = DSL.using(dataSource, SQLDialect.H2);
+        var httpThreadMode = HttpThreadMode.fromValue(HTTP_THREADS);
+        //Virtual threads wait for a connection in a fair queue instead of all entering the pool at once
+        DSLContext dataContext = DSL.using(httpThreadMode == HttpThreadMode.VIRTUAL
+                ? new ConnectionLimitDataSource(dataSource, DB_MAX_CONNECTIONS, Duration.ofMillis(DB_CONNECTION_TIMEOUT_MILLIS))
+                : dataSource, SQLDialect.H2);
         var factory = Validation.buildDefaultValidatorFactory();
 
         var validator = factory.getValidator();
-        var financialAccountRepository = new FinancialAccountRepository(dataContext);
+        //The ledger engine already holds the balances in memory and writes them to the database later
+        var balanceReadMode = BalanceReadMode.fromValue(BALANCE_CACHE_MODE);
+        var balanceCache = BALANCE_CACHE_SIZE > 0 && ledgerMode != LedgerMode.IN_MEMORY
+                ? new BalanceCache(BALANCE_CACHE_SIZE, balanceReadMode, Duration.ofMillis(BALANCE_CACHE_STALENESS_MILLIS)) : null;
+        if (balanceCache != null)
+            log.info("Caching balances of {} accounts with {} reads.", BALANCE_CACHE_SIZE, balanceReadMode.getValue());
+        var financialAccountRepository = new FinancialAccountRepository(dataContext, ACCOUNT_CACHE_SIZE, balanceCache);
         var transferRepository = new TransferRepository(dataContext);
-        var accountTransactionRepository = new AccountTransactionRepository(dataContext);
+        var accountTransactionRepository = new AccountTransactionRepository(dataContext, IDEMPOTENCY_FILTER_CAPACITY > 0
+                ? new TransactionIdFilter(IDEMPOTENCY_FILTER_CAPACITY, IDEMPOTENCY_FILTER_FALSE_POSITIVE_RATE) : null);
+        if (IDEMPOTENCY_FILTER_CAPACITY > 0)
+            log.info("Loaded {} transaction ids into the idempotency filter.", accountTransactionRepository.loadTransactionIdFilter());
 
 
+        var lockMode = AccountLockMode.fromValue(ACCOUNT_LOCK);
+        long lockTimeoutMillis = ACCOUNT_LOCK_TIMEOUT_MILLIS == null ? httpThreadMode.getLockTimeoutMillis() : Long.parseLong(ACCOUNT_LOCK_TIMEOUT_MILLIS);
+        var lockStrategy = lockMode.createStrategy(financialAccountRepository, ACCOUNT_LOCK_STRIPES, Duration.ofMillis(lockTimeoutMillis));
+        log.info("Using {} account locks.", lockMode.getValue());
+
+        if (ledgerMode == LedgerMode.IN_MEMORY) {
+            ledgerEngine = new LedgerEngine(dataContext, financialAccountRepository, accountTransactionRepository, transferRepository,
+                    LEDGER_RING_SIZE, LEDGER_JOURNAL_BATCH);
+            ledgerEngine.start();
+        } else {
+            ledgerEngine = null;
+        }
+        log.info("Using {} ledger.", ledgerMode.getValue());
+
         //  Initializing service beans
-        var financialAccountService = new FinancialAccountService(financialAccountRepository);
-        var accountTransactionService = new AccountTransactionService(accountTransactionRepository, financialAccountRepository, dataContext);
-        var transferService = new TransferService(financialAccountRepository, transferRepository, accountTransactionService, dataContext);
+        var financialAccountService = new FinancialAccountService(financialAccountRepository, ledgerEngine);
+        var balanceSlots = new BalanceSlots(financialAccountRepository, BalanceSlotSelection.fromValue(BALANCE_SLOT_SELECTION));
+        var depositMode = DepositMode.fromValue(DEPOSIT_MODE);
+        log.info("Using {} deposits.", depositMode.getValue());
+        var accountTransactionService = new AccountTransactionService(accountTransactionRepository, financialAccountRepository, dataContext, lockStrategy, ledgerEngine, balanceSlots, depositMode);
+        var transferService = new TransferService(financialAccountRepository, transferRepository, accountTransactionRepository, dataContext, lockStrategy, ledgerEngine, balanceSlots);
+
+        //The ledger engine already applies transfers without database transactions, batching only helps the database ledger
+        if (TRANSFER_BATCH_SIZE > 1 && ledgerEngine == null) {
+            transferBatcher = new TransferBatcher(transferService, TRANSFER_BATCH_SIZE, TRANSFER_BATCH_WINDOW_MICROS);
+            transferBatcher.start();
+            log.info("Batching up to {} transfers within {} microseconds.", TRANSFER_BATCH_SIZE, TRANSFER_BATCH_WINDOW_MICROS);
+        } else {
+            transferBatcher = null;
+        }
+
+        if (RequestExecutionMode.fromValue(REQUEST_EXECUTION) == RequestExecutionMode.BOUNDED) {
+            requestExecutor = new BoundedRequestExecutor(REQUEST_EXECUTOR_THREADS, REQUEST_EXECUTOR_QUEUE, REQUEST_EXECUTOR_RETRY_AFTER);
+            log.info("Executing write requests on {} threads with a queue of {}.", REQUEST_EXECUTOR_THREADS, REQUEST_EXECUTOR_QUEUE);
+        } else {
+            requestExecutor = null;
+        }
+
+        if (RESPONSE_REPLAY_TTL_SECONDS > 0) {
+            responseReplay = new ResponseReplay(new IdempotentResponseRepository(dataContext), accountTransactionRepository.getTransactionIdFilter(),
+                    RESPONSE_REPLAY_CACHE_SIZE, Duration.ofSeconds(RESPONSE_REPLAY_TTL_SECONDS));
+            responseReplay.start();
+            log.info("Replaying responses of retried requests for {} seconds.", RESPONSE_REPLAY_TTL_SECONDS);
+        } else {
+            responseReplay = null;
+        }
 
         var accountController = new AccountController(financialAccountService, validator);
-        var transactionController = new TransactionController(accountTransactionService, validator);
-        var transferController = new TransferController(transferService, validator);
+        var transactionController = new TransactionController(accountTransactionService, responseReplay);
+        var transferController = new TransferController(transferService, transferBatcher, responseReplay);
 
-        Spark.threadPool(MAX_THREAD_SIZE, MIN_THREAD_SIZE, IDEL_TIME_MILLIS);
+        if (httpThreadMode == HttpThreadMode.VIRTUAL) {
+            EmbeddedServers.add(EmbeddedServers.Identifiers.JETTY, new EmbeddedJettyFactory().withThreadPool(new VirtualThreadPool("http-")));
+            log.info("Running http handlers on virtual threads with {} database connections.", DB_MAX_CONNECTIONS);
+        } else {
+            int maxThreads = MAX_THREAD_SIZE;
+            //Every request the executor accepts holds an http thread while it waits, so more must be left to reject
+            //the ones beyond its queue, otherwise they wait in Jetty's unbounded queue instead
+            if (requestExecutor != null)
+                maxThreads += REQUEST_EXECUTOR_THREADS + REQUEST_EXECUTOR_QUEUE;
+            Spark.threadPool(maxThreads, MIN_THREAD_SIZE, IDEL_TIME_MILLIS);
+            log.info("Running http handlers on up to {} threads.", maxThreads);
+        }
+        var accessLog = new AccessLog(ACCESS_LOG_SAMPLE_RATE);
         Spark.port(Integer.parseInt(port));
-        Spark.after((req, res) -> res.type(JSON_CONTENT_TYPE));
+        Spark.after((req, res) -> {
+            if (res.type() == null)
+                res.type(JSON_CONTENT_TYPE);
+        });
         Spark.exception(TransferBaseException.class, (e, request, response) -> {
             response.status(e.getStatus());
             response.type(JSON_CONTENT_TYPE);
@@ -71,21 +201,33 @@ public final class Application {
         Spark.exception(ConstraintViolationException.class, (e, request, response) -> {
             response.type(JSON_CONTENT_TYPE);
             response.status(400);
-            var message = e.getViolations().stream().map(ConstraintViolation::getMessage).collect(Collectors.joining(System.lineSeparator()));
+            var message = String.join(System.lineSeparator(), e.getMessages());
             response.body(String.format("{\"message\":\"%s\" }", message));
         });
 
         path(CONTEXT_PATH, () -> {
-                    before("/*", (q, a) -> log.info("Received api call on  path {}", q.pathInfo()));
+                    before("/*", accessLog::start);
+                    afterAfter("/*", accessLog::end);
                     path("/", () -> {
                         path("/accounts", () -> {
-                            post("", accountController.createFinancialAccount, JsonUtils::writeValueAsString);
-                            get("/:account_number", accountController.getAccount, JsonUtils::writeValueAsString);
-                            post("/withdraw", transactionController.createWithdraw, JsonUtils::writeValueAsString);
-                            post("/deposit", transactionController.createDeposit, JsonUtils::writeValueAsString);
-                            post("/transfer", transferController.transfer, JsonUtils::writeValueAsString);
-                            get("/:account_number/transaction", transactionController.getAccountTransactionList, JsonUtils::writeValueAsString);
+                            post("", write(json(accountController.createFinancialAccount)));
+                            get("/:account_number", json(accountController.getAccount));
+                            post("/withdraw", write(json(transactionController.createWithdraw)));
+                            post("/deposit", write(json(transactionController.createDeposit)));
+                            post("/transactions/import", write(transactionController.importTransactions));
+                            post("/transfer", write(json(transferController.transfer)));
+                            post("/transfers/batch", write(json(transferController.transferBatch)));
+                            get("/:account_number/transaction", json(transactionController.getAccountTransactionList));
+                            get("/:account_number/transactions/export", transactionController.exportAccountTransactions);
                         });
+                        if (requestExecutor != null)
+                            get("/metrics/request-executor", json((request, response) -> requestExecutor.getMetrics()));
+                        if (ACCOUNT_CACHE_SIZE > 0)
+                            get("/metrics/account-cache", json((request, response) -> financialAccountService.getAccountCacheMetrics()));
+                        if (balanceCache != null)
+                            get("/metrics/balance-cache", json((request, response) -> financialAccountService.getBalanceCacheMetrics()));
+                        if (IDEMPOTENCY_FILTER_CAPACITY > 0)
+                            get("/metrics/idempotency-filter", json((request, response) -> accountTransactionService.getIdempotencyFilterMetrics()));
                     });
                 }
         );
@@ -93,6 +235,14 @@ public final class Application {
 
     }
 
+    /**
+     * Route of an endpoint that writes to the database, executed by the {@link BoundedRequestExecutor} when one is
+     * configured
+     */
+    private Route write(Route route) {
+        return requestExecutor == null ? route : requestExecutor.bounded(route);
+    }
+
     public void logApplicationStartup(String port) {
         String protocol = "http";
         String contextPath = System.getProperty("server.servlet.context-path");
@@ -124,7 +274,14 @@ public final class Application {
     public void stop() {
         log.info("Stop spark .");
         Spark.stop();
-
+        if (requestExecutor != null)
+            requestExecutor.stop();
+        if (responseReplay != null)
+            responseReplay.stop();
+        if (transferBatcher != null)
+            transferBatcher.stop();
+        if (ledgerEngine != null)
+            ledgerEngine.stop();
     }
 
 }
@@ -1,5 +1,6 @@
 package com.revolut.challenge;
 
+import com.revolut.challenge.ledger.LedgerMode;
 import com.revolut.challenge.util.LiquibaseUtil;
 import org.h2.jdbcx.JdbcConnectionPool;
 
@@ -8,10 +9,12 @@ class TransferApp {
     public static void main(String[] args)  {
 
         var dataSource = JdbcConnectionPool.create("jdbc:h2:mem:~/transfer", "sa", "");
+        dataSource.setMaxConnections(Application.DB_MAX_CONNECTIONS);
         var port = System.getProperty("server.port", "4000");
-        var application = new Application(dataSource ,port);
+        var ledgerMode = LedgerMode.fromValue(System.getProperty("ledger-engine", LedgerMode.DATABASE.getValue()));
 
         LiquibaseUtil.init(dataSource);
+        var application = new Application(dataSource, port, ledgerMode);
         application.logApplicationStartup(port);
 
         Runtime.getRuntime().addShutdownHook(new Thread(application::stop, "TransferShutdownHook"));
@@ -0,0 +1,8 @@
+package com.revolut.challenge.exception;
+
+public class AccountLockTimeoutException extends TransferBaseException {
+
+    public AccountLockTimeoutException(String accountNumber) {
+        super(409, "Account " + accountNumber + " is busy, try again", "Account Locked");
+    }
+}
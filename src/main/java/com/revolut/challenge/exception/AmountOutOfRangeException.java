@@ -0,0 +1,8 @@
+package com.revolut.challenge.exception;
+
+public class AmountOutOfRangeException extends TransferBaseException {
+
+    public AmountOutOfRangeException() {
+        super(400, "Amount is out of range", "Invalid data");
+    }
+}
@@ -0,0 +1,12 @@
+package com.revolut.challenge.exception;
+
+public class AtomicBatchNotSupportedException extends TransferBaseException {
+
+    public AtomicBatchNotSupportedException() {
+        this("All-or-nothing batches are not supported by the in-memory ledger");
+    }
+
+    public AtomicBatchNotSupportedException(String message) {
+        super(400, message, "Bad input data");
+    }
+}
@@ -0,0 +1,8 @@
+package com.revolut.challenge.exception;
+
+public class BatchAbortedException extends TransferBaseException {
+
+    public BatchAbortedException() {
+        super(409, "Transfer is not applied because another transfer of the batch was rejected", "Batch aborted");
+    }
+}
@@ -2,16 +2,25 @@ package com.revolut.challenge.exception;
 
 
 import javax.validation.ConstraintViolation;
+import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 public class ConstraintViolationException  extends  RuntimeException {
-    private Set<ConstraintViolation<Object> >violations;
+    private List<String> messages;
 
     public ConstraintViolationException(Set<ConstraintViolation<Object>> violations) {
-        this.violations = violations;
+        this(violations.stream().map(ConstraintViolation::getMessage).collect(Collectors.toList()));
     }
 
-    public Set<ConstraintViolation<Object>> getViolations() {
-        return violations;
+    /**
+     * @param messages messages of the violated constraints, for validation done without a {@link javax.validation.Validator}
+     */
+    public ConstraintViolationException(List<String> messages) {
+        this.messages = messages;
+    }
+
+    public List<String> getMessages() {
+        return messages;
     }
 }
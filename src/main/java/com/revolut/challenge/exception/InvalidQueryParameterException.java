@@ -0,0 +1,8 @@
+package com.revolut.challenge.exception;
+
+public class InvalidQueryParameterException extends TransferBaseException {
+
+    public InvalidQueryParameterException(String name) {
+        super(400, "Invalid query parameter " + name, "Invalid data");
+    }
+}
@@ -0,0 +1,8 @@
+package com.revolut.challenge.exception;
+
+public class ServiceUnavailableException extends TransferBaseException {
+
+    public ServiceUnavailableException() {
+        super(503, "Service is busy, try again later", "Service Unavailable");
+    }
+}
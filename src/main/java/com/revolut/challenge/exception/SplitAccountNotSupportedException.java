@@ -0,0 +1,8 @@
+package com.revolut.challenge.exception;
+
+public class SplitAccountNotSupportedException extends TransferBaseException {
+
+    public SplitAccountNotSupportedException() {
+        super(400, "Split accounts are not supported by the in-memory ledger", "Bad input data");
+    }
+}
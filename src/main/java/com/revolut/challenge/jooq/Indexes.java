@@ -4,8 +4,11 @@
 package com.revolut.challenge.jooq;
 
 
+import com.revolut.challenge.jooq.tables.AccountBalanceSlot;
 import com.revolut.challenge.jooq.tables.AccountTransaction;
 import com.revolut.challenge.jooq.tables.FinancialAccount;
+import com.revolut.challenge.jooq.tables.IdempotencyKey;
+import com.revolut.challenge.jooq.tables.IdempotentResponse;
 import com.revolut.challenge.jooq.tables.Transfer;
 
 import javax.annotation.processing.Generated;
@@ -32,9 +35,14 @@ public class Indexes {
     // INDEX definitions
     // -------------------------------------------------------------------------
 
+    public static final Index PK_ACCOUNT_BALANCE_SLOT_INDEX = Indexes0.PK_ACCOUNT_BALANCE_SLOT_INDEX;
+    public static final Index IDX_ACCOUNT_TRANSACTION_ACCOUNT = Indexes0.IDX_ACCOUNT_TRANSACTION_ACCOUNT;
     public static final Index PRIMARY_KEY_2 = Indexes0.PRIMARY_KEY_2;
     public static final Index IDX_ACCOUNT_NUMBER = Indexes0.IDX_ACCOUNT_NUMBER;
     public static final Index PRIMARY_KEY_B = Indexes0.PRIMARY_KEY_B;
+    public static final Index PK_IDEMPOTENCY_KEY_INDEX = Indexes0.PK_IDEMPOTENCY_KEY_INDEX;
+    public static final Index IDX_IDEMPOTENT_RESPONSE_CREATED = Indexes0.IDX_IDEMPOTENT_RESPONSE_CREATED;
+    public static final Index PK_IDEMPOTENT_RESPONSE_INDEX = Indexes0.PK_IDEMPOTENT_RESPONSE_INDEX;
     public static final Index PRIMARY_KEY_7 = Indexes0.PRIMARY_KEY_7;
 
     // -------------------------------------------------------------------------
@@ -42,9 +50,14 @@ public class Indexes {
     // -------------------------------------------------------------------------
 
     private static class Indexes0 {
+        public static Index PK_ACCOUNT_BALANCE_SLOT_INDEX = Internal.createIndex("PK_ACCOUNT_BALANCE_SLOT_INDEX", AccountBalanceSlot.ACCOUNT_BALANCE_SLOT, new OrderField[] { AccountBalanceSlot.ACCOUNT_BALANCE_SLOT.FINANCIAL_ACCOUNT, AccountBalanceSlot.ACCOUNT_BALANCE_SLOT.SLOT }, true);
+        public static Index IDX_ACCOUNT_TRANSACTION_ACCOUNT = Internal.createIndex("IDX_ACCOUNT_TRANSACTION_ACCOUNT", AccountTransaction.ACCOUNT_TRANSACTION, new OrderField[] { AccountTransaction.ACCOUNT_TRANSACTION.FINANCIAL_ACCOUNT, AccountTransaction.ACCOUNT_TRANSACTION.ID }, false);
         public static Index PRIMARY_KEY_2 = Internal.createIndex("PRIMARY_KEY_2", AccountTransaction.ACCOUNT_TRANSACTION, new OrderField[] { AccountTransaction.ACCOUNT_TRANSACTION.ID }, true);
         public static Index IDX_ACCOUNT_NUMBER = Internal.createIndex("IDX_ACCOUNT_NUMBER", FinancialAccount.FINANCIAL_ACCOUNT, new OrderField[] { FinancialAccount.FINANCIAL_ACCOUNT.ACCOUNT_NUMBER }, true);
         public static Index PRIMARY_KEY_B = Internal.createIndex("PRIMARY_KEY_B", FinancialAccount.FINANCIAL_ACCOUNT, new OrderField[] { FinancialAccount.FINANCIAL_ACCOUNT.ID }, true);
+        public static Index PK_IDEMPOTENCY_KEY_INDEX = Internal.createIndex("PK_IDEMPOTENCY_KEY_INDEX", IdempotencyKey.IDEMPOTENCY_KEY, new OrderField[] { IdempotencyKey.IDEMPOTENCY_KEY.TRANSACTION_ID, IdempotencyKey.IDEMPOTENCY_KEY.TRANSACTION_TYPE }, true);
+        public static Index IDX_IDEMPOTENT_RESPONSE_CREATED = Internal.createIndex("IDX_IDEMPOTENT_RESPONSE_CREATED", IdempotentResponse.IDEMPOTENT_RESPONSE, new OrderField[] { IdempotentResponse.IDEMPOTENT_RESPONSE.CREATE_DATETIME }, false);
+        public static Index PK_IDEMPOTENT_RESPONSE_INDEX = Internal.createIndex("PK_IDEMPOTENT_RESPONSE_INDEX", IdempotentResponse.IDEMPOTENT_RESPONSE, new OrderField[] { IdempotentResponse.IDEMPOTENT_RESPONSE.TRANSACTION_ID, IdempotentResponse.IDEMPOTENT_RESPONSE.OPERATION }, true);
         public static Index PRIMARY_KEY_7 = Internal.createIndex("PRIMARY_KEY_7", Transfer.TRANSFER, new OrderField[] { Transfer.TRANSFER.ID }, true);
     }
 }
@@ -4,11 +4,17 @@
 package com.revolut.challenge.jooq;
 
 
+import com.revolut.challenge.jooq.tables.AccountBalanceSlot;
 import com.revolut.challenge.jooq.tables.AccountTransaction;
 import com.revolut.challenge.jooq.tables.FinancialAccount;
+import com.revolut.challenge.jooq.tables.IdempotencyKey;
+import com.revolut.challenge.jooq.tables.IdempotentResponse;
 import com.revolut.challenge.jooq.tables.Transfer;
+import com.revolut.challenge.jooq.tables.records.AccountBalanceSlotRecord;
 import com.revolut.challenge.jooq.tables.records.AccountTransactionRecord;
 import com.revolut.challenge.jooq.tables.records.FinancialAccountRecord;
+import com.revolut.challenge.jooq.tables.records.IdempotencyKeyRecord;
+import com.revolut.challenge.jooq.tables.records.IdempotentResponseRecord;
 import com.revolut.challenge.jooq.tables.records.TransferRecord;
 
 import javax.annotation.processing.Generated;
@@ -44,8 +50,11 @@ public class Keys {
     // UNIQUE and PRIMARY KEY definitions
     // -------------------------------------------------------------------------
 
+    public static final UniqueKey<AccountBalanceSlotRecord> PK_ACCOUNT_BALANCE_SLOT = UniqueKeys0.PK_ACCOUNT_BALANCE_SLOT;
     public static final UniqueKey<AccountTransactionRecord> PK_ACCOUNT_TRANSACTION = UniqueKeys0.PK_ACCOUNT_TRANSACTION;
     public static final UniqueKey<FinancialAccountRecord> PK_FINANCIAL_ACCOUNT = UniqueKeys0.PK_FINANCIAL_ACCOUNT;
+    public static final UniqueKey<IdempotencyKeyRecord> PK_IDEMPOTENCY_KEY = UniqueKeys0.PK_IDEMPOTENCY_KEY;
+    public static final UniqueKey<IdempotentResponseRecord> PK_IDEMPOTENT_RESPONSE = UniqueKeys0.PK_IDEMPOTENT_RESPONSE;
     public static final UniqueKey<TransferRecord> PK_TRANSFER = UniqueKeys0.PK_TRANSFER;
 
     // -------------------------------------------------------------------------
@@ -64,8 +73,11 @@ public class Keys {
     }
 
     private static class UniqueKeys0 {
+        public static final UniqueKey<AccountBalanceSlotRecord> PK_ACCOUNT_BALANCE_SLOT = Internal.createUniqueKey(AccountBalanceSlot.ACCOUNT_BALANCE_SLOT, "PK_ACCOUNT_BALANCE_SLOT", AccountBalanceSlot.ACCOUNT_BALANCE_SLOT.FINANCIAL_ACCOUNT, AccountBalanceSlot.ACCOUNT_BALANCE_SLOT.SLOT);
         public static final UniqueKey<AccountTransactionRecord> PK_ACCOUNT_TRANSACTION = Internal.createUniqueKey(AccountTransaction.ACCOUNT_TRANSACTION, "PK_ACCOUNT_TRANSACTION", AccountTransaction.ACCOUNT_TRANSACTION.ID);
         public static final UniqueKey<FinancialAccountRecord> PK_FINANCIAL_ACCOUNT = Internal.createUniqueKey(FinancialAccount.FINANCIAL_ACCOUNT, "PK_FINANCIAL_ACCOUNT", FinancialAccount.FINANCIAL_ACCOUNT.ID);
+        public static final UniqueKey<IdempotencyKeyRecord> PK_IDEMPOTENCY_KEY = Internal.createUniqueKey(IdempotencyKey.IDEMPOTENCY_KEY, "PK_IDEMPOTENCY_KEY", IdempotencyKey.IDEMPOTENCY_KEY.TRANSACTION_ID, IdempotencyKey.IDEMPOTENCY_KEY.TRANSACTION_TYPE);
+        public static final UniqueKey<IdempotentResponseRecord> PK_IDEMPOTENT_RESPONSE = Internal.createUniqueKey(IdempotentResponse.IDEMPOTENT_RESPONSE, "PK_IDEMPOTENT_RESPONSE", IdempotentResponse.IDEMPOTENT_RESPONSE.TRANSACTION_ID, IdempotentResponse.IDEMPOTENT_RESPONSE.OPERATION);
         public static final UniqueKey<TransferRecord> PK_TRANSFER = Internal.createUniqueKey(Transfer.TRANSFER, "PK_TRANSFER", Transfer.TRANSFER.ID);
     }
 }
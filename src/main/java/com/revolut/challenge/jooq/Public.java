@@ -4,8 +4,11 @@
 package com.revolut.challenge.jooq;
 
 
+import com.revolut.challenge.jooq.tables.AccountBalanceSlot;
 import com.revolut.challenge.jooq.tables.AccountTransaction;
 import com.revolut.challenge.jooq.tables.FinancialAccount;
+import com.revolut.challenge.jooq.tables.IdempotencyKey;
+import com.revolut.challenge.jooq.tables.IdempotentResponse;
 import com.revolut.challenge.jooq.tables.Transfer;
 
 import java.util.ArrayList;
@@ -39,6 +42,11 @@ public class Public extends SchemaImpl {
      */
     public static final Public PUBLIC = new Public();
 
+    /**
+     * The table <code>PUBLIC.ACCOUNT_BALANCE_SLOT</code>.
+     */
+    public final AccountBalanceSlot ACCOUNT_BALANCE_SLOT = com.revolut.challenge.jooq.tables.AccountBalanceSlot.ACCOUNT_BALANCE_SLOT;
+
     /**
      * The table <code>PUBLIC.ACCOUNT_TRANSACTION</code>.
      */
@@ -49,6 +57,16 @@ public class Public extends SchemaImpl {
      */
     public final FinancialAccount FINANCIAL_ACCOUNT = com.revolut.challenge.jooq.tables.FinancialAccount.FINANCIAL_ACCOUNT;
 
+    /**
+     * The table <code>PUBLIC.IDEMPOTENCY_KEY</code>.
+     */
+    public final IdempotencyKey IDEMPOTENCY_KEY = com.revolut.challenge.jooq.tables.IdempotencyKey.IDEMPOTENCY_KEY;
+
+    /**
+     * The table <code>PUBLIC.IDEMPOTENT_RESPONSE</code>.
+     */
+    public final IdempotentResponse IDEMPOTENT_RESPONSE = com.revolut.challenge.jooq.tables.IdempotentResponse.IDEMPOTENT_RESPONSE;
+
     /**
      * The table <code>PUBLIC.TRANSFER</code>.
      */
@@ -76,8 +94,11 @@ public class Public extends SchemaImpl {
 
     private final List<Table<?>> getTables0() {
         return Arrays.<Table<?>>asList(
+            AccountBalanceSlot.ACCOUNT_BALANCE_SLOT,
             AccountTransaction.ACCOUNT_TRANSACTION,
             FinancialAccount.FINANCIAL_ACCOUNT,
+            IdempotencyKey.IDEMPOTENCY_KEY,
+            IdempotentResponse.IDEMPOTENT_RESPONSE,
             Transfer.TRANSFER);
     }
 }
@@ -4,8 +4,11 @@
 package com.revolut.challenge.jooq;
 
 
+import com.revolut.challenge.jooq.tables.AccountBalanceSlot;
 import com.revolut.challenge.jooq.tables.AccountTransaction;
 import com.revolut.challenge.jooq.tables.FinancialAccount;
+import com.revolut.challenge.jooq.tables.IdempotencyKey;
+import com.revolut.challenge.jooq.tables.IdempotentResponse;
 import com.revolut.challenge.jooq.tables.Transfer;
 
 import javax.annotation.processing.Generated;
@@ -24,6 +27,11 @@ import javax.annotation.processing.Generated;
 @SuppressWarnings({ "all", "unchecked", "rawtypes" })
 public class Tables {
 
+    /**
+     * The table <code>PUBLIC.ACCOUNT_BALANCE_SLOT</code>.
+     */
+    public static final AccountBalanceSlot ACCOUNT_BALANCE_SLOT = AccountBalanceSlot.ACCOUNT_BALANCE_SLOT;
+
     /**
      * The table <code>PUBLIC.ACCOUNT_TRANSACTION</code>.
      */
@@ -34,6 +42,16 @@ public class Tables {
      */
     public static final FinancialAccount FINANCIAL_ACCOUNT = FinancialAccount.FINANCIAL_ACCOUNT;
 
+    /**
+     * The table <code>PUBLIC.IDEMPOTENCY_KEY</code>.
+     */
+    public static final IdempotencyKey IDEMPOTENCY_KEY = IdempotencyKey.IDEMPOTENCY_KEY;
+
+    /**
+     * The table <code>PUBLIC.IDEMPOTENT_RESPONSE</code>.
+     */
+    public static final IdempotentResponse IDEMPOTENT_RESPONSE = IdempotentResponse.IDEMPOTENT_RESPONSE;
+
     /**
      * The table <code>PUBLIC.TRANSFER</code>.
      */
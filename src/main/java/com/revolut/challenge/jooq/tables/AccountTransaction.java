@@ -10,7 +10,6 @@ import com.revolut.challenge.jooq.Public;
 import com.revolut.challenge.jooq.tables.records.AccountTransactionRecord;
 import com.revolut.challenge.model.enumeration.TransactionType;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
@@ -83,12 +82,12 @@ public class AccountTransaction extends TableImpl<AccountTransactionRecord> {
     /**
      * The column <code>PUBLIC.ACCOUNT_TRANSACTION.AMOUNT</code>.
      */
-    public final TableField<AccountTransactionRecord, BigDecimal> AMOUNT = createField(DSL.name("AMOUNT"), org.jooq.impl.SQLDataType.DECIMAL(20, 2).nullable(false), this, "");
+    public final TableField<AccountTransactionRecord, Long> AMOUNT = createField(DSL.name("AMOUNT"), org.jooq.impl.SQLDataType.DECIMAL(20, 2).nullable(false), this, "", new com.revolut.challenge.util.MoneyConverter());
 
     /**
      * The column <code>PUBLIC.ACCOUNT_TRANSACTION.BALANCE</code>.
      */
-    public final TableField<AccountTransactionRecord, BigDecimal> BALANCE = createField(DSL.name("BALANCE"), org.jooq.impl.SQLDataType.DECIMAL(20, 2).nullable(false), this, "");
+    public final TableField<AccountTransactionRecord, Long> BALANCE = createField(DSL.name("BALANCE"), org.jooq.impl.SQLDataType.DECIMAL(20, 2).nullable(false), this, "", new com.revolut.challenge.util.MoneyConverter());
 
     /**
      * The column <code>PUBLIC.ACCOUNT_TRANSACTION.TRANSFER</code>.
@@ -140,7 +139,7 @@ public class AccountTransaction extends TableImpl<AccountTransactionRecord> {
 
     @Override
     public List<Index> getIndexes() {
-        return Arrays.<Index>asList(Indexes.PRIMARY_KEY_2);
+        return Arrays.<Index>asList(Indexes.IDX_ACCOUNT_TRANSACTION_ACCOUNT, Indexes.PRIMARY_KEY_2);
     }
 
     @Override
@@ -189,7 +188,7 @@ public class AccountTransaction extends TableImpl<AccountTransactionRecord> {
     // -------------------------------------------------------------------------
 
     @Override
-    public Row8<Long, TransactionType, LocalDateTime, Long, BigDecimal, BigDecimal, Long, String> fieldsRow() {
+    public Row8<Long, TransactionType, LocalDateTime, Long, Long, Long, Long, String> fieldsRow() {
         return (Row8) super.fieldsRow();
     }
 }
@@ -11,7 +11,6 @@ import com.revolut.challenge.jooq.tables.records.FinancialAccountRecord;
 import com.revolut.challenge.model.enumeration.AccountStatusType;
 import com.revolut.challenge.model.enumeration.Currency;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
@@ -24,7 +23,7 @@ import org.jooq.Identity;
 import org.jooq.Index;
 import org.jooq.Name;
 import org.jooq.Record;
-import org.jooq.Row6;
+import org.jooq.Row7;
 import org.jooq.Schema;
 import org.jooq.Table;
 import org.jooq.TableField;
@@ -84,13 +83,18 @@ public class FinancialAccount extends TableImpl<FinancialAccountRecord> {
     /**
      * The column <code>PUBLIC.FINANCIAL_ACCOUNT.BALANCE</code>.
      */
-    public final TableField<FinancialAccountRecord, BigDecimal> BALANCE = createField(DSL.name("BALANCE"), org.jooq.impl.SQLDataType.DECIMAL(20, 2), this, "");
+    public final TableField<FinancialAccountRecord, Long> BALANCE = createField(DSL.name("BALANCE"), org.jooq.impl.SQLDataType.DECIMAL(20, 2), this, "", new com.revolut.challenge.util.MoneyConverter());
 
     /**
      * The column <code>PUBLIC.FINANCIAL_ACCOUNT.CURRENCY</code>.
      */
     public final TableField<FinancialAccountRecord, Currency> CURRENCY = createField(DSL.name("CURRENCY"), org.jooq.impl.SQLDataType.VARCHAR(20), this, "", new org.jooq.impl.EnumConverter<java.lang.String, com.revolut.challenge.model.enumeration.Currency>(java.lang.String.class, com.revolut.challenge.model.enumeration.Currency.class));
 
+    /**
+     * The column <code>PUBLIC.FINANCIAL_ACCOUNT.VERSION</code>.
+     */
+    public final TableField<FinancialAccountRecord, Long> VERSION = createField(DSL.name("VERSION"), org.jooq.impl.SQLDataType.BIGINT.nullable(false).defaultValue(org.jooq.impl.DSL.field("0", org.jooq.impl.SQLDataType.BIGINT)), this, "");
+
     /**
      * Create a <code>PUBLIC.FINANCIAL_ACCOUNT</code> table reference
      */
@@ -176,11 +180,11 @@ public class FinancialAccount extends TableImpl<FinancialAccountRecord> {
     }
 
     // -------------------------------------------------------------------------
-    // Row6 type methods
+    // Row7 type methods
     // -------------------------------------------------------------------------
 
     @Override
-    public Row6<Long, AccountStatusType, String, LocalDateTime, BigDecimal, Currency> fieldsRow() {
-        return (Row6) super.fieldsRow();
+    public Row7<Long, AccountStatusType, String, LocalDateTime, Long, Currency, Long> fieldsRow() {
+        return (Row7) super.fieldsRow();
     }
 }
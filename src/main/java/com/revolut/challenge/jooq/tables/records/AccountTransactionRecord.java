@@ -7,7 +7,6 @@ package com.revolut.challenge.jooq.tables.records;
 import com.revolut.challenge.jooq.tables.AccountTransaction;
 import com.revolut.challenge.model.enumeration.TransactionType;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 import javax.annotation.processing.Generated;
@@ -30,7 +29,7 @@ import org.jooq.impl.UpdatableRecordImpl;
     comments = "This class is generated by jOOQ"
 )
 @SuppressWarnings({ "all", "unchecked", "rawtypes" })
-public class AccountTransactionRecord extends UpdatableRecordImpl<AccountTransactionRecord> implements Record8<Long, TransactionType, LocalDateTime, Long, BigDecimal, BigDecimal, Long, String> {
+public class AccountTransactionRecord extends UpdatableRecordImpl<AccountTransactionRecord> implements Record8<Long, TransactionType, LocalDateTime, Long, Long, Long, Long, String> {
 
     private static final long serialVersionUID = -2012202438;
 
@@ -97,7 +96,7 @@ public class AccountTransactionRecord extends UpdatableRecordImpl<AccountTransac
     /**
      * Setter for <code>PUBLIC.ACCOUNT_TRANSACTION.AMOUNT</code>.
      */
-    public AccountTransactionRecord setAmount(BigDecimal value) {
+    public AccountTransactionRecord setAmount(Long value) {
         set(4, value);
         return this;
     }
@@ -105,14 +104,14 @@ public class AccountTransactionRecord extends UpdatableRecordImpl<AccountTransac
     /**
      * Getter for <code>PUBLIC.ACCOUNT_TRANSACTION.AMOUNT</code>.
      */
-    public BigDecimal getAmount() {
-        return (BigDecimal) get(4);
+    public Long getAmount() {
+        return (Long) get(4);
     }
 
     /**
      * Setter for <code>PUBLIC.ACCOUNT_TRANSACTION.BALANCE</code>.
      */
-    public AccountTransactionRecord setBalance(BigDecimal value) {
+    public AccountTransactionRecord setBalance(Long value) {
         set(5, value);
         return this;
     }
@@ -120,8 +119,8 @@ public class AccountTransactionRecord extends UpdatableRecordImpl<AccountTransac
     /**
      * Getter for <code>PUBLIC.ACCOUNT_TRANSACTION.BALANCE</code>.
      */
-    public BigDecimal getBalance() {
-        return (BigDecimal) get(5);
+    public Long getBalance() {
+        return (Long) get(5);
     }
 
     /**
@@ -168,12 +167,12 @@ public class AccountTransactionRecord extends UpdatableRecordImpl<AccountTransac
     // -------------------------------------------------------------------------
 
     @Override
-    public Row8<Long, TransactionType, LocalDateTime, Long, BigDecimal, BigDecimal, Long, String> fieldsRow() {
+    public Row8<Long, TransactionType, LocalDateTime, Long, Long, Long, Long, String> fieldsRow() {
         return (Row8) super.fieldsRow();
     }
 
     @Override
-    public Row8<Long, TransactionType, LocalDateTime, Long, BigDecimal, BigDecimal, Long, String> valuesRow() {
+    public Row8<Long, TransactionType, LocalDateTime, Long, Long, Long, Long, String> valuesRow() {
         return (Row8) super.valuesRow();
     }
 
@@ -198,12 +197,12 @@ public class AccountTransactionRecord extends UpdatableRecordImpl<AccountTransac
     }
 
     @Override
-    public Field<BigDecimal> field5() {
+    public Field<Long> field5() {
         return AccountTransaction.ACCOUNT_TRANSACTION.AMOUNT;
     }
 
     @Override
-    public Field<BigDecimal> field6() {
+    public Field<Long> field6() {
         return AccountTransaction.ACCOUNT_TRANSACTION.BALANCE;
     }
 
@@ -238,12 +237,12 @@ public class AccountTransactionRecord extends UpdatableRecordImpl<AccountTransac
     }
 
     @Override
-    public BigDecimal component5() {
+    public Long component5() {
         return getAmount();
     }
 
     @Override
-    public BigDecimal component6() {
+    public Long component6() {
         return getBalance();
     }
 
@@ -278,12 +277,12 @@ public class AccountTransactionRecord extends UpdatableRecordImpl<AccountTransac
     }
 
     @Override
-    public BigDecimal value5() {
+    public Long value5() {
         return getAmount();
     }
 
     @Override
-    public BigDecimal value6() {
+    public Long value6() {
         return getBalance();
     }
 
@@ -322,13 +321,13 @@ public class AccountTransactionRecord extends UpdatableRecordImpl<AccountTransac
     }
 
     @Override
-    public AccountTransactionRecord value5(BigDecimal value) {
+    public AccountTransactionRecord value5(Long value) {
         setAmount(value);
         return this;
     }
 
     @Override
-    public AccountTransactionRecord value6(BigDecimal value) {
+    public AccountTransactionRecord value6(Long value) {
         setBalance(value);
         return this;
     }
@@ -346,7 +345,7 @@ public class AccountTransactionRecord extends UpdatableRecordImpl<AccountTransac
     }
 
     @Override
-    public AccountTransactionRecord values(Long value1, TransactionType value2, LocalDateTime value3, Long value4, BigDecimal value5, BigDecimal value6, Long value7, String value8) {
+    public AccountTransactionRecord values(Long value1, TransactionType value2, LocalDateTime value3, Long value4, Long value5, Long value6, Long value7, String value8) {
         value1(value1);
         value2(value2);
         value3(value3);
@@ -372,7 +371,7 @@ public class AccountTransactionRecord extends UpdatableRecordImpl<AccountTransac
     /**
      * Create a detached, initialised AccountTransactionRecord
      */
-    public AccountTransactionRecord(Long id, TransactionType transactionType, LocalDateTime createDatetime, Long financialAccount, BigDecimal amount, BigDecimal balance, Long transfer, String transactionId) {
+    public AccountTransactionRecord(Long id, TransactionType transactionType, LocalDateTime createDatetime, Long financialAccount, Long amount, Long balance, Long transfer, String transactionId) {
         super(AccountTransaction.ACCOUNT_TRANSACTION);
 
         set(0, id);
@@ -8,15 +8,14 @@ import com.revolut.challenge.jooq.tables.FinancialAccount;
 import com.revolut.challenge.model.enumeration.AccountStatusType;
 import com.revolut.challenge.model.enumeration.Currency;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 import javax.annotation.processing.Generated;
 
 import org.jooq.Field;
 import org.jooq.Record1;
-import org.jooq.Record6;
-import org.jooq.Row6;
+import org.jooq.Record7;
+import org.jooq.Row7;
 import org.jooq.impl.UpdatableRecordImpl;
 
 
@@ -31,7 +30,7 @@ import org.jooq.impl.UpdatableRecordImpl;
     comments = "This class is generated by jOOQ"
 )
 @SuppressWarnings({ "all", "unchecked", "rawtypes" })
-public class FinancialAccountRecord extends UpdatableRecordImpl<FinancialAccountRecord> implements Record6<Long, AccountStatusType, String, LocalDateTime, BigDecimal, Currency> {
+public class FinancialAccountRecord extends UpdatableRecordImpl<FinancialAccountRecord> implements Record7<Long, AccountStatusType, String, LocalDateTime, Long, Currency, Long> {
 
     private static final long serialVersionUID = 1700298837;
 
@@ -98,7 +97,7 @@ public class FinancialAccountRecord extends UpdatableRecordImpl<FinancialAccount
     /**
      * Setter for <code>PUBLIC.FINANCIAL_ACCOUNT.BALANCE</code>.
      */
-    public FinancialAccountRecord setBalance(BigDecimal value) {
+    public FinancialAccountRecord setBalance(Long value) {
         set(4, value);
         return this;
     }
@@ -106,8 +105,8 @@ public class FinancialAccountRecord extends UpdatableRecordImpl<FinancialAccount
     /**
      * Getter for <code>PUBLIC.FINANCIAL_ACCOUNT.BALANCE</code>.
      */
-    public BigDecimal getBalance() {
-        return (BigDecimal) get(4);
+    public Long getBalance() {
+        return (Long) get(4);
     }
 
     /**
@@ -125,6 +124,21 @@ public class FinancialAccountRecord extends UpdatableRecordImpl<FinancialAccount
         return (Currency) get(5);
     }
 
+    /**
+     * Setter for <code>PUBLIC.FINANCIAL_ACCOUNT.VERSION</code>.
+     */
+    public FinancialAccountRecord setVersion(Long value) {
+        set(6, value);
+        return this;
+    }
+
+    /**
+     * Getter for <code>PUBLIC.FINANCIAL_ACCOUNT.VERSION</code>.
+     */
+    public Long getVersion() {
+        return (Long) get(6);
+    }
+
     // -------------------------------------------------------------------------
     // Primary key information
     // -------------------------------------------------------------------------
@@ -135,17 +149,17 @@ public class FinancialAccountRecord extends UpdatableRecordImpl<FinancialAccount
     }
 
     // -------------------------------------------------------------------------
-    // Record6 type implementation
+    // Record7 type implementation
     // -------------------------------------------------------------------------
 
     @Override
-    public Row6<Long, AccountStatusType, String, LocalDateTime, BigDecimal, Currency> fieldsRow() {
-        return (Row6) super.fieldsRow();
+    public Row7<Long, AccountStatusType, String, LocalDateTime, Long, Currency, Long> fieldsRow() {
+        return (Row7) super.fieldsRow();
     }
 
     @Override
-    public Row6<Long, AccountStatusType, String, LocalDateTime, BigDecimal, Currency> valuesRow() {
-        return (Row6) super.valuesRow();
+    public Row7<Long, AccountStatusType, String, LocalDateTime, Long, Currency, Long> valuesRow() {
+        return (Row7) super.valuesRow();
     }
 
     @Override
@@ -169,7 +183,7 @@ public class FinancialAccountRecord extends UpdatableRecordImpl<FinancialAccount
     }
 
     @Override
-    public Field<BigDecimal> field5() {
+    public Field<Long> field5() {
         return FinancialAccount.FINANCIAL_ACCOUNT.BALANCE;
     }
 
@@ -178,6 +192,11 @@ public class FinancialAccountRecord extends UpdatableRecordImpl<FinancialAccount
         return FinancialAccount.FINANCIAL_ACCOUNT.CURRENCY;
     }
 
+    @Override
+    public Field<Long> field7() {
+        return FinancialAccount.FINANCIAL_ACCOUNT.VERSION;
+    }
+
     @Override
     public Long component1() {
         return getId();
@@ -199,7 +218,7 @@ public class FinancialAccountRecord extends UpdatableRecordImpl<FinancialAccount
     }
 
     @Override
-    public BigDecimal component5() {
+    public Long component5() {
         return getBalance();
     }
 
@@ -208,6 +227,11 @@ public class FinancialAccountRecord extends UpdatableRecordImpl<FinancialAccount
         return getCurrency();
     }
 
+    @Override
+    public Long component7() {
+        return getVersion();
+    }
+
     @Override
     public Long value1() {
         return getId();
@@ -229,7 +253,7 @@ public class FinancialAccountRecord extends UpdatableRecordImpl<FinancialAccount
     }
 
     @Override
-    public BigDecimal value5() {
+    public Long value5() {
         return getBalance();
     }
 
@@ -238,6 +262,11 @@ public class FinancialAccountRecord extends UpdatableRecordImpl<FinancialAccount
         return getCurrency();
     }
 
+    @Override
+    public Long value7() {
+        return getVersion();
+    }
+
     @Override
     public FinancialAccountRecord value1(Long value) {
         setId(value);
@@ -263,7 +292,7 @@ public class FinancialAccountRecord extends UpdatableRecordImpl<FinancialAccount
     }
 
     @Override
-    public FinancialAccountRecord value5(BigDecimal value) {
+    public FinancialAccountRecord value5(Long value) {
         setBalance(value);
         return this;
     }
@@ -275,13 +304,20 @@ public class FinancialAccountRecord extends UpdatableRecordImpl<FinancialAccount
     }
 
     @Override
-    public FinancialAccountRecord values(Long value1, AccountStatusType value2, String value3, LocalDateTime value4, BigDecimal value5, Currency value6) {
+    public FinancialAccountRecord value7(Long value) {
+        setVersion(value);
+        return this;
+    }
+
+    @Override
+    public FinancialAccountRecord values(Long value1, AccountStatusType value2, String value3, LocalDateTime value4, Long value5, Currency value6, Long value7) {
         value1(value1);
         value2(value2);
         value3(value3);
         value4(value4);
         value5(value5);
         value6(value6);
+        value7(value7);
         return this;
     }
 
@@ -299,7 +335,7 @@ public class FinancialAccountRecord extends UpdatableRecordImpl<FinancialAccount
     /**
      * Create a detached, initialised FinancialAccountRecord
      */
-    public FinancialAccountRecord(Long id, AccountStatusType accountStatusType, String accountNumber, LocalDateTime createDatetime, BigDecimal balance, Currency currency) {
+    public FinancialAccountRecord(Long id, AccountStatusType accountStatusType, String accountNumber, LocalDateTime createDatetime, Long balance, Currency currency, Long version) {
         super(FinancialAccount.FINANCIAL_ACCOUNT);
 
         set(0, id);
@@ -308,5 +344,6 @@ public class FinancialAccountRecord extends UpdatableRecordImpl<FinancialAccount
         set(3, createDatetime);
         set(4, balance);
         set(5, currency);
+        set(6, version);
     }
 }
@@ -0,0 +1,43 @@
+package com.revolut.challenge.ledger;
+
+import com.revolut.challenge.model.AccountBalance;
+import com.revolut.challenge.model.enumeration.Currency;
+
+/**
+ * In-memory copy of a financial account. Only the sequencer thread changes the balance,
+ * other threads may read it.
+ */
+final class AccountState {
+
+    final long id;
+    final String accountNumber;
+    final Currency currency;
+    volatile long balance;
+    /**
+     * Written after the balance, so a reader that sees a version also sees its balance
+     */
+    volatile long version;
+
+    AccountState(long id, String accountNumber, Currency currency, long balance, long version) {
+        this.id = id;
+        this.accountNumber = accountNumber;
+        this.currency = currency;
+        this.balance = balance;
+        this.version = version;
+    }
+
+    /**
+     * Change the balance and increment the version, called by the sequencer thread only.
+     */
+    void updateBalance(long balance) {
+        this.balance = balance;
+        this.version = version + 1;
+    }
+
+    /**
+     * Balance and version the account has once {@link #updateBalance} is called with the balance
+     */
+    AccountBalance balanceAfter(long balance) {
+        return new AccountBalance(accountNumber, balance, version + 1);
+    }
+}
@@ -0,0 +1,76 @@
+package com.revolut.challenge.ledger;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded multi-producer, single-consumer ring of preallocated {@link LedgerCommand} slots.
+ * <p>
+ * A producer claims the next sequence with one atomic increment, waits while the ring is full, fills the slot and
+ * publishes it. The consumer reads slots strictly in sequence order and releases each one after it was applied,
+ * so commands are applied in the order their sequences were claimed.
+ */
+final class CommandRingBuffer {
+
+    private final LedgerCommand[] slots;
+    private final AtomicLongArray published;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final AtomicLong consumed = new AtomicLong(-1);
+
+    CommandRingBuffer(int size) {
+        if (size <= 0 || Integer.bitCount(size) != 1)
+            throw new IllegalArgumentException("Ring buffer size must be a power of two: " + size);
+
+        slots = new LedgerCommand[size];
+        published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            slots[i] = new LedgerCommand();
+            published.set(i, -1);
+        }
+        mask = size - 1;
+    }
+
+    /**
+     * Claim the next sequence, waiting until the consumer freed its slot.
+     */
+    long claim() {
+        long sequence = claimed.incrementAndGet();
+        long wrapPoint = sequence - slots.length;
+        int counter = 0;
+        while (wrapPoint > consumed.get()) {
+            counter = WaitStrategy.idle(counter);
+        }
+        return sequence;
+    }
+
+    LedgerCommand get(long sequence) {
+        return slots[(int) (sequence & mask)];
+    }
+
+    /**
+     * Make a filled slot visible to the consumer.
+     */
+    void publish(long sequence) {
+        published.set((int) (sequence & mask), sequence);
+    }
+
+    boolean isPublished(long sequence) {
+        return published.get((int) (sequence & mask)) == sequence;
+    }
+
+    /**
+     * Hand the slot of an applied sequence back to producers.
+     */
+    void release(long sequence) {
+        consumed.lazySet(sequence);
+    }
+
+    long getConsumed() {
+        return consumed.get();
+    }
+
+    long getClaimed() {
+        return claimed.get();
+    }
+}
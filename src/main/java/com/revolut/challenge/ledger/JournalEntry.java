@@ -0,0 +1,24 @@
+package com.revolut.challenge.ledger;
+
+import com.revolut.challenge.model.AccountBalance;
+import com.revolut.challenge.model.AccountTransaction;
+import com.revolut.challenge.model.Transfer;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Rows produced by one applied command, waiting to be written to the database.
+ */
+@Value
+class JournalEntry {
+    /**
+     * transfer row with its id already assigned, {@code null} for deposits and withdrawals
+     */
+    Transfer transfer;
+    List<AccountTransaction> transactions;
+    /**
+     * account balances after the command, with the versions the engine gave them
+     */
+    List<AccountBalance> balances;
+}
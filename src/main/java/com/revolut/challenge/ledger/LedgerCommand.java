@@ -0,0 +1,32 @@
+package com.revolut.challenge.ledger;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Preallocated ring buffer slot. Producers fill it before publishing, the sequencer reads it and clears it
+ * before the slot can be claimed again, so fields are never accessed by two threads at the same time.
+ */
+final class LedgerCommand {
+
+    enum Type {
+        TRANSFER, DEPOSIT, WITHDRAW
+    }
+
+    Type type;
+    String accountNumber;
+    String targetAccountNumber;
+    long amount;
+    String transactionId;
+    Long transfer;
+    CompletableFuture<Void> result;
+
+    void clear() {
+        type = null;
+        accountNumber = null;
+        targetAccountNumber = null;
+        amount = 0;
+        transactionId = null;
+        transfer = null;
+        result = null;
+    }
+}
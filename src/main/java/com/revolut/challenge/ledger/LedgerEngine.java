@@ -0,0 +1,381 @@
+package com.revolut.challenge.ledger;
+
+import com.revolut.challenge.exception.DuplicateTransactionException;
+import com.revolut.challenge.exception.IncompatibleCurrencyException;
+import com.revolut.challenge.exception.InsufficientBalanceException;
+import com.revolut.challenge.model.AccountTransaction;
+import com.revolut.challenge.model.FinancialAccount;
+import com.revolut.challenge.model.Money;
+import com.revolut.challenge.model.Transfer;
+import com.revolut.challenge.model.enumeration.TransactionType;
+import com.revolut.challenge.model.enumeration.TransferStatusType;
+import com.revolut.challenge.repository.AccountTransactionRepository;
+import com.revolut.challenge.repository.FinancialAccountRepository;
+import com.revolut.challenge.repository.TransactionIdFilter;
+import com.revolut.challenge.repository.TransferRepository;
+import lombok.extern.log4j.Log4j2;
+import org.jooq.DSLContext;
+import org.jooq.exception.DataAccessException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps account balances in memory and applies transfers, deposits and withdrawals on a single sequencer thread.
+ * <p>
+ * Callers publish commands to a {@link CommandRingBuffer} and wait for their result. The sequencer applies them one
+ * at a time, so no locking is needed, and hands the resulting rows to the {@link LedgerJournal}, which persists them
+ * to the database in batches. A command is acknowledged as soon as it was applied in memory; the database catches up
+ * asynchronously.
+ * <p>
+ * Accounts are read from the database by the first caller that uses them, before its command is published, so the
+ * sequencer never waits for the database to load one. They are owned by the engine afterwards, so while the engine is
+ * running balances must not be changed through the repositories directly.
+ * <p>
+ * Transaction ids are not held in memory as a whole: an id is used when an entry of the {@link LedgerJournal} that is
+ * not written yet uses it, or when it is in the database. A {@link TransactionIdFilter} answers for most new ids, only
+ * the ones it might contain are looked up on the primary key of {@code idempotency_key}.
+ */
+@Log4j2
+public final class LedgerEngine {
+
+    private static final int JOURNAL_CAPACITY_FACTOR = 16;
+    private static final long FILTER_INITIAL_CAPACITY = 1 << 16;
+    private static final double FILTER_FALSE_POSITIVE_RATE = 0.01;
+
+    private final FinancialAccountRepository accountRepository;
+    private final AccountTransactionRepository accountTransactionRepository;
+    private final TransferRepository transferRepository;
+    private final CommandRingBuffer ringBuffer;
+    private final LedgerJournal journal;
+    private final Thread sequencer;
+
+    private final Map<String, AccountState> accounts = new ConcurrentHashMap<>();
+    /**
+     * Filter of the repository when it has one, which is loaded and kept up to date with it
+     */
+    private final TransactionIdFilter transactionIdFilter;
+    private final boolean ownFilter;
+    //Accessed by the sequencer thread only
+    private long lastTransferId;
+
+    private volatile boolean running;
+    /**
+     * Callers between their check of {@link #running} and the publication of their command, the sequencer does not
+     * stop while there are any, so a command that passed the check is always applied
+     */
+    private final AtomicInteger publishing = new AtomicInteger();
+
+    /**
+     * @param ringSize         number of commands that can wait for the sequencer, must be a power of two
+     * @param journalBatchSize maximum number of applied commands written in one database transaction
+     */
+    public LedgerEngine(DSLContext dataContext,
+                        FinancialAccountRepository accountRepository,
+                        AccountTransactionRepository accountTransactionRepository,
+                        TransferRepository transferRepository,
+                        int ringSize,
+                        int journalBatchSize) {
+        this.accountRepository = accountRepository;
+        this.accountTransactionRepository = accountTransactionRepository;
+        this.transferRepository = transferRepository;
+        this.ringBuffer = new CommandRingBuffer(ringSize);
+        this.journal = new LedgerJournal(dataContext, accountRepository, accountTransactionRepository, transferRepository,
+                ringSize * JOURNAL_CAPACITY_FACTOR, journalBatchSize);
+        this.ownFilter = accountTransactionRepository.getTransactionIdFilter() == null;
+        this.transactionIdFilter = ownFilter ? new TransactionIdFilter(FILTER_INITIAL_CAPACITY, FILTER_FALSE_POSITIVE_RATE)
+                : accountTransactionRepository.getTransactionIdFilter();
+        this.sequencer = new Thread(this::runSequencer, "LedgerSequencer");
+        this.sequencer.setDaemon(true);
+    }
+
+    /**
+     * Load the transaction id filter, unless the repository's is used, and start the sequencer and journal threads.
+     */
+    public void start() {
+        if (ownFilter)
+            accountTransactionRepository.forEachTransactionId(transactionIdFilter::add);
+        lastTransferId = transferRepository.getMaxId();
+
+        running = true;
+        journal.start();
+        sequencer.start();
+        log.info("Ledger engine started with {} known transaction ids.", transactionIdFilter.getCount());
+    }
+
+    /**
+     * Apply every published command, write the journal and stop.
+     */
+    public void stop() {
+        running = false;
+        try {
+            sequencer.join();
+            journal.stop();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("Ledger engine stopped.");
+    }
+
+    /**
+     * Wait until every command applied so far has been written to the database.
+     */
+    public void flush() {
+        journal.awaitWritten();
+    }
+
+    /**
+     * @return current balance of the account in {@link com.revolut.challenge.model.Money} minor units, empty when
+     * the engine has not loaded the account yet and the database balance is up to date
+     */
+    public OptionalLong getBalance(String accountNumber) {
+        AccountState account = accounts.get(accountNumber);
+        return account == null ? OptionalLong.empty() : OptionalLong.of(account.balance);
+    }
+
+    /**
+     * @return version of the account, incremented with every balance change applied by the engine, empty when the
+     * engine has not loaded the account yet and the database version is up to date
+     */
+    public OptionalLong getVersion(String accountNumber) {
+        AccountState account = accounts.get(accountNumber);
+        return account == null ? OptionalLong.empty() : OptionalLong.of(account.version);
+    }
+
+    /**
+     * @return number of applied commands whose rows were not written to the database because they violate one of its
+     * constraints, e.g. a transaction id inserted by someone else while the engine was running
+     */
+    public long getDroppedJournalEntries() {
+        return journal.getDropped();
+    }
+
+    /**
+     * @return constraint violation of the last command whose rows were dropped, {@code null} when none was
+     */
+    public DataAccessException getLastJournalFailure() {
+        return journal.getLastFailure();
+    }
+
+    public void transfer(String fromAccountNumber, String toAccountNumber, long amount, String transactionId) {
+        execute(LedgerCommand.Type.TRANSFER, fromAccountNumber, toAccountNumber, amount, transactionId, null);
+    }
+
+    public void deposit(String accountNumber, long amount, String transactionId, Long transfer) {
+        execute(LedgerCommand.Type.DEPOSIT, accountNumber, null, amount, transactionId, transfer);
+    }
+
+    public void withdraw(String accountNumber, long amount, String transactionId, Long transfer) {
+        execute(LedgerCommand.Type.WITHDRAW, accountNumber, null, amount, transactionId, transfer);
+    }
+
+    private void execute(LedgerCommand.Type type, String accountNumber, String targetAccountNumber, long amount,
+                         String transactionId, Long transfer) {
+        load(accountNumber);
+        if (targetAccountNumber != null)
+            load(targetAccountNumber);
+
+        publishing.incrementAndGet();
+        var result = new CompletableFuture<Void>();
+        try {
+            if (!running)
+                throw new IllegalStateException("Ledger engine is not running");
+
+            long sequence = ringBuffer.claim();
+            LedgerCommand command = ringBuffer.get(sequence);
+            command.type = type;
+            command.accountNumber = accountNumber;
+            command.targetAccountNumber = targetAccountNumber;
+            command.amount = amount;
+            command.transactionId = transactionId;
+            command.transfer = transfer;
+            command.result = result;
+            ringBuffer.publish(sequence);
+        } finally {
+            publishing.decrementAndGet();
+        }
+
+        try {
+            result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    private void runSequencer() {
+        long next = ringBuffer.getConsumed() + 1;
+        int counter = 0;
+        //Stopped only once no caller can still claim a sequence, see publishing
+        while (running || publishing.get() > 0 || next <= ringBuffer.getClaimed()) {
+            if (!ringBuffer.isPublished(next)) {
+                counter = WaitStrategy.idle(counter);
+                continue;
+            }
+            counter = 0;
+
+            LedgerCommand command = ringBuffer.get(next);
+            CompletableFuture<Void> result = command.result;
+            RuntimeException failure = null;
+            try {
+                apply(command);
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+            command.clear();
+            ringBuffer.release(next++);
+
+            if (failure == null)
+                result.complete(null);
+            else
+                result.completeExceptionally(failure);
+        }
+    }
+
+    private void apply(LedgerCommand command) {
+        switch (command.type) {
+            case TRANSFER:
+                applyTransfer(command);
+                break;
+            case DEPOSIT:
+                applyDeposit(command);
+                break;
+            case WITHDRAW:
+                applyWithdraw(command);
+                break;
+            default:
+                throw new IllegalStateException("Unknown ledger command " + command.type);
+        }
+    }
+
+    private void applyTransfer(LedgerCommand command) {
+        AccountState fromAccount = getAccount(command.accountNumber);
+        AccountState toAccount = getAccount(command.targetAccountNumber);
+
+        if (fromAccount.currency != toAccount.currency)
+            throw new IncompatibleCurrencyException();
+
+        if (isUsed(command.transactionId, TransactionType.WITHDRAW) || isUsed(command.transactionId, TransactionType.DEPOSIT))
+            throw new DuplicateTransactionException();
+
+        var now = LocalDateTime.now();
+        if (Money.abs(command.amount) > fromAccount.balance) {
+            appendJournal(new JournalEntry(transfer(fromAccount, toAccount, TransferStatusType.INSUFFICIENT_BALANCE, now),
+                    List.of(), List.of()));
+            throw new InsufficientBalanceException();
+        }
+
+        Transfer transfer = transfer(fromAccount, toAccount, TransferStatusType.DONE, now);
+        long fromBalance = Money.subtract(fromAccount.balance, command.amount);
+        long toBalance = Money.add(toAccount.balance, command.amount);
+        appendJournal(new JournalEntry(transfer,
+                List.of(leg(fromAccount, TransactionType.WITHDRAW, command.amount, fromBalance, transfer.getId(), command.transactionId, now),
+                        leg(toAccount, TransactionType.DEPOSIT, command.amount, toBalance, transfer.getId(), command.transactionId, now)),
+                List.of(fromAccount.balanceAfter(fromBalance), toAccount.balanceAfter(toBalance))));
+
+        fromAccount.updateBalance(fromBalance);
+        toAccount.updateBalance(toBalance);
+        transactionIdFilter.add(command.transactionId);
+    }
+
+    private void applyDeposit(LedgerCommand command) {
+        if (isUsed(command.transactionId, TransactionType.DEPOSIT))
+            throw new DuplicateTransactionException();
+
+        AccountState account = getAccount(command.accountNumber);
+        long newBalance = Money.add(account.balance, command.amount);
+        appendJournal(new JournalEntry(null,
+                List.of(leg(account, TransactionType.DEPOSIT, command.amount, newBalance, command.transfer, command.transactionId, LocalDateTime.now())),
+                List.of(account.balanceAfter(newBalance))));
+
+        account.updateBalance(newBalance);
+        transactionIdFilter.add(command.transactionId);
+    }
+
+    private void applyWithdraw(LedgerCommand command) {
+        if (isUsed(command.transactionId, TransactionType.WITHDRAW))
+            throw new DuplicateTransactionException();
+
+        AccountState account = getAccount(command.accountNumber);
+        if (Money.abs(command.amount) > account.balance)
+            throw new InsufficientBalanceException();
+
+        long newBalance = Money.subtract(account.balance, command.amount);
+        appendJournal(new JournalEntry(null,
+                List.of(leg(account, TransactionType.WITHDRAW, command.amount, newBalance, command.transfer, command.transactionId, LocalDateTime.now())),
+                List.of(account.balanceAfter(newBalance))));
+
+        account.updateBalance(newBalance);
+        transactionIdFilter.add(command.transactionId);
+    }
+
+    /**
+     * Read the account from the database on the caller thread unless the engine already owns it. Until a command
+     * that uses the account is applied its database row does not change, so a copy loaded by a caller that loses the
+     * race to another one is equal to the one kept.
+     */
+    private void load(String accountNumber) {
+        if (accounts.containsKey(accountNumber))
+            return;
+        FinancialAccount financialAccount = accountRepository.getByAccountNumber(accountNumber);
+        accounts.putIfAbsent(accountNumber, new AccountState(financialAccount.getId(), accountNumber,
+                financialAccount.getCurrency(), financialAccount.getBalance(), financialAccount.getVersion()));
+    }
+
+    /**
+     * Account of a command, loaded by its caller before it was published
+     */
+    private AccountState getAccount(String accountNumber) {
+        return accounts.get(accountNumber);
+    }
+
+    /**
+     * Whether the transaction id is used for the given type, see the class comment. Looking up an id the filter
+     * might contain is the only database read of the sequencer; the filter keeps it to retries and false positives.
+     */
+    private boolean isUsed(String transactionId, TransactionType transactionType) {
+        return journal.isPending(transactionId, transactionType)
+                || transactionIdFilter.mightContain(transactionId)
+                && accountTransactionRepository.isTransactionIdUsed(transactionId, transactionType);
+    }
+
+    private void appendJournal(JournalEntry entry) {
+        try {
+            journal.append(entry);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the ledger journal", e);
+        }
+    }
+
+    private Transfer transfer(AccountState fromAccount, AccountState toAccount,
+                              TransferStatusType transferStatusType, LocalDateTime createDatetime) {
+        return Transfer.builder()
+                .id(++lastTransferId)
+                .transferStatusType(transferStatusType)
+                .fromAccount(fromAccount.id)
+                .toAccount(toAccount.id)
+                .createDatetime(createDatetime)
+                .build();
+    }
+
+    private AccountTransaction leg(AccountState account, TransactionType transactionType, long amount,
+                                   long balance, Long transferId, String transactionId, LocalDateTime createDatetime) {
+        return AccountTransaction.builder()
+                .transactionType(transactionType)
+                .financialAccount(account.id)
+                .balance(balance)
+                .amount(amount)
+                .createDatetime(createDatetime)
+                .transfer(transferId)
+                .transactionId(transactionId)
+                .build();
+    }
+}
@@ -0,0 +1,229 @@
+package com.revolut.challenge.ledger;
+
+import com.revolut.challenge.model.AccountBalance;
+import com.revolut.challenge.model.AccountTransaction;
+import com.revolut.challenge.model.enumeration.TransactionType;
+import com.revolut.challenge.repository.AccountTransactionRepository;
+import com.revolut.challenge.repository.FinancialAccountRepository;
+import com.revolut.challenge.repository.TransferRepository;
+import lombok.extern.log4j.Log4j2;
+import org.jooq.DSLContext;
+import org.jooq.Query;
+import org.jooq.exception.DataAccessException;
+import org.jooq.impl.DSL;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes the results of applied ledger commands to the database on its own thread.
+ * <p>
+ * Entries are drained in batches and every batch is written in one database transaction: transfer rows and
+ * account transactions with their idempotency keys are inserted in the order they were applied, balance updates
+ * are coalesced to the last balance of every touched account. A failed batch is retried until it succeeds or the journal is stopped.
+ * <p>
+ * A batch that violates a constraint of the database (SQLState class 23) would fail however often it is retried, so
+ * its entries are written one at a time instead and the ones that still violate it are logged and dropped.
+ */
+@Log4j2
+final class LedgerJournal {
+
+    private static final long POLL_MILLIS = 100;
+    private static final long RETRY_MILLIS = 1000;
+    private static final String CONSTRAINT_VIOLATION_CLASS = "23";
+
+    private final DSLContext dataContext;
+    private final FinancialAccountRepository accountRepository;
+    private final AccountTransactionRepository accountTransactionRepository;
+    private final TransferRepository transferRepository;
+    private final BlockingQueue<JournalEntry> queue;
+    /**
+     * Transaction ids of appended entries until they are written, they may not be in the database yet
+     */
+    private final Map<TransactionType, Set<String>> pendingTransactionIds = new EnumMap<>(TransactionType.class);
+    private final int batchSize;
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile DataAccessException lastFailure;
+    private final Thread writer;
+    private volatile boolean running;
+
+    LedgerJournal(DSLContext dataContext,
+                  FinancialAccountRepository accountRepository,
+                  AccountTransactionRepository accountTransactionRepository,
+                  TransferRepository transferRepository,
+                  int capacity,
+                  int batchSize) {
+        this.dataContext = dataContext;
+        this.accountRepository = accountRepository;
+        this.accountTransactionRepository = accountTransactionRepository;
+        this.transferRepository = transferRepository;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        for (TransactionType transactionType : TransactionType.values())
+            pendingTransactionIds.put(transactionType, ConcurrentHashMap.newKeySet());
+        this.writer = new Thread(this::run, "LedgerJournal");
+        this.writer.setDaemon(true);
+    }
+
+    void start() {
+        running = true;
+        writer.start();
+    }
+
+    /**
+     * Stop after every appended entry has been written.
+     */
+    void stop() throws InterruptedException {
+        running = false;
+        writer.join();
+    }
+
+    /**
+     * Queue an entry, blocking the caller while the journal is full.
+     */
+    void append(JournalEntry entry) throws InterruptedException {
+        for (AccountTransaction transaction : entry.getTransactions())
+            pendingTransactionIds.get(transaction.getTransactionType()).add(transaction.getTransactionId());
+        queue.put(entry);
+        appended.incrementAndGet();
+    }
+
+    /**
+     * Whether an appended entry that is not written yet uses the transaction id for the given type. Ids are only
+     * released once their entry is committed, so a used id is always found either here or in the database.
+     */
+    boolean isPending(String transactionId, TransactionType transactionType) {
+        return pendingTransactionIds.get(transactionType).contains(transactionId);
+    }
+
+    /**
+     * Wait until every entry appended before this call has been written.
+     */
+    void awaitWritten() {
+        long target = appended.get();
+        int counter = 0;
+        while (written.get() < target && writer.isAlive()) {
+            counter = WaitStrategy.idle(counter);
+        }
+    }
+
+    /**
+     * Number of entries dropped because they violate a constraint of the database
+     */
+    long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Constraint violation of the last dropped entry, {@code null} when none was dropped
+     */
+    DataAccessException getLastFailure() {
+        return lastFailure;
+    }
+
+    private void run() {
+        List<JournalEntry> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                JournalEntry first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null)
+                    continue;
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+                release(batch);
+                written.addAndGet(batch.size());
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void write(List<JournalEntry> batch) throws InterruptedException {
+        if (writeRetrying(batch))
+            return;
+        if (batch.size() == 1) {
+            drop(batch.get(0));
+            return;
+        }
+        log.warn("{} ledger entries violate a constraint of the database, writing them one at a time.", batch.size());
+        for (JournalEntry entry : batch) {
+            if (!writeRetrying(List.of(entry)))
+                drop(entry);
+        }
+    }
+
+    private void release(List<JournalEntry> batch) {
+        for (JournalEntry entry : batch) {
+            for (AccountTransaction transaction : entry.getTransactions())
+                pendingTransactionIds.get(transaction.getTransactionType()).remove(transaction.getTransactionId());
+        }
+    }
+
+    /**
+     * Write the entries in one database transaction, retrying while the database fails for other reasons than a
+     * constraint violation.
+     *
+     * @return {@code false} when the entries violate a constraint and can never be written together
+     */
+    private boolean writeRetrying(List<JournalEntry> entries) throws InterruptedException {
+        while (true) {
+            try {
+                dataContext.transaction(configuration -> {
+                    var transactionCtx = DSL.using(configuration);
+                    transactionCtx.batch(queries(transactionCtx, entries)).execute();
+                });
+                log.debug("Journaled {} ledger entries.", entries.size());
+                return true;
+            } catch (DataAccessException e) {
+                if (e.sqlState() != null && e.sqlState().startsWith(CONSTRAINT_VIOLATION_CLASS)) {
+                    lastFailure = e;
+                    return false;
+                }
+                if (!running) {
+                    log.error("Could not journal {} ledger entries, journal is stopped and they are lost.", entries.size(), e);
+                    return true;
+                }
+                log.error("Could not journal {} ledger entries, retrying.", entries.size(), e);
+                Thread.sleep(RETRY_MILLIS);
+            }
+        }
+    }
+
+    private void drop(JournalEntry entry) {
+        dropped.incrementAndGet();
+        log.error("Dropped ledger entry {}, it violates a constraint of the database.", entry, lastFailure);
+    }
+
+    private List<Query> queries(DSLContext transactionCtx, List<JournalEntry> batch) {
+        List<Query> queries = new ArrayList<>();
+        //Only the last balance of an account is written, with the version the engine gave it
+        Map<String, AccountBalance> balances = new LinkedHashMap<>();
+        for (JournalEntry entry : batch) {
+            if (entry.getTransfer() != null)
+                queries.add(transferRepository.insertQuery(transactionCtx, entry.getTransfer()));
+            for (AccountTransaction transaction : entry.getTransactions()) {
+                queries.add(accountTransactionRepository.insertQuery(transactionCtx, transaction));
+                queries.add(accountTransactionRepository.insertIdempotencyKeyQuery(transactionCtx,
+                        transaction.getTransactionId(), transaction.getTransactionType(), transaction.getCreateDatetime()));
+            }
+            entry.getBalances().forEach(balance -> balances.put(balance.getAccountNumber(), balance));
+        }
+        balances.values().forEach(balance -> queries.add(accountRepository.updateBalanceQuery(transactionCtx,
+                balance.getAccountNumber(), balance.getBalance(), balance.getVersion())));
+        return queries;
+    }
+}
@@ -0,0 +1,34 @@
+package com.revolut.challenge.ledger;
+
+import java.util.Arrays;
+
+/**
+ * Where account balances are owned while the application is running.
+ */
+public enum LedgerMode {
+    /**
+     * Every operation locks the account rows and updates them in its own database transaction.
+     */
+    DATABASE("database"),
+    /**
+     * Balances are held by the {@link LedgerEngine} and written to the database asynchronously.
+     */
+    IN_MEMORY("in-memory");
+
+    private final String value;
+
+    LedgerMode(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public static LedgerMode fromValue(String value) {
+        return Arrays.stream(values())
+                .filter(mode -> mode.value.equalsIgnoreCase(value))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown ledger engine " + value));
+    }
+}
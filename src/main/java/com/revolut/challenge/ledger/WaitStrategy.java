@@ -0,0 +1,34 @@
+package com.revolut.challenge.ledger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Back-off used while waiting on the ring buffer: spin first, then yield, then sleep briefly,
+ * so an idle engine does not burn a core and a busy one does not pay for a context switch.
+ */
+final class WaitStrategy {
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 200;
+    private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private WaitStrategy() {
+    }
+
+    /**
+     * @param counter number of times the caller already waited for the same condition
+     * @return counter to pass to the next call
+     */
+    static int idle(int counter) {
+        if (counter < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else if (counter < YIELD_TRIES) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+            return counter;
+        }
+        return counter + 1;
+    }
+}
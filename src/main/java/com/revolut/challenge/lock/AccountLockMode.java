@@ -0,0 +1,41 @@
+package com.revolut.challenge.lock;
+
+import com.revolut.challenge.repository.FinancialAccountRepository;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Selectable {@link AccountLockStrategy} implementations.
+ */
+public enum AccountLockMode {
+    DATABASE("database"),
+    STRIPED("striped");
+
+    private final String value;
+
+    AccountLockMode(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * @param stripes number of locks of the striped strategy
+     * @param timeout lock wait timeout of the striped strategy
+     */
+    public AccountLockStrategy createStrategy(FinancialAccountRepository accountRepository, int stripes, Duration timeout) {
+        if (this == STRIPED)
+            return new StripedAccountLockStrategy(accountRepository, stripes, timeout);
+        return new DatabaseAccountLockStrategy(accountRepository);
+    }
+
+    public static AccountLockMode fromValue(String value) {
+        return Arrays.stream(values())
+                .filter(mode -> mode.value.equalsIgnoreCase(value))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown account lock " + value));
+    }
+}
@@ -0,0 +1,40 @@
+package com.revolut.challenge.lock;
+
+import com.revolut.challenge.jooq.tables.records.FinancialAccountRecord;
+import org.jooq.DSLContext;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * How balance changing operations serialize access to the accounts they touch.
+ * <p>
+ * An operation calls {@link #callLocked} around its database transaction and reads the accounts with
+ * {@link #fetchAccounts} inside that transaction.
+ */
+public interface AccountLockStrategy {
+
+    /**
+     * Run the action while the given accounts are locked.
+     *
+     * @param accountNumbers accounts the action changes, duplicates are ignored
+     * @param action         action that opens and commits the database transaction
+     * @return result of the action
+     */
+    <T> T callLocked(Collection<String> accountNumbers, Supplier<T> action);
+
+    default void runLocked(Collection<String> accountNumbers, Runnable action) {
+        callLocked(accountNumbers, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Read the given accounts inside the transaction of {@link #callLocked}.
+     *
+     * @return accounts by account number, unknown account numbers are missing from the map
+     */
+    Map<String, FinancialAccountRecord> fetchAccounts(DSLContext transactionCtx, Collection<String> accountNumbers);
+}
@@ -0,0 +1,32 @@
+package com.revolut.challenge.lock;
+
+import com.revolut.challenge.jooq.tables.records.FinancialAccountRecord;
+import com.revolut.challenge.repository.FinancialAccountRepository;
+import org.jooq.DSLContext;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Locks account rows with {@code SELECT ... FOR UPDATE} when they are read, so locks are held until
+ * the database transaction ends. Safe when several nodes share the database.
+ */
+public class DatabaseAccountLockStrategy implements AccountLockStrategy {
+
+    private final FinancialAccountRepository accountRepository;
+
+    public DatabaseAccountLockStrategy(FinancialAccountRepository accountRepository) {
+        this.accountRepository = accountRepository;
+    }
+
+    @Override
+    public <T> T callLocked(Collection<String> accountNumbers, Supplier<T> action) {
+        return action.get();
+    }
+
+    @Override
+    public Map<String, FinancialAccountRecord> fetchAccounts(DSLContext transactionCtx, Collection<String> accountNumbers) {
+        return accountRepository.lockFinancialAccounts(transactionCtx, accountNumbers);
+    }
+}
@@ -0,0 +1,84 @@
+package com.revolut.challenge.lock;
+
+import com.revolut.challenge.exception.AccountLockTimeoutException;
+import com.revolut.challenge.jooq.tables.records.FinancialAccountRecord;
+import com.revolut.challenge.repository.FinancialAccountRepository;
+import org.jooq.DSLContext;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Locks accounts in the JVM with a fixed array of {@link ReentrantLock} stripes, so no database round trip or
+ * row lock polling is needed. Accounts are mapped to stripes by the hash of their account number, which is known
+ * before the account is read, and stripes are always acquired in ascending index order, so operations on
+ * overlapping accounts can not deadlock. Waiting for a stripe is bounded by a timeout.
+ * <p>
+ * Only safe when a single node writes to the database.
+ */
+public class StripedAccountLockStrategy implements AccountLockStrategy {
+
+    private final FinancialAccountRepository accountRepository;
+    private final ReentrantLock[] stripes;
+    private final long timeoutNanos;
+
+    /**
+     * @param stripes number of locks, rounded up to a power of two
+     * @param timeout maximum time to wait for every single stripe
+     */
+    public StripedAccountLockStrategy(FinancialAccountRepository accountRepository, int stripes, Duration timeout) {
+        this.accountRepository = accountRepository;
+        int size = 1;
+        while (size < stripes) {
+            size <<= 1;
+        }
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    @Override
+    public <T> T callLocked(Collection<String> accountNumbers, Supplier<T> action) {
+        //Stripe index -> one of its account numbers, sorted so that locks are acquired in a global order
+        Map<Integer, String> ordered = new TreeMap<>();
+        for (String accountNumber : accountNumbers) {
+            ordered.putIfAbsent(stripeIndex(accountNumber), accountNumber);
+        }
+
+        int locked = 0;
+        ReentrantLock[] acquired = new ReentrantLock[ordered.size()];
+        try {
+            for (Map.Entry<Integer, String> stripe : ordered.entrySet()) {
+                ReentrantLock lock = stripes[stripe.getKey()];
+                if (!lock.tryLock(timeoutNanos, TimeUnit.NANOSECONDS))
+                    throw new AccountLockTimeoutException(stripe.getValue());
+                acquired[locked++] = lock;
+            }
+            return action.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for account lock", e);
+        } finally {
+            while (locked > 0) {
+                acquired[--locked].unlock();
+            }
+        }
+    }
+
+    @Override
+    public Map<String, FinancialAccountRecord> fetchAccounts(DSLContext transactionCtx, Collection<String> accountNumbers) {
+        return accountRepository.getFinancialAccounts(transactionCtx, accountNumbers);
+    }
+
+    int stripeIndex(String accountNumber) {
+        int hash = accountNumber.hashCode();
+        return (hash ^ (hash >>> 16)) & (stripes.length - 1);
+    }
+}
@@ -0,0 +1,16 @@
+package com.revolut.challenge.model;
+
+import lombok.Value;
+
+/**
+ * Balance of an account written by a transaction, together with the version of the row it was written with.
+ */
+@Value
+public class AccountBalance {
+    private final String accountNumber;
+    /**
+     * balance in {@link Money} minor units
+     */
+    private final long balance;
+    private final long version;
+}
@@ -0,0 +1,25 @@
+package com.revolut.challenge.model;
+
+import com.revolut.challenge.model.enumeration.AccountStatusType;
+import com.revolut.challenge.model.enumeration.Currency;
+import lombok.Value;
+
+/**
+ * Fields of a {@link FinancialAccount} that almost never change, so they can be cached. The balance is not one of
+ * them and must always be read from the locked account row.
+ */
+@Value
+public class AccountMetadata {
+    private final Long id;
+    private final String accountNumber;
+    private final AccountStatusType accountStatusType;
+    private final Currency currency;
+    /**
+     * Number of slots the balance is split over, {@code 0} when it is not split
+     */
+    private final int balanceSlots;
+
+    public boolean isSplit() {
+        return balanceSlots > 0;
+    }
+}
@@ -7,7 +7,6 @@ import lombok.Data;
 import lombok.Value;
 
 import java.io.Serializable;
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Data
@@ -16,8 +15,14 @@ public class AccountTransaction implements Serializable {
     private Long id;
     private LocalDateTime createDatetime;
     private Long financialAccount;
-    private BigDecimal amount;
-    private BigDecimal balance;
+    /**
+     * amount in {@link Money} minor units
+     */
+    private long amount;
+    /**
+     * account balance after the transaction in {@link Money} minor units
+     */
+    private long balance;
     private TransactionType transactionType;
     private Long transfer;
     private String transactionId;
@@ -5,16 +5,26 @@ import com.revolut.challenge.model.enumeration.*;
 import lombok.*;
 
 import java.io.Serializable;
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
-@Builder
+@Builder(toBuilder = true)
 @Data
 public class FinancialAccount  implements Serializable {
     private Long id;
     private AccountStatusType accountStatusType;
     private String accountNumber;
     private LocalDateTime createDatetime;
-    private BigDecimal balance;
+    /**
+     * balance in {@link Money} minor units
+     */
+    private long balance;
     private Currency currency;
+    /**
+     * incremented with every balance update
+     */
+    private long version;
+    /**
+     * number of slots the balance is split over, {@code 0} when it is not split
+     */
+    private int balanceSlots;
 }
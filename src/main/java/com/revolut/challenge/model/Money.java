@@ -0,0 +1,79 @@
+package com.revolut.challenge.model;
+
+import com.revolut.challenge.exception.AmountOutOfRangeException;
+
+import java.math.BigDecimal;
+
+/**
+ * Money amounts are held as {@code long} minor units (cents), so balance checks and updates on the hot path are
+ * plain primitive arithmetic without allocation. Every operation that can overflow fails with
+ * {@link AmountOutOfRangeException} instead of wrapping around.
+ * <p>
+ * {@link BigDecimal} is only used at the edges: database {@code DECIMAL(20, 2)} columns and JSON responses.
+ */
+public final class Money {
+
+    /**
+     * Number of decimal places of a minor unit.
+     */
+    public static final int SCALE = 2;
+
+    private static final long MINOR_UNITS_PER_UNIT = 100;
+
+    private Money() {
+    }
+
+    /**
+     * @param units amount in whole currency units, e.g. dollars
+     * @return amount in minor units, e.g. cents
+     */
+    public static long ofUnits(long units) {
+        try {
+            return Math.multiplyExact(units, MINOR_UNITS_PER_UNIT);
+        } catch (ArithmeticException e) {
+            throw new AmountOutOfRangeException();
+        }
+    }
+
+    public static long add(long amount, long other) {
+        try {
+            return Math.addExact(amount, other);
+        } catch (ArithmeticException e) {
+            throw new AmountOutOfRangeException();
+        }
+    }
+
+    public static long subtract(long amount, long other) {
+        try {
+            return Math.subtractExact(amount, other);
+        } catch (ArithmeticException e) {
+            throw new AmountOutOfRangeException();
+        }
+    }
+
+    public static long abs(long amount) {
+        if (amount == Long.MIN_VALUE)
+            throw new AmountOutOfRangeException();
+        return Math.abs(amount);
+    }
+
+    /**
+     * @param amount decimal amount with at most {@link #SCALE} decimal places
+     * @return amount in minor units
+     */
+    public static long fromDecimal(BigDecimal amount) {
+        try {
+            return amount.setScale(SCALE).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new AmountOutOfRangeException();
+        }
+    }
+
+    /**
+     * @param amount amount in minor units
+     * @return decimal amount with {@link #SCALE} decimal places
+     */
+    public static BigDecimal toDecimal(long amount) {
+        return BigDecimal.valueOf(amount, SCALE);
+    }
+}
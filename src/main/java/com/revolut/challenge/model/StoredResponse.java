@@ -0,0 +1,22 @@
+package com.revolut.challenge.model;
+
+import com.revolut.challenge.model.enumeration.ReplayOperation;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/**
+ * Response of a request that applied a transaction id, kept to be replayed when the request is retried.
+ */
+@Value
+public class StoredResponse {
+    private final String transactionId;
+    private final ReplayOperation operation;
+    /**
+     * Fields of the request that have to match for a retry to be replayed
+     */
+    private final String request;
+    private final int status;
+    private final String body;
+    private final LocalDateTime createDatetime;
+}
@@ -0,0 +1,8 @@
+package com.revolut.challenge.model.enumeration;
+
+/**
+ * Request whose response is replayed when it is retried with the same transaction id.
+ */
+public enum ReplayOperation {
+    DEPOSIT, WITHDRAW, TRANSFER;
+}
@@ -1,20 +1,84 @@
 package com.revolut.challenge.repository;
 
 import com.revolut.challenge.jooq.Tables;
+import com.revolut.challenge.jooq.tables.records.AccountTransactionRecord;
 import com.revolut.challenge.model.AccountTransaction;
 import com.revolut.challenge.model.enumeration.TransactionType;
 import org.jooq.DSLContext;
+import org.jooq.Query;
+import org.jooq.exception.DataAccessException;
+import org.jooq.impl.DSL;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 
 public class AccountTransactionRepository {
 
+    private static final String UNIQUE_VIOLATION = "23505";
+    private static final int CHUNK_SIZE = 500;
+
     private final DSLContext dataContext;
+    private final TransactionIdFilter transactionIdFilter;
 
     public AccountTransactionRepository(DSLContext dataContext) {
+        this(dataContext, null);
+    }
+
+    /**
+     * @param transactionIdFilter filter of used transaction ids that lets lookups skip ids that are definitely new,
+     *                            {@code null} to always look them up; call {@link #loadTransactionIdFilter()} before use
+     */
+    public AccountTransactionRepository(DSLContext dataContext, TransactionIdFilter transactionIdFilter) {
         this.dataContext = dataContext;
+        this.transactionIdFilter = transactionIdFilter;
+    }
+
+    /**
+     * Add all transaction ids that have an idempotency key to the transaction id filter.
+     *
+     * @return number of transaction ids added
+     */
+    public long loadTransactionIdFilter() {
+        return forEachTransactionId(transactionIdFilter::add);
+    }
+
+    /**
+     * Pass every transaction id that has an idempotency key to the consumer, reading them in chunks of
+     * {@link #CHUNK_SIZE} by seeking the primary key of {@code idempotency_key}, so that they are never held in memory
+     * as a whole.
+     *
+     * @return number of transaction ids
+     */
+    public long forEachTransactionId(Consumer<String> consumer) {
+        long count = 0;
+        String after = null;
+        while (true) {
+            var condition = after == null ? DSL.noCondition() : Tables.IDEMPOTENCY_KEY.TRANSACTION_ID.gt(after);
+            List<String> transactionIds = dataContext.selectDistinct(Tables.IDEMPOTENCY_KEY.TRANSACTION_ID)
+                    .from(Tables.IDEMPOTENCY_KEY)
+                    .where(condition)
+                    .orderBy(Tables.IDEMPOTENCY_KEY.TRANSACTION_ID)
+                    .limit(CHUNK_SIZE)
+                    .fetch(Tables.IDEMPOTENCY_KEY.TRANSACTION_ID);
+            transactionIds.forEach(consumer);
+            count += transactionIds.size();
+            if (transactionIds.size() < CHUNK_SIZE)
+                return count;
+            after = transactionIds.get(transactionIds.size() - 1);
+        }
+    }
+
+    /**
+     * Transaction id filter, {@code null} when it is disabled
+     */
+    public TransactionIdFilter getTransactionIdFilter() {
+        return transactionIdFilter;
     }
 
     public Optional<AccountTransaction> getById(Long id) {
@@ -24,7 +88,14 @@ public class AccountTransactionRepository {
     }
 
     public int save(AccountTransaction accountTransaction) {
-        return dataContext.insertInto(Tables.ACCOUNT_TRANSACTION)
+        return insertQuery(dataContext, accountTransaction).execute();
+    }
+
+    /**
+     * Insert that is not executed yet, so it can be sent to the database in a batch.
+     */
+    public Query insertQuery(DSLContext dslContext, AccountTransaction accountTransaction) {
+        return dslContext.insertInto(Tables.ACCOUNT_TRANSACTION)
                 .set(Tables.ACCOUNT_TRANSACTION.ID, accountTransaction.getId())
                 .set(Tables.ACCOUNT_TRANSACTION.FINANCIAL_ACCOUNT, accountTransaction.getFinancialAccount())
                 .set(Tables.ACCOUNT_TRANSACTION.AMOUNT, accountTransaction.getAmount())
@@ -32,8 +103,33 @@ public class AccountTransactionRepository {
                 .set(Tables.ACCOUNT_TRANSACTION.CREATE_DATETIME, accountTransaction.getCreateDatetime())
                 .set(Tables.ACCOUNT_TRANSACTION.TRANSFER, accountTransaction.getTransfer())
                 .set(Tables.ACCOUNT_TRANSACTION.TRANSACTION_TYPE, accountTransaction.getTransactionType())
-                .set(Tables.ACCOUNT_TRANSACTION.TRANSACTION_ID, accountTransaction.getTransactionId())
-                .execute();
+                .set(Tables.ACCOUNT_TRANSACTION.TRANSACTION_ID, accountTransaction.getTransactionId());
+    }
+
+    /**
+     * Insert of a transaction that records the balance its account row has within the same database transaction, for
+     * a transaction that updated the row without reading it. Its id is generated and its balance is ignored.
+     */
+    public Query insertWithAccountBalanceQuery(DSLContext dslContext, AccountTransaction accountTransaction) {
+        var account = Tables.FINANCIAL_ACCOUNT;
+        return dslContext.insertInto(Tables.ACCOUNT_TRANSACTION,
+                Tables.ACCOUNT_TRANSACTION.FINANCIAL_ACCOUNT,
+                Tables.ACCOUNT_TRANSACTION.AMOUNT,
+                Tables.ACCOUNT_TRANSACTION.BALANCE,
+                Tables.ACCOUNT_TRANSACTION.CREATE_DATETIME,
+                Tables.ACCOUNT_TRANSACTION.TRANSFER,
+                Tables.ACCOUNT_TRANSACTION.TRANSACTION_TYPE,
+                Tables.ACCOUNT_TRANSACTION.TRANSACTION_ID)
+                .select(DSL.select(
+                        account.ID,
+                        DSL.val(accountTransaction.getAmount(), Tables.ACCOUNT_TRANSACTION.AMOUNT),
+                        account.BALANCE,
+                        DSL.val(accountTransaction.getCreateDatetime(), Tables.ACCOUNT_TRANSACTION.CREATE_DATETIME),
+                        DSL.val(accountTransaction.getTransfer(), Tables.ACCOUNT_TRANSACTION.TRANSFER),
+                        DSL.val(accountTransaction.getTransactionType(), Tables.ACCOUNT_TRANSACTION.TRANSACTION_TYPE),
+                        DSL.val(accountTransaction.getTransactionId(), Tables.ACCOUNT_TRANSACTION.TRANSACTION_ID))
+                        .from(account)
+                        .where(account.ID.eq(accountTransaction.getFinancialAccount())));
     }
 
     public boolean isTransactionPresent(String transactionId, TransactionType transactionType) {
@@ -43,18 +139,162 @@ public class AccountTransactionRepository {
                 .fetchOptional().isPresent();
     }
 
+    /**
+     * Reserve the transaction id for the given types by inserting its idempotency keys, as the first statement of
+     * the transaction that applies the operation. The primary key of {@code idempotency_key} detects an id that is
+     * already used, also by a concurrent transaction, which waits for the other one to commit or roll back.
+     *
+     * @return {@code false} when the transaction id is already used for one of the types
+     */
+    public boolean insertIdempotencyKeys(DSLContext dslContext, String transactionId, TransactionType... transactionTypes) {
+        var insert = dslContext.insertInto(Tables.IDEMPOTENCY_KEY,
+                Tables.IDEMPOTENCY_KEY.TRANSACTION_ID, Tables.IDEMPOTENCY_KEY.TRANSACTION_TYPE, Tables.IDEMPOTENCY_KEY.CREATE_DATETIME);
+        var now = LocalDateTime.now();
+        for (TransactionType transactionType : transactionTypes)
+            insert = insert.values(transactionId, transactionType, now);
+        try {
+            insert.execute();
+            addToFilter(transactionId);
+            return true;
+        } catch (DataAccessException e) {
+            if (isDuplicateKey(e))
+                return false;
+            throw e;
+        }
+    }
+
+    /**
+     * Whether the statement failed because a transaction id was already used, i.e. on a unique constraint.
+     */
+    public static boolean isDuplicateKey(DataAccessException e) {
+        return UNIQUE_VIOLATION.equals(e.sqlState());
+    }
+
+    /**
+     * Insert of one idempotency key that is not executed yet, so it can be sent to the database in a batch. The
+     * transaction id is added to the transaction id filter right away.
+     */
+    public Query insertIdempotencyKeyQuery(DSLContext dslContext, String transactionId, TransactionType transactionType, LocalDateTime createDatetime) {
+        addToFilter(transactionId);
+        return dslContext.insertInto(Tables.IDEMPOTENCY_KEY)
+                .set(Tables.IDEMPOTENCY_KEY.TRANSACTION_ID, transactionId)
+                .set(Tables.IDEMPOTENCY_KEY.TRANSACTION_TYPE, transactionType)
+                .set(Tables.IDEMPOTENCY_KEY.CREATE_DATETIME, createDatetime);
+    }
+
+    public void deleteIdempotencyKeys(DSLContext dslContext, String transactionId) {
+        dslContext.deleteFrom(Tables.IDEMPOTENCY_KEY)
+                .where(Tables.IDEMPOTENCY_KEY.TRANSACTION_ID.eq(transactionId))
+                .execute();
+    }
+
+    /**
+     * Which of the given transaction ids are already used by a transaction of any type, checked with one query.
+     */
+    public Set<String> getPresentTransactionIds(DSLContext dslContext, Collection<String> transactionIds) {
+        Collection<String> candidates = possibleDuplicates(transactionIds);
+        if (candidates.isEmpty())
+            return new HashSet<>();
+        return recordFalsePositives(candidates, dslContext.selectDistinct(Tables.IDEMPOTENCY_KEY.TRANSACTION_ID)
+                .from(Tables.IDEMPOTENCY_KEY)
+                .where(Tables.IDEMPOTENCY_KEY.TRANSACTION_ID.in(candidates))
+                .fetchSet(Tables.IDEMPOTENCY_KEY.TRANSACTION_ID));
+    }
+
+    /**
+     * Which of the given transaction ids are already used by a transaction of the given type, checked with one query.
+     */
+    public Set<String> getPresentTransactionIds(DSLContext dslContext, TransactionType transactionType, Collection<String> transactionIds) {
+        Collection<String> candidates = possibleDuplicates(transactionIds);
+        if (candidates.isEmpty())
+            return new HashSet<>();
+        return recordFalsePositives(candidates, dslContext.select(Tables.IDEMPOTENCY_KEY.TRANSACTION_ID)
+                .from(Tables.IDEMPOTENCY_KEY)
+                .where(Tables.IDEMPOTENCY_KEY.TRANSACTION_TYPE.eq(transactionType))
+                .and(Tables.IDEMPOTENCY_KEY.TRANSACTION_ID.in(candidates))
+                .fetchSet(Tables.IDEMPOTENCY_KEY.TRANSACTION_ID));
+    }
+
+    private void addToFilter(String transactionId) {
+        if (transactionIdFilter != null)
+            transactionIdFilter.add(transactionId);
+    }
+
+    /**
+     * Transaction ids that have to be looked up, all of them without a filter
+     */
+    private Collection<String> possibleDuplicates(Collection<String> transactionIds) {
+        return transactionIdFilter == null ? transactionIds : transactionIdFilter.possibleDuplicates(transactionIds);
+    }
+
+    private Set<String> recordFalsePositives(Collection<String> candidates, Set<String> present) {
+        if (transactionIdFilter != null)
+            transactionIdFilter.recordFalsePositives(candidates.size() - present.size());
+        return present;
+    }
+
+    /**
+     * Whether the transaction id has an idempotency key of the given type, looked up on the primary key of
+     * {@code idempotency_key} without the transaction id filter.
+     */
+    public boolean isTransactionIdUsed(String transactionId, TransactionType transactionType) {
+        return dataContext.fetchExists(Tables.IDEMPOTENCY_KEY,
+                Tables.IDEMPOTENCY_KEY.TRANSACTION_ID.eq(transactionId)
+                        .and(Tables.IDEMPOTENCY_KEY.TRANSACTION_TYPE.eq(transactionType)));
+    }
+
     public List<AccountTransaction> getAccountTransactionList(long accountId) {
         return dataContext.selectFrom(Tables.ACCOUNT_TRANSACTION)
                 .where(Tables.ACCOUNT_TRANSACTION.FINANCIAL_ACCOUNT.eq(accountId))
-                .fetch(a -> AccountTransaction.builder()
-                        .transactionId(a.getTransactionId())
-                        .createDatetime(a.getCreateDatetime())
-                        .transactionType(a.getTransactionType())
-                        .financialAccount(a.getFinancialAccount())
-                        .transfer(a.getTransfer())
-                        .amount(a.getAmount())
-                        .balance(a.getBalance())
-                        .id(a.getId())
-                        .build());
+                .fetch(this::toAccountTransaction);
+    }
+
+    /**
+     * One page of the transactions of an account in id order, read by seeking the
+     * {@code (financial_account, id)} index, so the cost does not depend on how many transactions come before.
+     *
+     * @param after       id of the last transaction of the previous page, {@code null} for the first page
+     * @param limit       maximum number of transactions
+     * @param newestFirst whether to page from the newest transaction to the oldest
+     */
+    public List<AccountTransaction> getAccountTransactionPage(long accountId, Long after, int limit, boolean newestFirst) {
+        var condition = Tables.ACCOUNT_TRANSACTION.FINANCIAL_ACCOUNT.eq(accountId);
+        if (after != null)
+            condition = condition.and(newestFirst ? Tables.ACCOUNT_TRANSACTION.ID.lt(after) : Tables.ACCOUNT_TRANSACTION.ID.gt(after));
+        return dataContext.selectFrom(Tables.ACCOUNT_TRANSACTION)
+                .where(condition)
+                .orderBy(newestFirst ? Tables.ACCOUNT_TRANSACTION.ID.desc() : Tables.ACCOUNT_TRANSACTION.ID.asc())
+                .limit(limit)
+                .fetch(this::toAccountTransaction);
+    }
+
+    /**
+     * Pass every transaction of an account in id order to the consumer, reading them with
+     * {@link #getAccountTransactionPage} in chunks of {@link #CHUNK_SIZE}, so the history is never held in memory as a
+     * whole. Like paging, every chunk is its own query: a transaction committed after the export passed its id is not
+     * included.
+     */
+    public void forEachAccountTransaction(long accountId, Consumer<AccountTransaction> consumer) {
+        Long after = null;
+        while (true) {
+            List<AccountTransaction> chunk = getAccountTransactionPage(accountId, after, CHUNK_SIZE, false);
+            chunk.forEach(consumer);
+            if (chunk.size() < CHUNK_SIZE)
+                return;
+            after = chunk.get(chunk.size() - 1).getId();
+        }
+    }
+
+    private AccountTransaction toAccountTransaction(AccountTransactionRecord a) {
+        return AccountTransaction.builder()
+                .transactionId(a.getTransactionId())
+                .createDatetime(a.getCreateDatetime())
+                .transactionType(a.getTransactionType())
+                .financialAccount(a.getFinancialAccount())
+                .transfer(a.getTransfer())
+                .amount(a.getAmount())
+                .balance(a.getBalance())
+                .id(a.getId())
+                .build();
     }
 }
@@ -0,0 +1,159 @@
+package com.revolut.challenge.repository;
+
+import com.revolut.challenge.model.FinancialAccount;
+import com.revolut.challenge.util.LruCache;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Committed accounts, each stamped with the version of its row, so that reads of an account can be answered from
+ * memory. Operations that change a balance write the new balance and version through after their transaction
+ * committed, never before, so the cache only ever holds balances that other transactions can see as well. An entry is
+ * only replaced by one with a higher version, so writers publishing out of order never move a balance back.
+ * <p>
+ * A write through only updates accounts that are cached; accounts that are not are read from the database on their
+ * next read. How far a read trusts the cached entry depends on the {@link BalanceReadMode}. Like the metadata cache,
+ * balances changed by another node are only seen when the entry is compared with the database.
+ */
+public class BalanceCache {
+
+    private static final int CACHE_SEGMENTS = 16;
+
+    private final LruCache<String, Entry> cache;
+    private final BalanceReadMode mode;
+    private final long maxStalenessNanos;
+    private final LongAdder revalidations = new LongAdder();
+    private final LongAdder reloads = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+
+    /**
+     * @param maximumSize  maximum number of cached accounts
+     * @param maxStaleness how long a {@link BalanceReadMode#BOUNDED} read answers an entry without comparing it with
+     *                     the database, ignored by {@link BalanceReadMode#STRICT} reads
+     */
+    public BalanceCache(int maximumSize, BalanceReadMode mode, Duration maxStaleness) {
+        this.cache = new LruCache<>(maximumSize, CACHE_SEGMENTS);
+        this.mode = mode;
+        this.maxStalenessNanos = maxStaleness.toNanos();
+    }
+
+    /**
+     * Committed account, from memory when the mode allows it.
+     *
+     * @param loader        reads the committed account from the database
+     * @param versionReader reads only the committed version of the account from the database
+     * @return a copy of the cached account
+     */
+    FinancialAccount get(String accountNumber, Function<String, FinancialAccount> loader, ToLongFunction<String> versionReader) {
+        Entry entry = cache.getIfPresent(accountNumber);
+        long now = System.nanoTime();
+        if (entry != null && mode == BalanceReadMode.BOUNDED && now - entry.verifiedNanos <= maxStalenessNanos)
+            return copy(entry.account);
+
+        if (entry != null && versionReader.applyAsLong(accountNumber) == entry.account.getVersion()) {
+            revalidations.increment();
+            entry = store(new Entry(entry.account, now));
+        } else {
+            reloads.increment();
+            //Stamped before reading, so the entry never looks fresher than the row it holds
+            entry = store(new Entry(loader.apply(accountNumber), now));
+        }
+        return copy(entry.account);
+    }
+
+    /**
+     * Write the balance of a committed transaction through to the cached account.
+     *
+     * @param balance new balance in {@link com.revolut.challenge.model.Money} minor units
+     * @param version version of the account row written with the balance
+     */
+    public void committed(String accountNumber, long balance, long version) {
+        writes.increment();
+        long now = System.nanoTime();
+        cache.compute(accountNumber, (key, entry) -> {
+            if (entry == null || entry.account.getVersion() >= version)
+                return entry;
+            FinancialAccount account = copy(entry.account);
+            account.setBalance(balance);
+            account.setVersion(version);
+            return new Entry(account, now);
+        });
+    }
+
+    public void invalidate(String accountNumber) {
+        cache.invalidate(accountNumber);
+    }
+
+    private Entry store(Entry candidate) {
+        return cache.compute(candidate.account.getAccountNumber(), (key, entry) ->
+                entry == null || entry.account.getVersion() <= candidate.account.getVersion() ? candidate : entry);
+    }
+
+    private static FinancialAccount copy(FinancialAccount account) {
+        return account.toBuilder().build();
+    }
+
+    public BalanceReadMode getMode() {
+        return mode;
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public int getMaximumSize() {
+        return cache.getMaximumSize();
+    }
+
+    /**
+     * Reads of cached accounts, answered from memory or after comparing their version
+     */
+    public long getHits() {
+        return cache.getHits();
+    }
+
+    public long getMisses() {
+        return cache.getMisses();
+    }
+
+    public long getEvictions() {
+        return cache.getEvictions();
+    }
+
+    /**
+     * Reads that compared the version of a cached account with the database and found it unchanged
+     */
+    public long getRevalidations() {
+        return revalidations.sum();
+    }
+
+    /**
+     * Reads that read the whole account from the database
+     */
+    public long getReloads() {
+        return reloads.sum();
+    }
+
+    /**
+     * Balances written through by committed transactions
+     */
+    public long getWrites() {
+        return writes.sum();
+    }
+
+    private static final class Entry {
+        /**
+         * Never changed once the entry is cached, readers get copies
+         */
+        private final FinancialAccount account;
+        private final long verifiedNanos;
+
+        Entry(FinancialAccount account, long verifiedNanos) {
+            this.account = account;
+            this.verifiedNanos = verifiedNanos;
+        }
+    }
+}
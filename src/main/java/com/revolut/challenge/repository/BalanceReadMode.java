@@ -0,0 +1,34 @@
+package com.revolut.challenge.repository;
+
+import java.util.Arrays;
+
+/**
+ * How the {@link BalanceCache} answers a read of an account.
+ */
+public enum BalanceReadMode {
+    /**
+     * Compare the cached version with the database version on every read, and read the account again when it changed
+     */
+    STRICT("strict"),
+    /**
+     * Answer from memory when the cached account was read or compared with the database within the staleness bound
+     */
+    BOUNDED("bounded");
+
+    private final String value;
+
+    BalanceReadMode(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public static BalanceReadMode fromValue(String value) {
+        return Arrays.stream(values())
+                .filter(mode -> mode.value.equalsIgnoreCase(value))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown balance read mode " + value));
+    }
+}
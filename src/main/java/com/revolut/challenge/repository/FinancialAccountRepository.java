@@ -2,56 +2,282 @@ package com.revolut.challenge.repository;
 
 import com.revolut.challenge.exception.InvalidAccountException;
 import com.revolut.challenge.jooq.Tables;
+import com.revolut.challenge.jooq.tables.records.AccountBalanceSlotRecord;
 import com.revolut.challenge.jooq.tables.records.FinancialAccountRecord;
+import com.revolut.challenge.model.AccountBalance;
+import com.revolut.challenge.model.AccountMetadata;
 import com.revolut.challenge.model.FinancialAccount;
+import com.revolut.challenge.model.enumeration.AccountStatusType;
 import com.revolut.challenge.model.enumeration.Currency;
+import com.revolut.challenge.util.LruCache;
 import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.InsertSetMoreStep;
+import org.jooq.Query;
+import org.jooq.Result;
+import org.jooq.impl.DSL;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public class FinancialAccountRepository {
+    private static final int METADATA_CACHE_SEGMENTS = 16;
+
     private final DSLContext dataContext;
+    private final LruCache<String, AccountMetadata> metadataCache;
+    private final BalanceCache balanceCache;
 
     public FinancialAccountRepository(DSLContext dataContext) {
+        this(dataContext, 0);
+    }
+
+    public FinancialAccountRepository(DSLContext dataContext, int metadataCacheSize) {
+        this(dataContext, metadataCacheSize, null);
+    }
+
+    /**
+     * @param metadataCacheSize maximum number of accounts whose {@link AccountMetadata} is cached, {@code 0} to read
+     *                          it from the database every time
+     * @param balanceCache      committed accounts read by {@link #getCommittedAccount}, {@code null} to read them from
+     *                          the database every time
+     */
+    public FinancialAccountRepository(DSLContext dataContext, int metadataCacheSize, BalanceCache balanceCache) {
         this.dataContext = dataContext;
+        this.metadataCache = metadataCacheSize > 0 ? new LruCache<>(metadataCacheSize, METADATA_CACHE_SEGMENTS) : null;
+        this.balanceCache = balanceCache;
     }
 
     public Optional<FinancialAccount> getById(Long id) {
-        return dataContext.selectFrom(Tables.FINANCIAL_ACCOUNT)
+        return dataContext.select(accountFields())
+                .from(Tables.FINANCIAL_ACCOUNT)
                 .where(Tables.FINANCIAL_ACCOUNT.ID.eq(id))
                 .fetchOptionalInto(FinancialAccount.class);
     }
 
+    /**
+     * Read an account, the balance and version of a split account add up those of its slots.
+     */
     public FinancialAccount getByAccountNumber(String accountNumber) {
-        return dataContext.selectFrom(Tables.FINANCIAL_ACCOUNT)
+        return dataContext.select(accountFields())
+                .from(Tables.FINANCIAL_ACCOUNT)
                 .where(Tables.FINANCIAL_ACCOUNT.ACCOUNT_NUMBER.eq(accountNumber))
                 .fetchOptionalInto(FinancialAccount.class).orElseThrow(() -> new InvalidAccountException(accountNumber));
     }
 
+    private static List<Field<?>> accountFields() {
+        var slot = Tables.ACCOUNT_BALANCE_SLOT;
+        var condition = slot.FINANCIAL_ACCOUNT.eq(Tables.FINANCIAL_ACCOUNT.ID);
+        return List.of(Tables.FINANCIAL_ACCOUNT.ID,
+                Tables.FINANCIAL_ACCOUNT.ACCOUNT_STATUS_TYPE,
+                Tables.FINANCIAL_ACCOUNT.ACCOUNT_NUMBER,
+                Tables.FINANCIAL_ACCOUNT.CREATE_DATETIME,
+                //Added in SQL, so the decimal sum is converted to minor units once
+                Tables.FINANCIAL_ACCOUNT.BALANCE.plus(DSL.coalesce(DSL.field(DSL.select(DSL.sum(slot.BALANCE)).from(slot).where(condition)), BigDecimal.ZERO))
+                        .as(Tables.FINANCIAL_ACCOUNT.BALANCE.getName()),
+                Tables.FINANCIAL_ACCOUNT.CURRENCY,
+                versionField(),
+                DSL.field(DSL.selectCount().from(slot).where(condition)).as("BALANCE_SLOTS"));
+    }
+
+    /**
+     * Version of the account row plus those of its slots, so it changes with every credit of a split account too
+     */
+    private static Field<Long> versionField() {
+        var slot = Tables.ACCOUNT_BALANCE_SLOT;
+        return Tables.FINANCIAL_ACCOUNT.VERSION.plus(DSL.coalesce(DSL.field(DSL.select(DSL.sum(slot.VERSION)).from(slot)
+                .where(slot.FINANCIAL_ACCOUNT.eq(Tables.FINANCIAL_ACCOUNT.ID))), BigDecimal.ZERO))
+                .as(Tables.FINANCIAL_ACCOUNT.VERSION.getName());
+    }
+
+    /**
+     * Read a committed account through the balance cache, for reads that do not change the account.
+     */
+    public FinancialAccount getCommittedAccount(String accountNumber) {
+        if (balanceCache == null)
+            return getByAccountNumber(accountNumber);
+        return balanceCache.get(accountNumber, this::getByAccountNumber, this::getVersion);
+    }
+
+    /**
+     * Read the committed version of an account through the balance cache.
+     */
+    public long getCommittedVersion(String accountNumber) {
+        if (balanceCache == null)
+            return getVersion(accountNumber);
+        return getCommittedAccount(accountNumber).getVersion();
+    }
+
+    /**
+     * Write balances through to the balance cache, must only be called once the transaction that updated them
+     * committed.
+     */
+    public void balancesCommitted(Collection<AccountBalance> balances) {
+        if (balanceCache == null)
+            return;
+        for (AccountBalance balance : balances)
+            balanceCache.committed(balance.getAccountNumber(), balance.getBalance(), balance.getVersion());
+    }
+
+    /**
+     * Drop an account from the balance cache after a committed balance update whose result is not known, so that the
+     * next read loads it again.
+     */
+    public void balanceChanged(String accountNumber) {
+        if (balanceCache != null)
+            balanceCache.invalidate(accountNumber);
+    }
+
+    /**
+     * Balance cache, {@code null} when it is disabled
+     */
+    public BalanceCache getBalanceCache() {
+        return balanceCache;
+    }
+
+    /**
+     * Read the id, status, currency and balance slot count of an account through the metadata cache. Changes to the account made through
+     * this repository invalidate its cached metadata, changes made elsewhere are not seen until it is evicted.
+     */
+    public AccountMetadata getAccountMetadata(String accountNumber) {
+        if (metadataCache == null)
+            return fetchAccountMetadata(accountNumber);
+        return metadataCache.get(accountNumber, this::fetchAccountMetadata);
+    }
+
+    /**
+     * Metadata cache, {@code null} when it is disabled
+     */
+    public LruCache<String, AccountMetadata> getMetadataCache() {
+        return metadataCache;
+    }
+
+    private AccountMetadata fetchAccountMetadata(String accountNumber) {
+        var slot = Tables.ACCOUNT_BALANCE_SLOT;
+        return dataContext.select(Tables.FINANCIAL_ACCOUNT.ID, Tables.FINANCIAL_ACCOUNT.ACCOUNT_NUMBER,
+                Tables.FINANCIAL_ACCOUNT.ACCOUNT_STATUS_TYPE, Tables.FINANCIAL_ACCOUNT.CURRENCY,
+                DSL.field(DSL.selectCount().from(slot).where(slot.FINANCIAL_ACCOUNT.eq(Tables.FINANCIAL_ACCOUNT.ID))))
+                .from(Tables.FINANCIAL_ACCOUNT)
+                .where(Tables.FINANCIAL_ACCOUNT.ACCOUNT_NUMBER.eq(accountNumber))
+                .fetchOptional(record -> new AccountMetadata(record.value1(), record.value2(), record.value3(), record.value4(), record.value5()))
+                .orElseThrow(() -> new InvalidAccountException(accountNumber));
+    }
+
+    /**
+     * Read only the version of an account, to tell whether it changed without reading the account itself.
+     */
+    public long getVersion(String accountNumber) {
+        return dataContext.select(versionField())
+                .from(Tables.FINANCIAL_ACCOUNT)
+                .where(Tables.FINANCIAL_ACCOUNT.ACCOUNT_NUMBER.eq(accountNumber))
+                .fetchOptional(record -> record.value1()).orElseThrow(() -> new InvalidAccountException(accountNumber));
+    }
+
+    /**
+     * Insert an account, together with its slots when its balance is split.
+     */
     public int save(FinancialAccount financialAccount) {
-        return dataContext.insertInto(Tables.FINANCIAL_ACCOUNT)
+        if (financialAccount.getBalanceSlots() == 0)
+            return insertQuery(dataContext, financialAccount).execute();
+        return dataContext.transactionResult(configuration -> {
+            var transactionCtx = DSL.using(configuration);
+            Long id = insertQuery(transactionCtx, financialAccount).returningResult(Tables.FINANCIAL_ACCOUNT.ID).fetchOne().value1();
+            List<Query> slots = new ArrayList<>(financialAccount.getBalanceSlots());
+            for (int slot = 0; slot < financialAccount.getBalanceSlots(); slot++) {
+                slots.add(transactionCtx.insertInto(Tables.ACCOUNT_BALANCE_SLOT)
+                        .set(Tables.ACCOUNT_BALANCE_SLOT.FINANCIAL_ACCOUNT, id)
+                        .set(Tables.ACCOUNT_BALANCE_SLOT.SLOT, slot)
+                        .set(Tables.ACCOUNT_BALANCE_SLOT.BALANCE, 0L));
+            }
+            transactionCtx.batch(slots).execute();
+            return 1;
+        });
+    }
+
+    private InsertSetMoreStep<FinancialAccountRecord> insertQuery(DSLContext dslContext, FinancialAccount financialAccount) {
+        return dslContext.insertInto(Tables.FINANCIAL_ACCOUNT)
                 .set(Tables.FINANCIAL_ACCOUNT.ID, financialAccount.getId())
                 .set(Tables.FINANCIAL_ACCOUNT.ACCOUNT_NUMBER, financialAccount.getAccountNumber())
                 .set(Tables.FINANCIAL_ACCOUNT.BALANCE, financialAccount.getBalance())
                 .set(Tables.FINANCIAL_ACCOUNT.CREATE_DATETIME, financialAccount.getCreateDatetime())
                 .set(Tables.FINANCIAL_ACCOUNT.CURRENCY, financialAccount.getCurrency())
-                .set(Tables.FINANCIAL_ACCOUNT.ACCOUNT_STATUS_TYPE, financialAccount.getAccountStatusType())
-                .execute();
+                .set(Tables.FINANCIAL_ACCOUNT.ACCOUNT_STATUS_TYPE, financialAccount.getAccountStatusType());
     }
 
-    public int updateBalance(DSLContext dslContext, String accountNumber, BigDecimal balance) {
+    public int updateBalance(DSLContext dslContext, String accountNumber, long balance) {
+        return updateBalanceQuery(dslContext, accountNumber, balance).execute();
+    }
+
+    /**
+     * Balance update that is not executed yet, so it can be sent to the database in a batch. The version of the
+     * account is incremented with it.
+     *
+     * @param balance new balance in {@link com.revolut.challenge.model.Money} minor units
+     */
+    public Query updateBalanceQuery(DSLContext dslContext, String accountNumber, long balance) {
         return dslContext.update(Tables.FINANCIAL_ACCOUNT)
                 .set(Tables.FINANCIAL_ACCOUNT.BALANCE, balance)
-                .where(Tables.FINANCIAL_ACCOUNT.ACCOUNT_NUMBER.eq(accountNumber))
-                .execute();
+                .set(Tables.FINANCIAL_ACCOUNT.VERSION, Tables.FINANCIAL_ACCOUNT.VERSION.plus(1))
+                .where(Tables.FINANCIAL_ACCOUNT.ACCOUNT_NUMBER.eq(accountNumber));
     }
 
-    public int updateCurrency(DSLContext dslContext, String accountNumber, Currency currency) {
+    /**
+     * Balance update that sets the version of the account instead of incrementing it, for balances whose versions are
+     * counted outside the database.
+     *
+     * @param balance new balance in {@link com.revolut.challenge.model.Money} minor units
+     * @param version version of the account with the new balance
+     */
+    public Query updateBalanceQuery(DSLContext dslContext, String accountNumber, long balance, long version) {
+        return dslContext.update(Tables.FINANCIAL_ACCOUNT)
+                .set(Tables.FINANCIAL_ACCOUNT.BALANCE, balance)
+                .set(Tables.FINANCIAL_ACCOUNT.VERSION, version)
+                .where(Tables.FINANCIAL_ACCOUNT.ACCOUNT_NUMBER.eq(accountNumber));
+    }
+
+    /**
+     * Balance update that adds an amount to the balance without reading it first, so concurrent additions commute.
+     * The row is locked from this statement until the transaction ends. The version of the account is incremented
+     * with it.
+     *
+     * @param amount amount to add in {@link com.revolut.challenge.model.Money} minor units
+     */
+    public Query addToBalanceQuery(DSLContext dslContext, String accountNumber, long amount) {
         return dslContext.update(Tables.FINANCIAL_ACCOUNT)
+                //Bound through the converter of the column, the amount is in minor units
+                .set(Tables.FINANCIAL_ACCOUNT.BALANCE, Tables.FINANCIAL_ACCOUNT.BALANCE.plus(DSL.val(amount, Tables.FINANCIAL_ACCOUNT.BALANCE)))
+                .set(Tables.FINANCIAL_ACCOUNT.VERSION, Tables.FINANCIAL_ACCOUNT.VERSION.plus(1))
+                .where(Tables.FINANCIAL_ACCOUNT.ACCOUNT_NUMBER.eq(accountNumber));
+    }
+
+    public int updateCurrency(DSLContext dslContext, String accountNumber, Currency currency) {
+        int updated = dslContext.update(Tables.FINANCIAL_ACCOUNT)
                 .set(Tables.FINANCIAL_ACCOUNT.CURRENCY, currency)
+                .set(Tables.FINANCIAL_ACCOUNT.VERSION, Tables.FINANCIAL_ACCOUNT.VERSION.plus(1))
+                .where(Tables.FINANCIAL_ACCOUNT.ACCOUNT_NUMBER.eq(accountNumber))
+                .execute();
+        invalidateAccountMetadata(accountNumber);
+        return updated;
+    }
+
+    public int updateAccountStatus(DSLContext dslContext, String accountNumber, AccountStatusType accountStatusType) {
+        int updated = dslContext.update(Tables.FINANCIAL_ACCOUNT)
+                .set(Tables.FINANCIAL_ACCOUNT.ACCOUNT_STATUS_TYPE, accountStatusType)
+                .set(Tables.FINANCIAL_ACCOUNT.VERSION, Tables.FINANCIAL_ACCOUNT.VERSION.plus(1))
                 .where(Tables.FINANCIAL_ACCOUNT.ACCOUNT_NUMBER.eq(accountNumber))
                 .execute();
+        invalidateAccountMetadata(accountNumber);
+        return updated;
+    }
+
+    private void invalidateAccountMetadata(String accountNumber) {
+        if (metadataCache != null)
+            metadataCache.invalidate(accountNumber);
+        if (balanceCache != null)
+            balanceCache.invalidate(accountNumber);
     }
 
 
@@ -60,4 +286,96 @@ public class FinancialAccountRepository {
                 .where(Tables.FINANCIAL_ACCOUNT.ACCOUNT_NUMBER.eq(accountNumber))
                 .forUpdate().fetchOptional().orElseThrow(() -> new InvalidAccountException(accountNumber));
     }
+
+    /**
+     * Read all given accounts without locking them.
+     *
+     * @return accounts by account number, unknown account numbers are missing from the map
+     */
+    public Map<String, FinancialAccountRecord> getFinancialAccounts(DSLContext dataContext, Collection<String> accountNumbers) {
+        return dataContext.selectFrom(Tables.FINANCIAL_ACCOUNT)
+                .where(Tables.FINANCIAL_ACCOUNT.ACCOUNT_NUMBER.in(accountNumbers))
+                .fetchMap(Tables.FINANCIAL_ACCOUNT.ACCOUNT_NUMBER);
+    }
+
+    /**
+     * Lock and read all given accounts with a single {@code SELECT ... FOR UPDATE}.
+     * Rows are locked in id order, so concurrent callers locking overlapping sets of accounts
+     * (e.g. A to B and B to A transfers) always acquire them in the same order and can not deadlock.
+     * Every operation that touches more than one account must lock through this method.
+     *
+     * @param accountNumbers accounts to lock, duplicates are ignored
+     * @return locked accounts by account number in id order, unknown account numbers are missing from the map
+     */
+    public Map<String, FinancialAccountRecord> lockFinancialAccounts(DSLContext dataContext, Collection<String> accountNumbers) {
+        return dataContext.selectFrom(Tables.FINANCIAL_ACCOUNT)
+                .where(Tables.FINANCIAL_ACCOUNT.ACCOUNT_NUMBER.in(accountNumbers))
+                .orderBy(Tables.FINANCIAL_ACCOUNT.ID)
+                .forUpdate()
+                .fetchMap(Tables.FINANCIAL_ACCOUNT.ACCOUNT_NUMBER);
+    }
+
+    /**
+     * Lock and read one slot of a split account, the account row itself is not locked.
+     */
+    public AccountBalanceSlotRecord lockBalanceSlot(DSLContext dataContext, Long accountId, int slot) {
+        return dataContext.selectFrom(Tables.ACCOUNT_BALANCE_SLOT)
+                .where(Tables.ACCOUNT_BALANCE_SLOT.FINANCIAL_ACCOUNT.eq(accountId))
+                .and(Tables.ACCOUNT_BALANCE_SLOT.SLOT.eq(slot))
+                .forUpdate().fetchOptional().orElseThrow(() -> new IllegalStateException("Missing balance slot " + slot + " of account " + accountId));
+    }
+
+    /**
+     * Lock and read all slots of the given split accounts, in account id and slot order like
+     * {@link #lockFinancialAccounts}. Must be called after the account rows are locked, so that it waits for credits
+     * in progress but never deadlocks with another debit.
+     *
+     * @return slots of every account in slot order by account id, accounts that are not split are missing from the map
+     */
+    public Map<Long, Result<AccountBalanceSlotRecord>> lockBalanceSlots(DSLContext dataContext, Collection<Long> accountIds) {
+        return dataContext.selectFrom(Tables.ACCOUNT_BALANCE_SLOT)
+                .where(Tables.ACCOUNT_BALANCE_SLOT.FINANCIAL_ACCOUNT.in(accountIds))
+                .orderBy(Tables.ACCOUNT_BALANCE_SLOT.FINANCIAL_ACCOUNT, Tables.ACCOUNT_BALANCE_SLOT.SLOT)
+                .forUpdate()
+                .fetchGroups(Tables.ACCOUNT_BALANCE_SLOT.FINANCIAL_ACCOUNT);
+    }
+
+    /**
+     * Balance update of a slot that is not executed yet, the version of the slot is incremented with it.
+     *
+     * @param balance new balance of the slot in {@link com.revolut.challenge.model.Money} minor units
+     */
+    public Query updateBalanceSlotQuery(DSLContext dslContext, Long accountId, int slot, long balance) {
+        return dslContext.update(Tables.ACCOUNT_BALANCE_SLOT)
+                .set(Tables.ACCOUNT_BALANCE_SLOT.BALANCE, balance)
+                .set(Tables.ACCOUNT_BALANCE_SLOT.VERSION, Tables.ACCOUNT_BALANCE_SLOT.VERSION.plus(1))
+                .where(Tables.ACCOUNT_BALANCE_SLOT.FINANCIAL_ACCOUNT.eq(accountId))
+                .and(Tables.ACCOUNT_BALANCE_SLOT.SLOT.eq(slot));
+    }
+
+    /**
+     * Number of slots the balance of an account is split over, read through the metadata cache.
+     *
+     * @return {@code 0} when the account is not split, or unknown and rejected once it is locked
+     */
+    public int getBalanceSlots(String accountNumber) {
+        try {
+            return getAccountMetadata(accountNumber).getBalanceSlots();
+        } catch (InvalidAccountException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Whether the balance of one of the given accounts is split, read through the metadata cache when it is enabled
+     * and with a single query otherwise.
+     */
+    public boolean hasSplitAccount(Collection<String> accountNumbers) {
+        if (metadataCache != null)
+            return accountNumbers.stream().anyMatch(accountNumber -> getBalanceSlots(accountNumber) > 0);
+        return dataContext.fetchExists(DSL.selectOne()
+                .from(Tables.FINANCIAL_ACCOUNT)
+                .join(Tables.ACCOUNT_BALANCE_SLOT).on(Tables.ACCOUNT_BALANCE_SLOT.FINANCIAL_ACCOUNT.eq(Tables.FINANCIAL_ACCOUNT.ID))
+                .where(Tables.FINANCIAL_ACCOUNT.ACCOUNT_NUMBER.in(accountNumbers)));
+    }
 }
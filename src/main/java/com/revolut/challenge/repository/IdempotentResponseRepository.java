@@ -0,0 +1,67 @@
+package com.revolut.challenge.repository;
+
+import com.revolut.challenge.jooq.Tables;
+import com.revolut.challenge.jooq.tables.records.IdempotentResponseRecord;
+import com.revolut.challenge.model.StoredResponse;
+import com.revolut.challenge.model.enumeration.ReplayOperation;
+import org.jooq.DSLContext;
+import org.jooq.exception.DataAccessException;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public class IdempotentResponseRepository {
+
+    private final DSLContext dataContext;
+
+    public IdempotentResponseRepository(DSLContext dataContext) {
+        this.dataContext = dataContext;
+    }
+
+    /**
+     * @return {@code false} when a response of the transaction id and operation is already stored
+     */
+    public boolean save(StoredResponse storedResponse) {
+        try {
+            dataContext.insertInto(Tables.IDEMPOTENT_RESPONSE)
+                    .set(Tables.IDEMPOTENT_RESPONSE.TRANSACTION_ID, storedResponse.getTransactionId())
+                    .set(Tables.IDEMPOTENT_RESPONSE.OPERATION, storedResponse.getOperation())
+                    .set(Tables.IDEMPOTENT_RESPONSE.REQUEST, storedResponse.getRequest())
+                    .set(Tables.IDEMPOTENT_RESPONSE.STATUS, storedResponse.getStatus())
+                    .set(Tables.IDEMPOTENT_RESPONSE.BODY, storedResponse.getBody())
+                    .set(Tables.IDEMPOTENT_RESPONSE.CREATE_DATETIME, storedResponse.getCreateDatetime())
+                    .execute();
+            return true;
+        } catch (DataAccessException e) {
+            if (AccountTransactionRepository.isDuplicateKey(e))
+                return false;
+            throw e;
+        }
+    }
+
+    /**
+     * Response of the transaction id and operation stored at or after {@code notBefore}
+     */
+    public Optional<StoredResponse> find(String transactionId, ReplayOperation operation, LocalDateTime notBefore) {
+        return dataContext.selectFrom(Tables.IDEMPOTENT_RESPONSE)
+                .where(Tables.IDEMPOTENT_RESPONSE.TRANSACTION_ID.eq(transactionId))
+                .and(Tables.IDEMPOTENT_RESPONSE.OPERATION.eq(operation))
+                .and(Tables.IDEMPOTENT_RESPONSE.CREATE_DATETIME.ge(notBefore))
+                .fetchOptional()
+                .map(this::toStoredResponse);
+    }
+
+    /**
+     * @return number of responses deleted
+     */
+    public int deleteCreatedBefore(LocalDateTime createDatetime) {
+        return dataContext.deleteFrom(Tables.IDEMPOTENT_RESPONSE)
+                .where(Tables.IDEMPOTENT_RESPONSE.CREATE_DATETIME.lt(createDatetime))
+                .execute();
+    }
+
+    private StoredResponse toStoredResponse(IdempotentResponseRecord record) {
+        return new StoredResponse(record.getTransactionId(), record.getOperation(), record.getRequest(),
+                record.getStatus(), record.getBody(), record.getCreateDatetime());
+    }
+}
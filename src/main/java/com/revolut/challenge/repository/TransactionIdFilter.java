@@ -0,0 +1,93 @@
+package com.revolut.challenge.repository;
+
+import com.revolut.challenge.util.ScalableBloomFilter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Transaction ids that have an idempotency key, kept in a {@link ScalableBloomFilter} so that lookups of ids that
+ * are definitely new can skip the database. Ids are added when their idempotency key is inserted, before the
+ * transaction commits, so a committed id is never missing; ids of transactions that rolled back stay in the filter
+ * and only cost a lookup.
+ * <p>
+ * Only complete when idempotency keys are inserted by a single node through the same
+ * {@link AccountTransactionRepository}.
+ */
+public class TransactionIdFilter {
+
+    private final ScalableBloomFilter filter;
+    private final LongAdder skippedLookups = new LongAdder();
+    private final LongAdder possibleDuplicates = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    /**
+     * @param initialCapacity   number of transaction ids the filter is sized for before it grows
+     * @param falsePositiveRate upper bound of the rate of new ids that are still looked up in the database
+     */
+    public TransactionIdFilter(long initialCapacity, double falsePositiveRate) {
+        this.filter = new ScalableBloomFilter(initialCapacity, falsePositiveRate);
+    }
+
+    public void add(String transactionId) {
+        filter.add(transactionId);
+    }
+
+    /**
+     * @return {@code false} when the transaction id is definitely not used
+     */
+    public boolean mightContain(String transactionId) {
+        return filter.mightContain(transactionId);
+    }
+
+    /**
+     * Transaction ids that might already be used and have to be looked up, the others are definitely new
+     */
+    List<String> possibleDuplicates(Collection<String> transactionIds) {
+        List<String> candidates = new ArrayList<>();
+        for (String transactionId : transactionIds) {
+            if (filter.mightContain(transactionId))
+                candidates.add(transactionId);
+        }
+        skippedLookups.add(transactionIds.size() - candidates.size());
+        possibleDuplicates.add(candidates.size());
+        return candidates;
+    }
+
+    /**
+     * Record how many of the possible duplicates were not found in the database
+     */
+    void recordFalsePositives(int count) {
+        falsePositives.add(count);
+    }
+
+    public long getCount() {
+        return filter.getCount();
+    }
+
+    public int getStages() {
+        return filter.getStages();
+    }
+
+    public long getMemoryBytes() {
+        return filter.getMemoryBytes();
+    }
+
+    public double getExpectedFalsePositiveRate() {
+        return filter.getExpectedFalsePositiveRate();
+    }
+
+    public long getSkippedLookups() {
+        return skippedLookups.sum();
+    }
+
+    public long getPossibleDuplicates() {
+        return possibleDuplicates.sum();
+    }
+
+    public long getFalsePositives() {
+        return falsePositives.sum();
+    }
+}
@@ -5,7 +5,10 @@ import com.revolut.challenge.jooq.tables.records.TransferRecord;
 import com.revolut.challenge.model.Transfer;
 import com.revolut.challenge.model.enumeration.TransferStatusType;
 import org.jooq.DSLContext;
+import org.jooq.InsertSetMoreStep;
+import org.jooq.impl.DSL;
 
+import java.util.List;
 import java.util.Optional;
 
 public class TransferRepository {
@@ -23,13 +26,48 @@ public class TransferRepository {
     }
 
     public TransferRecord save(Transfer transfer) {
-        return dataContext.insertInto(Tables.TRANSFER)
+        return save(dataContext, transfer);
+    }
+
+    public TransferRecord save(DSLContext dslContext, Transfer transfer) {
+        return insertQuery(dslContext, transfer)
+                .returning(Tables.TRANSFER.ID).fetchOne();
+    }
+
+    /**
+     * Insert that is not executed yet, so it can be sent to the database in a batch.
+     */
+    public InsertSetMoreStep<TransferRecord> insertQuery(DSLContext dslContext, Transfer transfer) {
+        return dslContext.insertInto(Tables.TRANSFER)
                 .set(Tables.TRANSFER.ID, transfer.getId())
                 .set(Tables.TRANSFER.FROM_ACCOUNT, transfer.getFromAccount())
                 .set(Tables.TRANSFER.TO_ACCOUNT, transfer.getToAccount())
                 .set(Tables.TRANSFER.CREATE_DATETIME, transfer.getCreateDatetime())
-                .set(Tables.TRANSFER.TRANSFER_STATUS_TYPE, transfer.getTransferStatusType())
-                .returning(Tables.TRANSFER.ID).fetchOne();
+                .set(Tables.TRANSFER.TRANSFER_STATUS_TYPE, transfer.getTransferStatusType());
+    }
+
+    /**
+     * Insert all transfers with one multi-row insert.
+     *
+     * @return generated ids in the order of the given transfers
+     */
+    public List<Long> saveAll(DSLContext dslContext, List<Transfer> transfers) {
+        var insert = dslContext.insertInto(Tables.TRANSFER,
+                Tables.TRANSFER.FROM_ACCOUNT, Tables.TRANSFER.TO_ACCOUNT, Tables.TRANSFER.CREATE_DATETIME, Tables.TRANSFER.TRANSFER_STATUS_TYPE);
+        for (Transfer transfer : transfers) {
+            insert = insert.values(transfer.getFromAccount(), transfer.getToAccount(), transfer.getCreateDatetime(), transfer.getTransferStatusType());
+        }
+        return insert.returning(Tables.TRANSFER.ID).fetch().getValues(Tables.TRANSFER.ID);
+    }
+
+    /**
+     * @return highest transfer id in use, {@code 0} when there is no transfer yet
+     */
+    public long getMaxId() {
+        Long maxId = dataContext.select(DSL.max(Tables.TRANSFER.ID))
+                .from(Tables.TRANSFER)
+                .fetchOne().value1();
+        return maxId == null ? 0 : maxId;
     }
 
     public int updateState(Long id, TransferStatusType transferStatusType) {
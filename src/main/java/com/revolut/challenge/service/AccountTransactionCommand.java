@@ -0,0 +1,18 @@
+package com.revolut.challenge.service;
+
+import com.revolut.challenge.model.enumeration.TransactionType;
+import lombok.Value;
+
+/**
+ * One requested deposit or withdraw of a batch.
+ */
+@Value
+public class AccountTransactionCommand {
+    TransactionType transactionType;
+    String accountNumber;
+    /**
+     * amount in {@link com.revolut.challenge.model.Money} minor units
+     */
+    long amount;
+    String transactionId;
+}
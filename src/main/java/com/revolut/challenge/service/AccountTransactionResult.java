@@ -0,0 +1,28 @@
+package com.revolut.challenge.service;
+
+import com.revolut.challenge.exception.TransferBaseException;
+import lombok.Value;
+
+/**
+ * Outcome of one deposit or withdraw of a batch.
+ */
+@Value
+public class AccountTransactionResult {
+    String transactionId;
+    /**
+     * why the transaction was rejected, {@code null} when it was done
+     */
+    TransferBaseException failure;
+
+    public static AccountTransactionResult done(String transactionId) {
+        return new AccountTransactionResult(transactionId, null);
+    }
+
+    public static AccountTransactionResult failed(String transactionId, TransferBaseException failure) {
+        return new AccountTransactionResult(transactionId, failure);
+    }
+
+    public boolean isDone() {
+        return failure == null;
+    }
+}
@@ -2,61 +2,138 @@ package com.revolut.challenge.service;
 
 import com.revolut.challenge.exception.DuplicateTransactionException;
 import com.revolut.challenge.exception.InsufficientBalanceException;
+import com.revolut.challenge.exception.InvalidAccountException;
+import com.revolut.challenge.exception.TransferBaseException;
+import com.revolut.challenge.jooq.tables.records.FinancialAccountRecord;
+import com.revolut.challenge.ledger.LedgerEngine;
+import com.revolut.challenge.lock.AccountLockStrategy;
+import com.revolut.challenge.lock.DatabaseAccountLockStrategy;
+import com.revolut.challenge.model.AccountBalance;
+import com.revolut.challenge.model.AccountMetadata;
 import com.revolut.challenge.model.AccountTransaction;
-import com.revolut.challenge.model.FinancialAccount;
+import com.revolut.challenge.model.Money;
 import com.revolut.challenge.model.enumeration.TransactionType;
 import com.revolut.challenge.repository.AccountTransactionRepository;
 import com.revolut.challenge.repository.FinancialAccountRepository;
 import com.revolut.challenge.web.dto.AccountTransactionDTO;
 import com.revolut.challenge.web.dto.AccountTransactionDetails;
+import com.revolut.challenge.web.dto.IdempotencyFilterMetricsDTO;
 import lombok.extern.slf4j.Slf4j;
 import org.jooq.DSLContext;
+import org.jooq.Query;
+import org.jooq.exception.DataAccessException;
 import org.jooq.impl.DSL;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Slf4j
 public class AccountTransactionService {
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+
     private final AccountTransactionRepository accountTransactionRepository;
     private final FinancialAccountRepository accountRepository;
     private final DSLContext dataContext;
+    private final AccountLockStrategy lockStrategy;
+    private final LedgerEngine ledgerEngine;
+    private final BalanceSlots balanceSlots;
+    private final DepositMode depositMode;
 
     public AccountTransactionService(AccountTransactionRepository accountTransactionRepository,
                                      FinancialAccountRepository accountRepository,
                                      DSLContext dataContext) {
+        this(accountTransactionRepository, accountRepository, dataContext, new DatabaseAccountLockStrategy(accountRepository), null);
+    }
+
+    /**
+     * @param lockStrategy how the account of a deposit or withdraw is locked
+     * @param ledgerEngine engine that owns the balances, {@code null} to update them in the database directly
+     */
+    public AccountTransactionService(AccountTransactionRepository accountTransactionRepository,
+                                     FinancialAccountRepository accountRepository,
+                                     DSLContext dataContext,
+                                     AccountLockStrategy lockStrategy,
+                                     LedgerEngine ledgerEngine) {
+        this(accountTransactionRepository, accountRepository, dataContext, lockStrategy, ledgerEngine,
+                new BalanceSlots(accountRepository, BalanceSlotSelection.HASH));
+    }
+
+    /**
+     * @param lockStrategy how the account of a deposit or withdraw is locked
+     * @param ledgerEngine engine that owns the balances, {@code null} to update them in the database directly
+     * @param balanceSlots how deposits to and withdrawals from split accounts are applied
+     */
+    public AccountTransactionService(AccountTransactionRepository accountTransactionRepository,
+                                     FinancialAccountRepository accountRepository,
+                                     DSLContext dataContext,
+                                     AccountLockStrategy lockStrategy,
+                                     LedgerEngine ledgerEngine,
+                                     BalanceSlots balanceSlots) {
+        this(accountTransactionRepository, accountRepository, dataContext, lockStrategy, ledgerEngine, balanceSlots, DepositMode.LOCKED);
+    }
+
+    /**
+     * @param lockStrategy how the account of a deposit or withdraw is locked
+     * @param ledgerEngine engine that owns the balances, {@code null} to update them in the database directly
+     * @param balanceSlots how deposits to and withdrawals from split accounts are applied
+     * @param depositMode  how a single deposit updates the balance in the database
+     */
+    public AccountTransactionService(AccountTransactionRepository accountTransactionRepository,
+                                     FinancialAccountRepository accountRepository,
+                                     DSLContext dataContext,
+                                     AccountLockStrategy lockStrategy,
+                                     LedgerEngine ledgerEngine,
+                                     BalanceSlots balanceSlots,
+                                     DepositMode depositMode) {
         this.accountTransactionRepository = accountTransactionRepository;
         this.accountRepository = accountRepository;
         this.dataContext = dataContext;
+        this.lockStrategy = lockStrategy;
+        this.ledgerEngine = ledgerEngine;
+        this.balanceSlots = balanceSlots;
+        this.depositMode = depositMode;
     }
 
     /**
      * Make withdraw with given amount for input account
      *
      * @param accountNumber target number
-     * @param amount        amount to withdraw
+     * @param amount        amount to withdraw in {@link Money} minor units
      * @param transactionId transaction Id of transaction for make idempotent
      * @param transfer      transfer Id related to transaction
      */
-    public void createWithdrawTransaction(DSLContext dslContext, String accountNumber, BigDecimal amount, String transactionId, Long transfer) {
-        validateDuplicateTransaction(transactionId, TransactionType.WITHDRAW);
-
-        dslContext.transaction(dataConfiguration -> {
+    public void createWithdrawTransaction(DSLContext dslContext, String accountNumber, long amount, String transactionId, Long transfer) {
+        boolean split = accountRepository.getBalanceSlots(accountNumber) > 0;
+        List<AccountBalance> written = lockStrategy.callLocked(List.of(accountNumber), () -> dslContext.transactionResult(dataConfiguration -> {
             var transactionCtx = DSL.using(dataConfiguration);
 
+            validateDuplicateTransaction(transactionCtx, transactionId, TransactionType.WITHDRAW);
+
             //Lock account record to make concurrency safe!
-            var financialAccount = accountRepository.lockFinancialAccount(transactionCtx, accountNumber);
+            var financialAccount = getLockedAccount(transactionCtx, accountNumber);
 
-            BigDecimal currentBalance = financialAccount.getBalance();
+            //A split account is debited from its row once the balances of its slots are gathered into it
+            List<Query> gathered = new ArrayList<>();
+            long currentBalance = split
+                    ? balanceSlots.gather(transactionCtx, List.of(financialAccount), gathered).get(financialAccount.getId())
+                    : financialAccount.getBalance();
 
-            if (amount.abs().compareTo(currentBalance) > 0) {
+            if (Money.abs(amount) > currentBalance) {
                 throw new InsufficientBalanceException();
             }
 
-            BigDecimal newBalance = currentBalance.subtract(amount);
-            accountTransactionRepository.save(AccountTransaction.builder()
+            long newBalance = Money.subtract(currentBalance, amount);
+            accountTransactionRepository.insertQuery(transactionCtx, AccountTransaction.builder()
                     .transactionType(TransactionType.WITHDRAW)
                     .financialAccount(financialAccount.getId())
                     .balance(newBalance)
@@ -64,23 +141,33 @@ public class AccountTransactionService {
                     .createDatetime(LocalDateTime.now())
                     .transfer(transfer)
                     .transactionId(transactionId)
-                    .build());
+                    .build())
+                    .execute();
 
             accountRepository.updateBalance(transactionCtx, accountNumber, newBalance);
+            if (!gathered.isEmpty())
+                transactionCtx.batch(gathered).execute();
 
-            log.info("Create withdraw from account {} with amount {} successfully.", accountNumber, amount);
-        });
+            log.debug("Create withdraw from account {} with amount {} successfully.", accountNumber, amount);
+            //The version of a split account also counts its slots, the balance cache reads it again
+            return split ? List.<AccountBalance>of() : List.of(new AccountBalance(accountNumber, newBalance, financialAccount.getVersion() + 1));
+        }));
+        accountRepository.balancesCommitted(written);
     }
 
     /**
-     * Make withdraw with given amount for input account
+     * Make withdraw with given amount for input account, applied by the {@link LedgerEngine} when one is configured
      *
      * @param accountNumber target number
-     * @param amount        amount to withdraw
+     * @param amount        amount to withdraw in {@link Money} minor units
      * @param transactionId transaction Id of transaction for make idempotent
      * @param transfer      transfer Id related to transaction
      */
-    public void createWithdrawTransaction(String accountNumber, BigDecimal amount, String transactionId, Long transfer) {
+    public void createWithdrawTransaction(String accountNumber, long amount, String transactionId, Long transfer) {
+        if (ledgerEngine != null) {
+            ledgerEngine.withdraw(accountNumber, amount, transactionId, transfer);
+            return;
+        }
         createWithdrawTransaction(dataContext, accountNumber, amount, transactionId, transfer);
     }
 
@@ -88,10 +175,10 @@ public class AccountTransactionService {
      * Make withdraw with given amount for input account
      *
      * @param accountNumber target number
-     * @param amount        amount to withdraw
+     * @param amount        amount to withdraw in {@link Money} minor units
      * @param transactionId transaction Id of transaction for make idempotent
      */
-    public void createWithdrawTransaction(String accountNumber, BigDecimal amount, String transactionId) {
+    public void createWithdrawTransaction(String accountNumber, long amount, String transactionId) {
         createWithdrawTransaction(accountNumber, amount, transactionId, null);
     }
 
@@ -99,23 +186,32 @@ public class AccountTransactionService {
      * Make deposit with given amount for input account
      *
      * @param accountNumber target number
-     * @param amount        amount to deposit
+     * @param amount        amount to deposit in {@link Money} minor units
      * @param transactionId transaction Id of transaction for make idempotent
      * @param transfer      transfer Id related to transaction
      */
-    public void createDepositTransaction(DSLContext dslContext, String accountNumber, BigDecimal amount, String transactionId, Long transfer) {
-        validateDuplicateTransaction(transactionId, TransactionType.DEPOSIT);
-
-        dslContext.transaction(dataConfiguration -> {
+    public void createDepositTransaction(DSLContext dslContext, String accountNumber, long amount, String transactionId, Long transfer) {
+        if (accountRepository.getBalanceSlots(accountNumber) > 0) {
+            createSplitDepositTransaction(dslContext, accountRepository.getAccountMetadata(accountNumber), amount, transactionId, transfer);
+            return;
+        }
+        if (depositMode == DepositMode.COMMUTATIVE) {
+            //Resolved before the transaction, a cache miss must not take a second connection while it is open
+            createCommutativeDepositTransaction(dslContext, accountRepository.getAccountMetadata(accountNumber), amount, transactionId, transfer);
+            return;
+        }
+        AccountBalance written = lockStrategy.callLocked(List.of(accountNumber), () -> dslContext.transactionResult(dataConfiguration -> {
             var transactionCtx = DSL.using(dataConfiguration);
 
+            validateDuplicateTransaction(transactionCtx, transactionId, TransactionType.DEPOSIT);
+
             //Lock account record to make concurrency safe!
-            var financialAccount = accountRepository.lockFinancialAccount(transactionCtx, accountNumber);
+            var financialAccount = getLockedAccount(transactionCtx, accountNumber);
 
-            BigDecimal currentBalance = financialAccount.getBalance();
+            long currentBalance = financialAccount.getBalance();
 
-            BigDecimal newBalance = currentBalance.add(amount);
-            accountTransactionRepository.save(AccountTransaction.builder()
+            long newBalance = Money.add(currentBalance, amount);
+            accountTransactionRepository.insertQuery(transactionCtx, AccountTransaction.builder()
                     .transactionType(TransactionType.DEPOSIT)
                     .financialAccount(financialAccount.getId())
                     .balance(newBalance)
@@ -123,23 +219,90 @@ public class AccountTransactionService {
                     .createDatetime(LocalDateTime.now())
                     .transactionId(transactionId)
                     .transfer(transfer)
-                    .build());
+                    .build())
+                    .execute();
 
             accountRepository.updateBalance(transactionCtx, accountNumber, newBalance);
 
-            log.info("Create deposit to account {} with amount {} successfully.", accountNumber, amount);
+            log.debug("Create deposit to account {} with amount {} successfully.", accountNumber, amount);
+            return new AccountBalance(accountNumber, newBalance, financialAccount.getVersion() + 1);
+        }));
+        accountRepository.balancesCommitted(List.of(written));
+    }
+
+    /**
+     * Deposit that adds the amount to the balance without reading the account first. The update locks the row and is
+     * sent in one batch with the insert of the transaction, which reads the new balance from the row, as the last
+     * statement before the commit. The new balance is not known here, so the account is dropped from the balance cache
+     * instead of written through.
+     */
+    private void createCommutativeDepositTransaction(DSLContext dslContext, AccountMetadata account, long amount, String transactionId, Long transfer) {
+        String accountNumber = account.getAccountNumber();
+        //Striped locks are still taken, withdrawals under them read the balance without locking the row
+        lockStrategy.runLocked(List.of(accountNumber), () -> dslContext.transaction(dataConfiguration -> {
+            var transactionCtx = DSL.using(dataConfiguration);
+
+            validateDuplicateTransaction(transactionCtx, transactionId, TransactionType.DEPOSIT);
+
+            transactionCtx.batch(
+                    accountRepository.addToBalanceQuery(transactionCtx, accountNumber, amount),
+                    accountTransactionRepository.insertWithAccountBalanceQuery(transactionCtx, AccountTransaction.builder()
+                            .transactionType(TransactionType.DEPOSIT)
+                            .financialAccount(account.getId())
+                            .amount(amount)
+                            .createDatetime(LocalDateTime.now())
+                            .transactionId(transactionId)
+                            .transfer(transfer)
+                            .build()))
+                    .execute();
+
+            log.debug("Create deposit to account {} with amount {} successfully.", accountNumber, amount);
+        }));
+        accountRepository.balanceChanged(accountNumber);
+    }
+
+    /**
+     * Deposit to a split account without locking the account row, only the slot it is added to. The transaction
+     * records the new balance of that slot, not of the account. Nothing is written through to the balance cache, the
+     * changed version of the account makes it read the account again.
+     */
+    private void createSplitDepositTransaction(DSLContext dslContext, AccountMetadata account, long amount, String transactionId, Long transfer) {
+        dslContext.transaction(dataConfiguration -> {
+            var transactionCtx = DSL.using(dataConfiguration);
+
+            validateDuplicateTransaction(transactionCtx, transactionId, TransactionType.DEPOSIT);
+
+            var slot = balanceSlots.lockCreditSlot(transactionCtx, account, transactionId);
+            List<Query> queries = new ArrayList<>(2);
+            long slotBalance = balanceSlots.credit(transactionCtx, slot, amount, queries);
+            queries.add(accountTransactionRepository.insertQuery(transactionCtx, AccountTransaction.builder()
+                    .transactionType(TransactionType.DEPOSIT)
+                    .financialAccount(account.getId())
+                    .balance(slotBalance)
+                    .amount(amount)
+                    .createDatetime(LocalDateTime.now())
+                    .transactionId(transactionId)
+                    .transfer(transfer)
+                    .build()));
+            transactionCtx.batch(queries).execute();
+
+            log.debug("Create deposit to slot {} of account {} with amount {} successfully.", slot.getSlot(), account.getAccountNumber(), amount);
         });
     }
 
     /**
-     * Make deposit with given amount for input account
+     * Make deposit with given amount for input account, applied by the {@link LedgerEngine} when one is configured
      *
      * @param accountNumber target number
-     * @param amount        amount to deposit
+     * @param amount        amount to deposit in {@link Money} minor units
      * @param transactionId transaction Id of transaction for make idempotent
      * @param transfer      transfer Id related to transaction
      */
-    public void createDepositTransaction(String accountNumber, BigDecimal amount, String transactionId, Long transfer) {
+    public void createDepositTransaction(String accountNumber, long amount, String transactionId, Long transfer) {
+        if (ledgerEngine != null) {
+            ledgerEngine.deposit(accountNumber, amount, transactionId, transfer);
+            return;
+        }
         createDepositTransaction(dataContext, accountNumber, amount, transactionId, transfer);
     }
 
@@ -147,45 +310,246 @@ public class AccountTransactionService {
      * Make deposit with given amount for input account
      *
      * @param accountNumber target number
-     * @param amount        amount to deposit
+     * @param amount        amount to deposit in {@link Money} minor units
      * @param transactionId transaction Id of transaction for make idempotent
      */
-    public void createDepositTransaction(String accountNumber, BigDecimal amount, String transactionId) {
+    public void createDepositTransaction(String accountNumber, long amount, String transactionId) {
         createDepositTransaction(accountNumber, amount, transactionId, null);
     }
 
     /**
-     * transaction id and type must be unique
+     * Apply several deposits and withdrawals in one database transaction, each with the same rules as a single one.
+     * They are applied in the given order, so a withdraw sees the balance left by the transactions before it, and a
+     * rejected transaction does not affect the others.
+     * <p>
+     * Runs at most four statements whatever the number of transactions: lock and read all accounts, check the
+     * transaction ids with one query per type and a single batch with all rows, their idempotency keys and one balance update per account. When a
+     * transaction id is used concurrently by another transaction the batch is applied one by one instead. When a
+     * {@link LedgerEngine} is configured, or one of the accounts is split, every transaction is applied on its own.
+     *
+     * @param commands deposits and withdrawals to apply
+     * @return one result per command in the same order
+     */
+    public List<AccountTransactionResult> createTransactions(List<AccountTransactionCommand> commands) {
+        if (ledgerEngine != null)
+            return commands.stream().map(this::createTransactionResult).collect(Collectors.toList());
+        if (accountRepository.hasSplitAccount(commands.stream().map(AccountTransactionCommand::getAccountNumber).collect(Collectors.toSet()))) {
+            log.debug("Batch of {} transactions has split accounts, applying them one by one.", commands.size());
+            return commands.stream().map(this::createTransactionResult).collect(Collectors.toList());
+        }
+        try {
+            return createTransactionsInTransaction(commands);
+        } catch (DuplicateTransactionException e) {
+            log.info("Transaction id of batch of {} transactions is used concurrently, applying them one by one.", commands.size());
+            return commands.stream().map(this::createTransactionResult).collect(Collectors.toList());
+        }
+    }
+
+    private List<AccountTransactionResult> createTransactionsInTransaction(List<AccountTransactionCommand> commands) {
+        Set<String> accountNumbers = new HashSet<>();
+        Map<TransactionType, Set<String>> transactionIds = new EnumMap<>(TransactionType.class);
+        for (AccountTransactionCommand command : commands) {
+            accountNumbers.add(command.getAccountNumber());
+            transactionIds.computeIfAbsent(command.getTransactionType(), type -> new HashSet<>()).add(command.getTransactionId());
+        }
+
+        log.info("Create batch of {} transactions for {} accounts.", commands.size(), accountNumbers.size());
+        //Written through to the balance cache once the transaction committed
+        List<AccountBalance> written = new ArrayList<>();
+        try {
+            List<AccountTransactionResult> batchResults = lockStrategy.callLocked(accountNumbers, () -> dataContext.transactionResult(configuration -> {
+                var transactionCtx = DSL.using(configuration);
+
+                Map<String, FinancialAccountRecord> accounts = lockStrategy.fetchAccounts(transactionCtx, accountNumbers);
+                Map<TransactionType, Set<String>> usedTransactionIds = new EnumMap<>(TransactionType.class);
+                transactionIds.forEach((transactionType, ids) -> usedTransactionIds.put(transactionType,
+                        accountTransactionRepository.getPresentTransactionIds(transactionCtx, transactionType, ids)));
+
+                var now = LocalDateTime.now();
+                Map<String, Long> balances = new HashMap<>();
+                accounts.forEach((accountNumber, account) -> balances.put(accountNumber, account.getBalance()));
+                List<AccountTransactionResult> results = new ArrayList<>(commands.size());
+                List<Query> queries = new ArrayList<>();
+                Set<String> changedAccounts = new LinkedHashSet<>();
+
+                for (AccountTransactionCommand command : commands) {
+                    try {
+                        FinancialAccountRecord account = accounts.get(command.getAccountNumber());
+                        if (account == null)
+                            throw new InvalidAccountException(command.getAccountNumber());
+                        if (usedTransactionIds.get(command.getTransactionType()).contains(command.getTransactionId()))
+                            throw new DuplicateTransactionException();
+
+                        long amount = command.getAmount();
+                        long balance = balances.get(command.getAccountNumber());
+                        if (command.getTransactionType() == TransactionType.WITHDRAW) {
+                            if (Money.abs(amount) > balance)
+                                throw new InsufficientBalanceException();
+                            balance = Money.subtract(balance, amount);
+                        } else {
+                            balance = Money.add(balance, amount);
+                        }
+                        //Only a transaction that passed every check uses its id, as with a single one
+                        usedTransactionIds.get(command.getTransactionType()).add(command.getTransactionId());
+                        balances.put(command.getAccountNumber(), balance);
+                        changedAccounts.add(command.getAccountNumber());
+
+                        queries.add(accountTransactionRepository.insertQuery(transactionCtx, AccountTransaction.builder()
+                                .transactionType(command.getTransactionType())
+                                .financialAccount(account.getId())
+                                .balance(balance)
+                                .amount(amount)
+                                .createDatetime(now)
+                                .transactionId(command.getTransactionId())
+                                .build()));
+                        queries.add(accountTransactionRepository.insertIdempotencyKeyQuery(transactionCtx,
+                                command.getTransactionId(), command.getTransactionType(), now));
+                        results.add(AccountTransactionResult.done(command.getTransactionId()));
+                    } catch (TransferBaseException e) {
+                        results.add(AccountTransactionResult.failed(command.getTransactionId(), e));
+                    }
+                }
+
+                for (String accountNumber : changedAccounts) {
+                    queries.add(accountRepository.updateBalanceQuery(transactionCtx, accountNumber, balances.get(accountNumber)));
+                    written.add(new AccountBalance(accountNumber, balances.get(accountNumber), accounts.get(accountNumber).getVersion() + 1));
+                }
+                if (!queries.isEmpty())
+                    transactionCtx.batch(queries).execute();
+                return results;
+            }));
+            accountRepository.balancesCommitted(written);
+            return batchResults;
+        } catch (DataAccessException e) {
+            log.warn("Error in batch of {} transactions.", commands.size());
+            if (AccountTransactionRepository.isDuplicateKey(e))
+                throw new DuplicateTransactionException();
+            throw e;
+        }
+    }
+
+    private AccountTransactionResult createTransactionResult(AccountTransactionCommand command) {
+        try {
+            if (command.getTransactionType() == TransactionType.WITHDRAW)
+                createWithdrawTransaction(command.getAccountNumber(), command.getAmount(), command.getTransactionId());
+            else
+                createDepositTransaction(command.getAccountNumber(), command.getAmount(), command.getTransactionId());
+            return AccountTransactionResult.done(command.getTransactionId());
+        } catch (TransferBaseException e) {
+            return AccountTransactionResult.failed(command.getTransactionId(), e);
+        }
+    }
+
+    private FinancialAccountRecord getLockedAccount(DSLContext transactionCtx, String accountNumber) {
+        FinancialAccountRecord account = lockStrategy.fetchAccounts(transactionCtx, List.of(accountNumber)).get(accountNumber);
+        if (account == null)
+            throw new InvalidAccountException(accountNumber);
+        return account;
+    }
+
+    /**
+     * transaction id and type must be unique, checked by inserting the idempotency key inside the transaction
      *
      * @param transactionId transaction Id
      */
-    private void validateDuplicateTransaction(String transactionId, TransactionType transactionType) {
-        if (accountTransactionRepository.isTransactionPresent(transactionId, transactionType)) {
+    private void validateDuplicateTransaction(DSLContext transactionCtx, String transactionId, TransactionType transactionType) {
+        if (!accountTransactionRepository.insertIdempotencyKeys(transactionCtx, transactionId, transactionType)) {
             throw new DuplicateTransactionException();
         }
     }
 
     /**
-     * get All transaction of given account number
+     * Version of the transaction history of given account number. Transactions are written together with the balance
+     * update that increments it, also by the ledger engine journal, so the history did not change while it is the same.
+     *
+     * @param accountNumber account number
+     * @return version of the account in the database
+     */
+    public long getAccountTransactionsVersion(String accountNumber) {
+        return accountRepository.getVersion(accountNumber);
+    }
+
+    /**
+     * Size and lookup counts of the transaction id filter of the repository
+     *
+     * @return metrics, {@code null} when the filter is disabled
+     */
+    public IdempotencyFilterMetricsDTO getIdempotencyFilterMetrics() {
+        var filter = accountTransactionRepository.getTransactionIdFilter();
+        if (filter == null)
+            return null;
+        long skippedLookups = filter.getSkippedLookups();
+        long falsePositives = filter.getFalsePositives();
+        return IdempotencyFilterMetricsDTO.builder()
+                .transactionIds(filter.getCount())
+                .stages(filter.getStages())
+                .memoryBytes(filter.getMemoryBytes())
+                .expectedFalsePositiveRate(filter.getExpectedFalsePositiveRate())
+                .skippedLookups(skippedLookups)
+                .possibleDuplicates(filter.getPossibleDuplicates())
+                .falsePositives(falsePositives)
+                .observedFalsePositiveRate(skippedLookups + falsePositives == 0 ? 0 : (double) falsePositives / (skippedLookups + falsePositives))
+                .build();
+    }
+
+    /**
+     * get first page of transactions of given account number, oldest first
      *
      * @param accountNumber transaction number
      * @return transaction list
      */
     public AccountTransactionDetails getAccountTransActionList(String accountNumber) {
-        FinancialAccount byAccountNumber = accountRepository.getByAccountNumber(accountNumber);
-        List<AccountTransaction> accountTransactionList = accountTransactionRepository.getAccountTransactionList(byAccountNumber.getId());
+        return getAccountTransActionList(accountNumber, null, DEFAULT_PAGE_SIZE, false);
+    }
+
+    /**
+     * get one page of transactions of given account number
+     *
+     * @param accountNumber transaction number
+     * @param after         cursor returned with the previous page, {@code null} for the first page
+     * @param limit         maximum number of transactions in the page
+     * @param newestFirst   whether to list the newest transactions first
+     * @return transaction list with the cursor of the next page
+     */
+    public AccountTransactionDetails getAccountTransActionList(String accountNumber, Long after, int limit, boolean newestFirst) {
+        AccountMetadata account = accountRepository.getAccountMetadata(accountNumber);
+        //One more transaction than requested tells whether there is a next page
+        List<AccountTransaction> accountTransactionList = accountTransactionRepository.getAccountTransactionPage(account.getId(), after, limit + 1, newestFirst);
+        Long next = null;
+        if (accountTransactionList.size() > limit) {
+            accountTransactionList = accountTransactionList.subList(0, limit);
+            next = accountTransactionList.get(limit - 1).getId();
+        }
         return new AccountTransactionDetails(
                 accountTransactionList
                         .stream()
-                        .map(accountTransaction -> AccountTransactionDTO.builder()
-                                .amount(accountTransaction.getAmount())
-                                .balance(accountTransaction.getBalance())
-                                .createDatetime(accountTransaction.getCreateDatetime())
-                                .financialAccount(accountTransaction.getFinancialAccount())
-                                .transactionId(accountTransaction.getTransactionId())
-                                .transactionType(accountTransaction.getTransactionType())
-                                .transfer(accountTransaction.getTransfer())
-                                .build())
-                        .collect(Collectors.toList()));
+                        .map(this::toAccountTransactionDTO)
+                        .collect(Collectors.toList()),
+                next);
+    }
+
+    /**
+     * pass all transactions of given account number to the consumer, oldest first, while they are read from the
+     * database
+     *
+     * @param accountNumber transaction number
+     * @param consumer      receives one transaction at a time
+     */
+    public void exportAccountTransactions(String accountNumber, Consumer<AccountTransactionDTO> consumer) {
+        AccountMetadata account = accountRepository.getAccountMetadata(accountNumber);
+        accountTransactionRepository.forEachAccountTransaction(account.getId(),
+                accountTransaction -> consumer.accept(toAccountTransactionDTO(accountTransaction)));
+    }
+
+    private AccountTransactionDTO toAccountTransactionDTO(AccountTransaction accountTransaction) {
+        return AccountTransactionDTO.builder()
+                .amount(Money.toDecimal(accountTransaction.getAmount()))
+                .balance(Money.toDecimal(accountTransaction.getBalance()))
+                .createDatetime(accountTransaction.getCreateDatetime())
+                .financialAccount(accountTransaction.getFinancialAccount())
+                .transactionId(accountTransaction.getTransactionId())
+                .transactionType(accountTransaction.getTransactionType())
+                .transfer(accountTransaction.getTransfer())
+                .build();
     }
 }
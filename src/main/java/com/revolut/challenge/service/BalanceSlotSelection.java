@@ -0,0 +1,34 @@
+package com.revolut.challenge.service;
+
+import java.util.Arrays;
+
+/**
+ * How a credit to a split account chooses the slot it is added to.
+ */
+public enum BalanceSlotSelection {
+    /**
+     * Slot from the hash of the transaction id, so a retried credit contends for the same slot
+     */
+    HASH("hash"),
+    /**
+     * Next slot in turn, spreads concurrent credits most evenly
+     */
+    ROUND_ROBIN("round-robin");
+
+    private final String value;
+
+    BalanceSlotSelection(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public static BalanceSlotSelection fromValue(String value) {
+        return Arrays.stream(values())
+                .filter(selection -> selection.value.equalsIgnoreCase(value))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown balance slot selection " + value));
+    }
+}
@@ -0,0 +1,83 @@
+package com.revolut.challenge.service;
+
+import com.revolut.challenge.jooq.tables.records.AccountBalanceSlotRecord;
+import com.revolut.challenge.jooq.tables.records.FinancialAccountRecord;
+import com.revolut.challenge.model.AccountMetadata;
+import com.revolut.challenge.model.Money;
+import com.revolut.challenge.repository.FinancialAccountRepository;
+import org.jooq.DSLContext;
+import org.jooq.Query;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Credits and debits of split accounts, whose balance is the balance of the account row plus those of its slots.
+ * <p>
+ * A credit locks and updates only one slot, so concurrent credits of a hot account wait for each other only when
+ * they pick the same slot. A debit locks the account row and then all of its slots, and gathers their balances into
+ * the row, so it sees the whole balance and never leaves a slot negative. Rows are always locked before slots and
+ * slots in account id and slot order, so credits and debits do not deadlock.
+ */
+public class BalanceSlots {
+
+    private final FinancialAccountRepository accountRepository;
+    private final BalanceSlotSelection selection;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public BalanceSlots(FinancialAccountRepository accountRepository, BalanceSlotSelection selection) {
+        this.accountRepository = accountRepository;
+        this.selection = selection;
+    }
+
+    /**
+     * Lock the slot of a split account that a credit is added to.
+     *
+     * @param transactionId transaction id of the credit, chooses the slot with {@link BalanceSlotSelection#HASH}
+     * @return the locked slot, its balance does not include the credit yet
+     */
+    AccountBalanceSlotRecord lockCreditSlot(DSLContext transactionCtx, AccountMetadata account, String transactionId) {
+        int slot = selection == BalanceSlotSelection.HASH && transactionId != null
+                ? Math.floorMod(transactionId.hashCode(), account.getBalanceSlots())
+                : Math.floorMod(next.getAndIncrement(), account.getBalanceSlots());
+        return accountRepository.lockBalanceSlot(transactionCtx, account.getId(), slot);
+    }
+
+    /**
+     * Add a credit to a slot locked by {@link #lockCreditSlot}.
+     *
+     * @param amount amount in {@link Money} minor units
+     * @return new balance of the slot
+     */
+    long credit(DSLContext transactionCtx, AccountBalanceSlotRecord slot, long amount, List<Query> queries) {
+        long balance = Money.add(slot.getBalance(), amount);
+        queries.add(accountRepository.updateBalanceSlotQuery(transactionCtx, slot.getFinancialAccount(), slot.getSlot(), balance));
+        return balance;
+    }
+
+    /**
+     * Lock all slots of the given accounts and empty them into their account rows, which must be locked already. The
+     * caller writes the returned balance to the row.
+     *
+     * @param accounts locked rows of the debited split accounts
+     * @param queries  receives the updates that empty the slots, only to be executed with the row update
+     * @return whole balance by account id
+     */
+    Map<Long, Long> gather(DSLContext transactionCtx, Collection<FinancialAccountRecord> accounts, List<Query> queries) {
+        Map<Long, Long> balances = new HashMap<>();
+        for (FinancialAccountRecord account : accounts)
+            balances.put(account.getId(), account.getBalance());
+        accountRepository.lockBalanceSlots(transactionCtx, balances.keySet()).forEach((accountId, slots) -> {
+            for (AccountBalanceSlotRecord slot : slots) {
+                if (slot.getBalance() == 0)
+                    continue;
+                balances.merge(accountId, slot.getBalance(), Money::add);
+                queries.add(accountRepository.updateBalanceSlotQuery(transactionCtx, accountId, slot.getSlot(), 0L));
+            }
+        });
+        return balances;
+    }
+}
@@ -0,0 +1,34 @@
+package com.revolut.challenge.service;
+
+import java.util.Arrays;
+
+/**
+ * How a single deposit updates the balance of its account.
+ */
+public enum DepositMode {
+    /**
+     * Lock and read the account, then write the new balance, like withdrawals do
+     */
+    LOCKED("locked"),
+    /**
+     * Add the amount to the balance in the update itself, so the row is only locked from that statement to the commit
+     */
+    COMMUTATIVE("commutative");
+
+    private final String value;
+
+    DepositMode(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public static DepositMode fromValue(String value) {
+        return Arrays.stream(values())
+                .filter(mode -> mode.value.equalsIgnoreCase(value))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown deposit mode " + value));
+    }
+}
@@ -1,7 +1,12 @@
 package com.revolut.challenge.service;
 
+import com.revolut.challenge.exception.SplitAccountNotSupportedException;
+import com.revolut.challenge.ledger.LedgerEngine;
 import com.revolut.challenge.model.FinancialAccount;
+import com.revolut.challenge.model.Money;
 import com.revolut.challenge.repository.FinancialAccountRepository;
+import com.revolut.challenge.web.dto.AccountCacheMetricsDTO;
+import com.revolut.challenge.web.dto.BalanceCacheMetricsDTO;
 import com.revolut.challenge.web.dto.FinancialAccountDTO;
 import lombok.extern.log4j.Log4j2;
 
@@ -9,16 +14,29 @@ import lombok.extern.log4j.Log4j2;
 public class FinancialAccountService {
 
     private final FinancialAccountRepository financialAccountRepository;
+    private final LedgerEngine ledgerEngine;
 
     public FinancialAccountService(FinancialAccountRepository financialAccountRepository) {
+        this(financialAccountRepository, null);
+    }
+
+    /**
+     * @param ledgerEngine engine that owns the balances, {@code null} when the database balance is always current
+     */
+    public FinancialAccountService(FinancialAccountRepository financialAccountRepository, LedgerEngine ledgerEngine) {
         this.financialAccountRepository = financialAccountRepository;
+        this.ledgerEngine = ledgerEngine;
     }
 
     /**
      * create financial account
      * @param financialAccount financial account data
+     * @throws SplitAccountNotSupportedException when the balance is split and a {@link LedgerEngine} is configured
      */
     public void createAccount(FinancialAccount financialAccount) {
+        //The engine holds one balance per account
+        if (financialAccount.getBalanceSlots() > 0 && ledgerEngine != null)
+            throw new SplitAccountNotSupportedException();
 
         financialAccountRepository.save(financialAccount);
         log.info("Financial account by id={} created", financialAccount.getAccountNumber());
@@ -30,14 +48,82 @@ public class FinancialAccountService {
      * @return account information
      */
     public FinancialAccountDTO getAccount(String accountNumber){
-        FinancialAccount account = financialAccountRepository.getByAccountNumber(accountNumber);
+        FinancialAccount account = financialAccountRepository.getCommittedAccount(accountNumber);
         return FinancialAccountDTO.builder()
                 .accountNumber(account.getAccountNumber())
                 .accountStatusType(account.getAccountStatusType())
                 .createDatetime(account.getCreateDatetime())
-                .balance(account.getBalance())
+                .balance(Money.toDecimal(getBalance(account)))
                 .currency(account.getCurrency())
                 .build();
 
     }
+
+    /**
+     * Version of the account information, changes whenever its balance does
+     * @param accountNumber account number
+     * @return version held by the ledger engine, or the committed database version when the engine does not own
+     * the account
+     */
+    public long getAccountVersion(String accountNumber) {
+        if (ledgerEngine != null) {
+            var version = ledgerEngine.getVersion(accountNumber);
+            if (version.isPresent())
+                return version.getAsLong();
+        }
+        return financialAccountRepository.getCommittedVersion(accountNumber);
+    }
+
+    /**
+     * Hit and miss counts of the account metadata cache of the repository
+     * @return metrics, {@code null} when the cache is disabled
+     */
+    public AccountCacheMetricsDTO getAccountCacheMetrics() {
+        var cache = financialAccountRepository.getMetadataCache();
+        if (cache == null)
+            return null;
+        long hits = cache.getHits();
+        long misses = cache.getMisses();
+        return AccountCacheMetricsDTO.builder()
+                .size(cache.size())
+                .maximumSize(cache.getMaximumSize())
+                .hits(hits)
+                .misses(misses)
+                .evictions(cache.getEvictions())
+                .hitRate(hits + misses == 0 ? 0 : (double) hits / (hits + misses))
+                .build();
+    }
+
+    /**
+     * Hit and miss counts of the balance cache of the repository
+     * @return metrics, {@code null} when the cache is disabled
+     */
+    public BalanceCacheMetricsDTO getBalanceCacheMetrics() {
+        var cache = financialAccountRepository.getBalanceCache();
+        if (cache == null)
+            return null;
+        long hits = cache.getHits();
+        long misses = cache.getMisses();
+        return BalanceCacheMetricsDTO.builder()
+                .mode(cache.getMode().getValue())
+                .size(cache.size())
+                .maximumSize(cache.getMaximumSize())
+                .hits(hits)
+                .misses(misses)
+                .evictions(cache.getEvictions())
+                .revalidations(cache.getRevalidations())
+                .reloads(cache.getReloads())
+                .writes(cache.getWrites())
+                .hitRate(hits + misses == 0 ? 0 : (double) hits / (hits + misses))
+                .build();
+    }
+
+    /**
+     * Balance held by the ledger engine is ahead of the database until the engine journal catches up.
+     */
+    private long getBalance(FinancialAccount account) {
+        if (ledgerEngine == null)
+            return account.getBalance();
+        return ledgerEngine.getBalance(account.getAccountNumber()).orElse(account.getBalance());
+    }
 }
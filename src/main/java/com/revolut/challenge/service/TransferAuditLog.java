@@ -0,0 +1,39 @@
+package com.revolut.challenge.service;
+
+import com.revolut.challenge.exception.TransferBaseException;
+import lombok.extern.log4j.Log4j2;
+import org.apache.logging.log4j.util.Unbox;
+
+/**
+ * Audit events of transfers, one line of {@code key=value} pairs per transfer outcome on the {@code audit} logger.
+ * <p>
+ * {@code log4j2.xml} routes the logger to its own asynchronous appender, so the request thread only enqueues the
+ * event and the appender thread formats and writes it. Amounts are in {@link com.revolut.challenge.model.Money}
+ * minor units.
+ */
+@Log4j2(topic = "audit")
+final class TransferAuditLog {
+
+    private TransferAuditLog() {
+    }
+
+    static void done(String transactionId, String fromAccountNumber, String toAccountNumber, long amount) {
+        log.info("event=transfer status=DONE transaction_id={} from={} to={} amount_minor={}",
+                transactionId, fromAccountNumber, toAccountNumber, Unbox.box(amount));
+    }
+
+    static void rejected(String transactionId, String fromAccountNumber, String toAccountNumber, long amount,
+                         TransferBaseException failure) {
+        log.info("event=transfer status=REJECTED transaction_id={} from={} to={} amount_minor={} error={} reason=\"{}\"",
+                transactionId, fromAccountNumber, toAccountNumber, Unbox.box(amount), Unbox.box(failure.getStatus()),
+                failure.getMessage());
+    }
+
+    static void result(TransferCommand command, TransferResult result) {
+        if (result.isDone())
+            done(command.getTransactionId(), command.getFromAccountNumber(), command.getToAccountNumber(), command.getAmount());
+        else
+            rejected(command.getTransactionId(), command.getFromAccountNumber(), command.getToAccountNumber(), command.getAmount(),
+                    result.getFailure());
+    }
+}
@@ -0,0 +1,178 @@
+package com.revolut.challenge.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Collects transfers requested by concurrent callers and applies them together with
+ * {@link TransferService#createTransfers}, so that many transfers share one database transaction and commit.
+ * <p>
+ * A batch is closed when it holds {@code maxBatchSize} transfers or when {@code window} has passed since its first
+ * transfer arrived, whichever comes first. Every caller waits for its own result only.
+ */
+@Slf4j
+public class TransferBatcher {
+
+    private static final long POLL_MILLIS = 100;
+
+    private final TransferService transferService;
+    private final BlockingQueue<PendingTransfer> queue = new LinkedBlockingQueue<>();
+    private final int maxBatchSize;
+    private final long windowNanos;
+    private final Thread worker;
+    private volatile boolean running;
+    /**
+     * Callers between their check of {@link #running} and adding their transfer to the queue, the worker does not
+     * stop while there are any
+     */
+    private final AtomicInteger publishing = new AtomicInteger();
+
+    /**
+     * @param maxBatchSize   maximum number of transfers applied in one database transaction
+     * @param windowMicros   maximum time the first transfer of a batch waits for others to join
+     */
+    public TransferBatcher(TransferService transferService, int maxBatchSize, long windowMicros) {
+        this.transferService = transferService;
+        this.maxBatchSize = maxBatchSize;
+        this.windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+        this.worker = new Thread(this::run, "TransferBatcher");
+        this.worker.setDaemon(true);
+    }
+
+    public void start() {
+        running = true;
+        worker.start();
+    }
+
+    /**
+     * Apply queued transfers and stop.
+     */
+    public void stop() {
+        running = false;
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Same contract as {@link TransferService#createTransfer}, but the transfer is applied together with
+     * the transfers of other callers.
+     */
+    public void createTransfer(String fromAccountNumber, String toAccountNumber, long amount, String transactionId) {
+        if (!running)
+            throw new IllegalStateException("Transfer batcher is not running");
+
+        var pending = new PendingTransfer(new TransferCommand(fromAccountNumber, toAccountNumber, amount, transactionId));
+        publishing.incrementAndGet();
+        try {
+            if (!running)
+                throw new IllegalStateException("Transfer batcher is not running");
+            queue.add(pending);
+        } finally {
+            publishing.decrementAndGet();
+        }
+
+        try {
+            pending.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+            throw e;
+        }
+    }
+
+    private void run() {
+        List<PendingTransfer> batch = new ArrayList<>(maxBatchSize);
+        try {
+            //Stopped only once no caller can still add a transfer, see publishing
+            while (running || publishing.get() > 0 || !queue.isEmpty()) {
+                PendingTransfer first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null)
+                    continue;
+                batch.add(first);
+                collect(batch, System.nanoTime() + windowNanos);
+                apply(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            failQueued(batch);
+        }
+    }
+
+    /**
+     * Fail the transfers of an interrupted batch and every transfer still queued or about to be, so that no caller
+     * waits for a worker that is gone.
+     */
+    private void failQueued(List<PendingTransfer> batch) {
+        running = false;
+        var failure = new IllegalStateException("Transfer batcher is not running");
+        batch.forEach(pending -> pending.result.completeExceptionally(failure));
+        while (true) {
+            //Once no caller is publishing, every transfer that passed the running check is in the queue
+            boolean published = publishing.get() == 0;
+            List<PendingTransfer> queued = new ArrayList<>();
+            queue.drainTo(queued);
+            queued.forEach(pending -> pending.result.completeExceptionally(failure));
+            if (published)
+                return;
+            Thread.onSpinWait();
+        }
+    }
+
+    private void collect(List<PendingTransfer> batch, long deadline) throws InterruptedException {
+        while (batch.size() < maxBatchSize) {
+            queue.drainTo(batch, maxBatchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= maxBatchSize || remaining <= 0)
+                return;
+            PendingTransfer next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null)
+                return;
+            batch.add(next);
+        }
+    }
+
+    private void apply(List<PendingTransfer> batch) {
+        List<TransferResult> results;
+        try {
+            results = transferService.createTransfers(batch.stream().map(pending -> pending.command).collect(Collectors.toList()));
+        } catch (Throwable e) {
+            //Errors as well, the worker must outlive them or every later caller would wait forever
+            log.warn("Batch of {} transfers failed.", batch.size(), e);
+            batch.forEach(pending -> pending.result.completeExceptionally(e));
+            return;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            TransferResult result = results.get(i);
+            if (result.isDone())
+                batch.get(i).result.complete(null);
+            else
+                batch.get(i).result.completeExceptionally(result.getFailure());
+        }
+    }
+
+    private static final class PendingTransfer {
+        private final TransferCommand command;
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        private PendingTransfer(TransferCommand command) {
+            this.command = command;
+        }
+    }
+}
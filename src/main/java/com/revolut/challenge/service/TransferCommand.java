@@ -0,0 +1,17 @@
+package com.revolut.challenge.service;
+
+import lombok.Value;
+
+/**
+ * One requested transfer of a batch.
+ */
+@Value
+public class TransferCommand {
+    String fromAccountNumber;
+    String toAccountNumber;
+    /**
+     * amount in {@link com.revolut.challenge.model.Money} minor units
+     */
+    long amount;
+    String transactionId;
+}
@@ -0,0 +1,28 @@
+package com.revolut.challenge.service;
+
+import com.revolut.challenge.exception.TransferBaseException;
+import lombok.Value;
+
+/**
+ * Outcome of one transfer of a batch.
+ */
+@Value
+public class TransferResult {
+    String transactionId;
+    /**
+     * why the transfer was rejected, {@code null} when it was done
+     */
+    TransferBaseException failure;
+
+    public static TransferResult done(String transactionId) {
+        return new TransferResult(transactionId, null);
+    }
+
+    public static TransferResult failed(String transactionId, TransferBaseException failure) {
+        return new TransferResult(transactionId, failure);
+    }
+
+    public boolean isDone() {
+        return failure == null;
+    }
+}
@@ -1,91 +1,421 @@
 package com.revolut.challenge.service;
 
+import com.revolut.challenge.exception.AtomicBatchNotSupportedException;
+import com.revolut.challenge.exception.BatchAbortedException;
+import com.revolut.challenge.exception.DuplicateTransactionException;
 import com.revolut.challenge.exception.IncompatibleCurrencyException;
 import com.revolut.challenge.exception.InsufficientBalanceException;
+import com.revolut.challenge.exception.InvalidAccountException;
 import com.revolut.challenge.exception.SameAccountException;
-import com.revolut.challenge.jooq.tables.records.TransferRecord;
-import com.revolut.challenge.model.FinancialAccount;
+import com.revolut.challenge.exception.TransferBaseException;
+import com.revolut.challenge.jooq.tables.records.AccountBalanceSlotRecord;
+import com.revolut.challenge.jooq.tables.records.FinancialAccountRecord;
+import com.revolut.challenge.ledger.LedgerEngine;
+import com.revolut.challenge.lock.AccountLockStrategy;
+import com.revolut.challenge.lock.DatabaseAccountLockStrategy;
+import com.revolut.challenge.model.AccountBalance;
+import com.revolut.challenge.model.AccountMetadata;
+import com.revolut.challenge.model.AccountTransaction;
+import com.revolut.challenge.model.Money;
 import com.revolut.challenge.model.Transfer;
+import com.revolut.challenge.model.enumeration.TransactionType;
 import com.revolut.challenge.model.enumeration.TransferStatusType;
+import com.revolut.challenge.repository.AccountTransactionRepository;
 import com.revolut.challenge.repository.FinancialAccountRepository;
 import com.revolut.challenge.repository.TransferRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.jooq.DSLContext;
+import org.jooq.Query;
+import org.jooq.exception.DataAccessException;
 import org.jooq.impl.DSL;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Slf4j
 public class TransferService {
     private final FinancialAccountRepository accountRepository;
     private final TransferRepository transferRepository;
-    private final AccountTransactionService accountTransactionService;
+    private final AccountTransactionRepository accountTransactionRepository;
     private final DSLContext dslContext;
+    private final AccountLockStrategy lockStrategy;
+    private final LedgerEngine ledgerEngine;
+    private final BalanceSlots balanceSlots;
 
     public TransferService(FinancialAccountRepository accountRepository,
                            TransferRepository transferRepository,
-                           AccountTransactionService accountTransactionService,
+                           AccountTransactionRepository accountTransactionRepository,
                            DSLContext dslContext) {
+        this(accountRepository, transferRepository, accountTransactionRepository, dslContext,
+                new DatabaseAccountLockStrategy(accountRepository), null);
+    }
+
+    /**
+     * @param lockStrategy how both accounts of a transfer are locked
+     * @param ledgerEngine engine that owns the balances, {@code null} to update them in the database directly
+     */
+    public TransferService(FinancialAccountRepository accountRepository,
+                           TransferRepository transferRepository,
+                           AccountTransactionRepository accountTransactionRepository,
+                           DSLContext dslContext,
+                           AccountLockStrategy lockStrategy,
+                           LedgerEngine ledgerEngine) {
+        this(accountRepository, transferRepository, accountTransactionRepository, dslContext, lockStrategy, ledgerEngine,
+                new BalanceSlots(accountRepository, BalanceSlotSelection.HASH));
+    }
+
+    /**
+     * @param lockStrategy how both accounts of a transfer are locked
+     * @param ledgerEngine engine that owns the balances, {@code null} to update them in the database directly
+     * @param balanceSlots how transfers between split accounts are applied
+     */
+    public TransferService(FinancialAccountRepository accountRepository,
+                           TransferRepository transferRepository,
+                           AccountTransactionRepository accountTransactionRepository,
+                           DSLContext dslContext,
+                           AccountLockStrategy lockStrategy,
+                           LedgerEngine ledgerEngine,
+                           BalanceSlots balanceSlots) {
         this.accountRepository = accountRepository;
         this.transferRepository = transferRepository;
-        this.accountTransactionService = accountTransactionService;
+        this.accountTransactionRepository = accountTransactionRepository;
         this.dslContext = dslContext;
+        this.lockStrategy = lockStrategy;
+        this.ledgerEngine = ledgerEngine;
+        this.balanceSlots = balanceSlots;
     }
 
     /**
      * Transfer money between two accounts, source and target account must be valid and
-     * exist and source must have sufficient balance to transfer
+     * exist and source must have sufficient balance to transfer.
+     * <p>
+     * Runs as one database transaction of four statements: insert the idempotency keys of the transaction id, lock
+     * and read both accounts, insert the transfer and a single batch with both legs and both balance updates.
+     * Accounts are locked by the configured {@link AccountLockStrategy}, except a split target account, of which only
+     * the slot the amount is added to is locked, see {@link BalanceSlots}.
+     * When a {@link LedgerEngine} is configured the transfer is applied by the engine instead.
      *
      * @param fromAccountNumber source account number
      * @param toAccountNumber   target account number
-     * @param amount            amount that would be transfer
+     * @param amount            amount that would be transfer in {@link Money} minor units
      * @param transactionId     transaction Id of transaction for make idempotent
      */
-    public void createTransfer(String fromAccountNumber, String toAccountNumber, BigDecimal amount, String transactionId) {
+    public void createTransfer(String fromAccountNumber, String toAccountNumber, long amount, String transactionId) {
+        try {
+            applyTransfer(fromAccountNumber, toAccountNumber, amount, transactionId);
+        } catch (TransferBaseException e) {
+            TransferAuditLog.rejected(transactionId, fromAccountNumber, toAccountNumber, amount, e);
+            throw e;
+        }
+        TransferAuditLog.done(transactionId, fromAccountNumber, toAccountNumber, amount);
+    }
+
+    private void applyTransfer(String fromAccountNumber, String toAccountNumber, long amount, String transactionId) {
 
         if (fromAccountNumber.equals(toAccountNumber))
             throw new SameAccountException();
 
-        FinancialAccount fromAccount = accountRepository.getByAccountNumber(fromAccountNumber);
-        FinancialAccount toAccount = accountRepository.getByAccountNumber(toAccountNumber);
-
-        if (!fromAccount.getCurrency().equals(toAccount.getCurrency()))
-            throw new IncompatibleCurrencyException();
-
-        TransferRecord transferRecord = transferRepository.save(Transfer.builder()
-                .transferStatusType(TransferStatusType.CREATE)
-                .fromAccount(fromAccount.getId())
-                .toAccount(toAccount.getId())
-                .createDatetime(LocalDateTime.now())
-                .build());
-
-        dslContext.transaction(configuration -> {
-            var transactionCtx = DSL.using(configuration);
-
-            log.info("Create transfer from account {} to account {} with amount {}.", fromAccountNumber, toAccountNumber, amount);
-
-            try {
-                accountTransactionService.createWithdrawTransaction(transactionCtx, fromAccountNumber, amount, transactionId, transferRecord.getId());
-            } catch (InsufficientBalanceException e) {
-                log.info("Could not transfer from account {} because amount {} is more than account balance ({}).", fromAccountNumber, amount, fromAccount.getBalance());
-                transferRepository.updateState(transferRecord.getId(), TransferStatusType.INSUFFICIENT_BALANCE);
-                throw e;
-            } catch (Exception e) {
-                log.warn("Error in transfer from account {} to account {} with amount {}.", fromAccountNumber, toAccountNumber, amount);
-                transferRepository.updateState(transferRecord.getId(), TransferStatusType.ERROR);
-                throw e;
-            }
-
-            try {
-                accountTransactionService.createDepositTransaction(transactionCtx, toAccountNumber, amount, transactionId, transferRecord.getId());
-                transferRepository.updateState(transferRecord.getId(), TransferStatusType.DONE);
-                log.info("Successfully transfer from account {} to account {} with amount {}.", fromAccountNumber, toAccountNumber, amount);
-            } catch (Exception e) {
-                log.warn("Error in transfer from account {} to account {} with amount {}.", fromAccountNumber, toAccountNumber, amount);
-                transferRepository.updateState(transferRecord.getId(), TransferStatusType.ERROR);
-                throw e;
-            }
-        });
+        log.debug("Create transfer from account {} to account {} with amount {}.", fromAccountNumber, toAccountNumber, amount);
+
+        if (ledgerEngine != null) {
+            ledgerEngine.transfer(fromAccountNumber, toAccountNumber, amount, transactionId);
+            log.debug("Successfully transfer from account {} to account {} with amount {}.", fromAccountNumber, toAccountNumber, amount);
+            return;
+        }
+
+        TransferStatusType transferStatus;
+        boolean splitFrom = accountRepository.getBalanceSlots(fromAccountNumber) > 0;
+        AccountMetadata splitTo = accountRepository.getBalanceSlots(toAccountNumber) > 0 ? accountRepository.getAccountMetadata(toAccountNumber) : null;
+        //The row of a split target account is not locked, only one of its slots
+        var accountNumbers = splitTo == null ? List.of(fromAccountNumber, toAccountNumber) : List.of(fromAccountNumber);
+        //Written through to the balance cache once the transaction committed
+        List<AccountBalance> written = new ArrayList<>();
+        try {
+            transferStatus = lockStrategy.callLocked(accountNumbers, () -> dslContext.transactionResult(configuration -> {
+                var transactionCtx = DSL.using(configuration);
+
+                //A transfer uses its transaction id for both legs
+                if (!accountTransactionRepository.insertIdempotencyKeys(transactionCtx, transactionId, TransactionType.WITHDRAW, TransactionType.DEPOSIT))
+                    throw new DuplicateTransactionException();
+
+                //Lock both account records to make concurrency safe!
+                Map<String, FinancialAccountRecord> accounts = lockStrategy.fetchAccounts(transactionCtx, accountNumbers);
+                FinancialAccountRecord fromAccount = getLockedAccount(accounts, fromAccountNumber);
+                FinancialAccountRecord toAccount = splitTo == null ? getLockedAccount(accounts, toAccountNumber) : null;
+                Long toAccountId = splitTo == null ? toAccount.getId() : splitTo.getId();
+
+                if (!fromAccount.getCurrency().equals(splitTo == null ? toAccount.getCurrency() : splitTo.getCurrency()))
+                    throw new IncompatibleCurrencyException();
+
+                //Slots are locked after the rows, in account id order
+                List<Query> queries = new ArrayList<>(6);
+                AccountBalanceSlotRecord toSlot = null;
+                if (splitTo != null && (!splitFrom || toAccountId < fromAccount.getId()))
+                    toSlot = balanceSlots.lockCreditSlot(transactionCtx, splitTo, transactionId);
+                long fromCurrentBalance = splitFrom
+                        ? balanceSlots.gather(transactionCtx, List.of(fromAccount), queries).get(fromAccount.getId())
+                        : fromAccount.getBalance();
+                if (splitTo != null && toSlot == null)
+                    toSlot = balanceSlots.lockCreditSlot(transactionCtx, splitTo, transactionId);
+
+                var now = LocalDateTime.now();
+                if (Money.abs(amount) > fromCurrentBalance) {
+                    log.debug("Could not transfer from account {} because amount {} is more than account balance ({}).", fromAccountNumber, amount, fromCurrentBalance);
+                    transferRepository.save(transactionCtx, transfer(fromAccount.getId(), toAccountId, TransferStatusType.INSUFFICIENT_BALANCE, now));
+                    //Nothing was applied, the transaction id can be used again
+                    accountTransactionRepository.deleteIdempotencyKeys(transactionCtx, transactionId);
+                    return TransferStatusType.INSUFFICIENT_BALANCE;
+                }
+
+                Long transferId = transferRepository.save(transactionCtx, transfer(fromAccount.getId(), toAccountId, TransferStatusType.DONE, now)).getId();
+                long fromBalance = Money.subtract(fromCurrentBalance, amount);
+                //The deposit leg to a split account records the new balance of its slot
+                long toBalance = toSlot != null
+                        ? balanceSlots.credit(transactionCtx, toSlot, amount, queries)
+                        : Money.add(toAccount.getBalance(), amount);
+
+                queries.add(accountTransactionRepository.insertQuery(transactionCtx,
+                        leg(fromAccount.getId(), TransactionType.WITHDRAW, amount, fromBalance, transferId, transactionId, now)));
+                queries.add(accountTransactionRepository.insertQuery(transactionCtx,
+                        leg(toAccountId, TransactionType.DEPOSIT, amount, toBalance, transferId, transactionId, now)));
+                queries.add(accountRepository.updateBalanceQuery(transactionCtx, fromAccountNumber, fromBalance));
+                if (toSlot == null)
+                    queries.add(accountRepository.updateBalanceQuery(transactionCtx, toAccountNumber, toBalance));
+                transactionCtx.batch(queries).execute();
+                //The version of a split account also counts its slots, the balance cache reads it again
+                if (!splitFrom)
+                    written.add(new AccountBalance(fromAccountNumber, fromBalance, fromAccount.getVersion() + 1));
+                if (splitTo == null)
+                    written.add(new AccountBalance(toAccountNumber, toBalance, toAccount.getVersion() + 1));
+                return TransferStatusType.DONE;
+            }));
+        } catch (DataAccessException e) {
+            log.warn("Error in transfer from account {} to account {} with amount {}.", fromAccountNumber, toAccountNumber, amount);
+            throw e;
+        }
+
+        accountRepository.balancesCommitted(written);
+        if (transferStatus == TransferStatusType.INSUFFICIENT_BALANCE)
+            throw new InsufficientBalanceException();
+
+        log.debug("Successfully transfer from account {} to account {} with amount {}.", fromAccountNumber, toAccountNumber, amount);
+    }
+
+    /**
+     * Apply several transfers in one database transaction (group commit), each with the same rules as
+     * {@link #createTransfer}. Transfers are applied in the given order, so a transfer sees the balances left by the
+     * ones before it, and a rejected transfer does not affect the others.
+     * <p>
+     * Runs four statements whatever the number of transfers: lock and read all accounts, check all transaction ids,
+     * insert all transfers and a single batch with all legs, their idempotency keys and one balance update per
+     * account, plus a metadata lookup for each account missing from the account cache, such as an unknown one. When
+     * a transaction id of the batch is used concurrently by another transaction the transfers are applied one by
+     * one, so that only the duplicated one is rejected. When one of the accounts is split the transfers are applied
+     * one by one as well.
+     *
+     * @param commands transfers to apply
+     * @return one result per command in the same order
+     * @throws DataAccessException when the batch could not be written, none of the transfers is applied then
+     */
+    public List<TransferResult> createTransfers(List<TransferCommand> commands) {
+        if (ledgerEngine != null)
+            return commands.stream().map(this::createTransferResult).collect(Collectors.toList());
+        if (hasSplitAccount(commands)) {
+            log.debug("Batch of {} transfers has split accounts, applying them one by one.", commands.size());
+            return commands.stream().map(this::createTransferResult).collect(Collectors.toList());
+        }
+        try {
+            return createTransfersInTransaction(commands, false);
+        } catch (DuplicateTransactionException e) {
+            log.info("Transaction id of batch of {} transfers is used concurrently, applying them one by one.", commands.size());
+            return commands.stream().map(this::createTransferResult).collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Apply a batch of transfers requested together, see {@link #createTransfers(List)}.
+     * <p>
+     * When {@code atomic} is set either all transfers are applied or none: if one is rejected nothing is written and
+     * the others are reported as {@link BatchAbortedException}. Otherwise every transfer succeeds or fails on its own.
+     *
+     * @param commands transfers to apply
+     * @param atomic   whether to apply none of the transfers when one of them is rejected
+     * @return one result per command in the same order
+     * @throws AtomicBatchNotSupportedException when {@code atomic} is set and a {@link LedgerEngine} is configured, or
+     *                                          one of the accounts is split
+     */
+    public List<TransferResult> createTransfers(List<TransferCommand> commands, boolean atomic) {
+        if (!atomic)
+            return createTransfers(commands);
+        if (ledgerEngine != null)
+            throw new AtomicBatchNotSupportedException();
+        if (hasSplitAccount(commands))
+            throw new AtomicBatchNotSupportedException("All-or-nothing batches are not supported for split accounts");
+        return createTransfersInTransaction(commands, true);
+    }
+
+    private List<TransferResult> createTransfersInTransaction(List<TransferCommand> commands, boolean atomic) {
+
+        Set<String> accountNumbers = new HashSet<>();
+        Set<String> transactionIds = new HashSet<>();
+        for (TransferCommand command : commands) {
+            accountNumbers.add(command.getFromAccountNumber());
+            accountNumbers.add(command.getToAccountNumber());
+            transactionIds.add(command.getTransactionId());
+        }
+
+        log.info("Create batch of {} transfers between {} accounts.", commands.size(), accountNumbers.size());
+        //Written through to the balance cache once the transaction committed
+        List<AccountBalance> written = new ArrayList<>();
+        List<TransferResult> batchResults;
+        try {
+            batchResults = lockStrategy.callLocked(accountNumbers, () -> dslContext.transactionResult(configuration -> {
+                var transactionCtx = DSL.using(configuration);
+
+                Map<String, FinancialAccountRecord> accounts = lockStrategy.fetchAccounts(transactionCtx, accountNumbers);
+                Set<String> usedTransactionIds = accountTransactionRepository.getPresentTransactionIds(transactionCtx, transactionIds);
+
+                var now = LocalDateTime.now();
+                Map<String, Long> balances = new LinkedHashMap<>();
+                accounts.forEach((accountNumber, account) -> balances.put(accountNumber, account.getBalance()));
+                List<TransferResult> results = new ArrayList<>(commands.size());
+                List<Transfer> transfers = new ArrayList<>();
+                List<AccountTransaction> legs = new ArrayList<>();
+                Set<String> changedAccounts = new LinkedHashSet<>();
+
+                for (TransferCommand command : commands) {
+                    try {
+                        if (command.getFromAccountNumber().equals(command.getToAccountNumber()))
+                            throw new SameAccountException();
+                        FinancialAccountRecord fromAccount = getLockedAccount(accounts, command.getFromAccountNumber());
+                        FinancialAccountRecord toAccount = getLockedAccount(accounts, command.getToAccountNumber());
+                        if (!fromAccount.getCurrency().equals(toAccount.getCurrency()))
+                            throw new IncompatibleCurrencyException();
+                        if (usedTransactionIds.contains(command.getTransactionId()))
+                            throw new DuplicateTransactionException();
+
+                        long amount = command.getAmount();
+                        if (Money.abs(amount) > balances.get(fromAccount.getAccountNumber())) {
+                            transfers.add(transfer(fromAccount.getId(), toAccount.getId(), TransferStatusType.INSUFFICIENT_BALANCE, now));
+                            throw new InsufficientBalanceException();
+                        }
+                        //Only a transfer that passed every check uses its id, as with a single transfer
+                        usedTransactionIds.add(command.getTransactionId());
+
+                        long fromBalance = Money.subtract(balances.get(fromAccount.getAccountNumber()), amount);
+                        long toBalance = Money.add(balances.get(toAccount.getAccountNumber()), amount);
+                        balances.put(fromAccount.getAccountNumber(), fromBalance);
+                        balances.put(toAccount.getAccountNumber(), toBalance);
+                        changedAccounts.add(fromAccount.getAccountNumber());
+                        changedAccounts.add(toAccount.getAccountNumber());
+
+                        //Transfer id is set after the transfers are inserted
+                        transfers.add(transfer(fromAccount.getId(), toAccount.getId(), TransferStatusType.DONE, now));
+                        legs.add(leg(fromAccount.getId(), TransactionType.WITHDRAW, amount, fromBalance, null, command.getTransactionId(), now));
+                        legs.add(leg(toAccount.getId(), TransactionType.DEPOSIT, amount, toBalance, null, command.getTransactionId(), now));
+                        results.add(TransferResult.done(command.getTransactionId()));
+                    } catch (TransferBaseException e) {
+                        results.add(TransferResult.failed(command.getTransactionId(), e));
+                    }
+                }
+
+                if (atomic && results.stream().anyMatch(result -> !result.isDone()))
+                    return abort(results);
+                if (transfers.isEmpty())
+                    return results;
+
+                List<Long> transferIds = transferRepository.saveAll(transactionCtx, transfers);
+                List<Query> queries = new ArrayList<>(legs.size() + changedAccounts.size());
+                int leg = 0;
+                for (int i = 0; i < transfers.size(); i++) {
+                    if (transfers.get(i).getTransferStatusType() != TransferStatusType.DONE)
+                        continue;
+                    for (int j = 0; j < 2; j++, leg++) {
+                        legs.get(leg).setTransfer(transferIds.get(i));
+                        queries.add(accountTransactionRepository.insertQuery(transactionCtx, legs.get(leg)));
+                        queries.add(accountTransactionRepository.insertIdempotencyKeyQuery(transactionCtx,
+                                legs.get(leg).getTransactionId(), legs.get(leg).getTransactionType(), now));
+                    }
+                }
+                for (String accountNumber : changedAccounts) {
+                    queries.add(accountRepository.updateBalanceQuery(transactionCtx, accountNumber, balances.get(accountNumber)));
+                    written.add(new AccountBalance(accountNumber, balances.get(accountNumber), accounts.get(accountNumber).getVersion() + 1));
+                }
+                if (!queries.isEmpty())
+                    transactionCtx.batch(queries).execute();
+                return results;
+            }));
+        } catch (DataAccessException e) {
+            log.warn("Error in batch of {} transfers.", commands.size());
+            if (AccountTransactionRepository.isDuplicateKey(e))
+                throw new DuplicateTransactionException();
+            throw e;
+        }
+        accountRepository.balancesCommitted(written);
+        //Audited once the batch is committed
+        for (int i = 0; i < commands.size(); i++)
+            TransferAuditLog.result(commands.get(i), batchResults.get(i));
+        return batchResults;
+    }
+
+    private boolean hasSplitAccount(List<TransferCommand> commands) {
+        Set<String> accountNumbers = new HashSet<>();
+        for (TransferCommand command : commands) {
+            accountNumbers.add(command.getFromAccountNumber());
+            accountNumbers.add(command.getToAccountNumber());
+        }
+        return accountRepository.hasSplitAccount(accountNumbers);
+    }
+
+    private List<TransferResult> abort(List<TransferResult> results) {
+        return results.stream()
+                .map(result -> result.isDone() ? TransferResult.failed(result.getTransactionId(), new BatchAbortedException()) : result)
+                .collect(Collectors.toList());
+    }
+
+    private TransferResult createTransferResult(TransferCommand command) {
+        try {
+            createTransfer(command.getFromAccountNumber(), command.getToAccountNumber(), command.getAmount(), command.getTransactionId());
+            return TransferResult.done(command.getTransactionId());
+        } catch (TransferBaseException e) {
+            return TransferResult.failed(command.getTransactionId(), e);
+        }
+    }
+
+    private FinancialAccountRecord getLockedAccount(Map<String, FinancialAccountRecord> accounts, String accountNumber) {
+        FinancialAccountRecord account = accounts.get(accountNumber);
+        if (account == null)
+            throw new InvalidAccountException(accountNumber);
+        return account;
+    }
+
+    private Transfer transfer(Long fromAccountId, Long toAccountId,
+                              TransferStatusType transferStatusType, LocalDateTime createDatetime) {
+        return Transfer.builder()
+                .transferStatusType(transferStatusType)
+                .fromAccount(fromAccountId)
+                .toAccount(toAccountId)
+                .createDatetime(createDatetime)
+                .build();
+    }
+
+    private AccountTransaction leg(Long accountId, TransactionType transactionType, long amount,
+                                   long balance, Long transferId, String transactionId, LocalDateTime createDatetime) {
+        return AccountTransaction.builder()
+                .transactionType(transactionType)
+                .financialAccount(accountId)
+                .balance(balance)
+                .amount(amount)
+                .createDatetime(createDatetime)
+                .transfer(transferId)
+                .transactionId(transactionId)
+                .build();
     }
 }
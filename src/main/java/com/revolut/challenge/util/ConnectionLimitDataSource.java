@@ -0,0 +1,133 @@
+package com.revolut.challenge.util;
+
+import org.jooq.tools.jdbc.DefaultConnection;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+/**
+ * Limits the number of open connections of a data source with a fair {@link Semaphore}.
+ * <p>
+ * Callers waiting for a connection are parked in arrival order, which also unmounts virtual threads, instead of
+ * polling the pool or blocking inside it. A caller that waits longer than the timeout gets a
+ * {@link SQLTransientConnectionException}.
+ */
+public class ConnectionLimitDataSource implements DataSource {
+
+    private final DataSource dataSource;
+    private final Semaphore permits;
+    private final long timeoutNanos;
+
+    /**
+     * @param maxConnections should not be more than the connections the pool of the data source can open
+     */
+    public ConnectionLimitDataSource(DataSource dataSource, int maxConnections, Duration timeout) {
+        this.dataSource = dataSource;
+        this.permits = new Semaphore(maxConnections, true);
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        try {
+            return new LimitedConnection(dataSource.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        try {
+            return new LimitedConnection(dataSource.getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Connections currently waited for
+     */
+    public int getQueueLength() {
+        return permits.getQueueLength();
+    }
+
+    private void acquire() throws SQLException {
+        try {
+            if (!permits.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS))
+                throw new SQLTransientConnectionException("Timed out waiting for a database connection");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted waiting for a database connection", e);
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return dataSource.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        dataSource.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        dataSource.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return dataSource.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return dataSource.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this))
+            return iface.cast(this);
+        return dataSource.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || dataSource.isWrapperFor(iface);
+    }
+
+    private final class LimitedConnection extends DefaultConnection {
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private LimitedConnection(Connection delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public void close() throws SQLException {
+            if (!closed.compareAndSet(false, true))
+                return;
+            try {
+                super.close();
+            } finally {
+                permits.release();
+            }
+        }
+    }
+}
@@ -1,40 +1,223 @@
 package com.revolut.challenge.util;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.revolut.challenge.exception.ConstraintViolationException;
 import com.revolut.challenge.exception.InvalidRequestData;
+import com.revolut.challenge.web.codec.CreateWithdrawResponseCodec;
+import com.revolut.challenge.web.codec.JsonCodec;
+import com.revolut.challenge.web.dto.CreateWithdrawResponseDTO;
 import lombok.extern.log4j.Log4j2;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JSON conversion with one {@link ObjectWriter} and {@link ObjectReader} per type, created on first use and reused
+ * afterwards. Types with a {@link JsonCodec} are written by the codec instead. Output is compact unless the
+ * {@code json-pretty} system property is {@code true}.
+ */
 @Log4j2
 public class JsonUtils {
     private JsonUtils() {
     }
 
-    private static ObjectMapper objectMapper;
+    private static final boolean PRETTY_PRINT = Boolean.parseBoolean(System.getProperty("json-pretty", "false"));
+
+    private static final ObjectMapper objectMapper;
+    private static final Map<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, JsonCodec<?>> codecs = Map.of(
+            CreateWithdrawResponseDTO.class, new CreateWithdrawResponseCodec());
 
     static {
         objectMapper = new ObjectMapper();
-        objectMapper.enable(SerializationFeature.INDENT_OUTPUT);
+        objectMapper.configure(SerializationFeature.INDENT_OUTPUT, PRETTY_PRINT);
         objectMapper.registerModule(new JavaTimeModule());
         objectMapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
     }
 
     public static String writeValueAsString(Object model) {
         try {
-            return objectMapper.writeValueAsString(model);
+            return writer(model.getClass()).writeValueAsString(model);
         } catch (JsonProcessingException e) {
             throw new InvalidRequestData();
         }
     }
 
+    /**
+     * Write the model as JSON straight to the stream, without building a {@link String} first.
+     */
+    public static void writeValue(OutputStream outputStream, Object model) {
+        try {
+            @SuppressWarnings("unchecked")
+            var codec = (JsonCodec<Object>) codecs.get(model.getClass());
+            if (codec != null) {
+                try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                    if (PRETTY_PRINT)
+                        generator.useDefaultPrettyPrinter();
+                    codec.write(generator, model);
+                }
+                return;
+            }
+            writer(model.getClass()).writeValue(outputStream, model);
+        } catch (JsonProcessingException e) {
+            throw new InvalidRequestData();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     public static <T> T convertToObject(String message, Class<T> clazz) {
         try {
-            return objectMapper.readValue(message, clazz);
+            return reader(clazz).readValue(message);
         } catch (JsonProcessingException e) {
             log.error("Error on covert json message ={}", message);
             throw new InvalidRequestData();
         }
     }
+
+    /**
+     * Read the JSON document from the stream, without decoding it to a {@link String} first.
+     */
+    public static <T> T convertToObject(InputStream inputStream, Class<T> clazz) {
+        try {
+            return reader(clazz).readValue(inputStream);
+        } catch (IOException e) {
+            log.error("Error on covert json message to {}", clazz.getSimpleName());
+            throw new InvalidRequestData();
+        }
+    }
+
+    /**
+     * Read and validate the JSON document from the stream with the codec of its type.
+     */
+    public static <T> T convertToObject(InputStream inputStream, JsonCodec<T> codec) {
+        try (JsonParser parser = objectMapper.getFactory().createParser(inputStream)) {
+            return codec.read(parser);
+        } catch (IOException e) {
+            log.error("Error on covert json message to {}", codec.getType().getSimpleName());
+            throw new InvalidRequestData();
+        }
+    }
+
+    /**
+     * Read and validate the JSON document with the codec of its type, e.g. one line of newline delimited JSON.
+     */
+    public static <T> T convertToObject(String message, JsonCodec<T> codec) {
+        try (JsonParser parser = objectMapper.getFactory().createParser(message)) {
+            return codec.read(parser);
+        } catch (IOException e) {
+            log.error("Error on covert json message to {}", codec.getType().getSimpleName());
+            throw new InvalidRequestData();
+        }
+    }
+
+    /**
+     * Read and validate a JSON array from the stream, every element with the codec of its type.
+     *
+     * @param maxSize maximum number of elements
+     * @throws ConstraintViolationException when the array is empty or has more than {@code maxSize} elements
+     */
+    public static <T> List<T> convertToList(InputStream inputStream, JsonCodec<T> codec, int maxSize) {
+        try (JsonParser parser = objectMapper.getFactory().createParser(inputStream)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY)
+                throw new InvalidRequestData();
+            List<T> values = new ArrayList<>();
+            for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+                if (token != JsonToken.START_OBJECT)
+                    throw new InvalidRequestData();
+                if (values.size() == maxSize)
+                    throw new ConstraintViolationException(List.of("At most " + maxSize + " items are allowed"));
+                values.add(codec.read(parser));
+            }
+            if (values.isEmpty())
+                throw new ConstraintViolationException(List.of("At least one item is required"));
+            return values;
+        } catch (IOException e) {
+            log.error("Error on covert json message to list of {}", codec.getType().getSimpleName());
+            throw new InvalidRequestData();
+        }
+    }
+
+    /**
+     * Writer of newline delimited JSON to the stream: every value is one compact document followed by a newline.
+     * Values are not flushed one by one, closing the writer flushes and closes the stream. A writer closed before
+     * anything was written leaves the stream untouched, so a response that still has to report an error is not
+     * committed.
+     */
+    public static <T> LineWriter<T> lineWriter(OutputStream outputStream, Class<T> clazz) {
+        try {
+            //Without a root value separator the generator would start every line after the first with a space
+            return new LineWriter<>(objectMapper.getFactory().createGenerator(outputStream).setRootValueSeparator(null),
+                    writer(clazz).without(SerializationFeature.INDENT_OUTPUT).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static final class LineWriter<T> implements Closeable {
+        private final JsonGenerator generator;
+        private final ObjectWriter writer;
+        private boolean written;
+
+        private LineWriter(JsonGenerator generator, ObjectWriter writer) {
+            this.generator = generator;
+            this.writer = writer;
+        }
+
+        public void write(T value) {
+            try {
+                written = true;
+                writer.writeValue(generator, value);
+                generator.writeRaw('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Send the values written so far, e.g. to report progress.
+         */
+        public void flush() {
+            try {
+                generator.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                if (!written)
+                    generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET).disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+                generator.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static ObjectWriter writer(Class<?> clazz) {
+        return writers.computeIfAbsent(clazz, objectMapper::writerFor);
+    }
+
+    private static ObjectReader reader(Class<?> clazz) {
+        return readers.computeIfAbsent(clazz, objectMapper::readerFor);
+    }
 }
@@ -0,0 +1,79 @@
+package com.revolut.challenge.util;
+
+import com.revolut.challenge.exception.ConstraintViolationException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+
+/**
+ * Reader of lines ending with {@code \n} or {@code \r\n} that never holds more than one line of at most
+ * {@code maxLength} characters. A longer line is skipped up to its end and reported as a constraint violation, the
+ * next call reads the line after it.
+ */
+public class LineReader implements Closeable {
+
+    private final Reader reader;
+    private final int maxLength;
+    private final char[] buffer = new char[8192];
+    private final StringBuilder line = new StringBuilder();
+    private int position;
+    private int limit;
+
+    /**
+     * @param maxLength maximum number of characters of a line, without its line break
+     */
+    public LineReader(Reader reader, int maxLength) {
+        if (maxLength <= 0)
+            throw new IllegalArgumentException("Maximum line length must be greater than 0");
+        this.reader = reader;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * Next line without its line break, {@code null} at the end of the input
+     *
+     * @throws ConstraintViolationException when the line is longer than the maximum length
+     */
+    public String readLine() throws IOException {
+        line.setLength(0);
+        boolean read = false;
+        boolean tooLong = false;
+        while (true) {
+            if (position == limit) {
+                position = 0;
+                limit = Math.max(reader.read(buffer, 0, buffer.length), 0);
+                if (limit == 0) {
+                    if (!read)
+                        return null;
+                    break;
+                }
+            }
+            read = true;
+            int start = position;
+            while (position < limit && buffer[position] != '\n')
+                position++;
+            //Characters of a line that is already too long are dropped, only its end is looked for
+            if (!tooLong && line.length() + position - start > maxLength + 1)
+                tooLong = true;
+            if (!tooLong)
+                line.append(buffer, start, position - start);
+            if (position < limit) {
+                position++;
+                break;
+            }
+        }
+        int length = line.length();
+        if (length > 0 && line.charAt(length - 1) == '\r')
+            line.setLength(--length);
+        if (tooLong || length > maxLength)
+            throw new ConstraintViolationException(List.of("Line is longer than " + maxLength + " characters"));
+        return line.toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
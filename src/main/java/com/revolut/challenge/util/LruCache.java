@@ -0,0 +1,176 @@
+package com.revolut.challenge.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache that evicts the least recently used entry. Entries are split over a fixed array of
+ * segments by the hash of their key, each an access ordered {@link LinkedHashMap} behind its own lock, so concurrent
+ * readers of different keys rarely wait for each other. Eviction is least recently used within a segment, which only
+ * approximates it over the whole cache.
+ * <p>
+ * Values are loaded outside the segment lock, so two threads missing the same key may both load it. A loaded value is
+ * not cached when a key of its segment was invalidated while it loaded, since it may have been read before the change
+ * that invalidated it, nor when another value was cached for its key in the meantime.
+ *
+ * @param <K> key type
+ * @param <V> value type, {@code null} values are not cached
+ */
+public class LruCache<K, V> {
+
+    private final Segment<K, V>[] segments;
+    private final int maximumSize;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maximumSize maximum number of entries, must be positive
+     * @param segments    number of segments, rounded up to a power of two and at most {@code maximumSize}
+     */
+    @SuppressWarnings("unchecked")
+    public LruCache(int maximumSize, int segments) {
+        if (maximumSize <= 0)
+            throw new IllegalArgumentException("Cache size must be greater than 0");
+        int size = 1;
+        //Every segment must hold at least one entry
+        while (size < segments && size * 2 <= maximumSize) {
+            size <<= 1;
+        }
+        this.segments = (Segment<K, V>[]) new Segment<?, ?>[size];
+        for (int i = 0; i < size; i++) {
+            //The first segments take the remainder, so the capacities add up to the maximum size
+            this.segments[i] = new Segment<>(maximumSize / size + (i < maximumSize % size ? 1 : 0), evictions);
+        }
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Value of the key, loaded and cached when it is missing.
+     *
+     * @param loader loads the value of a missing key, exceptions are passed to the caller and nothing is cached
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        Segment<K, V> segment = segment(key);
+        V value;
+        long generation;
+        synchronized (segment) {
+            value = segment.get(key);
+            generation = segment.generation;
+        }
+        if (value != null) {
+            hits.increment();
+            return value;
+        }
+        misses.increment();
+        value = loader.apply(key);
+        if (value != null) {
+            synchronized (segment) {
+                if (segment.generation == generation)
+                    segment.putIfAbsent(key, value);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Value of the key, {@code null} when it is not cached
+     */
+    public V getIfPresent(K key) {
+        Segment<K, V> segment = segment(key);
+        V value;
+        synchronized (segment) {
+            value = segment.get(key);
+        }
+        if (value != null)
+            hits.increment();
+        else
+            misses.increment();
+        return value;
+    }
+
+    /**
+     * Replace the value of the key atomically, see {@link Map#compute}.
+     *
+     * @param remapping new value from the key and its current value or {@code null}, returns {@code null} to remove it
+     */
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remapping) {
+        Segment<K, V> segment = segment(key);
+        synchronized (segment) {
+            return segment.compute(key, remapping);
+        }
+    }
+
+    public void put(K key, V value) {
+        Segment<K, V> segment = segment(key);
+        synchronized (segment) {
+            segment.put(key, value);
+        }
+    }
+
+    public void invalidate(K key) {
+        Segment<K, V> segment = segment(key);
+        synchronized (segment) {
+            segment.remove(key);
+            segment.generation++;
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    private Segment<K, V> segment(K key) {
+        int hash = key.hashCode();
+        //Spread the high bits, as HashMap does, since the segment count is a power of two
+        return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+    }
+
+    private static class Segment<K, V> extends LinkedHashMap<K, V> {
+        private final int capacity;
+        private final LongAdder evictions;
+        /**
+         * Incremented by every invalidation, guarded by the segment lock
+         */
+        private long generation;
+
+        Segment(int capacity, LongAdder evictions) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+            this.evictions = evictions;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            if (size() <= capacity)
+                return false;
+            evictions.increment();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.revolut.challenge.util;
+
+import com.revolut.challenge.model.Money;
+import org.jooq.Converter;
+
+import java.math.BigDecimal;
+
+/**
+ * Maps {@code DECIMAL(20, 2)} money columns to {@link Money} minor units.
+ */
+public class MoneyConverter implements Converter<BigDecimal, Long> {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public Long from(BigDecimal databaseObject) {
+        return databaseObject == null ? null : Money.fromDecimal(databaseObject);
+    }
+
+    @Override
+    public BigDecimal to(Long userObject) {
+        return userObject == null ? null : Money.toDecimal(userObject);
+    }
+
+    @Override
+    public Class<BigDecimal> fromType() {
+        return BigDecimal.class;
+    }
+
+    @Override
+    public Class<Long> toType() {
+        return Long.class;
+    }
+}
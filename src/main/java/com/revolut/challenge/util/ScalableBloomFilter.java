@@ -0,0 +1,175 @@
+package com.revolut.challenge.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter of strings that grows with the number of keys added to it. {@link #mightContain} never answers
+ * {@code false} for a key that was added, and answers {@code true} for a key that was not with a probability below
+ * the configured false positive rate, however many keys are added.
+ * <p>
+ * Keys are added to the newest of a chain of plain Bloom filters (stages). Once a stage holds as many keys as it was
+ * sized for, a new stage twice as large is started with half the false positive rate of the previous one, so the
+ * rates of all stages add up to at most the configured one. A lookup checks every stage.
+ * <p>
+ * Bits are set with compare-and-set, so keys can be added and looked up concurrently without locks.
+ */
+public class ScalableBloomFilter {
+
+    private static final double LN2_SQUARED = Math.log(2) * Math.log(2);
+
+    private volatile Stage[] stages;
+
+    /**
+     * @param initialCapacity   number of keys the first stage is sized for
+     * @param falsePositiveRate upper bound of the false positive rate of the whole filter, between 0 and 1
+     */
+    public ScalableBloomFilter(long initialCapacity, double falsePositiveRate) {
+        if (initialCapacity <= 0)
+            throw new IllegalArgumentException("Bloom filter capacity must be greater than 0");
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1)
+            throw new IllegalArgumentException("Bloom filter false positive rate must be between 0 and 1");
+        //The first stage takes half of the rate, every following one half of the previous
+        this.stages = new Stage[]{new Stage(initialCapacity, falsePositiveRate / 2)};
+    }
+
+    public void add(String key) {
+        long hash = hash(key);
+        Stage[] current = stages;
+        Stage stage = current[current.length - 1];
+        if (stage.count.incrementAndGet() > stage.capacity)
+            stage = grow(stage);
+        stage.add(hash);
+    }
+
+    /**
+     * @return {@code false} when the key was definitely never added
+     */
+    public boolean mightContain(String key) {
+        long hash = hash(key);
+        for (Stage stage : stages) {
+            if (stage.mightContain(hash))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Number of keys added, keys added more than once are counted every time
+     */
+    public long getCount() {
+        long count = 0;
+        for (Stage stage : stages)
+            count += Math.min(stage.count.get(), stage.capacity);
+        return count;
+    }
+
+    public int getStages() {
+        return stages.length;
+    }
+
+    /**
+     * Size of the bit arrays of all stages in bytes
+     */
+    public long getMemoryBytes() {
+        long bytes = 0;
+        for (Stage stage : stages)
+            bytes += stage.bits.length() * (long) Long.BYTES;
+        return bytes;
+    }
+
+    /**
+     * False positive rate expected for the keys added so far, estimated from the number of keys in every stage
+     */
+    public double getExpectedFalsePositiveRate() {
+        double negative = 1;
+        for (Stage stage : stages) {
+            long count = Math.min(stage.count.get(), stage.capacity);
+            double fill = 1 - Math.exp(-(double) stage.hashes * count / stage.bitSize);
+            negative *= 1 - Math.pow(fill, stage.hashes);
+        }
+        return 1 - negative;
+    }
+
+    private synchronized Stage grow(Stage full) {
+        Stage[] current = stages;
+        Stage last = current[current.length - 1];
+        //Another thread already started the next stage
+        if (last != full) {
+            last.count.incrementAndGet();
+            return last;
+        }
+        Stage next = new Stage(full.capacity * 2, full.falsePositiveRate / 2);
+        next.count.incrementAndGet();
+        Stage[] grown = new Stage[current.length + 1];
+        System.arraycopy(current, 0, grown, 0, current.length);
+        grown[current.length] = next;
+        stages = grown;
+        return next;
+    }
+
+    /**
+     * 64 bit FNV-1a of the characters, finished with the MurmurHash3 mixer so that all bits depend on every char.
+     */
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static final class Stage {
+        private final long capacity;
+        private final double falsePositiveRate;
+        private final long bitSize;
+        private final int hashes;
+        private final AtomicLongArray bits;
+        private final AtomicLong count = new AtomicLong();
+
+        Stage(long capacity, double falsePositiveRate) {
+            this.capacity = capacity;
+            this.falsePositiveRate = falsePositiveRate;
+            long words = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / LN2_SQUARED / Long.SIZE);
+            if (words > Integer.MAX_VALUE)
+                throw new IllegalStateException("Bloom filter stage for " + capacity + " keys is too large");
+            this.bits = new AtomicLongArray((int) words);
+            this.bitSize = words * Long.SIZE;
+            this.hashes = Math.max(1, (int) Math.round((double) bitSize / capacity * Math.log(2)));
+        }
+
+        void add(long hash) {
+            //Kirsch-Mitzenmacher: the k indexes are derived from two hashes, h1 + i * h2
+            long combined = hash;
+            long increment = mix(hash + 0x9e3779b97f4a7c15L);
+            for (int i = 0; i < hashes; i++, combined += increment) {
+                long index = (combined & Long.MAX_VALUE) % bitSize;
+                int word = (int) (index >>> 6);
+                long mask = 1L << index;
+                if ((bits.get(word) & mask) == 0)
+                    bits.getAndAccumulate(word, mask, (value, bit) -> value | bit);
+            }
+        }
+
+        boolean mightContain(long hash) {
+            long combined = hash;
+            long increment = mix(hash + 0x9e3779b97f4a7c15L);
+            for (int i = 0; i < hashes; i++, combined += increment) {
+                long index = (combined & Long.MAX_VALUE) % bitSize;
+                if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0)
+                    return false;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.revolut.challenge.web.codec;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.revolut.challenge.exception.InvalidRequestData;
+import com.revolut.challenge.web.dto.CreateWithdrawRequestDTO;
+
+import java.io.IOException;
+import java.util.List;
+
+public class CreateWithdrawRequestCodec implements JsonCodec<CreateWithdrawRequestDTO> {
+
+    @Override
+    public Class<CreateWithdrawRequestDTO> getType() {
+        return CreateWithdrawRequestDTO.class;
+    }
+
+    @Override
+    public CreateWithdrawRequestDTO read(JsonParser parser) throws IOException {
+        var dto = new CreateWithdrawRequestDTO();
+        for (String field = JsonCodecs.firstField(parser); field != null; field = JsonCodecs.nextField(parser)) {
+            switch (field) {
+                case "transactionId":
+                    dto.setTransactionId(JsonCodecs.readString(parser));
+                    break;
+                case "accountNumber":
+                    dto.setAccountNumber(JsonCodecs.readString(parser));
+                    break;
+                case "amount":
+                    dto.setAmount(JsonCodecs.readLong(parser));
+                    break;
+                default:
+                    throw new InvalidRequestData();
+            }
+        }
+
+        List<String> violations = JsonCodecs.notBlank(null, dto.getAccountNumber(), "Account number cant be null");
+        violations = JsonCodecs.positive(violations, dto.getAmount(), "Amount cant be null", "Amount must be greater than 0");
+        JsonCodecs.check(violations);
+        return dto;
+    }
+
+    @Override
+    public void write(JsonGenerator generator, CreateWithdrawRequestDTO value) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("transactionId", value.getTransactionId());
+        generator.writeStringField("accountNumber", value.getAccountNumber());
+        generator.writeFieldName("amount");
+        if (value.getAmount() == null)
+            generator.writeNull();
+        else
+            generator.writeNumber(value.getAmount());
+        generator.writeEndObject();
+    }
+}
@@ -0,0 +1,37 @@
+package com.revolut.challenge.web.codec;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.revolut.challenge.exception.InvalidRequestData;
+import com.revolut.challenge.web.dto.CreateWithdrawResponseDTO;
+
+import java.io.IOException;
+
+/**
+ * Response of withdraw, deposit and transfer.
+ */
+public class CreateWithdrawResponseCodec implements JsonCodec<CreateWithdrawResponseDTO> {
+
+    @Override
+    public Class<CreateWithdrawResponseDTO> getType() {
+        return CreateWithdrawResponseDTO.class;
+    }
+
+    @Override
+    public CreateWithdrawResponseDTO read(JsonParser parser) throws IOException {
+        var dto = new CreateWithdrawResponseDTO();
+        for (String field = JsonCodecs.firstField(parser); field != null; field = JsonCodecs.nextField(parser)) {
+            if (!field.equals("transactionId"))
+                throw new InvalidRequestData();
+            dto.setTransactionId(JsonCodecs.readString(parser));
+        }
+        return dto;
+    }
+
+    @Override
+    public void write(JsonGenerator generator, CreateWithdrawResponseDTO value) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("transactionId", value.getTransactionId());
+        generator.writeEndObject();
+    }
+}
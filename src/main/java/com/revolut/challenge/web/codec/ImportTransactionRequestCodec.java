@@ -0,0 +1,76 @@
+package com.revolut.challenge.web.codec;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.revolut.challenge.exception.InvalidRequestData;
+import com.revolut.challenge.model.enumeration.TransactionType;
+import com.revolut.challenge.web.dto.ImportTransactionRequestDTO;
+
+import java.io.IOException;
+import java.util.List;
+
+public class ImportTransactionRequestCodec implements JsonCodec<ImportTransactionRequestDTO> {
+
+    @Override
+    public Class<ImportTransactionRequestDTO> getType() {
+        return ImportTransactionRequestDTO.class;
+    }
+
+    @Override
+    public ImportTransactionRequestDTO read(JsonParser parser) throws IOException {
+        var dto = new ImportTransactionRequestDTO();
+        for (String field = JsonCodecs.firstField(parser); field != null; field = JsonCodecs.nextField(parser)) {
+            switch (field) {
+                case "transactionType":
+                    dto.setTransactionType(readTransactionType(parser));
+                    break;
+                case "transactionId":
+                    dto.setTransactionId(JsonCodecs.readString(parser));
+                    break;
+                case "accountNumber":
+                    dto.setAccountNumber(JsonCodecs.readString(parser));
+                    break;
+                case "amount":
+                    dto.setAmount(JsonCodecs.readLong(parser));
+                    break;
+                default:
+                    throw new InvalidRequestData();
+            }
+        }
+
+        List<String> violations = JsonCodecs.notNull(null, dto.getTransactionType(), "Transaction type cant be null");
+        violations = JsonCodecs.notBlank(violations, dto.getAccountNumber(), "Account number cant be null");
+        violations = JsonCodecs.positive(violations, dto.getAmount(), "Amount cant be null", "Amount must be greater than 0");
+        JsonCodecs.check(violations);
+        return dto;
+    }
+
+    @Override
+    public void write(JsonGenerator generator, ImportTransactionRequestDTO value) throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName("transactionType");
+        if (value.getTransactionType() == null)
+            generator.writeNull();
+        else
+            generator.writeString(value.getTransactionType().name());
+        generator.writeStringField("transactionId", value.getTransactionId());
+        generator.writeStringField("accountNumber", value.getAccountNumber());
+        generator.writeFieldName("amount");
+        if (value.getAmount() == null)
+            generator.writeNull();
+        else
+            generator.writeNumber(value.getAmount());
+        generator.writeEndObject();
+    }
+
+    private static TransactionType readTransactionType(JsonParser parser) throws IOException {
+        String value = JsonCodecs.readString(parser);
+        if (value == null)
+            return null;
+        try {
+            return TransactionType.valueOf(value);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestData();
+        }
+    }
+}
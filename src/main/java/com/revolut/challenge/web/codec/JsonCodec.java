@@ -0,0 +1,26 @@
+package com.revolut.challenge.web.codec;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+
+/**
+ * Reads and writes one DTO type field by field with the Jackson streaming API, without reflective databinding.
+ *
+ * @param <T> DTO type
+ */
+public interface JsonCodec<T> {
+
+    Class<T> getType();
+
+    /**
+     * Read one JSON object and validate it with the same rules and messages as the constraints of the DTO.
+     *
+     * @throws com.revolut.challenge.exception.InvalidRequestData           when the document is not a valid DTO
+     * @throws com.revolut.challenge.exception.ConstraintViolationException when a constraint is violated
+     */
+    T read(JsonParser parser) throws IOException;
+
+    void write(JsonGenerator generator, T value) throws IOException;
+}
@@ -0,0 +1,116 @@
+package com.revolut.challenge.web.codec;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.revolut.challenge.exception.ConstraintViolationException;
+import com.revolut.challenge.exception.InvalidRequestData;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Field readers and constraint checks shared by the codecs. Values are coerced the way Jackson databinding does for
+ * the DTOs, e.g. a number is accepted for a string field and a numeric string for a long field.
+ */
+final class JsonCodecs {
+
+    private JsonCodecs() {
+    }
+
+    /**
+     * Move to the first field of the object, the parser must not have read any token yet or be at the start of the
+     * object, e.g. an element of an array.
+     *
+     * @return name of the first field, {@code null} for an empty object
+     */
+    static String firstField(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT && parser.nextToken() != JsonToken.START_OBJECT)
+            throw new InvalidRequestData();
+        return nextField(parser);
+    }
+
+    /**
+     * Move to the next field of the object and to its value.
+     *
+     * @return name of the field, {@code null} at the end of the object
+     */
+    static String nextField(JsonParser parser) throws IOException {
+        String field = parser.nextFieldName();
+        if (field == null) {
+            if (parser.currentToken() != JsonToken.END_OBJECT)
+                throw new InvalidRequestData();
+            return null;
+        }
+        parser.nextToken();
+        return field;
+    }
+
+    static String readString(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL)
+            return null;
+        if (!token.isScalarValue())
+            throw new InvalidRequestData();
+        return parser.getText();
+    }
+
+    static Long readLong(JsonParser parser) throws IOException {
+        switch (parser.currentToken()) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getLongValue();
+            case VALUE_STRING:
+                try {
+                    return Long.valueOf(parser.getText().trim());
+                } catch (NumberFormatException e) {
+                    throw new InvalidRequestData();
+                }
+            default:
+                throw new InvalidRequestData();
+        }
+    }
+
+    /**
+     * Same as {@link javax.validation.constraints.NotNull}
+     */
+    static List<String> notNull(List<String> violations, Object value, String message) {
+        if (value == null)
+            return add(violations, message);
+        return violations;
+    }
+
+    /**
+     * Same as {@link javax.validation.constraints.NotBlank}
+     */
+    static List<String> notBlank(List<String> violations, String value, String message) {
+        if (value == null || value.isBlank())
+            return add(violations, message);
+        return violations;
+    }
+
+    /**
+     * Same as {@link javax.validation.constraints.NotNull} and {@link javax.validation.constraints.Positive}
+     */
+    static List<String> positive(List<String> violations, Long value, String nullMessage, String message) {
+        if (value == null)
+            return add(violations, nullMessage);
+        if (value <= 0)
+            return add(violations, message);
+        return violations;
+    }
+
+    static void check(List<String> violations) {
+        if (violations != null)
+            throw new ConstraintViolationException(violations);
+    }
+
+    private static List<String> add(List<String> violations, String message) {
+        if (violations == null)
+            violations = new ArrayList<>(2);
+        violations.add(message);
+        return violations;
+    }
+}
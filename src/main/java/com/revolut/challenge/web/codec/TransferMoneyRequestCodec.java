@@ -0,0 +1,60 @@
+package com.revolut.challenge.web.codec;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.revolut.challenge.exception.InvalidRequestData;
+import com.revolut.challenge.web.dto.TransferMoneyRequestDTO;
+
+import java.io.IOException;
+import java.util.List;
+
+public class TransferMoneyRequestCodec implements JsonCodec<TransferMoneyRequestDTO> {
+
+    @Override
+    public Class<TransferMoneyRequestDTO> getType() {
+        return TransferMoneyRequestDTO.class;
+    }
+
+    @Override
+    public TransferMoneyRequestDTO read(JsonParser parser) throws IOException {
+        var dto = new TransferMoneyRequestDTO();
+        for (String field = JsonCodecs.firstField(parser); field != null; field = JsonCodecs.nextField(parser)) {
+            switch (field) {
+                case "transactionId":
+                    dto.setTransactionId(JsonCodecs.readString(parser));
+                    break;
+                case "fromAccount":
+                    dto.setFromAccount(JsonCodecs.readString(parser));
+                    break;
+                case "toAccount":
+                    dto.setToAccount(JsonCodecs.readString(parser));
+                    break;
+                case "amount":
+                    dto.setAmount(JsonCodecs.readLong(parser));
+                    break;
+                default:
+                    throw new InvalidRequestData();
+            }
+        }
+
+        List<String> violations = JsonCodecs.notBlank(null, dto.getFromAccount(), "From account number can not be null");
+        violations = JsonCodecs.notBlank(violations, dto.getToAccount(), "To account number can not be null");
+        violations = JsonCodecs.positive(violations, dto.getAmount(), "Amount can not be null", "Amount must be greater than 0");
+        JsonCodecs.check(violations);
+        return dto;
+    }
+
+    @Override
+    public void write(JsonGenerator generator, TransferMoneyRequestDTO value) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("transactionId", value.getTransactionId());
+        generator.writeStringField("fromAccount", value.getFromAccount());
+        generator.writeStringField("toAccount", value.getToAccount());
+        generator.writeFieldName("amount");
+        if (value.getAmount() == null)
+            generator.writeNull();
+        else
+            generator.writeNumber(value.getAmount());
+        generator.writeEndObject();
+    }
+}
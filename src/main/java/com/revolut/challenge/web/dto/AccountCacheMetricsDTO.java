@@ -0,0 +1,22 @@
+package com.revolut.challenge.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AccountCacheMetricsDTO {
+    private int size;
+    private int maximumSize;
+    private long hits;
+    private long misses;
+    private long evictions;
+    /**
+     * Share of lookups answered from the cache, between 0 and 1
+     */
+    private double hitRate;
+}
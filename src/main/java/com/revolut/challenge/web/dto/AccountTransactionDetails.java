@@ -12,4 +12,12 @@ import java.util.List;
 @AllArgsConstructor
 public class AccountTransactionDetails {
     private List<AccountTransactionDTO> accountTransactionDTOList;
+    /**
+     * Cursor of the next page to pass as {@code after}, {@code null} on the last page
+     */
+    private Long next;
+
+    public AccountTransactionDetails(List<AccountTransactionDTO> accountTransactionDTOList) {
+        this.accountTransactionDTOList = accountTransactionDTOList;
+    }
 }
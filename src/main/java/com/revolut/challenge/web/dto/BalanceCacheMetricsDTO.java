@@ -0,0 +1,35 @@
+package com.revolut.challenge.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BalanceCacheMetricsDTO {
+    private String mode;
+    private int size;
+    private int maximumSize;
+    private long hits;
+    private long misses;
+    private long evictions;
+    /**
+     * Reads of a cached account that compared its version with the database and found it unchanged
+     */
+    private long revalidations;
+    /**
+     * Reads that read the whole account from the database
+     */
+    private long reloads;
+    /**
+     * Balances written through after their transaction committed
+     */
+    private long writes;
+    /**
+     * Share of reads that found the account in the cache, between 0 and 1
+     */
+    private double hitRate;
+}
@@ -5,6 +5,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import java.io.Serializable;
 
@@ -15,4 +17,14 @@ import java.io.Serializable;
 public class CreateAccountRequestDTO implements Serializable {
     @NotNull( message = "Currency of account is required.")
     private Currency currency;
+    /**
+     * number of slots to split the balance over, for accounts credited by many concurrent transfers
+     */
+    @Min(value = 1, message = "Balance slots must be at least 1")
+    @Max(value = 64, message = "Balance slots must be at most 64")
+    private Integer balanceSlots;
+
+    public CreateAccountRequestDTO(Currency currency) {
+        this.currency = currency;
+    }
 }
@@ -0,0 +1,39 @@
+package com.revolut.challenge.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IdempotencyFilterMetricsDTO {
+    /**
+     * Transaction ids added to the filter
+     */
+    private long transactionIds;
+    private int stages;
+    private long memoryBytes;
+    /**
+     * False positive rate expected from the number of transaction ids in the filter, between 0 and 1
+     */
+    private double expectedFalsePositiveRate;
+    /**
+     * Lookups of transaction ids that were definitely new and skipped the database
+     */
+    private long skippedLookups;
+    /**
+     * Lookups of transaction ids that might have been used and were checked in the database
+     */
+    private long possibleDuplicates;
+    /**
+     * Possible duplicates that turned out to be new
+     */
+    private long falsePositives;
+    /**
+     * Share of new transaction ids that were still looked up, between 0 and 1
+     */
+    private double observedFalsePositiveRate;
+}
@@ -0,0 +1,26 @@
+package com.revolut.challenge.web.dto;
+
+import com.revolut.challenge.exception.ExceptionDetail;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+
+/**
+ * Line of an imported file that was not applied.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportErrorDTO {
+    /**
+     * Line number in the imported file, starting at 1
+     */
+    private long line;
+    private String transactionId;
+    /**
+     * Http status the line would get as a single request
+     */
+    private int status;
+    private ExceptionDetail error;
+}
@@ -0,0 +1,22 @@
+package com.revolut.challenge.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+
+/**
+ * Lines of an imported file handled so far.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportProgressDTO {
+    private long processed;
+    private long applied;
+    private long failed;
+    /**
+     * Whether the whole file was handled, only the last progress of an import is done
+     */
+    private boolean done;
+}
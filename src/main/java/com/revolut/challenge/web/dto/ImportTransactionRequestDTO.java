@@ -0,0 +1,30 @@
+package com.revolut.challenge.web.dto;
+
+import com.revolut.challenge.model.enumeration.TransactionType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+import java.io.Serializable;
+
+/**
+ * One line of an imported file, a deposit or a withdraw.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportTransactionRequestDTO implements Serializable {
+    @NotNull(message = "Transaction type cant be null")
+    private TransactionType transactionType;
+
+    private String transactionId;
+
+    @NotBlank(message = "Account number cant be null")
+    private String accountNumber;
+    @NotNull(message = "Amount cant be null")
+    @Positive(message = "Amount must be greater than 0")
+    private Long amount;
+}
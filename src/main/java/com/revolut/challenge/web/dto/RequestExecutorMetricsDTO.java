@@ -0,0 +1,24 @@
+package com.revolut.challenge.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RequestExecutorMetricsDTO {
+    private int threads;
+    private int activeThreads;
+    private int queueDepth;
+    private int queueCapacity;
+    private long completed;
+    private long rejected;
+    /**
+     * Average time requests waited in the queue before a thread picked them up, in microseconds
+     */
+    private long averageWaitMicros;
+    private long maxWaitMicros;
+}
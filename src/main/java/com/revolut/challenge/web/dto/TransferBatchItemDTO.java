@@ -0,0 +1,22 @@
+package com.revolut.challenge.web.dto;
+
+import com.revolut.challenge.exception.ExceptionDetail;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransferBatchItemDTO {
+    private String transactionId;
+    /**
+     * Http status the transfer would get as a single request, {@code 201} when it was applied
+     */
+    private int status;
+    /**
+     * Why the transfer was rejected, {@code null} when it was applied
+     */
+    private ExceptionDetail error;
+}
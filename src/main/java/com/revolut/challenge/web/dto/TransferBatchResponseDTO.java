@@ -0,0 +1,18 @@
+package com.revolut.challenge.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransferBatchResponseDTO {
+    /**
+     * One result per requested transfer in the same order
+     */
+    private List<TransferBatchItemDTO> results;
+}
@@ -0,0 +1,51 @@
+package com.revolut.challenge.web.rest;
+
+import lombok.extern.log4j.Log4j2;
+import org.apache.logging.log4j.util.Unbox;
+import spark.Request;
+import spark.Response;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sampled access log on the {@code access} logger: one request out of every {@code sampleRate} is timed and logged
+ * with its method, path, status and duration in microseconds. Requests that are not sampled cost one counter
+ * increment.
+ */
+@Log4j2(topic = "access")
+public class AccessLog {
+
+    private static final String START_ATTRIBUTE = AccessLog.class.getName() + ".start";
+
+    private final int sampleRate;
+    private final AtomicLong requests = new AtomicLong();
+
+    /**
+     * @param sampleRate log one request out of this many, {@code 1} logs all of them and {@code 0} none
+     */
+    public AccessLog(int sampleRate) {
+        if (sampleRate < 0)
+            throw new IllegalArgumentException("Access log sample rate must not be negative");
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * Filter to run before the request, decides whether it is sampled.
+     */
+    public void start(Request request, Response response) {
+        if (sampleRate > 0 && requests.getAndIncrement() % sampleRate == 0)
+            request.attribute(START_ATTRIBUTE, System.nanoTime());
+    }
+
+    /**
+     * Filter to run after the response is complete, including error responses.
+     */
+    public void end(Request request, Response response) {
+        Long start = request.attribute(START_ATTRIBUTE);
+        if (start == null)
+            return;
+        log.info("{} {} {} {}us", request.requestMethod(), request.pathInfo(), Unbox.box(response.status()),
+                Unbox.box(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start)));
+    }
+}
@@ -16,7 +16,6 @@ import spark.Response;
 import spark.Route;
 
 import javax.validation.Validator;
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
@@ -41,15 +40,16 @@ public class AccountController {
 
     public Route createFinancialAccount = (Request request, Response response) -> {
 
-        var requestDTO = JsonUtils.convertToObject(request.body(), CreateAccountRequestDTO.class);
+        var requestDTO = JsonUtils.convertToObject(request.raw().getInputStream(), CreateAccountRequestDTO.class);
         validateDTO(requestDTO);
 
         var financialAccount = FinancialAccount.builder().
                 accountNumber(UUID.randomUUID().toString()).
                 accountStatusType(AccountStatusType.ACTIVE).
-                balance(BigDecimal.ZERO).
+                balance(0).
                 createDatetime(LocalDateTime.now()).
                 currency(requestDTO.getCurrency()).
+                balanceSlots(requestDTO.getBalanceSlots() == null ? 0 : requestDTO.getBalanceSlots()).
                 build();
         financialAccountService.createAccount(financialAccount);
         log.info("Account number = {}  created.", financialAccount.getAccountNumber());
@@ -60,10 +60,14 @@ public class AccountController {
     public Route getAccount = (Request request, Response response) -> {
 
         String accountNumber = request.params().get(":account_number");
+        if (ETags.notModified(request, response, financialAccountService.getAccountVersion(accountNumber))) {
+            log.debug("Account with number {} not modified.", accountNumber);
+            return "";
+        }
         FinancialAccountDTO account = financialAccountService.getAccount(accountNumber);
         response.status(HttpStatus.CREATED_201);
 
-        log.info("Get account with number {}.",accountNumber);
+        log.debug("Get account with number {}.",accountNumber);
         return account;
     };
 }
@@ -0,0 +1,106 @@
+package com.revolut.challenge.web.rest;
+
+import com.revolut.challenge.exception.ServiceUnavailableException;
+import com.revolut.challenge.web.dto.RequestExecutorMetricsDTO;
+import lombok.extern.log4j.Log4j2;
+import spark.Route;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Executes routes on a fixed number of threads with a bounded queue in front of them.
+ * <p>
+ * The http thread hands the route over and waits for its result, so database work is limited to the executor
+ * threads however many requests Jetty accepts. When the queue is full the request is rejected right away with
+ * {@code 503 Service Unavailable} and a {@code Retry-After} header, instead of waiting in Jetty until it times out.
+ */
+@Log4j2
+public final class BoundedRequestExecutor {
+
+    private final ThreadPoolExecutor executor;
+    private final int queueCapacity;
+    private final String retryAfterSeconds;
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder started = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    /**
+     * @param threads           number of threads executing routes
+     * @param queueCapacity     number of routes waiting for a thread before requests are rejected
+     * @param retryAfterSeconds value of the {@code Retry-After} header of rejected requests
+     */
+    public BoundedRequestExecutor(int threads, int queueCapacity, int retryAfterSeconds) {
+        var counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            var thread = new Thread(runnable, "RequestExecutor-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.queueCapacity = queueCapacity;
+        this.retryAfterSeconds = String.valueOf(retryAfterSeconds);
+    }
+
+    public Route bounded(Route route) {
+        return (request, response) -> {
+            long submitted = System.nanoTime();
+            Future<Object> result;
+            try {
+                result = executor.submit(() -> {
+                    recordWait(System.nanoTime() - submitted);
+                    return route.handle(request, response);
+                });
+            } catch (RejectedExecutionException e) {
+                rejected.increment();
+                log.warn("Rejected {}, {} requests are queued.", request.pathInfo(), executor.getQueue().size());
+                response.header("Retry-After", retryAfterSeconds);
+                throw new ServiceUnavailableException();
+            }
+
+            try {
+                return result.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof Exception)
+                    throw (Exception) e.getCause();
+                throw e;
+            } catch (InterruptedException e) {
+                result.cancel(true);
+                Thread.currentThread().interrupt();
+                throw new ServiceUnavailableException();
+            }
+        };
+    }
+
+    public RequestExecutorMetricsDTO getMetrics() {
+        long count = started.sum();
+        return RequestExecutorMetricsDTO.builder()
+                .threads(executor.getMaximumPoolSize())
+                .activeThreads(executor.getActiveCount())
+                .queueDepth(executor.getQueue().size())
+                .queueCapacity(queueCapacity)
+                .completed(executor.getCompletedTaskCount())
+                .rejected(rejected.sum())
+                .averageWaitMicros(count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(waitNanos.sum() / count))
+                .maxWaitMicros(TimeUnit.NANOSECONDS.toMicros(maxWaitNanos.get()))
+                .build();
+    }
+
+    public void stop() {
+        executor.shutdown();
+    }
+
+    private void recordWait(long nanos) {
+        started.increment();
+        waitNanos.add(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+}
@@ -0,0 +1,43 @@
+package com.revolut.challenge.web.rest;
+
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpStatus;
+import spark.Request;
+import spark.Response;
+
+/**
+ * Conditional GET of resources that carry the version of an account as their entity tag.
+ */
+final class ETags {
+
+    private static final String ANY = "*";
+    private static final String WEAK_PREFIX = "W/";
+
+    private ETags() {
+    }
+
+    /**
+     * Set the {@code ETag} of the response and compare it with the {@code If-None-Match} header of the request.
+     *
+     * @return whether the client already has this version, the response status is then {@code 304 Not Modified}
+     * and nothing must be written
+     */
+    static boolean notModified(Request request, Response response, long version) {
+        String etag = "\"" + version + "\"";
+        response.header(HttpHeader.ETAG.asString(), etag);
+
+        String ifNoneMatch = request.headers(HttpHeader.IF_NONE_MATCH.asString());
+        if (ifNoneMatch == null)
+            return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith(WEAK_PREFIX))
+                candidate = candidate.substring(WEAK_PREFIX.length());
+            if (candidate.equals(etag) || candidate.equals(ANY)) {
+                response.status(HttpStatus.NOT_MODIFIED_304);
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,43 @@
+package com.revolut.challenge.web.rest;
+
+import java.util.Arrays;
+
+/**
+ * Threads that run the http handlers.
+ */
+public enum HttpThreadMode {
+    /**
+     * Jetty's pool of platform threads, sized by {@code http-min-thread} and {@code http-max-thread}
+     */
+    PLATFORM("platform", 1000),
+    /**
+     * A new virtual thread per task, needs JDK 21 or newer
+     */
+    VIRTUAL("virtual", 10_000);
+
+    private final String value;
+    private final long lockTimeoutMillis;
+
+    HttpThreadMode(String value, long lockTimeoutMillis) {
+        this.value = value;
+        this.lockTimeoutMillis = lockTimeoutMillis;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * Default account lock timeout: with virtual threads many more requests queue for the same account
+     */
+    public long getLockTimeoutMillis() {
+        return lockTimeoutMillis;
+    }
+
+    public static HttpThreadMode fromValue(String value) {
+        return Arrays.stream(values())
+                .filter(mode -> mode.value.equalsIgnoreCase(value))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown http threads " + value));
+    }
+}
@@ -0,0 +1,28 @@
+package com.revolut.challenge.web.rest;
+
+import com.revolut.challenge.Application;
+import com.revolut.challenge.util.JsonUtils;
+import org.eclipse.jetty.http.HttpStatus;
+import spark.Route;
+
+/**
+ * Route whose result is written as JSON directly to the servlet output stream by {@link JsonUtils}, instead of being
+ * turned into a {@link String} that Spark encodes again.
+ */
+public final class JsonRoute {
+
+    private JsonRoute() {
+    }
+
+    public static Route json(Route route) {
+        return (request, response) -> {
+            Object model = route.handle(request, response);
+            //A 304 Not Modified has no body, and a String is already serialized, e.g. a replayed response
+            if (model == null || model instanceof String || response.status() == HttpStatus.NOT_MODIFIED_304)
+                return model;
+            response.type(Application.JSON_CONTENT_TYPE);
+            JsonUtils.writeValue(response.raw().getOutputStream(), model);
+            return "";
+        };
+    }
+}
@@ -0,0 +1,34 @@
+package com.revolut.challenge.web.rest;
+
+import java.util.Arrays;
+
+/**
+ * How write requests are executed.
+ */
+public enum RequestExecutionMode {
+    /**
+     * On the http thread that received the request
+     */
+    DIRECT("direct"),
+    /**
+     * By a {@link BoundedRequestExecutor}, rejecting requests when its queue is full
+     */
+    BOUNDED("bounded");
+
+    private final String value;
+
+    RequestExecutionMode(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public static RequestExecutionMode fromValue(String value) {
+        return Arrays.stream(values())
+                .filter(mode -> mode.value.equalsIgnoreCase(value))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown request execution " + value));
+    }
+}
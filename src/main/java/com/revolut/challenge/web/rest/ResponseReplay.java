@@ -0,0 +1,141 @@
+package com.revolut.challenge.web.rest;
+
+import com.revolut.challenge.Application;
+import com.revolut.challenge.model.StoredResponse;
+import com.revolut.challenge.model.enumeration.ReplayOperation;
+import com.revolut.challenge.repository.IdempotentResponseRepository;
+import com.revolut.challenge.repository.TransactionIdFilter;
+import com.revolut.challenge.util.JsonUtils;
+import com.revolut.challenge.util.LruCache;
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.lang3.StringUtils;
+import spark.Response;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Replays the response of a deposit, withdraw or transfer when it is retried with the same transaction id, instead
+ * of applying it again and answering {@code 409 Conflict}. Successful responses are serialized once, stored in the
+ * {@code idempotent_response} table and kept in a bounded cache, and a retry with the same transaction id and request
+ * fields gets the same status and bytes without reaching the service. A retry with different fields is applied, and
+ * rejected, as before.
+ * <p>
+ * Responses expire after a time to live and are purged from the table in the background. Retries of transaction ids
+ * that the {@link TransactionIdFilter} has never seen skip the table. The response is stored after the transaction
+ * committed, so a retry of a request whose response could not be stored is still rejected as a duplicate.
+ */
+@Log4j2
+public class ResponseReplay {
+
+    private static final int CACHE_SEGMENTS = 16;
+
+    private final IdempotentResponseRepository repository;
+    private final TransactionIdFilter transactionIdFilter;
+    private final LruCache<String, StoredResponse> cache;
+    private final Duration timeToLive;
+    private final ScheduledExecutorService purger;
+
+    /**
+     * @param transactionIdFilter used transaction ids, {@code null} to look up every transaction id in the table
+     * @param cacheSize           maximum number of responses kept in memory
+     * @param timeToLive          how long a response is replayed
+     */
+    public ResponseReplay(IdempotentResponseRepository repository, TransactionIdFilter transactionIdFilter,
+                          int cacheSize, Duration timeToLive) {
+        this.repository = repository;
+        this.transactionIdFilter = transactionIdFilter;
+        this.cache = new LruCache<>(cacheSize, CACHE_SEGMENTS);
+        this.timeToLive = timeToLive;
+        this.purger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "ResponseReplayPurger");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Purge expired responses from the table once per time to live
+     */
+    public void start() {
+        long periodMillis = timeToLive.toMillis();
+        purger.scheduleWithFixedDelay(this::purgeExpired, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        purger.shutdownNow();
+    }
+
+    /**
+     * Replay the stored response of the transaction id, or apply the request and store its response when it is
+     * successful.
+     *
+     * @param transactionId transaction id sent by the client, {@code null} or empty when the request can not be retried
+     * @param request       fields of the request that a retry must repeat to be replayed
+     * @param action        applies the request and returns the model of its response
+     * @return body of the stored response, or the model when the response is not stored
+     */
+    public Object execute(ReplayOperation operation, String transactionId, String request, Response response,
+                          Supplier<Object> action) {
+        if (StringUtils.isEmpty(transactionId))
+            return action.get();
+
+        StoredResponse stored = find(operation, transactionId);
+        if (stored != null && stored.getRequest().equals(request)) {
+            log.debug("Replaying response of {} with transaction-id={}.", operation, transactionId);
+            response.status(stored.getStatus());
+            response.type(Application.JSON_CONTENT_TYPE);
+            return stored.getBody();
+        }
+
+        Object model = action.get();
+        if (response.status() < 200 || response.status() >= 300)
+            return model;
+        //Serialized once, so that every replay sends the same bytes as the original response
+        stored = new StoredResponse(transactionId, operation, request, response.status(),
+                JsonUtils.writeValueAsString(model), LocalDateTime.now());
+        try {
+            if (repository.save(stored))
+                cache.put(key(operation, transactionId), stored);
+        } catch (RuntimeException e) {
+            //The request is applied already, only a retry of it is rejected
+            log.warn("Could not store response of {} with transaction-id={}.", operation, transactionId, e);
+        }
+        response.type(Application.JSON_CONTENT_TYPE);
+        return stored.getBody();
+    }
+
+    private StoredResponse find(ReplayOperation operation, String transactionId) {
+        String key = key(operation, transactionId);
+        StoredResponse stored = cache.get(key, ignored -> load(operation, transactionId));
+        if (stored != null && stored.getCreateDatetime().isBefore(LocalDateTime.now().minus(timeToLive))) {
+            cache.invalidate(key);
+            return null;
+        }
+        return stored;
+    }
+
+    private StoredResponse load(ReplayOperation operation, String transactionId) {
+        //A stored response always has an idempotency key, so an id the filter has never seen has no response
+        if (transactionIdFilter != null && !transactionIdFilter.mightContain(transactionId))
+            return null;
+        return repository.find(transactionId, operation, LocalDateTime.now().minus(timeToLive)).orElse(null);
+    }
+
+    void purgeExpired() {
+        try {
+            int deleted = repository.deleteCreatedBefore(LocalDateTime.now().minus(timeToLive));
+            log.debug("Purged {} expired responses.", deleted);
+        } catch (RuntimeException e) {
+            log.warn("Could not purge expired responses.", e);
+        }
+    }
+
+    private static String key(ReplayOperation operation, String transactionId) {
+        return operation.name() + ':' + transactionId;
+    }
+}
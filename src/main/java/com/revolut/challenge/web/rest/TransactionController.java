@@ -1,13 +1,26 @@
 package com.revolut.challenge.web.rest;
 
 
+import com.revolut.challenge.Application;
 import com.revolut.challenge.exception.ConstraintViolationException;
+import com.revolut.challenge.exception.ExceptionDetail;
+import com.revolut.challenge.exception.InvalidQueryParameterException;
+import com.revolut.challenge.exception.TransferBaseException;
+import com.revolut.challenge.model.Money;
+import com.revolut.challenge.model.enumeration.ReplayOperation;
+import com.revolut.challenge.service.AccountTransactionCommand;
+import com.revolut.challenge.service.AccountTransactionResult;
 import com.revolut.challenge.service.AccountTransactionService;
 import com.revolut.challenge.util.JsonUtils;
+import com.revolut.challenge.util.LineReader;
+import com.revolut.challenge.web.codec.CreateDepositRequestCodec;
+import com.revolut.challenge.web.codec.CreateWithdrawRequestCodec;
+import com.revolut.challenge.web.codec.ImportTransactionRequestCodec;
+import com.revolut.challenge.web.dto.AccountTransactionDTO;
 import com.revolut.challenge.web.dto.AccountTransactionDetails;
-import com.revolut.challenge.web.dto.CreateDepositRequestDTO;
-import com.revolut.challenge.web.dto.CreateWithdrawRequestDTO;
 import com.revolut.challenge.web.dto.CreateWithdrawResponseDTO;
+import com.revolut.challenge.web.dto.ImportErrorDTO;
+import com.revolut.challenge.web.dto.ImportProgressDTO;
 import lombok.extern.log4j.Log4j2;
 import org.apache.commons.lang3.StringUtils;
 import org.eclipse.jetty.http.HttpStatus;
@@ -15,69 +28,233 @@ import spark.Request;
 import spark.Response;
 import spark.Route;
 
-import javax.validation.Validator;
-import java.math.BigDecimal;
+import javax.servlet.http.HttpServletRequestWrapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Log4j2
 public class TransactionController {
+    public static final int IMPORT_BATCH_SIZE = 500;
+    public static final int IMPORT_MAX_LINE_LENGTH = 4096;
 
     private AccountTransactionService accountTransactionService;
-    private Validator validator;
+    private ResponseReplay responseReplay;
+    private final CreateWithdrawRequestCodec withdrawRequestCodec = new CreateWithdrawRequestCodec();
+    private final CreateDepositRequestCodec depositRequestCodec = new CreateDepositRequestCodec();
+    private final ImportTransactionRequestCodec importRequestCodec = new ImportTransactionRequestCodec();
 
-    public TransactionController(AccountTransactionService accountTransactionService, Validator validator) {
-        this.accountTransactionService = accountTransactionService;
-        this.validator = validator;
+    public TransactionController(AccountTransactionService accountTransactionService) {
+        this(accountTransactionService, null);
     }
 
-    private void validateDTO(Object requestDTO) {
-        var constraints = validator.validate(requestDTO);
-        if (!constraints.isEmpty()) {
-            log.error(constraints);
-            throw new ConstraintViolationException(constraints);
-        }
+    /**
+     * @param responseReplay replays responses of retried deposits and withdraws, {@code null} to reject retries as
+     *                       duplicates
+     */
+    public TransactionController(AccountTransactionService accountTransactionService, ResponseReplay responseReplay) {
+        this.accountTransactionService = accountTransactionService;
+        this.responseReplay = responseReplay;
     }
 
     public Route createWithdraw = (Request request, Response response) -> {
 
-        var requestDTO = JsonUtils.convertToObject(request.body(), CreateWithdrawRequestDTO.class);
-        validateDTO(requestDTO);
+        var requestDTO = JsonUtils.convertToObject(request.raw().getInputStream(), withdrawRequestCodec);
         String transactionId = getTransactionId(requestDTO.getTransactionId());
 
-        accountTransactionService.createWithdrawTransaction(requestDTO.getAccountNumber(),
-                new BigDecimal(requestDTO.getAmount()), transactionId, null);
+        return replayable(ReplayOperation.WITHDRAW, requestDTO.getTransactionId(),
+                requestDTO.getAccountNumber() + ':' + requestDTO.getAmount(), response, () -> {
+                    accountTransactionService.createWithdrawTransaction(requestDTO.getAccountNumber(),
+                            Money.ofUnits(requestDTO.getAmount()), transactionId, null);
 
-        response.status(HttpStatus.CREATED_201);
-        log.info("Withdraw from account-number={} with amount={} and transaction-id={}.", requestDTO.getAccountNumber(), requestDTO.getAmount(), transactionId);
-        return new CreateWithdrawResponseDTO(transactionId);
+                    response.status(HttpStatus.CREATED_201);
+                    log.debug("Withdraw from account-number={} with amount={} and transaction-id={}.", requestDTO.getAccountNumber(), requestDTO.getAmount(), transactionId);
+                    return new CreateWithdrawResponseDTO(transactionId);
+                });
     };
 
 
     public Route createDeposit = (Request request, Response response) -> {
 
-        var requestDTO = JsonUtils.convertToObject(request.body(), CreateDepositRequestDTO.class);
-        validateDTO(requestDTO);
+        var requestDTO = JsonUtils.convertToObject(request.raw().getInputStream(), depositRequestCodec);
         String transactionId = getTransactionId(requestDTO.getTransactionId());
 
-        accountTransactionService.createDepositTransaction(requestDTO.getAccountNumber(),
-                new BigDecimal(requestDTO.getAmount()),
-                transactionId, null);
+        return replayable(ReplayOperation.DEPOSIT, requestDTO.getTransactionId(),
+                requestDTO.getAccountNumber() + ':' + requestDTO.getAmount(), response, () -> {
+                    accountTransactionService.createDepositTransaction(requestDTO.getAccountNumber(),
+                            Money.ofUnits(requestDTO.getAmount()),
+                            transactionId, null);
 
-        response.status(HttpStatus.CREATED_201);
-        log.info("Deposit from account-number={} with amount={} and transaction-id={}.", requestDTO.getAccountNumber(), requestDTO.getAmount(), transactionId);
-        return new CreateWithdrawResponseDTO(transactionId);
+                    response.status(HttpStatus.CREATED_201);
+                    log.debug("Deposit from account-number={} with amount={} and transaction-id={}.", requestDTO.getAccountNumber(), requestDTO.getAmount(), transactionId);
+                    return new CreateWithdrawResponseDTO(transactionId);
+                });
     };
 
+    private Object replayable(ReplayOperation operation, String transactionId, String request, Response response, Supplier<Object> action) {
+        return responseReplay == null ? action.get() : responseReplay.execute(operation, transactionId, request, response, action);
+    }
+
     public Route getAccountTransactionList = (Request request, Response response) -> {
 
         String accountNumber = request.params().get(":account_number");
-        AccountTransactionDetails accountTransActionList = accountTransactionService.getAccountTransActionList(accountNumber);
+        int limit = getLimit(request.queryParams("limit"));
+        Long after = getAfter(request.queryParams("after"));
+        boolean newestFirst = isNewestFirst(request.queryParams("order"));
+        if (ETags.notModified(request, response, accountTransactionService.getAccountTransactionsVersion(accountNumber))) {
+            log.debug("Account transactions of account_number={} not modified", accountNumber);
+            return "";
+        }
+        AccountTransactionDetails accountTransActionList = accountTransactionService.getAccountTransActionList(accountNumber, after, limit, newestFirst);
 
         response.status(HttpStatus.CREATED_201);
-        log.info("Get Account transaction for account_number={}", accountNumber);
+        log.debug("Get Account transaction for account_number={}", accountNumber);
         return accountTransActionList;
     };
 
+    public Route exportAccountTransactions = (Request request, Response response) -> {
+
+        String accountNumber = request.params().get(":account_number");
+        response.status(HttpStatus.OK_200);
+        response.type(Application.NDJSON_CONTENT_TYPE);
+        try (var lines = JsonUtils.lineWriter(response.raw().getOutputStream(), AccountTransactionDTO.class)) {
+            //Nothing is written before the account is found, so an invalid account still gets an error response
+            accountTransactionService.exportAccountTransactions(accountNumber, lines::write);
+        }
+
+        log.debug("Exported account transactions for account_number={}", accountNumber);
+        return "";
+    };
+
+    /**
+     * Apply a newline delimited JSON file of deposits and withdrawals, {@link #IMPORT_BATCH_SIZE} lines per database
+     * transaction. Lines are parsed while the body arrives, so only one batch is held in memory; a line longer than
+     * {@link #IMPORT_MAX_LINE_LENGTH} is rejected without being held. The response is newline delimited JSON with the
+     * error of every rejected line and the progress after every batch; the last progress is done, a response without
+     * it was interrupted.
+     */
+    public Route importTransactions = (Request request, Response response) -> {
+
+        response.status(HttpStatus.OK_200);
+        response.type(Application.NDJSON_CONTENT_TYPE);
+        var progress = new ImportProgressDTO();
+        try (var reader = new LineReader(new InputStreamReader(unbufferedInputStream(request), StandardCharsets.UTF_8), IMPORT_MAX_LINE_LENGTH);
+             var lines = JsonUtils.lineWriter(response.raw().getOutputStream(), Object.class)) {
+            List<AccountTransactionCommand> commands = new ArrayList<>(IMPORT_BATCH_SIZE);
+            long[] lineNumbers = new long[IMPORT_BATCH_SIZE];
+
+            for (long lineNumber = 1; ; lineNumber++) {
+                try {
+                    String line = reader.readLine();
+                    if (line == null)
+                        break;
+                    if (line.isBlank())
+                        continue;
+                    var requestDTO = JsonUtils.convertToObject(line, importRequestCodec);
+                    lineNumbers[commands.size()] = lineNumber;
+                    commands.add(new AccountTransactionCommand(requestDTO.getTransactionType(),
+                            requestDTO.getAccountNumber(),
+                            Money.ofUnits(requestDTO.getAmount()),
+                            getTransactionId(requestDTO.getTransactionId())));
+                } catch (TransferBaseException e) {
+                    writeImportError(lines, progress, new ImportErrorDTO(lineNumber, null, e.getStatus(), e.getDetail()));
+                } catch (ConstraintViolationException e) {
+                    writeImportError(lines, progress, new ImportErrorDTO(lineNumber, null, HttpStatus.BAD_REQUEST_400,
+                            new ExceptionDetail(HttpStatus.BAD_REQUEST_400, String.join(System.lineSeparator(), e.getMessages()), "Invalid data")));
+                }
+                if (commands.size() == IMPORT_BATCH_SIZE)
+                    importBatch(commands, lineNumbers, lines, progress);
+            }
+            if (!commands.isEmpty())
+                importBatch(commands, lineNumbers, lines, progress);
+
+            progress.setDone(true);
+            lines.write(progress);
+        }
+        log.info("Imported {} transactions, applied={} failed={}.", progress.getProcessed(), progress.getApplied(), progress.getFailed());
+        return "";
+    };
+
+    /**
+     * Body of the request as Jetty receives it. Spark's request wrapper copies a body sent with a
+     * {@code Content-Length} into memory as a whole before the first byte can be read.
+     */
+    private static InputStream unbufferedInputStream(Request request) throws IOException {
+        var raw = request.raw();
+        if (raw instanceof HttpServletRequestWrapper)
+            return ((HttpServletRequestWrapper) raw).getRequest().getInputStream();
+        return raw.getInputStream();
+    }
+
+    private void importBatch(List<AccountTransactionCommand> commands, long[] lineNumbers,
+                             JsonUtils.LineWriter<Object> lines, ImportProgressDTO progress) {
+        List<AccountTransactionResult> results;
+        try {
+            results = accountTransactionService.createTransactions(commands);
+        } catch (TransferBaseException e) {
+            results = commands.stream()
+                    .map(command -> AccountTransactionResult.failed(command.getTransactionId(), e))
+                    .collect(Collectors.toList());
+        }
+
+        for (int i = 0; i < results.size(); i++) {
+            AccountTransactionResult result = results.get(i);
+            if (result.isDone()) {
+                progress.setProcessed(progress.getProcessed() + 1);
+                progress.setApplied(progress.getApplied() + 1);
+            } else {
+                writeImportError(lines, progress, new ImportErrorDTO(lineNumbers[i], result.getTransactionId(),
+                        result.getFailure().getStatus(), result.getFailure().getDetail()));
+            }
+        }
+        commands.clear();
+        lines.write(progress);
+        lines.flush();
+    }
+
+    private void writeImportError(JsonUtils.LineWriter<Object> lines, ImportProgressDTO progress, ImportErrorDTO error) {
+        progress.setProcessed(progress.getProcessed() + 1);
+        progress.setFailed(progress.getFailed() + 1);
+        lines.write(error);
+    }
+
+    private int getLimit(String limit) {
+        if (StringUtils.isEmpty(limit))
+            return AccountTransactionService.DEFAULT_PAGE_SIZE;
+        try {
+            int value = Integer.parseInt(limit);
+            if (value < 1 || value > AccountTransactionService.MAX_PAGE_SIZE)
+                throw new InvalidQueryParameterException("limit");
+            return value;
+        } catch (NumberFormatException e) {
+            throw new InvalidQueryParameterException("limit");
+        }
+    }
+
+    private Long getAfter(String after) {
+        if (StringUtils.isEmpty(after))
+            return null;
+        try {
+            return Long.valueOf(after);
+        } catch (NumberFormatException e) {
+            throw new InvalidQueryParameterException("after");
+        }
+    }
+
+    private boolean isNewestFirst(String order) {
+        if (StringUtils.isEmpty(order) || order.equals("asc"))
+            return false;
+        if (order.equals("desc"))
+            return true;
+        throw new InvalidQueryParameterException("order");
+    }
+
     private String getTransactionId(String transactionId) {
         return StringUtils.isEmpty(transactionId) ? UUID.randomUUID().toString() : transactionId;
     }
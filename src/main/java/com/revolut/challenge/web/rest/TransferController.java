@@ -1,10 +1,18 @@
 package com.revolut.challenge.web.rest;
 
 
-import com.revolut.challenge.exception.ConstraintViolationException;
+import com.revolut.challenge.exception.InvalidQueryParameterException;
+import com.revolut.challenge.model.Money;
+import com.revolut.challenge.model.enumeration.ReplayOperation;
+import com.revolut.challenge.service.TransferBatcher;
+import com.revolut.challenge.service.TransferCommand;
+import com.revolut.challenge.service.TransferResult;
 import com.revolut.challenge.service.TransferService;
 import com.revolut.challenge.util.JsonUtils;
+import com.revolut.challenge.web.codec.TransferMoneyRequestCodec;
 import com.revolut.challenge.web.dto.CreateWithdrawResponseDTO;
+import com.revolut.challenge.web.dto.TransferBatchItemDTO;
+import com.revolut.challenge.web.dto.TransferBatchResponseDTO;
 import com.revolut.challenge.web.dto.TransferMoneyRequestDTO;
 import lombok.extern.log4j.Log4j2;
 import org.apache.commons.lang3.StringUtils;
@@ -13,45 +21,106 @@ import spark.Request;
 import spark.Response;
 import spark.Route;
 
-import javax.validation.Validator;
-import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Log4j2
 public class TransferController {
+    public static final int MAX_BATCH_SIZE = 1000;
 
     private TransferService transferService;
-    private Validator validator;
+    private TransferBatcher transferBatcher;
+    private ResponseReplay responseReplay;
+    private final TransferMoneyRequestCodec transferRequestCodec = new TransferMoneyRequestCodec();
 
-    public TransferController(TransferService transferService, Validator validator) {
-        this.transferService = transferService;
-        this.validator = validator;
+    public TransferController(TransferService transferService) {
+        this(transferService, null);
     }
 
-    private void validateDTO(Object requestDTO) {
-        var constraints = validator.validate(requestDTO);
-        if (!constraints.isEmpty()) {
-            log.error(constraints);
-            throw new ConstraintViolationException(constraints);
-        }
+    /**
+     * @param transferBatcher groups concurrent transfers into one database transaction, {@code null} to apply
+     *                        every transfer in its own transaction
+     */
+    public TransferController(TransferService transferService, TransferBatcher transferBatcher) {
+        this(transferService, transferBatcher, null);
+    }
+
+    /**
+     * @param responseReplay replays responses of retried transfers, {@code null} to reject retries as duplicates
+     */
+    public TransferController(TransferService transferService, TransferBatcher transferBatcher, ResponseReplay responseReplay) {
+        this.transferService = transferService;
+        this.transferBatcher = transferBatcher;
+        this.responseReplay = responseReplay;
     }
 
     public Route transfer = (Request request, Response response) -> {
 
-        var requestDTO = JsonUtils.convertToObject(request.body(), TransferMoneyRequestDTO.class);
-        validateDTO(requestDTO);
+        var requestDTO = JsonUtils.convertToObject(request.raw().getInputStream(), transferRequestCodec);
 
         String transactionId = getTransactionId(requestDTO.getTransactionId());
-        transferService.createTransfer(requestDTO.getFromAccount(),
-                requestDTO.getToAccount(),
-                new BigDecimal(requestDTO.getAmount()),
-                transactionId);
-
-        response.status(HttpStatus.CREATED_201);
-        log.info("Transfer from account-number={} to account-number={} with amount={} and transaction-id={}.", requestDTO.getFromAccount(), requestDTO.getToAccount(), requestDTO.getAmount(), transactionId);
-        return new CreateWithdrawResponseDTO(transactionId);
+        return replayable(ReplayOperation.TRANSFER, requestDTO.getTransactionId(),
+                requestDTO.getFromAccount() + '>' + requestDTO.getToAccount() + ':' + requestDTO.getAmount(), response, () -> {
+                    if (transferBatcher != null) {
+                        transferBatcher.createTransfer(requestDTO.getFromAccount(),
+                                requestDTO.getToAccount(),
+                                Money.ofUnits(requestDTO.getAmount()),
+                                transactionId);
+                    } else {
+                        transferService.createTransfer(requestDTO.getFromAccount(),
+                                requestDTO.getToAccount(),
+                                Money.ofUnits(requestDTO.getAmount()),
+                                transactionId);
+                    }
+
+                    response.status(HttpStatus.CREATED_201);
+                    log.debug("Transfer from account-number={} to account-number={} with amount={} and transaction-id={}.", requestDTO.getFromAccount(), requestDTO.getToAccount(), requestDTO.getAmount(), transactionId);
+                    return new CreateWithdrawResponseDTO(transactionId);
+                });
     };
 
+    /**
+     * Apply up to {@link #MAX_BATCH_SIZE} transfers with one database transaction and report the result of each one.
+     * With {@code atomic=true} either all of them are applied or none.
+     */
+    public Route transferBatch = (Request request, Response response) -> {
+
+        boolean atomic = isAtomic(request.queryParams("atomic"));
+        var requestDTOs = JsonUtils.convertToList(request.raw().getInputStream(), transferRequestCodec, MAX_BATCH_SIZE);
+
+        List<TransferCommand> commands = new ArrayList<>(requestDTOs.size());
+        for (TransferMoneyRequestDTO requestDTO : requestDTOs) {
+            commands.add(new TransferCommand(requestDTO.getFromAccount(),
+                    requestDTO.getToAccount(),
+                    Money.ofUnits(requestDTO.getAmount()),
+                    getTransactionId(requestDTO.getTransactionId())));
+        }
+        List<TransferResult> results = transferService.createTransfers(commands, atomic);
+
+        response.status(HttpStatus.OK_200);
+        log.info("Transfer batch of {} transfers with atomic={}, {} applied.", commands.size(), atomic,
+                results.stream().filter(TransferResult::isDone).count());
+        return new TransferBatchResponseDTO(results.stream()
+                .map(result -> result.isDone()
+                        ? new TransferBatchItemDTO(result.getTransactionId(), HttpStatus.CREATED_201, null)
+                        : new TransferBatchItemDTO(result.getTransactionId(), result.getFailure().getStatus(), result.getFailure().getDetail()))
+                .collect(Collectors.toList()));
+    };
+
+    private Object replayable(ReplayOperation operation, String transactionId, String request, Response response, Supplier<Object> action) {
+        return responseReplay == null ? action.get() : responseReplay.execute(operation, transactionId, request, response, action);
+    }
+
+    private boolean isAtomic(String atomic) {
+        if (StringUtils.isEmpty(atomic) || atomic.equals("false"))
+            return false;
+        if (atomic.equals("true"))
+            return true;
+        throw new InvalidQueryParameterException("atomic");
+    }
 
     private String getTransactionId(String transactionId) {
         return StringUtils.isEmpty(transactionId) ? UUID.randomUUID().toString() : transactionId;
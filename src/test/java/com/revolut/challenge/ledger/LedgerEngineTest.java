@@ -0,0 +1,329 @@
+package com.revolut.challenge.ledger;
+
+import com.revolut.challenge.BaseIT;
+import com.revolut.challenge.exception.DuplicateTransactionException;
+import com.revolut.challenge.exception.IncompatibleCurrencyException;
+import com.revolut.challenge.exception.InsufficientBalanceException;
+import com.revolut.challenge.exception.InvalidAccountException;
+import com.revolut.challenge.jooq.Tables;
+import com.revolut.challenge.lock.DatabaseAccountLockStrategy;
+import com.revolut.challenge.model.AccountTransaction;
+import com.revolut.challenge.model.FinancialAccount;
+import com.revolut.challenge.model.Money;
+import com.revolut.challenge.model.enumeration.AccountStatusType;
+import com.revolut.challenge.model.enumeration.Currency;
+import com.revolut.challenge.model.enumeration.TransactionType;
+import com.revolut.challenge.model.enumeration.TransferStatusType;
+import com.revolut.challenge.repository.AccountTransactionRepository;
+import com.revolut.challenge.repository.FinancialAccountRepository;
+import com.revolut.challenge.repository.TransferRepository;
+import com.revolut.challenge.service.AccountTransactionService;
+import com.revolut.challenge.service.TransferService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+public class LedgerEngineTest extends BaseIT {
+
+    private static final FinancialAccountRepository financialAccountRepositoryTest = new FinancialAccountRepository(dataContext);
+    private static final AccountTransactionRepository accountTransactionRepositoryTest = new AccountTransactionRepository(dataContext);
+    private static final TransferRepository transferRepositoryTest = new TransferRepository(dataContext);
+
+    private static final List<String> CONCURRENT_ACCOUNTS = List.of("5130", "5131", "5132", "5133");
+
+    private static LedgerEngine ledgerEngine;
+    private static TransferService transferServiceTest;
+    private static AccountTransactionService accountTransactionServiceTest;
+
+    @BeforeAll
+    public static void prepareData() {
+        saveAccount("5100", 500, Currency.USD);
+        saveAccount("5101", 1000, Currency.USD);
+        saveAccount("5110", 100, Currency.USD);
+        saveAccount("5111", 0, Currency.USD);
+        saveAccount("5120", 100, Currency.USD);
+        saveAccount("5121", 100, Currency.EUR);
+        CONCURRENT_ACCOUNTS.forEach(accountNumber -> saveAccount(accountNumber, 1000, Currency.USD));
+
+        ledgerEngine = new LedgerEngine(dataContext, financialAccountRepositoryTest, accountTransactionRepositoryTest, transferRepositoryTest, 64, 16);
+        ledgerEngine.start();
+        transferServiceTest = new TransferService(financialAccountRepositoryTest, transferRepositoryTest, accountTransactionRepositoryTest, dataContext,
+                new DatabaseAccountLockStrategy(financialAccountRepositoryTest), ledgerEngine);
+        accountTransactionServiceTest = new AccountTransactionService(accountTransactionRepositoryTest, financialAccountRepositoryTest, dataContext,
+                new DatabaseAccountLockStrategy(financialAccountRepositoryTest), ledgerEngine);
+    }
+
+    @AfterAll
+    public static void stopEngine() {
+        ledgerEngine.stop();
+    }
+
+    @Test
+    public void shouldTransferInMemoryAndJournalToDatabase() {
+        var transactionId = UUID.randomUUID().toString();
+        transferServiceTest.createTransfer("5100", "5101", Money.ofUnits(100), transactionId);
+
+        assertThat(ledgerEngine.getBalance("5100")).hasValue(Money.ofUnits(400));
+        assertThat(ledgerEngine.getBalance("5101")).hasValue(Money.ofUnits(1100));
+
+        ledgerEngine.flush();
+        var fromAccount = financialAccountRepositoryTest.getByAccountNumber("5100");
+        var toAccount = financialAccountRepositoryTest.getByAccountNumber("5101");
+        assertThat(fromAccount.getBalance()).isEqualTo(Money.ofUnits(400));
+        assertThat(toAccount.getBalance()).isEqualTo(Money.ofUnits(1100));
+
+        var transfer = transferRepositoryTest.getTransferByAccounts(fromAccount.getId(), toAccount.getId(), TransferStatusType.DONE);
+        assertThat(transfer).isPresent();
+        List<AccountTransaction> legs = accountTransactionRepositoryTest.getAccountTransactionList(fromAccount.getId());
+        assertThat(legs).hasSize(1);
+        assertThat(legs.get(0).getTransactionType()).isEqualTo(TransactionType.WITHDRAW);
+        assertThat(legs.get(0).getTransfer()).isEqualTo(transfer.get().getId());
+        assertThat(legs.get(0).getTransactionId()).isEqualTo(transactionId);
+    }
+
+    @Test
+    public void shouldApplyDepositAndWithdrawAndRejectDuplicates() {
+        var depositId = UUID.randomUUID().toString();
+        accountTransactionServiceTest.createDepositTransaction("5111", Money.ofUnits(50), depositId);
+        assertThatThrownBy(() -> accountTransactionServiceTest.createDepositTransaction("5111", Money.ofUnits(50), depositId))
+                .isInstanceOf(DuplicateTransactionException.class);
+
+        var withdrawId = UUID.randomUUID().toString();
+        accountTransactionServiceTest.createWithdrawTransaction("5111", Money.ofUnits(20), withdrawId);
+        assertThatThrownBy(() -> accountTransactionServiceTest.createWithdrawTransaction("5111", Money.ofUnits(20), withdrawId))
+                .isInstanceOf(DuplicateTransactionException.class);
+        assertThatThrownBy(() -> accountTransactionServiceTest.createWithdrawTransaction("5111", Money.ofUnits(1000), UUID.randomUUID().toString()))
+                .isInstanceOf(InsufficientBalanceException.class);
+        assertThatThrownBy(() -> transferServiceTest.createTransfer("5110", "5111", Money.ofUnits(1), depositId))
+                .isInstanceOf(DuplicateTransactionException.class);
+        assertThat(ledgerEngine.getVersion("5111")).hasValue(2);
+
+        ledgerEngine.flush();
+        assertThat(financialAccountRepositoryTest.getByAccountNumber("5111").getBalance()).isEqualTo(Money.ofUnits(30));
+        assertThat(accountTransactionRepositoryTest.isTransactionPresent(depositId, TransactionType.DEPOSIT)).isTrue();
+        assertThat(accountTransactionRepositoryTest.isTransactionPresent(withdrawId, TransactionType.WITHDRAW)).isTrue();
+    }
+
+    @Test
+    public void shouldJournalRejectedTransferWhenBalanceIsInsufficient() {
+        assertThatThrownBy(() -> transferServiceTest.createTransfer("5110", "5100", Money.ofUnits(1000), UUID.randomUUID().toString()))
+                .isInstanceOf(InsufficientBalanceException.class);
+        assertThat(ledgerEngine.getBalance("5110")).hasValue(Money.ofUnits(100));
+
+        ledgerEngine.flush();
+        var fromAccount = financialAccountRepositoryTest.getByAccountNumber("5110");
+        var toAccount = financialAccountRepositoryTest.getByAccountNumber("5100");
+        assertThat(transferRepositoryTest.getTransferByAccounts(fromAccount.getId(), toAccount.getId(), TransferStatusType.INSUFFICIENT_BALANCE)).isPresent();
+        assertThat(fromAccount.getBalance()).isEqualTo(Money.ofUnits(100));
+    }
+
+    @Test
+    public void shouldRejectInvalidAccountsAndCurrencies() {
+        assertThatThrownBy(() -> transferServiceTest.createTransfer("5120", "5121", Money.ofUnits(1), UUID.randomUUID().toString()))
+                .isInstanceOf(IncompatibleCurrencyException.class);
+        assertThatThrownBy(() -> transferServiceTest.createTransfer("5120", "5199", Money.ofUnits(1), UUID.randomUUID().toString()))
+                .isInstanceOf(InvalidAccountException.class);
+        assertThatThrownBy(() -> accountTransactionServiceTest.createDepositTransaction("5199", Money.ofUnits(1), UUID.randomUUID().toString()))
+                .isInstanceOf(InvalidAccountException.class);
+    }
+
+    @Test
+    public void shouldKeepTotalBalanceUnderConcurrentTransfers() throws Exception {
+        int threads = 8;
+        int transfersPerThread = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                var random = ThreadLocalRandom.current();
+                for (int j = 0; j < transfersPerThread; j++) {
+                    int from = random.nextInt(CONCURRENT_ACCOUNTS.size());
+                    int to = (from + 1 + random.nextInt(CONCURRENT_ACCOUNTS.size() - 1)) % CONCURRENT_ACCOUNTS.size();
+                    try {
+                        transferServiceTest.createTransfer(CONCURRENT_ACCOUNTS.get(from), CONCURRENT_ACCOUNTS.get(to),
+                                Money.ofUnits(random.nextInt(1, 50)), UUID.randomUUID().toString());
+                    } catch (InsufficientBalanceException ignored) {
+                        //Expected when random transfers drain an account
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures)
+            future.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        long inMemoryTotal = CONCURRENT_ACCOUNTS.stream()
+                .mapToLong(accountNumber -> ledgerEngine.getBalance(accountNumber).orElseThrow())
+                .sum();
+        assertThat(inMemoryTotal).isEqualTo(Money.ofUnits(4000));
+
+        ledgerEngine.flush();
+        for (String accountNumber : CONCURRENT_ACCOUNTS) {
+            assertThat(financialAccountRepositoryTest.getByAccountNumber(accountNumber).getBalance())
+                    .isEqualTo(ledgerEngine.getBalance(accountNumber).orElseThrow());
+        }
+        var accountIds = CONCURRENT_ACCOUNTS.stream()
+                .map(accountNumber -> financialAccountRepositoryTest.getByAccountNumber(accountNumber).getId())
+                .toArray(Long[]::new);
+        int doneTransfers = dataContext.fetchCount(Tables.TRANSFER, Tables.TRANSFER.FROM_ACCOUNT.in(accountIds)
+                .and(Tables.TRANSFER.TRANSFER_STATUS_TYPE.eq(TransferStatusType.DONE)));
+        int legs = dataContext.fetchCount(Tables.ACCOUNT_TRANSACTION, Tables.ACCOUNT_TRANSACTION.FINANCIAL_ACCOUNT.in(accountIds));
+        assertThat(legs).isEqualTo(doneTransfers * 2);
+    }
+
+    @Test
+    public void shouldKeepVersionsOfAccountsAcrossRestart() throws Exception {
+        String accountNumber = "5140";
+        saveAccount(accountNumber, 0, Currency.USD);
+        long initialVersion = financialAccountRepositoryTest.getVersion(accountNumber);
+        var engine = new LedgerEngine(dataContext, financialAccountRepositoryTest, accountTransactionRepositoryTest, transferRepositoryTest, 64, 16);
+        engine.start();
+        //Concurrent deposits, so that the journal writes several of them in one batch
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < 25; j++)
+                    engine.deposit(accountNumber, Money.ofUnits(1), UUID.randomUUID().toString(), null);
+            }));
+        }
+        for (Future<?> future : futures)
+            future.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+        long version = engine.getVersion(accountNumber).orElseThrow();
+        engine.stop();
+
+        assertThat(version).isEqualTo(initialVersion + 100);
+        assertThat(financialAccountRepositoryTest.getVersion(accountNumber)).isEqualTo(version);
+
+        //A version that was handed out before the restart is never reused for another balance
+        var restarted = new LedgerEngine(dataContext, financialAccountRepositoryTest, accountTransactionRepositoryTest, transferRepositoryTest, 64, 16);
+        restarted.start();
+        try {
+            restarted.deposit(accountNumber, Money.ofUnits(1), UUID.randomUUID().toString(), null);
+            assertThat(restarted.getVersion(accountNumber)).hasValue(version + 1);
+            assertThat(restarted.getBalance(accountNumber)).hasValue(Money.ofUnits(101));
+        } finally {
+            restarted.stop();
+        }
+    }
+
+    @Test
+    public void shouldLoadAccountsOnCallerThreadAndRejectIdsUsedBeforeStartOrAlreadyJournaled() {
+        String accountNumber = "5170";
+        saveAccount(accountNumber, 100, Currency.USD);
+        String usedBeforeStart = UUID.randomUUID().toString();
+        new AccountTransactionService(accountTransactionRepositoryTest, financialAccountRepositoryTest, dataContext)
+                .createDepositTransaction(accountNumber, Money.ofUnits(1), usedBeforeStart);
+        Set<String> loadingThreads = ConcurrentHashMap.newKeySet();
+        var recordingRepository = new FinancialAccountRepository(dataContext) {
+            @Override
+            public FinancialAccount getByAccountNumber(String accountNumber) {
+                loadingThreads.add(Thread.currentThread().getName());
+                return super.getByAccountNumber(accountNumber);
+            }
+        };
+        var engine = new LedgerEngine(dataContext, recordingRepository, accountTransactionRepositoryTest, transferRepositoryTest, 64, 16);
+        engine.start();
+        try {
+            assertThatThrownBy(() -> engine.deposit(accountNumber, Money.ofUnits(1), usedBeforeStart, null))
+                    .isInstanceOf(DuplicateTransactionException.class);
+
+            String journaled = UUID.randomUUID().toString();
+            engine.withdraw(accountNumber, Money.ofUnits(1), journaled, null);
+            assertThatThrownBy(() -> engine.withdraw(accountNumber, Money.ofUnits(1), journaled, null))
+                    .isInstanceOf(DuplicateTransactionException.class);
+            //Once written the id is no longer pending in the journal and is found in the database
+            engine.flush();
+            assertThatThrownBy(() -> engine.withdraw(accountNumber, Money.ofUnits(1), journaled, null))
+                    .isInstanceOf(DuplicateTransactionException.class);
+            engine.deposit(accountNumber, Money.ofUnits(1), journaled, null);
+
+            assertThat(engine.getBalance(accountNumber)).hasValue(Money.ofUnits(101));
+            assertThat(loadingThreads).isNotEmpty().doesNotContain("LedgerSequencer");
+        } finally {
+            engine.stop();
+        }
+    }
+
+    @Test
+    public void shouldAnswerEveryCallerWhenStoppedWhileCommandsArrive() throws Exception {
+        String accountNumber = "5150";
+        saveAccount(accountNumber, 0, Currency.USD);
+        for (int round = 0; round < 10; round++) {
+            var engine = new LedgerEngine(dataContext, financialAccountRepositoryTest, accountTransactionRepositoryTest, transferRepositoryTest, 64, 16);
+            engine.start();
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(() -> {
+                    try {
+                        while (true)
+                            engine.deposit(accountNumber, Money.ofUnits(1), UUID.randomUUID().toString(), null);
+                    } catch (IllegalStateException stopped) {
+                        //Expected once the engine is stopped
+                    }
+                }));
+            }
+            Thread.sleep(20);
+            engine.stop();
+            //A command accepted while the engine stopped would leave its caller waiting
+            for (Future<?> future : futures)
+                future.get(10, TimeUnit.SECONDS);
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldDropJournalEntryViolatingConstraintAndWriteTheOthers() {
+        String accountNumber = "5160";
+        saveAccount(accountNumber, 0, Currency.USD);
+        long accountId = financialAccountRepositoryTest.getByAccountNumber(accountNumber).getId();
+        long dropped = ledgerEngine.getDroppedJournalEntries();
+        //Used behind the back of the engine, which loaded the transaction ids when it started
+        String usedTransactionId = UUID.randomUUID().toString();
+        accountTransactionRepositoryTest.insertIdempotencyKeyQuery(dataContext, usedTransactionId, TransactionType.DEPOSIT,
+                LocalDateTime.now()).execute();
+
+        accountTransactionServiceTest.createDepositTransaction(accountNumber, Money.ofUnits(1), UUID.randomUUID().toString());
+        accountTransactionServiceTest.createDepositTransaction(accountNumber, Money.ofUnits(1), usedTransactionId);
+        accountTransactionServiceTest.createDepositTransaction(accountNumber, Money.ofUnits(1), UUID.randomUUID().toString());
+        assertTimeoutPreemptively(Duration.ofSeconds(10), ledgerEngine::flush);
+
+        assertThat(ledgerEngine.getDroppedJournalEntries()).isEqualTo(dropped + 1);
+        assertThat(ledgerEngine.getLastJournalFailure().sqlState()).startsWith("23");
+        assertThat(accountTransactionRepositoryTest.getAccountTransactionList(accountId)).hasSize(2);
+        assertThat(financialAccountRepositoryTest.getByAccountNumber(accountNumber).getBalance()).isEqualTo(Money.ofUnits(3));
+
+        accountTransactionServiceTest.createDepositTransaction(accountNumber, Money.ofUnits(1), UUID.randomUUID().toString());
+        assertTimeoutPreemptively(Duration.ofSeconds(10), ledgerEngine::flush);
+        assertThat(financialAccountRepositoryTest.getByAccountNumber(accountNumber).getBalance()).isEqualTo(Money.ofUnits(4));
+    }
+
+    private static void saveAccount(String accountNumber, long balance, Currency currency) {
+        financialAccountRepositoryTest.save(FinancialAccount.builder()
+                .accountNumber(accountNumber)
+                .accountStatusType(AccountStatusType.ACTIVE)
+                .createDatetime(LocalDateTime.now())
+                .balance(Money.ofUnits(balance))
+                .currency(currency)
+                .build());
+    }
+}
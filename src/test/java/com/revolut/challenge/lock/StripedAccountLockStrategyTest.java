@@ -0,0 +1,138 @@
+package com.revolut.challenge.lock;
+
+import com.revolut.challenge.BaseIT;
+import com.revolut.challenge.exception.AccountLockTimeoutException;
+import com.revolut.challenge.exception.InsufficientBalanceException;
+import com.revolut.challenge.model.FinancialAccount;
+import com.revolut.challenge.model.Money;
+import com.revolut.challenge.model.enumeration.AccountStatusType;
+import com.revolut.challenge.model.enumeration.Currency;
+import com.revolut.challenge.repository.AccountTransactionRepository;
+import com.revolut.challenge.repository.FinancialAccountRepository;
+import com.revolut.challenge.repository.TransferRepository;
+import com.revolut.challenge.service.AccountTransactionService;
+import com.revolut.challenge.service.TransferService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class StripedAccountLockStrategyTest extends BaseIT {
+
+    private static final FinancialAccountRepository financialAccountRepositoryTest = new FinancialAccountRepository(dataContext);
+    private static final AccountTransactionRepository accountTransactionRepositoryTest = new AccountTransactionRepository(dataContext);
+    private static final TransferRepository transferRepositoryTest = new TransferRepository(dataContext);
+
+    private static final StripedAccountLockStrategy lockStrategy =
+            new StripedAccountLockStrategy(financialAccountRepositoryTest, 64, Duration.ofSeconds(5));
+
+    private static final TransferService transferServiceTest = new TransferService(financialAccountRepositoryTest,
+            transferRepositoryTest, accountTransactionRepositoryTest, dataContext, lockStrategy, null);
+    private static final AccountTransactionService accountTransactionServiceTest = new AccountTransactionService(
+            accountTransactionRepositoryTest, financialAccountRepositoryTest, dataContext, lockStrategy, null);
+
+    @BeforeAll
+    public static void prepareData() {
+        saveAccount("8900", 10000);
+        saveAccount("8901", 10000);
+        saveAccount("8910", 0);
+    }
+
+    @Test
+    public void shouldNotDeadlockOnOpposingConcurrentTransfers() throws Exception {
+        int threads = 16;
+        int transfersPerThread = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            boolean forward = i % 2 == 0;
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < transfersPerThread; j++) {
+                    transferServiceTest.createTransfer(forward ? "8900" : "8901", forward ? "8901" : "8900",
+                            Money.ofUnits(1), UUID.randomUUID().toString());
+                }
+            }));
+        }
+        for (Future<?> future : futures)
+            future.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertThat(financialAccountRepositoryTest.getByAccountNumber("8900").getBalance()).isEqualTo(Money.ofUnits(10000));
+        assertThat(financialAccountRepositoryTest.getByAccountNumber("8901").getBalance()).isEqualTo(Money.ofUnits(10000));
+    }
+
+    @Test
+    public void shouldSerializeConcurrentDepositsAndWithdrawals() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < 25; j++) {
+                    accountTransactionServiceTest.createDepositTransaction("8910", Money.ofUnits(2), UUID.randomUUID().toString());
+                    accountTransactionServiceTest.createWithdrawTransaction("8910", Money.ofUnits(1), UUID.randomUUID().toString());
+                }
+            }));
+        }
+        for (Future<?> future : futures)
+            future.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertThat(financialAccountRepositoryTest.getByAccountNumber("8910").getBalance()).isEqualTo(Money.ofUnits(200));
+        assertThatThrownBy(() -> accountTransactionServiceTest.createWithdrawTransaction("8910", Money.ofUnits(201), UUID.randomUUID().toString()))
+                .isInstanceOf(InsufficientBalanceException.class);
+    }
+
+    @Test
+    public void shouldTimeOutWhenAccountIsLockedByAnotherThread() throws Exception {
+        var strategy = new StripedAccountLockStrategy(financialAccountRepositoryTest, 16, Duration.ofMillis(50));
+        var locked = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var holder = new Thread(() -> strategy.runLocked(List.of("8920"), () -> {
+            locked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        holder.start();
+        locked.await();
+
+        assertThatThrownBy(() -> strategy.runLocked(List.of("8921", "8920"), () -> {
+        })).isInstanceOf(AccountLockTimeoutException.class);
+
+        release.countDown();
+        holder.join();
+        assertThat(strategy.callLocked(List.of("8921", "8920"), () -> "done")).isEqualTo("done");
+    }
+
+    @Test
+    public void shouldLockAccountsSharingAStripeOnce() {
+        var strategy = new StripedAccountLockStrategy(financialAccountRepositoryTest, 1, Duration.ofMillis(50));
+        assertThat(strategy.stripeIndex("8900")).isEqualTo(strategy.stripeIndex("8901"));
+        assertThat(strategy.callLocked(List.of("8900", "8901", "8900"), () -> "done")).isEqualTo("done");
+    }
+
+    private static void saveAccount(String accountNumber, long balance) {
+        financialAccountRepositoryTest.save(FinancialAccount.builder()
+                .accountNumber(accountNumber)
+                .accountStatusType(AccountStatusType.ACTIVE)
+                .createDatetime(LocalDateTime.now())
+                .balance(Money.ofUnits(balance))
+                .currency(Currency.USD)
+                .build());
+    }
+}
@@ -0,0 +1,38 @@
+package com.revolut.challenge.model;
+
+import com.revolut.challenge.exception.AmountOutOfRangeException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class MoneyTest {
+
+    @Test
+    public void shouldConvertUnitsAndDecimalsToMinorUnits() {
+        assertThat(Money.ofUnits(100)).isEqualTo(10000L);
+        assertThat(Money.fromDecimal(new BigDecimal("12.34"))).isEqualTo(1234L);
+        assertThat(Money.fromDecimal(new BigDecimal("7"))).isEqualTo(700L);
+        assertThat(Money.toDecimal(1234L)).isEqualTo(new BigDecimal("12.34"));
+        assertThat(Money.toDecimal(0L)).isEqualTo(new BigDecimal("0.00"));
+    }
+
+    @Test
+    public void shouldAddAndSubtractMinorUnits() {
+        assertThat(Money.add(Money.ofUnits(5), 25)).isEqualTo(525L);
+        assertThat(Money.subtract(Money.ofUnits(5), 25)).isEqualTo(475L);
+        assertThat(Money.abs(-25)).isEqualTo(25L);
+    }
+
+    @Test
+    public void shouldThrowAmountOutOfRangeInsteadOfOverflowing() {
+        assertThatThrownBy(() -> Money.ofUnits(Long.MAX_VALUE / 10)).isInstanceOf(AmountOutOfRangeException.class);
+        assertThatThrownBy(() -> Money.add(Long.MAX_VALUE, 1)).isInstanceOf(AmountOutOfRangeException.class);
+        assertThatThrownBy(() -> Money.subtract(Long.MIN_VALUE, 1)).isInstanceOf(AmountOutOfRangeException.class);
+        assertThatThrownBy(() -> Money.abs(Long.MIN_VALUE)).isInstanceOf(AmountOutOfRangeException.class);
+        assertThatThrownBy(() -> Money.fromDecimal(new BigDecimal("0.001"))).isInstanceOf(AmountOutOfRangeException.class);
+        assertThatThrownBy(() -> Money.fromDecimal(new BigDecimal("1E+30"))).isInstanceOf(AmountOutOfRangeException.class);
+    }
+}
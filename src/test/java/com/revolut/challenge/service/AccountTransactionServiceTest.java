@@ -4,20 +4,35 @@ import com.revolut.challenge.BaseIT;
 import com.revolut.challenge.exception.DuplicateTransactionException;
 import com.revolut.challenge.exception.InsufficientBalanceException;
 import com.revolut.challenge.exception.InvalidAccountException;
+import com.revolut.challenge.lock.DatabaseAccountLockStrategy;
+import com.revolut.challenge.model.AccountTransaction;
 import com.revolut.challenge.model.FinancialAccount;
+import com.revolut.challenge.model.Money;
 import com.revolut.challenge.model.enumeration.AccountStatusType;
 import com.revolut.challenge.model.enumeration.Currency;
 import com.revolut.challenge.model.enumeration.TransactionType;
 import com.revolut.challenge.repository.AccountTransactionRepository;
 import com.revolut.challenge.repository.FinancialAccountRepository;
 import lombok.extern.slf4j.Slf4j;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.jooq.DSLContext;
+import org.jooq.ExecuteContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultExecuteListener;
+import org.jooq.impl.DefaultExecuteListenerProvider;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -36,7 +51,7 @@ public class AccountTransactionServiceTest extends BaseIT {
                 .accountNumber("0000")
                 .accountStatusType(AccountStatusType.ACTIVE)
                 .createDatetime(LocalDateTime.now())
-                .balance(new BigDecimal("500"))
+                .balance(Money.ofUnits(500))
                 .currency(Currency.USD)
                 .build());
 
@@ -44,7 +59,7 @@ public class AccountTransactionServiceTest extends BaseIT {
                 .accountNumber("1111")
                 .accountStatusType(AccountStatusType.ACTIVE)
                 .createDatetime(LocalDateTime.now())
-                .balance(new BigDecimal("1000"))
+                .balance(Money.ofUnits(1000))
                 .currency(Currency.USD)
                 .build());
     }
@@ -53,11 +68,11 @@ public class AccountTransactionServiceTest extends BaseIT {
     public void shouldCreateDepositForGivenAccountSuccessfully() {
         String accountNumber = "0000";
         String transactionId = UUID.randomUUID().toString();
-        financialAccountRepositoryTest.updateBalance(dataContext, accountNumber, new BigDecimal("500"));
+        financialAccountRepositoryTest.updateBalance(dataContext, accountNumber, Money.ofUnits(500));
 
-        accountTransactionServiceTest.createDepositTransaction(accountNumber, new BigDecimal(100), transactionId);
+        accountTransactionServiceTest.createDepositTransaction(accountNumber, Money.ofUnits(100), transactionId);
 
-        assertThat(financialAccountRepositoryTest.getByAccountNumber(accountNumber).getBalance()).isEqualTo(new BigDecimal("600.00"));
+        assertThat(financialAccountRepositoryTest.getByAccountNumber(accountNumber).getBalance()).isEqualTo(Money.ofUnits(600));
     }
 
     @Test
@@ -65,10 +80,10 @@ public class AccountTransactionServiceTest extends BaseIT {
         String accountNumber = "0000";
         String transactionId = UUID.randomUUID().toString();
 
-        accountTransactionServiceTest.createDepositTransaction(accountNumber, new BigDecimal(100), transactionId);
+        accountTransactionServiceTest.createDepositTransaction(accountNumber, Money.ofUnits(100), transactionId);
 
         assertThatThrownBy(() ->
-                accountTransactionServiceTest.createDepositTransaction(accountNumber, new BigDecimal(100), transactionId))
+                accountTransactionServiceTest.createDepositTransaction(accountNumber, Money.ofUnits(100), transactionId))
                 .isInstanceOf(DuplicateTransactionException.class)
                 .hasMessage("Transaction id is duplicated");
 
@@ -80,7 +95,7 @@ public class AccountTransactionServiceTest extends BaseIT {
         String transactionId = UUID.randomUUID().toString();
 
         assertThatThrownBy(() ->
-                accountTransactionServiceTest.createDepositTransaction(accountNumber, new BigDecimal(100), transactionId))
+                accountTransactionServiceTest.createDepositTransaction(accountNumber, Money.ofUnits(100), transactionId))
                 .isInstanceOf(InvalidAccountException.class)
                 .hasMessage("Invalid Account number INVALID_ACCOUNT");
     }
@@ -90,11 +105,11 @@ public class AccountTransactionServiceTest extends BaseIT {
         String accountNumber = "0000";
         String transactionId = UUID.randomUUID().toString();
 
-        financialAccountRepositoryTest.updateBalance(dataContext, accountNumber, new BigDecimal("500"));
+        financialAccountRepositoryTest.updateBalance(dataContext, accountNumber, Money.ofUnits(500));
 
-        accountTransactionServiceTest.createWithdrawTransaction(accountNumber, new BigDecimal(100), transactionId);
+        accountTransactionServiceTest.createWithdrawTransaction(accountNumber, Money.ofUnits(100), transactionId);
 
-        assertThat(financialAccountRepositoryTest.getByAccountNumber(accountNumber).getBalance()).isEqualTo(new BigDecimal("400.00"));
+        assertThat(financialAccountRepositoryTest.getByAccountNumber(accountNumber).getBalance()).isEqualTo(Money.ofUnits(400));
         assertThat(accountTransactionRepositoryTest.isTransactionPresent(transactionId, TransactionType.WITHDRAW)).isTrue();
     }
 
@@ -103,9 +118,9 @@ public class AccountTransactionServiceTest extends BaseIT {
         String accountNumber = "0000";
         String transactionId = UUID.randomUUID().toString();
 
-        financialAccountRepositoryTest.updateBalance(dataContext, accountNumber, new BigDecimal("500"));
+        financialAccountRepositoryTest.updateBalance(dataContext, accountNumber, Money.ofUnits(500));
 
-        assertThatThrownBy(() -> accountTransactionServiceTest.createWithdrawTransaction(accountNumber, new BigDecimal(700), transactionId))
+        assertThatThrownBy(() -> accountTransactionServiceTest.createWithdrawTransaction(accountNumber, Money.ofUnits(700), transactionId))
                 .isInstanceOf(InsufficientBalanceException.class)
                 .hasMessage("Balance is insufficient");
 
@@ -117,7 +132,7 @@ public class AccountTransactionServiceTest extends BaseIT {
         String transactionId = UUID.randomUUID().toString();
 
         assertThatThrownBy(() ->
-                accountTransactionServiceTest.createWithdrawTransaction(accountNumber, new BigDecimal(100), transactionId))
+                accountTransactionServiceTest.createWithdrawTransaction(accountNumber, Money.ofUnits(100), transactionId))
                 .isInstanceOf(InvalidAccountException.class)
                 .hasMessage("Invalid Account number INVALID_ACCOUNT");
     }
@@ -127,14 +142,281 @@ public class AccountTransactionServiceTest extends BaseIT {
         String accountNumber = "0000";
         String transactionId = UUID.randomUUID().toString();
 
-        accountTransactionServiceTest.createWithdrawTransaction(accountNumber, new BigDecimal(100), transactionId);
+        accountTransactionServiceTest.createWithdrawTransaction(accountNumber, Money.ofUnits(100), transactionId);
 
         assertThatThrownBy(() ->
-                accountTransactionServiceTest.createWithdrawTransaction(accountNumber, new BigDecimal(100), transactionId))
+                accountTransactionServiceTest.createWithdrawTransaction(accountNumber, Money.ofUnits(100), transactionId))
                 .isInstanceOf(DuplicateTransactionException.class)
                 .hasMessage("Transaction id is duplicated");
     }
 
+    @Test
+    public void shouldApplyConcurrentDepositsWithSameTransactionIdOnce() throws Exception {
+        String accountNumber = "4400";
+        String transactionId = UUID.randomUUID().toString();
+        financialAccountRepositoryTest.save(FinancialAccount.builder()
+                .accountNumber(accountNumber)
+                .accountStatusType(AccountStatusType.ACTIVE)
+                .createDatetime(LocalDateTime.now())
+                .balance(0)
+                .currency(Currency.USD)
+                .build());
+
+        var executor = Executors.newFixedThreadPool(8);
+        var duplicates = new AtomicInteger();
+        try {
+            var deposits = new ArrayList<Future<?>>();
+            for (int i = 0; i < 8; i++) {
+                deposits.add(executor.submit(() -> {
+                    try {
+                        accountTransactionServiceTest.createDepositTransaction(accountNumber, Money.ofUnits(100), transactionId);
+                    } catch (DuplicateTransactionException e) {
+                        duplicates.incrementAndGet();
+                    }
+                }));
+            }
+            for (Future<?> deposit : deposits)
+                deposit.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(duplicates.get()).isEqualTo(7);
+        assertThat(financialAccountRepositoryTest.getByAccountNumber(accountNumber).getBalance()).isEqualTo(Money.ofUnits(100));
+    }
+
+    @Test
+    public void shouldSpreadDepositsOverSlotsOfSplitAccountAndGatherThemOnWithdraw() throws Exception {
+        String accountNumber = "5200";
+        financialAccountRepositoryTest.save(FinancialAccount.builder()
+                .accountNumber(accountNumber)
+                .accountStatusType(AccountStatusType.ACTIVE)
+                .createDatetime(LocalDateTime.now())
+                .balance(Money.ofUnits(1000))
+                .currency(Currency.USD)
+                .balanceSlots(8)
+                .build());
+        var splitService = new AccountTransactionService(accountTransactionRepositoryTest, financialAccountRepositoryTest, dataContext,
+                new DatabaseAccountLockStrategy(financialAccountRepositoryTest), null,
+                new BalanceSlots(financialAccountRepositoryTest, BalanceSlotSelection.ROUND_ROBIN));
+        long version = financialAccountRepositoryTest.getVersion(accountNumber);
+
+        var executor = Executors.newFixedThreadPool(8);
+        try {
+            var operations = new ArrayList<Future<?>>();
+            for (int thread = 0; thread < 8; thread++) {
+                boolean deposit = thread % 4 != 0;
+                operations.add(executor.submit(() -> {
+                    for (int i = 0; i < 25; i++) {
+                        if (deposit)
+                            splitService.createDepositTransaction(accountNumber, Money.ofUnits(1), UUID.randomUUID().toString());
+                        else
+                            splitService.createWithdrawTransaction(accountNumber, Money.ofUnits(1), UUID.randomUUID().toString());
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> operation : operations)
+                operation.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdown();
+        }
+
+        //150 deposits and 50 withdrawals
+        assertThat(financialAccountRepositoryTest.getByAccountNumber(accountNumber).getBalance()).isEqualTo(Money.ofUnits(1100));
+        assertThat(financialAccountRepositoryTest.getVersion(accountNumber)).isGreaterThanOrEqualTo(version + 200);
+        assertThat(financialAccountRepositoryTest.getAccountMetadata(accountNumber).getBalanceSlots()).isEqualTo(8);
+
+        splitService.createWithdrawTransaction(accountNumber, Money.ofUnits(1100), UUID.randomUUID().toString());
+        assertThat(financialAccountRepositoryTest.getByAccountNumber(accountNumber).getBalance()).isEqualTo(0);
+        assertThatThrownBy(() -> splitService.createWithdrawTransaction(accountNumber, Money.ofUnits(1), UUID.randomUUID().toString()))
+                .isInstanceOf(InsufficientBalanceException.class);
+    }
+
+    @Test
+    public void shouldApplyCommutativeDepositsConcurrentlyWithWithdrawals() throws Exception {
+        String accountNumber = "5220";
+        financialAccountRepositoryTest.save(FinancialAccount.builder()
+                .accountNumber(accountNumber)
+                .accountStatusType(AccountStatusType.ACTIVE)
+                .createDatetime(LocalDateTime.now())
+                .balance(Money.ofUnits(100))
+                .currency(Currency.USD)
+                .build());
+        var commutativeService = new AccountTransactionService(accountTransactionRepositoryTest, financialAccountRepositoryTest, dataContext,
+                new DatabaseAccountLockStrategy(financialAccountRepositoryTest), null,
+                new BalanceSlots(financialAccountRepositoryTest, BalanceSlotSelection.HASH), DepositMode.COMMUTATIVE);
+
+        var executor = Executors.newFixedThreadPool(8);
+        try {
+            var operations = new ArrayList<Future<?>>();
+            for (int thread = 0; thread < 8; thread++) {
+                boolean deposit = thread % 4 != 0;
+                operations.add(executor.submit(() -> {
+                    for (int i = 0; i < 25; i++) {
+                        if (deposit)
+                            commutativeService.createDepositTransaction(accountNumber, Money.ofUnits(1), UUID.randomUUID().toString());
+                        else
+                            commutativeService.createWithdrawTransaction(accountNumber, Money.ofUnits(1), UUID.randomUUID().toString());
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> operation : operations)
+                operation.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdown();
+        }
+
+        //150 deposits and 50 withdrawals
+        assertThat(financialAccountRepositoryTest.getByAccountNumber(accountNumber).getBalance()).isEqualTo(Money.ofUnits(200));
+        long accountId = financialAccountRepositoryTest.getAccountMetadata(accountNumber).getId();
+        var transactions = accountTransactionRepositoryTest.getAccountTransactionPage(accountId, null, 1000, false);
+        assertThat(transactions).hasSize(200);
+        //Transactions are inserted while the account row is locked, so every one records the balance right after it
+        long balance = Money.ofUnits(100);
+        for (AccountTransaction transaction : transactions) {
+            balance += transaction.getTransactionType() == TransactionType.DEPOSIT ? transaction.getAmount() : -transaction.getAmount();
+            assertThat(transaction.getBalance()).isEqualTo(balance);
+        }
+    }
+
+    @Test
+    public void shouldRejectDuplicateAndInvalidCommutativeDeposits() {
+        String accountNumber = "5221";
+        financialAccountRepositoryTest.save(FinancialAccount.builder()
+                .accountNumber(accountNumber)
+                .accountStatusType(AccountStatusType.ACTIVE)
+                .createDatetime(LocalDateTime.now())
+                .balance(0)
+                .currency(Currency.USD)
+                .build());
+        var commutativeService = new AccountTransactionService(accountTransactionRepositoryTest, financialAccountRepositoryTest, dataContext,
+                new DatabaseAccountLockStrategy(financialAccountRepositoryTest), null,
+                new BalanceSlots(financialAccountRepositoryTest, BalanceSlotSelection.HASH), DepositMode.COMMUTATIVE);
+        String transactionId = UUID.randomUUID().toString();
+        assertThat(financialAccountRepositoryTest.getByAccountNumber(accountNumber).getBalance()).isEqualTo(0);
+
+        commutativeService.createDepositTransaction(accountNumber, Money.ofUnits(5), transactionId);
+
+        assertThat(financialAccountRepositoryTest.getByAccountNumber(accountNumber).getBalance()).isEqualTo(Money.ofUnits(5));
+        assertThatThrownBy(() -> commutativeService.createDepositTransaction(accountNumber, Money.ofUnits(5), transactionId))
+                .isInstanceOf(DuplicateTransactionException.class);
+        assertThatThrownBy(() -> commutativeService.createDepositTransaction("5299", Money.ofUnits(5), UUID.randomUUID().toString()))
+                .isInstanceOf(InvalidAccountException.class);
+        assertThat(financialAccountRepositoryTest.getByAccountNumber(accountNumber).getBalance()).isEqualTo(Money.ofUnits(5));
+    }
+
+    @Test
+    public void shouldNotTakeSecondConnectionForCommutativeDeposit() throws Exception {
+        String accountNumber = "5222";
+        financialAccountRepositoryTest.save(FinancialAccount.builder()
+                .accountNumber(accountNumber)
+                .accountStatusType(AccountStatusType.ACTIVE)
+                .createDatetime(LocalDateTime.now())
+                .balance(0)
+                .currency(Currency.USD)
+                .build());
+        //As many deposits as connections, none of them may wait for a second one
+        var pool = JdbcConnectionPool.create("jdbc:h2:mem:transfer", "sa", "");
+        pool.setMaxConnections(2);
+        pool.setLoginTimeout(5);
+        var limitedContext = DSL.using(pool, SQLDialect.H2);
+        //No metadata cache, so every deposit reads the account
+        var limitedRepository = new FinancialAccountRepository(limitedContext);
+        var commutativeService = new AccountTransactionService(new AccountTransactionRepository(limitedContext), limitedRepository, limitedContext,
+                new DatabaseAccountLockStrategy(limitedRepository), null,
+                new BalanceSlots(limitedRepository, BalanceSlotSelection.HASH), DepositMode.COMMUTATIVE);
+
+        var executor = Executors.newFixedThreadPool(2);
+        try {
+            var operations = new ArrayList<Future<?>>();
+            for (int thread = 0; thread < 2; thread++) {
+                operations.add(executor.submit(() -> {
+                    for (int i = 0; i < 20; i++)
+                        commutativeService.createDepositTransaction(accountNumber, Money.ofUnits(1), UUID.randomUUID().toString());
+                    return null;
+                }));
+            }
+            for (Future<?> operation : operations)
+                operation.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdown();
+            pool.dispose();
+        }
+
+        assertThat(financialAccountRepositoryTest.getByAccountNumber(accountNumber).getBalance()).isEqualTo(Money.ofUnits(40));
+    }
+
+    @Test
+    public void shouldLetLaterTransactionOfBatchUseIdOfOneRejectedForInsufficientBalance() {
+        String accountNumber = "5310";
+        financialAccountRepositoryTest.save(FinancialAccount.builder()
+                .accountNumber(accountNumber)
+                .accountStatusType(AccountStatusType.ACTIVE)
+                .createDatetime(LocalDateTime.now())
+                .balance(Money.ofUnits(100))
+                .currency(Currency.USD)
+                .build());
+        String transactionId = UUID.randomUUID().toString();
+
+        var results = accountTransactionServiceTest.createTransactions(List.of(
+                new AccountTransactionCommand(TransactionType.WITHDRAW, accountNumber, Money.ofUnits(150), transactionId),
+                new AccountTransactionCommand(TransactionType.WITHDRAW, accountNumber, Money.ofUnits(50), transactionId),
+                new AccountTransactionCommand(TransactionType.WITHDRAW, accountNumber, Money.ofUnits(10), transactionId)));
+
+        assertThat(results).extracting(AccountTransactionResult::isDone).containsExactly(false, true, false);
+        assertThat(results.get(0).getFailure()).isInstanceOf(InsufficientBalanceException.class);
+        assertThat(results.get(2).getFailure()).isInstanceOf(DuplicateTransactionException.class);
+        assertThat(financialAccountRepositoryTest.getByAccountNumber(accountNumber).getBalance()).isEqualTo(Money.ofUnits(50));
+    }
+
+    @Test
+    public void shouldExportHistoryReadingAtMostOneChunkOfRowsPerStatement() {
+        String accountNumber = "5300";
+        financialAccountRepositoryTest.save(FinancialAccount.builder()
+                .accountNumber(accountNumber)
+                .accountStatusType(AccountStatusType.ACTIVE)
+                .createDatetime(LocalDateTime.now())
+                .balance(Money.ofUnits(0))
+                .currency(Currency.USD)
+                .build());
+        long accountId = financialAccountRepositoryTest.getByAccountNumber(accountNumber).getId();
+        for (int i = 1; i <= 1201; i++) {
+            accountTransactionRepositoryTest.save(AccountTransaction.builder()
+                    .transactionId(UUID.randomUUID().toString())
+                    .createDatetime(LocalDateTime.now())
+                    .transactionType(TransactionType.DEPOSIT)
+                    .financialAccount(accountId)
+                    .amount(Money.ofUnits(1))
+                    .balance(Money.ofUnits(i))
+                    .build());
+        }
+        var statementRows = new AtomicInteger();
+        var maxStatementRows = new AtomicInteger();
+        DSLContext countingContext = DSL.using(dataContext.configuration().derive(new DefaultExecuteListenerProvider(new DefaultExecuteListener() {
+            @Override
+            public void executeStart(ExecuteContext ctx) {
+                statementRows.set(0);
+            }
+
+            @Override
+            public void recordEnd(ExecuteContext ctx) {
+                maxStatementRows.accumulateAndGet(statementRows.incrementAndGet(), Math::max);
+            }
+        })));
+        var exportService = new AccountTransactionService(new AccountTransactionRepository(countingContext),
+                new FinancialAccountRepository(countingContext), countingContext);
+
+        var balances = new ArrayList<Long>();
+        exportService.exportAccountTransactions(accountNumber, transaction -> balances.add(transaction.getBalance().longValue()));
+
+        assertThat(balances).hasSize(1201);
+        assertThat(balances).isSorted().startsWith(1L).endsWith(1201L);
+        //Rows are held a chunk at a time, whatever the length of the history
+        assertThat(maxStatementRows.get()).isEqualTo(500);
+    }
+
     @Test
     public void shouldThrowIfAccountNumberNotExist() {
         String accountNumber = "INVALID_ACCOUNT";
@@ -3,15 +3,31 @@ package com.revolut.challenge.service;
 
 import com.revolut.challenge.BaseIT;
 import com.revolut.challenge.exception.InvalidAccountException;
+import com.revolut.challenge.lock.StripedAccountLockStrategy;
 import com.revolut.challenge.model.FinancialAccount;
 import com.revolut.challenge.model.enumeration.AccountStatusType;
 import com.revolut.challenge.model.enumeration.Currency;
+import com.revolut.challenge.model.Money;
+import com.revolut.challenge.repository.AccountTransactionRepository;
+import com.revolut.challenge.repository.BalanceCache;
+import com.revolut.challenge.repository.BalanceReadMode;
 import com.revolut.challenge.repository.FinancialAccountRepository;
 import org.jooq.exception.DataAccessException;
+import org.jooq.impl.DSL;
 import org.junit.jupiter.api.Test;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -36,7 +52,7 @@ public class FinancialAccountServiceTest extends BaseIT {
 
         var financialAccountInvalid = FinancialAccount.builder().
                 accountNumber("123").
-                balance(BigDecimal.ZERO).
+                balance(0).
                 currency(Currency.EUR).
                 createDatetime(LocalDateTime.now()).
                 build();
@@ -49,7 +65,7 @@ public class FinancialAccountServiceTest extends BaseIT {
 
         var financialAccountInvalid = FinancialAccount.builder().
                 accountNumber(CORRECT_ACCOUNT_NUMBER).
-                balance(BigDecimal.ZERO).
+                balance(0).
                 currency(Currency.EUR).
                 createDatetime(LocalDateTime.now()).
                 accountStatusType(AccountStatusType.ACTIVE).
@@ -57,4 +73,154 @@ public class FinancialAccountServiceTest extends BaseIT {
         financialAccountServiceTest.createAccount(financialAccountInvalid);
         assertThat(financialAccountServiceTest.getAccount(CORRECT_ACCOUNT_NUMBER)).isNotNull();
     }
+
+    @Test
+    public void shouldCacheAccountMetadataUntilItChanges() {
+
+        var repository = new FinancialAccountRepository(dataContext, 10);
+        var service = new FinancialAccountService(repository);
+        service.createAccount(FinancialAccount.builder().
+                accountNumber("4460").
+                balance(0).
+                currency(Currency.EUR).
+                createDatetime(LocalDateTime.now()).
+                accountStatusType(AccountStatusType.ACTIVE).
+                build());
+
+        var metadata = repository.getAccountMetadata("4460");
+        assertThat(repository.getAccountMetadata("4460")).isSameAs(metadata);
+        assertThat(metadata.getCurrency()).isEqualTo(Currency.EUR);
+
+        repository.updateCurrency(dataContext, "4460", Currency.USD);
+        assertThat(repository.getAccountMetadata("4460").getCurrency()).isEqualTo(Currency.USD);
+        repository.updateAccountStatus(dataContext, "4460", AccountStatusType.BLOCK);
+        assertThat(repository.getAccountMetadata("4460").getAccountStatusType()).isEqualTo(AccountStatusType.BLOCK);
+        assertThat(repository.getAccountMetadata("4460").getId()).isEqualTo(metadata.getId());
+
+        var metrics = service.getAccountCacheMetrics();
+        assertThat(metrics.getHits()).isEqualTo(2);
+        assertThat(metrics.getMisses()).isEqualTo(3);
+        assertThat(metrics.getSize()).isEqualTo(1);
+        assertThat(metrics.getHitRate()).isEqualTo(0.4);
+        assertThat(financialAccountServiceTest.getAccountCacheMetrics()).isNull();
+    }
+
+    @Test
+    public void shouldKeepEveryFieldOfAccountReadFromBalanceCache() {
+
+        var balanceCache = new BalanceCache(10, BalanceReadMode.BOUNDED, Duration.ofMinutes(1));
+        var repository = new FinancialAccountRepository(dataContext, 0, balanceCache);
+        new FinancialAccountService(repository).createAccount(FinancialAccount.builder().
+                accountNumber("4492").
+                balance(0).
+                currency(Currency.EUR).
+                createDatetime(LocalDateTime.now()).
+                accountStatusType(AccountStatusType.ACTIVE).
+                balanceSlots(4).
+                build());
+
+        var loaded = repository.getCommittedAccount("4492");
+        var cached = repository.getCommittedAccount("4492");
+        balanceCache.committed("4492", 100, loaded.getVersion() + 1);
+        var written = repository.getCommittedAccount("4492");
+
+        assertThat(cached).isEqualTo(loaded).isNotSameAs(loaded);
+        assertThat(written.getBalance()).isEqualTo(100);
+        assertThat(balanceCache.getReloads()).isEqualTo(1);
+        assertThat(List.of(loaded, cached, written)).extracting(FinancialAccount::getBalanceSlots).containsOnly(4);
+    }
+
+    @Test
+    public void shouldNeverReadUncommittedBalanceFromStrictBalanceCache() throws Exception {
+        shouldNeverReadUncommittedBalanceFromBalanceCache("4490", BalanceReadMode.STRICT);
+    }
+
+    @Test
+    public void shouldNeverReadUncommittedBalanceFromBoundedBalanceCache() throws Exception {
+        shouldNeverReadUncommittedBalanceFromBalanceCache("4491", BalanceReadMode.BOUNDED);
+    }
+
+    /**
+     * Deposits write their balance through after they committed while another transaction keeps updating the balance
+     * to a negative one and rolling back. Readers of the cache must only see committed balances, which never decrease.
+     */
+    private void shouldNeverReadUncommittedBalanceFromBalanceCache(String accountNumber, BalanceReadMode mode) throws Exception {
+        var balanceCache = new BalanceCache(10, mode, Duration.ofMillis(5));
+        var repository = new FinancialAccountRepository(dataContext, 0, balanceCache);
+        var service = new FinancialAccountService(repository);
+        //Writers wait for each other on striped locks, so the rolled back updates never hold the row lock a deposit waits for
+        var lockStrategy = new StripedAccountLockStrategy(repository, 16, Duration.ofSeconds(10));
+        var transactionService = new AccountTransactionService(new AccountTransactionRepository(dataContext), repository,
+                dataContext, lockStrategy, null);
+        service.createAccount(FinancialAccount.builder().
+                accountNumber(accountNumber).
+                balance(0).
+                currency(Currency.EUR).
+                createDatetime(LocalDateTime.now()).
+                accountStatusType(AccountStatusType.ACTIVE).
+                build());
+        int writers = 4;
+        int depositsPerWriter = 25;
+        int readers = 2;
+
+        ExecutorService executor = Executors.newFixedThreadPool(writers + readers + 1);
+        var start = new CountDownLatch(1);
+        var writing = new AtomicBoolean(true);
+        List<Future<?>> deposits = new ArrayList<>();
+        for (int writer = 0; writer < writers; writer++) {
+            deposits.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < depositsPerWriter; i++)
+                    transactionService.createDepositTransaction(accountNumber, Money.ofUnits(1), UUID.randomUUID().toString());
+                return null;
+            }));
+        }
+        Future<?> rollbacks = executor.submit(() -> {
+            start.await();
+            while (writing.get()) {
+                try {
+                    lockStrategy.runLocked(List.of(accountNumber), () -> dataContext.transaction(configuration -> {
+                        repository.updateBalance(DSL.using(configuration), accountNumber, -1);
+                        Thread.sleep(1);
+                        throw new IllegalStateException("rolled back");
+                    }));
+                } catch (IllegalStateException e) {
+                    //expected, the negative balance is never committed
+                }
+            }
+            return null;
+        });
+        List<Future<?>> reads = new ArrayList<>();
+        for (int reader = 0; reader < readers; reader++) {
+            reads.add(executor.submit(() -> {
+                start.await();
+                long previous = 0;
+                while (writing.get()) {
+                    long balance = repository.getCommittedAccount(accountNumber).getBalance();
+                    assertThat(balance).isBetween(previous, Money.ofUnits(writers * depositsPerWriter));
+                    previous = balance;
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        try {
+            for (Future<?> deposit : deposits)
+                deposit.get(60, TimeUnit.SECONDS);
+        } finally {
+            writing.set(false);
+        }
+        rollbacks.get(60, TimeUnit.SECONDS);
+        for (Future<?> read : reads)
+            read.get(60, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        //Every deposit wrote its balance through, so the cache is current without reading the database again
+        long reloads = balanceCache.getReloads();
+        assertThat(repository.getCommittedAccount(accountNumber).getBalance()).isEqualTo(Money.ofUnits(writers * depositsPerWriter));
+        assertThat(service.getAccount(accountNumber).getBalance()).isEqualByComparingTo(BigDecimal.valueOf(writers * depositsPerWriter));
+        assertThat(balanceCache.getReloads()).isEqualTo(reloads);
+        assertThat(balanceCache.getWrites()).isEqualTo(writers * depositsPerWriter);
+        assertThat(service.getBalanceCacheMetrics().getMode()).isEqualTo(mode.getValue());
+    }
 }
@@ -0,0 +1,211 @@
+package com.revolut.challenge.service;
+
+import com.revolut.challenge.BaseIT;
+import com.revolut.challenge.exception.DuplicateTransactionException;
+import com.revolut.challenge.exception.InsufficientBalanceException;
+import com.revolut.challenge.model.FinancialAccount;
+import com.revolut.challenge.model.Money;
+import com.revolut.challenge.model.enumeration.AccountStatusType;
+import com.revolut.challenge.model.enumeration.Currency;
+import com.revolut.challenge.model.enumeration.TransactionType;
+import com.revolut.challenge.repository.AccountTransactionRepository;
+import com.revolut.challenge.repository.FinancialAccountRepository;
+import com.revolut.challenge.repository.TransferRepository;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TransferBatcherTest extends BaseIT {
+
+    private static final FinancialAccountRepository financialAccountRepositoryTest = new FinancialAccountRepository(dataContext);
+    private static final AccountTransactionRepository accountTransactionRepositoryTest = new AccountTransactionRepository(dataContext);
+    private static final TransferRepository transferRepositoryTest = new TransferRepository(dataContext);
+
+    private static final TransferService transferServiceTest = new TransferService(financialAccountRepositoryTest,
+            transferRepositoryTest, accountTransactionRepositoryTest, dataContext);
+    private static final TransferBatcher transferBatcherTest = new TransferBatcher(transferServiceTest, 32, 2000);
+
+    @BeforeAll
+    public static void prepareData() {
+        financialAccountRepositoryTest.save(FinancialAccount.builder()
+                .accountNumber("7700")
+                .accountStatusType(AccountStatusType.ACTIVE)
+                .createDatetime(LocalDateTime.now())
+                .balance(Money.ofUnits(100))
+                .currency(Currency.USD)
+                .build());
+
+        financialAccountRepositoryTest.save(FinancialAccount.builder()
+                .accountNumber("7701")
+                .accountStatusType(AccountStatusType.ACTIVE)
+                .createDatetime(LocalDateTime.now())
+                .balance(Money.ofUnits(0))
+                .currency(Currency.USD)
+                .build());
+
+        for (String accountNumber : List.of("7710", "7711")) {
+            financialAccountRepositoryTest.save(FinancialAccount.builder()
+                    .accountNumber(accountNumber)
+                    .accountStatusType(AccountStatusType.ACTIVE)
+                    .createDatetime(LocalDateTime.now())
+                    .balance(Money.ofUnits(100))
+                    .currency(Currency.USD)
+                    .build());
+        }
+
+        for (String accountNumber : List.of("7720", "7721")) {
+            financialAccountRepositoryTest.save(FinancialAccount.builder()
+                    .accountNumber(accountNumber)
+                    .accountStatusType(AccountStatusType.ACTIVE)
+                    .createDatetime(LocalDateTime.now())
+                    .balance(Money.ofUnits(1_000_000))
+                    .currency(Currency.USD)
+                    .build());
+        }
+
+        transferBatcherTest.start();
+    }
+
+    @AfterAll
+    public static void stopBatcher() {
+        transferBatcherTest.stop();
+    }
+
+    @Test
+    public void shouldCompleteEveryCallerWithItsOwnResult() throws Exception {
+        int callers = 16;
+        int transfersPerCaller = 10;
+        var done = new AtomicInteger();
+        var insufficient = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < transfersPerCaller; j++) {
+                    try {
+                        transferBatcherTest.createTransfer("7700", "7701", Money.ofUnits(1), UUID.randomUUID().toString());
+                        done.incrementAndGet();
+                    } catch (InsufficientBalanceException e) {
+                        insufficient.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures)
+            future.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertThat(done.get()).isEqualTo(100);
+        assertThat(insufficient.get()).isEqualTo(callers * transfersPerCaller - 100);
+        assertThat(financialAccountRepositoryTest.getByAccountNumber("7700").getBalance()).isEqualTo(Money.ofUnits(0));
+        assertThat(financialAccountRepositoryTest.getByAccountNumber("7701").getBalance()).isEqualTo(Money.ofUnits(100));
+    }
+
+    @Test
+    public void shouldApplyUnrelatedTransfersOfBatchWithConcurrentlyUsedTransactionId() throws Exception {
+        String usedTransactionId = UUID.randomUUID().toString();
+        //Long enough window for all transfers to join one batch
+        var batcher = new TransferBatcher(transferServiceTest, 32, 200_000);
+        batcher.start();
+        var keyInserted = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            //Holds the idempotency key uncommitted, so the batch does not see it until it inserts its own
+            Future<?> holder = executor.submit(() -> dataContext.transaction(configuration -> {
+                accountTransactionRepositoryTest.insertIdempotencyKeyQuery(DSL.using(configuration), usedTransactionId,
+                        TransactionType.WITHDRAW, LocalDateTime.now()).execute();
+                keyInserted.countDown();
+                Thread.sleep(800);
+            }));
+            assertThat(keyInserted.await(10, TimeUnit.SECONDS)).isTrue();
+
+            Future<?> duplicate = executor.submit(() -> batcher.createTransfer("7710", "7711", Money.ofUnits(1), usedTransactionId));
+            Future<?> first = executor.submit(() -> batcher.createTransfer("7710", "7711", Money.ofUnits(2), UUID.randomUUID().toString()));
+            Future<?> second = executor.submit(() -> batcher.createTransfer("7711", "7710", Money.ofUnits(5), UUID.randomUUID().toString()));
+
+            holder.get(10, TimeUnit.SECONDS);
+            first.get(10, TimeUnit.SECONDS);
+            second.get(10, TimeUnit.SECONDS);
+            assertThatThrownBy(() -> duplicate.get(10, TimeUnit.SECONDS))
+                    .hasCauseInstanceOf(DuplicateTransactionException.class);
+        } finally {
+            executor.shutdown();
+            batcher.stop();
+        }
+
+        assertThat(financialAccountRepositoryTest.getByAccountNumber("7710").getBalance()).isEqualTo(Money.ofUnits(103));
+        assertThat(financialAccountRepositoryTest.getByAccountNumber("7711").getBalance()).isEqualTo(Money.ofUnits(97));
+    }
+
+    @Test
+    public void shouldAnswerEveryCallerWhenStoppedWhileTransfersArrive() throws Exception {
+        for (int round = 0; round < 10; round++) {
+            var batcher = new TransferBatcher(transferServiceTest, 32, 200);
+            batcher.start();
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(() -> {
+                    try {
+                        while (true)
+                            batcher.createTransfer("7720", "7721", Money.ofUnits(1), UUID.randomUUID().toString());
+                    } catch (IllegalStateException stopped) {
+                        //Expected once the batcher is stopped
+                    }
+                }));
+            }
+            Thread.sleep(20);
+            batcher.stop();
+            //A transfer queued while the batcher stopped would leave its caller waiting
+            for (Future<?> future : futures)
+                future.get(10, TimeUnit.SECONDS);
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldKeepApplyingTransfersAfterBatchFailedWithError() throws Exception {
+        var failures = new AtomicInteger(1);
+        var failingService = new TransferService(financialAccountRepositoryTest, transferRepositoryTest,
+                accountTransactionRepositoryTest, dataContext) {
+            @Override
+            public List<TransferResult> createTransfers(List<TransferCommand> commands) {
+                if (failures.getAndDecrement() > 0)
+                    throw new AssertionError("Batch failed");
+                return super.createTransfers(commands);
+            }
+        };
+        var batcher = new TransferBatcher(failingService, 32, 200);
+        batcher.start();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertThatThrownBy(() -> executor.submit(() -> batcher.createTransfer("7720", "7721", Money.ofUnits(1), UUID.randomUUID().toString()))
+                    .get(10, TimeUnit.SECONDS))
+                    .hasCauseInstanceOf(AssertionError.class);
+            long balance = financialAccountRepositoryTest.getByAccountNumber("7721").getBalance();
+
+            executor.submit(() -> batcher.createTransfer("7720", "7721", Money.ofUnits(1), UUID.randomUUID().toString()))
+                    .get(10, TimeUnit.SECONDS);
+
+            assertThat(financialAccountRepositoryTest.getByAccountNumber("7721").getBalance()).isEqualTo(balance + Money.ofUnits(1));
+        } finally {
+            executor.shutdown();
+            batcher.stop();
+        }
+    }
+}
@@ -1,23 +1,42 @@
 package com.revolut.challenge.service;
 
 import com.revolut.challenge.BaseIT;
+import com.revolut.challenge.exception.AtomicBatchNotSupportedException;
+import com.revolut.challenge.exception.BatchAbortedException;
+import com.revolut.challenge.exception.DuplicateTransactionException;
 import com.revolut.challenge.exception.IncompatibleCurrencyException;
 import com.revolut.challenge.exception.InsufficientBalanceException;
 import com.revolut.challenge.exception.InvalidAccountException;
 import com.revolut.challenge.exception.SameAccountException;
+import com.revolut.challenge.model.AccountTransaction;
 import com.revolut.challenge.model.FinancialAccount;
+import com.revolut.challenge.model.Money;
 import com.revolut.challenge.model.enumeration.AccountStatusType;
 import com.revolut.challenge.model.enumeration.Currency;
+import com.revolut.challenge.model.enumeration.TransactionType;
 import com.revolut.challenge.model.enumeration.TransferStatusType;
 import com.revolut.challenge.repository.AccountTransactionRepository;
 import com.revolut.challenge.repository.FinancialAccountRepository;
+import com.revolut.challenge.repository.TransactionIdFilter;
 import com.revolut.challenge.repository.TransferRepository;
+import org.jooq.DSLContext;
+import org.jooq.ExecuteContext;
+import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultExecuteListener;
+import org.jooq.impl.DefaultExecuteListenerProvider;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -28,8 +47,7 @@ public class TransferServiceTest extends BaseIT {
     private static final AccountTransactionRepository accountTransactionRepositoryTest = new AccountTransactionRepository(dataContext);
     private static final TransferRepository transferRepository = new TransferRepository(dataContext);
 
-    private static final AccountTransactionService accountTransactionServiceTest = new AccountTransactionService(accountTransactionRepositoryTest, financialAccountRepositoryTest, dataContext);
-    private static final TransferService transferServiceTest = new TransferService(financialAccountRepositoryTest, transferRepository, accountTransactionServiceTest, dataContext);
+    private static final TransferService transferServiceTest = new TransferService(financialAccountRepositoryTest, transferRepository, accountTransactionRepositoryTest, dataContext);
 
     @BeforeAll
     public static void prepareData() {
@@ -37,7 +55,7 @@ public class TransferServiceTest extends BaseIT {
                 .accountNumber("2222")
                 .accountStatusType(AccountStatusType.ACTIVE)
                 .createDatetime(LocalDateTime.now())
-                .balance(new BigDecimal("500"))
+                .balance(Money.ofUnits(500))
                 .currency(Currency.USD)
                 .build());
 
@@ -45,9 +63,65 @@ public class TransferServiceTest extends BaseIT {
                 .accountNumber("3333")
                 .accountStatusType(AccountStatusType.ACTIVE)
                 .createDatetime(LocalDateTime.now())
-                .balance(new BigDecimal("1000"))
+                .balance(Money.ofUnits(1000))
                 .currency(Currency.USD)
                 .build());
+
+        financialAccountRepositoryTest.save(FinancialAccount.builder()
+                .accountNumber("2200")
+                .accountStatusType(AccountStatusType.ACTIVE)
+                .createDatetime(LocalDateTime.now())
+                .balance(Money.ofUnits(500))
+                .currency(Currency.USD)
+                .build());
+
+        financialAccountRepositoryTest.save(FinancialAccount.builder()
+                .accountNumber("3300")
+                .accountStatusType(AccountStatusType.ACTIVE)
+                .createDatetime(LocalDateTime.now())
+                .balance(Money.ofUnits(1000))
+                .currency(Currency.USD)
+                .build());
+
+        financialAccountRepositoryTest.save(FinancialAccount.builder()
+                .accountNumber("8800")
+                .accountStatusType(AccountStatusType.ACTIVE)
+                .createDatetime(LocalDateTime.now())
+                .balance(Money.ofUnits(10000))
+                .currency(Currency.USD)
+                .build());
+
+        financialAccountRepositoryTest.save(FinancialAccount.builder()
+                .accountNumber("8801")
+                .accountStatusType(AccountStatusType.ACTIVE)
+                .createDatetime(LocalDateTime.now())
+                .balance(Money.ofUnits(10000))
+                .currency(Currency.USD)
+                .build());
+
+        financialAccountRepositoryTest.save(FinancialAccount.builder()
+                .accountNumber("2201")
+                .accountStatusType(AccountStatusType.ACTIVE)
+                .createDatetime(LocalDateTime.now())
+                .balance(Money.ofUnits(500))
+                .currency(Currency.USD)
+                .build());
+
+        financialAccountRepositoryTest.save(FinancialAccount.builder()
+                .accountNumber("3301")
+                .accountStatusType(AccountStatusType.ACTIVE)
+                .createDatetime(LocalDateTime.now())
+                .balance(Money.ofUnits(0))
+                .currency(Currency.USD)
+                .build());
+
+        financialAccountRepositoryTest.save(FinancialAccount.builder()
+                .accountNumber("3302")
+                .accountStatusType(AccountStatusType.ACTIVE)
+                .createDatetime(LocalDateTime.now())
+                .balance(Money.ofUnits(0))
+                .currency(Currency.EUR)
+                .build());
     }
 
     @Test
@@ -55,27 +129,294 @@ public class TransferServiceTest extends BaseIT {
         String fromAccountNumber = "2222";
         String toAccountNumber = "3333";
 
-        financialAccountRepositoryTest.updateBalance(dataContext, fromAccountNumber, new BigDecimal("500"));
+        financialAccountRepositoryTest.updateBalance(dataContext, fromAccountNumber, Money.ofUnits(500));
         financialAccountRepositoryTest.updateCurrency(dataContext, fromAccountNumber, Currency.USD);
-        financialAccountRepositoryTest.updateBalance(dataContext, toAccountNumber, new BigDecimal("1000"));
+        financialAccountRepositoryTest.updateBalance(dataContext, toAccountNumber, Money.ofUnits(1000));
         financialAccountRepositoryTest.updateCurrency(dataContext, toAccountNumber, Currency.USD);
 
-        transferServiceTest.createTransfer(fromAccountNumber, toAccountNumber, new BigDecimal(100L), UUID.randomUUID().toString());
+        transferServiceTest.createTransfer(fromAccountNumber, toAccountNumber, Money.ofUnits(100), UUID.randomUUID().toString());
 
         FinancialAccount fromAccount = financialAccountRepositoryTest.getByAccountNumber(fromAccountNumber);
         FinancialAccount toAccount = financialAccountRepositoryTest.getByAccountNumber(toAccountNumber);
 
-        assertThat(fromAccount.getBalance()).isEqualTo(new BigDecimal("400.00"));
-        assertThat(toAccount.getBalance()).isEqualTo(new BigDecimal("1100.00"));
+        assertThat(fromAccount.getBalance()).isEqualTo(Money.ofUnits(400));
+        assertThat(toAccount.getBalance()).isEqualTo(Money.ofUnits(1100));
 
         assertThat(transferRepository.getTransferByAccounts(fromAccount.getId(), toAccount.getId(), TransferStatusType.DONE).isPresent());
     }
 
+    @Test
+    public void shouldTransferMoneyWithFourStatements() {
+        String fromAccountNumber = "2200";
+        String toAccountNumber = "3300";
+
+        financialAccountRepositoryTest.updateBalance(dataContext, fromAccountNumber, Money.ofUnits(500));
+        financialAccountRepositoryTest.updateCurrency(dataContext, fromAccountNumber, Currency.USD);
+        financialAccountRepositoryTest.updateBalance(dataContext, toAccountNumber, Money.ofUnits(1000));
+        financialAccountRepositoryTest.updateCurrency(dataContext, toAccountNumber, Currency.USD);
+
+        var statementCount = new AtomicInteger();
+        DSLContext countingContext = countingContext(statementCount);
+        var countingAccountRepository = new FinancialAccountRepository(countingContext, 1000);
+        var countingTransferService = new TransferService(countingAccountRepository,
+                new TransferRepository(countingContext), new AccountTransactionRepository(countingContext), countingContext);
+        //Whether an account is split is read through the metadata cache
+        countingAccountRepository.getAccountMetadata(fromAccountNumber);
+        countingAccountRepository.getAccountMetadata(toAccountNumber);
+        statementCount.set(0);
+
+        String transactionId = UUID.randomUUID().toString();
+        countingTransferService.createTransfer(fromAccountNumber, toAccountNumber, Money.ofUnits(100), transactionId);
+
+        assertThat(statementCount.get()).isEqualTo(4);
+        assertThat(financialAccountRepositoryTest.getByAccountNumber(fromAccountNumber).getBalance()).isEqualTo(Money.ofUnits(400));
+        assertThat(financialAccountRepositoryTest.getByAccountNumber(toAccountNumber).getBalance()).isEqualTo(Money.ofUnits(1100));
+        assertThat(accountTransactionRepositoryTest.isTransactionPresent(transactionId, TransactionType.WITHDRAW)).isTrue();
+        assertThat(accountTransactionRepositoryTest.isTransactionPresent(transactionId, TransactionType.DEPOSIT)).isTrue();
+    }
+
+    @Test
+    public void shouldApplyBatchOfTransfersInFourStatementsPlusLookupOfUnknownAccountWithPerItemResults() {
+        var statementCount = new AtomicInteger();
+        DSLContext countingContext = countingContext(statementCount);
+        var countingAccountRepository = new FinancialAccountRepository(countingContext, 1000);
+        var countingTransferService = new TransferService(countingAccountRepository,
+                new TransferRepository(countingContext), new AccountTransactionRepository(countingContext), countingContext);
+        //Whether an account is split is read through the metadata cache
+        for (String accountNumber : List.of("2201", "3301", "3302"))
+            countingAccountRepository.getAccountMetadata(accountNumber);
+        statementCount.set(0);
+
+        String firstTransactionId = UUID.randomUUID().toString();
+        List<TransferResult> results = countingTransferService.createTransfers(List.of(
+                new TransferCommand("2201", "3301", Money.ofUnits(300), firstTransactionId),
+                new TransferCommand("2201", "3301", Money.ofUnits(300), UUID.randomUUID().toString()),
+                new TransferCommand("2201", "3302", Money.ofUnits(1), UUID.randomUUID().toString()),
+                new TransferCommand("3301", "2201", Money.ofUnits(1), firstTransactionId),
+                new TransferCommand("3301", "2201", Money.ofUnits(50), UUID.randomUUID().toString()),
+                new TransferCommand("2201", "9999", Money.ofUnits(1), UUID.randomUUID().toString())));
+
+        //Four statements plus the metadata lookup of the unknown account, which is never cached
+        assertThat(statementCount.get()).isEqualTo(5);
+        assertThat(results).extracting(TransferResult::isDone).containsExactly(true, false, false, false, true, false);
+        assertThat(results.get(1).getFailure()).isInstanceOf(InsufficientBalanceException.class);
+        assertThat(results.get(2).getFailure()).isInstanceOf(IncompatibleCurrencyException.class);
+        assertThat(results.get(3).getFailure()).isInstanceOf(DuplicateTransactionException.class);
+        assertThat(results.get(5).getFailure()).isInstanceOf(InvalidAccountException.class);
+
+        assertThat(financialAccountRepositoryTest.getByAccountNumber("2201").getBalance()).isEqualTo(Money.ofUnits(250));
+        assertThat(financialAccountRepositoryTest.getByAccountNumber("3301").getBalance()).isEqualTo(Money.ofUnits(250));
+        var legs = accountTransactionRepositoryTest.getAccountTransactionList(financialAccountRepositoryTest.getByAccountNumber("3301").getId());
+        assertThat(legs).hasSize(2);
+        assertThat(legs).extracting(AccountTransaction::getTransfer).doesNotContainNull().doesNotHaveDuplicates();
+    }
+
+    @Test
+    public void shouldApplyNoneOfAtomicBatchIfOneTransferIsRejected() {
+        for (String accountNumber : List.of("4430", "4431")) {
+            financialAccountRepositoryTest.save(FinancialAccount.builder()
+                    .accountNumber(accountNumber)
+                    .accountStatusType(AccountStatusType.ACTIVE)
+                    .createDatetime(LocalDateTime.now())
+                    .balance(Money.ofUnits(100))
+                    .currency(Currency.USD)
+                    .build());
+        }
+        String firstTransactionId = UUID.randomUUID().toString();
+
+        List<TransferResult> results = transferServiceTest.createTransfers(List.of(
+                new TransferCommand("4430", "4431", Money.ofUnits(60), firstTransactionId),
+                new TransferCommand("4430", "4431", Money.ofUnits(60), UUID.randomUUID().toString())), true);
+
+        assertThat(results.get(0).getFailure()).isInstanceOf(BatchAbortedException.class);
+        assertThat(results.get(1).getFailure()).isInstanceOf(InsufficientBalanceException.class);
+        assertThat(financialAccountRepositoryTest.getByAccountNumber("4430").getBalance()).isEqualTo(Money.ofUnits(100));
+        assertThat(accountTransactionRepositoryTest.isTransactionPresent(firstTransactionId, TransactionType.WITHDRAW)).isFalse();
+
+        results = transferServiceTest.createTransfers(List.of(
+                new TransferCommand("4430", "4431", Money.ofUnits(60), firstTransactionId),
+                new TransferCommand("4431", "4430", Money.ofUnits(10), UUID.randomUUID().toString())), true);
+
+        assertThat(results).extracting(TransferResult::isDone).containsExactly(true, true);
+        assertThat(financialAccountRepositoryTest.getByAccountNumber("4430").getBalance()).isEqualTo(Money.ofUnits(50));
+        assertThat(financialAccountRepositoryTest.getByAccountNumber("4431").getBalance()).isEqualTo(Money.ofUnits(150));
+    }
+
+    @Test
+    public void shouldLetLaterTransferOfBatchUseIdOfOneRejectedForInsufficientBalance() {
+        for (String accountNumber : List.of("4486", "4487")) {
+            financialAccountRepositoryTest.save(FinancialAccount.builder()
+                    .accountNumber(accountNumber)
+                    .accountStatusType(AccountStatusType.ACTIVE)
+                    .createDatetime(LocalDateTime.now())
+                    .balance(Money.ofUnits(100))
+                    .currency(Currency.USD)
+                    .build());
+        }
+        String transactionId = UUID.randomUUID().toString();
+
+        List<TransferResult> results = transferServiceTest.createTransfers(List.of(
+                new TransferCommand("4486", "4487", Money.ofUnits(150), transactionId),
+                new TransferCommand("4486", "4487", Money.ofUnits(50), transactionId),
+                new TransferCommand("4486", "4487", Money.ofUnits(10), transactionId)));
+
+        assertThat(results).extracting(TransferResult::isDone).containsExactly(false, true, false);
+        assertThat(results.get(0).getFailure()).isInstanceOf(InsufficientBalanceException.class);
+        assertThat(results.get(2).getFailure()).isInstanceOf(DuplicateTransactionException.class);
+        assertThat(financialAccountRepositoryTest.getByAccountNumber("4486").getBalance()).isEqualTo(Money.ofUnits(50));
+    }
+
+    @Test
+    public void shouldSkipTransactionIdLookupOfBatchWhenFilterKnowsAllIdsAreNew() {
+        for (String accountNumber : List.of("4470", "4471")) {
+            financialAccountRepositoryTest.save(FinancialAccount.builder()
+                    .accountNumber(accountNumber)
+                    .accountStatusType(AccountStatusType.ACTIVE)
+                    .createDatetime(LocalDateTime.now())
+                    .balance(Money.ofUnits(100))
+                    .currency(Currency.USD)
+                    .build());
+        }
+        var statementCount = new AtomicInteger();
+        DSLContext countingContext = countingContext(statementCount);
+        var filter = new TransactionIdFilter(100, 0.0001);
+        var filteredRepository = new AccountTransactionRepository(countingContext, filter);
+        filteredRepository.loadTransactionIdFilter();
+        var countingAccountRepository = new FinancialAccountRepository(countingContext, 1000);
+        var countingTransferService = new TransferService(countingAccountRepository,
+                new TransferRepository(countingContext), filteredRepository, countingContext);
+        countingAccountRepository.getAccountMetadata("4470");
+        countingAccountRepository.getAccountMetadata("4471");
+
+        String firstTransactionId = UUID.randomUUID().toString();
+        statementCount.set(0);
+        List<TransferResult> results = countingTransferService.createTransfers(List.of(
+                new TransferCommand("4470", "4471", Money.ofUnits(10), firstTransactionId),
+                new TransferCommand("4471", "4470", Money.ofUnits(5), UUID.randomUUID().toString())));
+
+        assertThat(statementCount.get()).isEqualTo(3);
+        assertThat(results).extracting(TransferResult::isDone).containsExactly(true, true);
+
+        statementCount.set(0);
+        results = countingTransferService.createTransfers(List.of(
+                new TransferCommand("4470", "4471", Money.ofUnits(10), firstTransactionId),
+                new TransferCommand("4470", "4471", Money.ofUnits(10), UUID.randomUUID().toString())));
+
+        assertThat(statementCount.get()).isEqualTo(4);
+        assertThat(results.get(0).getFailure()).isInstanceOf(DuplicateTransactionException.class);
+        assertThat(results.get(1).isDone()).isTrue();
+        assertThat(filter.getSkippedLookups()).isEqualTo(3);
+        assertThat(filter.getPossibleDuplicates()).isEqualTo(1);
+        assertThat(filter.getFalsePositives()).isEqualTo(0);
+        assertThat(financialAccountRepositoryTest.getByAccountNumber("4470").getBalance()).isEqualTo(Money.ofUnits(85));
+    }
+
+    @Test
+    public void shouldThrowDuplicatedTransactionIfTransferTransactionIdBeDuplicated() {
+        String fromAccountNumber = "2200";
+        String toAccountNumber = "3300";
+        String transactionId = UUID.randomUUID().toString();
+
+        financialAccountRepositoryTest.updateBalance(dataContext, fromAccountNumber, Money.ofUnits(500));
+        financialAccountRepositoryTest.updateCurrency(dataContext, fromAccountNumber, Currency.USD);
+        financialAccountRepositoryTest.updateCurrency(dataContext, toAccountNumber, Currency.USD);
+
+        transferServiceTest.createTransfer(fromAccountNumber, toAccountNumber, Money.ofUnits(100), transactionId);
+
+        assertThatThrownBy(() ->
+                transferServiceTest.createTransfer(fromAccountNumber, toAccountNumber, Money.ofUnits(100), transactionId))
+                .isInstanceOf(DuplicateTransactionException.class)
+                .hasMessage("Transaction id is duplicated");
+        assertThat(financialAccountRepositoryTest.getByAccountNumber(fromAccountNumber).getBalance()).isEqualTo(Money.ofUnits(400));
+    }
+
+    @Test
+    public void shouldNotDeadlockOnOpposingConcurrentTransfers() throws Exception {
+        String firstAccountNumber = "8800";
+        String secondAccountNumber = "8801";
+        int threads = 16;
+        int transfersPerThread = 50;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        var start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++) {
+            boolean forward = thread % 2 == 0;
+            results.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < transfersPerThread; i++) {
+                    transferServiceTest.createTransfer(forward ? firstAccountNumber : secondAccountNumber,
+                            forward ? secondAccountNumber : firstAccountNumber,
+                            Money.ofUnits(1), UUID.randomUUID().toString());
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(financialAccountRepositoryTest.getByAccountNumber(firstAccountNumber).getBalance()).isEqualTo(Money.ofUnits(10000));
+        assertThat(financialAccountRepositoryTest.getByAccountNumber(secondAccountNumber).getBalance()).isEqualTo(Money.ofUnits(10000));
+    }
+
+    @Test
+    public void shouldNotDeadlockOnConcurrentTransfersBetweenSplitAccounts() throws Exception {
+        //5210 and 5211 are split, 5212 is not
+        for (String accountNumber : List.of("5210", "5211", "5212")) {
+            financialAccountRepositoryTest.save(FinancialAccount.builder()
+                    .accountNumber(accountNumber)
+                    .accountStatusType(AccountStatusType.ACTIVE)
+                    .createDatetime(LocalDateTime.now())
+                    .balance(Money.ofUnits(10000))
+                    .currency(Currency.USD)
+                    .balanceSlots(accountNumber.equals("5212") ? 0 : 4)
+                    .build());
+        }
+        List<String> accountNumbers = List.of("5210", "5211", "5212");
+        int threads = 12;
+        int transfersPerThread = 30;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        var start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++) {
+            //Every direction between the three accounts, twice
+            String from = accountNumbers.get(thread % 3);
+            String to = accountNumbers.get((thread + 1 + thread / 3 % 2) % 3);
+            results.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < transfersPerThread; i++)
+                    transferServiceTest.createTransfer(from, to, Money.ofUnits(1), UUID.randomUUID().toString());
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        long total = 0;
+        for (String accountNumber : accountNumbers)
+            total += financialAccountRepositoryTest.getByAccountNumber(accountNumber).getBalance();
+        assertThat(total).isEqualTo(Money.ofUnits(30000));
+        assertThatThrownBy(() -> transferServiceTest.createTransfers(List.of(
+                new TransferCommand("5212", "5210", Money.ofUnits(1), UUID.randomUUID().toString())), true))
+                .isInstanceOf(AtomicBatchNotSupportedException.class);
+        List<TransferResult> batch = transferServiceTest.createTransfers(List.of(
+                new TransferCommand("5212", "5210", Money.ofUnits(1), UUID.randomUUID().toString()),
+                new TransferCommand("5210", "5211", Money.ofUnits(1), UUID.randomUUID().toString())));
+        assertThat(batch).extracting(TransferResult::isDone).containsExactly(true, true);
+    }
+
     @Test
     public void shouldThrowSameAccountIfTwoAccountBeSame() {
         String accountNumber = "2222";
         assertThatThrownBy(() ->
-                transferServiceTest.createTransfer(accountNumber, accountNumber, new BigDecimal(100L), UUID.randomUUID().toString()))
+                transferServiceTest.createTransfer(accountNumber, accountNumber, Money.ofUnits(100), UUID.randomUUID().toString()))
                 .isInstanceOf(SameAccountException.class)
                 .hasMessage("Transfer is invalid for same account");
     }
@@ -87,7 +428,7 @@ public class TransferServiceTest extends BaseIT {
         String transactionId = UUID.randomUUID().toString();
 
         assertThatThrownBy(() ->
-                transferServiceTest.createTransfer(fromAccountNumber, toAccountNumber, new BigDecimal(100), transactionId))
+                transferServiceTest.createTransfer(fromAccountNumber, toAccountNumber, Money.ofUnits(100), transactionId))
                 .isInstanceOf(InvalidAccountException.class)
                 .hasMessage("Invalid Account number INVALID_FROM_ACCOUNT");
     }
@@ -99,7 +440,7 @@ public class TransferServiceTest extends BaseIT {
         String transactionId = UUID.randomUUID().toString();
 
         assertThatThrownBy(() ->
-                transferServiceTest.createTransfer(fromAccountNumber, toAccountNumber, new BigDecimal(100), transactionId))
+                transferServiceTest.createTransfer(fromAccountNumber, toAccountNumber, Money.ofUnits(100), transactionId))
                 .isInstanceOf(InvalidAccountException.class)
                 .hasMessage("Invalid Account number INVALID_To_ACCOUNT");
     }
@@ -110,11 +451,11 @@ public class TransferServiceTest extends BaseIT {
         String fromAccountNumber = "2222";
         String toAccountNumber = "3333";
 
-        financialAccountRepositoryTest.updateBalance(dataContext, fromAccountNumber, new BigDecimal("1000"));
-        financialAccountRepositoryTest.updateBalance(dataContext, toAccountNumber, new BigDecimal("1000"));
+        financialAccountRepositoryTest.updateBalance(dataContext, fromAccountNumber, Money.ofUnits(1000));
+        financialAccountRepositoryTest.updateBalance(dataContext, toAccountNumber, Money.ofUnits(1000));
 
         assertThatThrownBy(() ->
-                transferServiceTest.createTransfer(fromAccountNumber, toAccountNumber, new BigDecimal(60000), UUID.randomUUID().toString()))
+                transferServiceTest.createTransfer(fromAccountNumber, toAccountNumber, Money.ofUnits(60000), UUID.randomUUID().toString()))
                 .isInstanceOf(InsufficientBalanceException.class)
                 .hasMessage("Balance is insufficient");
 
@@ -129,8 +470,20 @@ public class TransferServiceTest extends BaseIT {
         financialAccountRepositoryTest.updateCurrency(dataContext, toAccountNumber, Currency.EUR);
 
         assertThatThrownBy(() ->
-                transferServiceTest.createTransfer(fromAccountNumber, toAccountNumber, new BigDecimal(100), UUID.randomUUID().toString()))
+                transferServiceTest.createTransfer(fromAccountNumber, toAccountNumber, Money.ofUnits(100), UUID.randomUUID().toString()))
                 .isInstanceOf(IncompatibleCurrencyException.class)
                 .hasMessage("Currency of accounts is incompatible");
     }
+
+    /**
+     * Context on the test database that counts the statements it executes
+     */
+    private static DSLContext countingContext(AtomicInteger statementCount) {
+        return DSL.using(dataContext.configuration().derive(new DefaultExecuteListenerProvider(new DefaultExecuteListener() {
+            @Override
+            public void executeStart(ExecuteContext ctx) {
+                statementCount.incrementAndGet();
+            }
+        })));
+    }
 }
@@ -0,0 +1,37 @@
+package com.revolut.challenge.util;
+
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ConnectionLimitDataSourceTest {
+
+    @Test
+    public void shouldTimeOutWhenAllConnectionsAreInUseAndReleaseOnClose() throws Exception {
+        var pool = JdbcConnectionPool.create("jdbc:h2:mem:connection-limit", "sa", "");
+        var dataSource = new ConnectionLimitDataSource(pool, 1, Duration.ofMillis(50));
+        try {
+            var connection = dataSource.getConnection();
+
+            assertThatThrownBy(dataSource::getConnection)
+                    .isInstanceOf(SQLTransientConnectionException.class)
+                    .hasMessage("Timed out waiting for a database connection");
+
+            connection.close();
+            connection.close();
+            try (var first = dataSource.getConnection()) {
+                assertThat(first.isValid(1)).isTrue();
+            }
+            try (var second = dataSource.getConnection()) {
+                assertThat(second.isValid(1)).isTrue();
+            }
+        } finally {
+            pool.dispose();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.revolut.challenge.util;
+
+import com.revolut.challenge.exception.ConstraintViolationException;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class LineReaderTest {
+
+    @Test
+    public void shouldReadLinesEndingWithOrWithoutCarriageReturn() throws Exception {
+        var reader = new LineReader(new StringReader("a\r\n\nbc\nd"), 2);
+
+        assertThat(reader.readLine()).isEqualTo("a");
+        assertThat(reader.readLine()).isEmpty();
+        assertThat(reader.readLine()).isEqualTo("bc");
+        assertThat(reader.readLine()).isEqualTo("d");
+        assertThat(reader.readLine()).isNull();
+    }
+
+    @Test
+    public void shouldSkipLineLongerThanMaximumAndReadTheNextOne() throws Exception {
+        String longLine = "x".repeat(20_000);
+        var reader = new LineReader(new StringReader("ab\r\n" + longLine + "\ncd\n" + longLine), 2);
+
+        assertThat(reader.readLine()).isEqualTo("ab");
+        assertThatThrownBy(reader::readLine)
+                .isInstanceOf(ConstraintViolationException.class)
+                .hasFieldOrPropertyWithValue("messages", List.of("Line is longer than 2 characters"));
+        assertThat(reader.readLine()).isEqualTo("cd");
+        assertThatThrownBy(reader::readLine).isInstanceOf(ConstraintViolationException.class);
+        assertThat(reader.readLine()).isNull();
+    }
+}
@@ -0,0 +1,89 @@
+package com.revolut.challenge.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class LruCacheTest {
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedEntry() {
+        var cache = new LruCache<String, String>(2, 1);
+        var loads = new AtomicInteger();
+        Function<String, String> loader = key -> {
+            loads.incrementAndGet();
+            return key.toUpperCase();
+        };
+
+        assertThat(cache.get("a", loader)).isEqualTo("A");
+        assertThat(cache.get("b", loader)).isEqualTo("B");
+        assertThat(cache.get("a", loader)).isEqualTo("A");
+        assertThat(cache.get("c", loader)).isEqualTo("C");
+        assertThat(cache.get("a", loader)).isEqualTo("A");
+        assertThat(cache.get("b", loader)).isEqualTo("B");
+
+        assertThat(loads.get()).isEqualTo(4);
+        assertThat(cache.getHits()).isEqualTo(2);
+        assertThat(cache.getMisses()).isEqualTo(4);
+        assertThat(cache.getEvictions()).isEqualTo(2);
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldLoadAgainAfterInvalidateAndNotCacheFailures() {
+        var cache = new LruCache<String, Integer>(100, 16);
+        var loads = new AtomicInteger();
+
+        assertThat(cache.get("a", key -> loads.incrementAndGet())).isEqualTo(1);
+        assertThat(cache.get("a", key -> loads.incrementAndGet())).isEqualTo(1);
+        cache.invalidate("a");
+        assertThat(cache.get("a", key -> loads.incrementAndGet())).isEqualTo(2);
+
+        assertThatThrownBy(() -> cache.get("b", key -> {
+            throw new IllegalStateException("missing");
+        })).isInstanceOf(IllegalStateException.class);
+        assertThat(cache.get("b", key -> loads.incrementAndGet())).isEqualTo(3);
+        assertThat(cache.getMaximumSize()).isEqualTo(100);
+
+        assertThatThrownBy(() -> new LruCache<String, Integer>(0, 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void shouldKeepEveryKeyOfCacheSmallerThanItsSegments() {
+        var cache = new LruCache<Integer, Integer>(10, 16);
+        for (int key = 0; key < 10; key++)
+            cache.put(key, key);
+
+        for (int key = 0; key < 10; key++)
+            assertThat(cache.getIfPresent(key)).isEqualTo(key);
+        assertThat(cache.getEvictions()).isZero();
+        assertThat(cache.compute(3, (key, value) -> value + 1)).isEqualTo(4);
+        assertThat(cache.compute(42, (key, value) -> value)).isNull();
+        assertThat(cache.getIfPresent(42)).isNull();
+        assertThat(cache.size()).isEqualTo(10);
+    }
+
+    @Test
+    public void shouldNotCacheValueLoadedBeforeInvalidate() {
+        var cache = new LruCache<String, String>(100, 16);
+
+        //The key is invalidated while its old value is being loaded
+        assertThat(cache.get("a", key -> {
+            cache.invalidate(key);
+            return "old";
+        })).isEqualTo("old");
+        assertThat(cache.get("a", key -> "new")).isEqualTo("new");
+
+        //A value written while loading is kept
+        assertThat(cache.get("b", key -> {
+            cache.put(key, "written");
+            return "loaded";
+        })).isEqualTo("loaded");
+        assertThat(cache.getIfPresent("b")).isEqualTo("written");
+    }
+}
@@ -0,0 +1,46 @@
+package com.revolut.challenge.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ScalableBloomFilterTest {
+
+    @Test
+    public void shouldFindEveryAddedKeyAfterGrowing() {
+        var filter = new ScalableBloomFilter(1_000, 0.01);
+        long initialMemory = filter.getMemoryBytes();
+
+        for (int i = 0; i < 50_000; i++)
+            filter.add("added-" + i);
+
+        for (int i = 0; i < 50_000; i++)
+            assertThat(filter.mightContain("added-" + i)).isTrue();
+        assertThat(filter.getCount()).isEqualTo(50_000);
+        assertThat(filter.getStages()).isEqualTo(6);
+        assertThat(filter.getMemoryBytes()).isGreaterThan(initialMemory * 50);
+    }
+
+    @Test
+    public void shouldKeepFalsePositiveRateBelowConfiguredRate() {
+        var filter = new ScalableBloomFilter(1_000, 0.01);
+        for (int i = 0; i < 50_000; i++)
+            filter.add("added-" + i);
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("new-" + i))
+                falsePositives++;
+        }
+
+        assertThat(falsePositives / 100_000d).isLessThan(0.01);
+        assertThat(filter.getExpectedFalsePositiveRate()).isGreaterThan(0).isLessThan(0.01);
+    }
+
+    @Test
+    public void shouldRejectInvalidSizing() {
+        assertThatThrownBy(() -> new ScalableBloomFilter(0, 0.01)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new ScalableBloomFilter(1_000, 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
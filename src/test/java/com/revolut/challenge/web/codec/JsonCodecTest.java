@@ -0,0 +1,92 @@
+package com.revolut.challenge.web.codec;
+
+import com.revolut.challenge.exception.ConstraintViolationException;
+import com.revolut.challenge.exception.InvalidRequestData;
+import com.revolut.challenge.util.JsonUtils;
+import com.revolut.challenge.web.dto.CreateDepositRequestDTO;
+import com.revolut.challenge.web.dto.CreateWithdrawRequestDTO;
+import com.revolut.challenge.web.dto.CreateWithdrawResponseDTO;
+import com.revolut.challenge.web.dto.TransferMoneyRequestDTO;
+import org.junit.jupiter.api.Test;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class JsonCodecTest {
+
+    private static final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Test
+    public void shouldReadTransferRequestLikeDatabinding() {
+        String json = "{\"transactionId\":\"1\",\"fromAccount\":\"1111\",\"toAccount\":\"2222\",\"amount\":100}";
+
+        TransferMoneyRequestDTO dto = read(new TransferMoneyRequestCodec(), json);
+
+        assertThat(dto).isEqualTo(JsonUtils.convertToObject(json, TransferMoneyRequestDTO.class));
+        assertThat(dto).isEqualTo(new TransferMoneyRequestDTO("1", "1111", "2222", 100L));
+    }
+
+    @Test
+    public void shouldCoerceScalarsLikeDatabinding() {
+        String json = "{\"transactionId\":12,\"accountNumber\":\"1111\",\"amount\":\"100\"}";
+
+        CreateDepositRequestDTO dto = read(new CreateDepositRequestCodec(), json);
+
+        assertThat(dto).isEqualTo(JsonUtils.convertToObject(json, CreateDepositRequestDTO.class));
+    }
+
+    @Test
+    public void shouldReportSameViolationsAsValidator() {
+        assertSameViolations(new TransferMoneyRequestCodec(), "{}");
+        assertSameViolations(new TransferMoneyRequestCodec(), "{\"fromAccount\":\" \",\"toAccount\":\"2222\",\"amount\":-1}");
+        assertSameViolations(new CreateDepositRequestCodec(), "{\"amount\":0}");
+        assertSameViolations(new CreateWithdrawRequestCodec(), "{\"accountNumber\":\"1111\"}");
+        assertSameViolations(new ImportTransactionRequestCodec(), "{\"accountNumber\":\"1111\",\"amount\":0}");
+    }
+
+    @Test
+    public void shouldRejectInvalidDocuments() {
+        var codec = new CreateWithdrawRequestCodec();
+
+        assertThatThrownBy(() -> read(codec, "")).isInstanceOf(InvalidRequestData.class);
+        assertThatThrownBy(() -> read(codec, "[]")).isInstanceOf(InvalidRequestData.class);
+        assertThatThrownBy(() -> read(codec, "{\"accountNumber\":\"1111\",\"amount\":")).isInstanceOf(InvalidRequestData.class);
+        assertThatThrownBy(() -> read(codec, "{\"accountNumber\":\"1111\",\"amount\":1,\"unknown\":1}")).isInstanceOf(InvalidRequestData.class);
+        assertThatThrownBy(() -> read(codec, "{\"accountNumber\":{},\"amount\":1}")).isInstanceOf(InvalidRequestData.class);
+        assertThatThrownBy(() -> read(codec, "{\"accountNumber\":\"1111\",\"amount\":\"ten\"}")).isInstanceOf(InvalidRequestData.class);
+    }
+
+    @Test
+    public void shouldWriteResponseLikeDatabinding() {
+        var response = new CreateWithdrawResponseDTO("42");
+        var outputStream = new ByteArrayOutputStream();
+
+        JsonUtils.writeValue(outputStream, response);
+
+        assertThat(JsonUtils.convertToObject(outputStream.toString(StandardCharsets.UTF_8), CreateWithdrawResponseDTO.class))
+                .isEqualTo(response);
+        assertThat(read(new CreateWithdrawResponseCodec(), outputStream.toString(StandardCharsets.UTF_8))).isEqualTo(response);
+    }
+
+    private static <T> T read(JsonCodec<T> codec, String json) {
+        return JsonUtils.convertToObject(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), codec);
+    }
+
+    private static <T> void assertSameViolations(JsonCodec<T> codec, String json) {
+        var expected = validator.validate(JsonUtils.convertToObject(json, codec.getType())).stream()
+                .map(ConstraintViolation::getMessage)
+                .collect(Collectors.toSet());
+
+        assertThatThrownBy(() -> read(codec, json))
+                .isInstanceOfSatisfying(ConstraintViolationException.class,
+                        e -> assertThat(e.getMessages()).containsExactlyInAnyOrderElementsOf(expected));
+    }
+}
@@ -0,0 +1,74 @@
+package com.revolut.challenge.web.rest;
+
+import org.junit.jupiter.api.Test;
+import spark.Request;
+import spark.Response;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class AccessLogTest {
+
+    @Test
+    public void shouldTimeOneOutOfEverySampleRateRequests() {
+        var accessLog = new AccessLog(3);
+
+        int sampled = 0;
+        for (int i = 0; i < 7; i++) {
+            var request = new TestRequest();
+            var response = new TestResponse();
+            accessLog.start(request, response);
+            if (!request.attributes.isEmpty())
+                sampled++;
+            accessLog.end(request, response);
+        }
+
+        assertThat(sampled).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldNotTimeAnyRequestWhenSampleRateIsZero() {
+        var accessLog = new AccessLog(0);
+        var request = new TestRequest();
+
+        accessLog.start(request, new TestResponse());
+
+        assertThat(request.attributes).isEmpty();
+        assertThatThrownBy(() -> new AccessLog(-1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static final class TestRequest extends Request {
+        private final Map<String, Object> attributes = new HashMap<>();
+
+        @Override
+        public void attribute(String attribute, Object value) {
+            attributes.put(attribute, value);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T attribute(String attribute) {
+            return (T) attributes.get(attribute);
+        }
+
+        @Override
+        public String requestMethod() {
+            return "GET";
+        }
+
+        @Override
+        public String pathInfo() {
+            return "/test";
+        }
+    }
+
+    private static final class TestResponse extends Response {
+        @Override
+        public int status() {
+            return 200;
+        }
+    }
+}
@@ -5,14 +5,18 @@ import com.revolut.challenge.model.enumeration.Currency;
 import com.revolut.challenge.repository.FinancialAccountRepository;
 import com.revolut.challenge.util.JsonUtils;
 import com.revolut.challenge.web.dto.CreateAccountRequestDTO;
+import com.revolut.challenge.web.dto.CreateDepositRequestDTO;
 import io.restassured.http.ContentType;
 import org.junit.jupiter.api.Test;
 
+import java.util.UUID;
+
 import static io.restassured.RestAssured.given;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
 
 
 public class AccountControllerIT extends BaseIT {
@@ -29,6 +33,7 @@ public class AccountControllerIT extends BaseIT {
                 log().all().
                 assertThat().
                 statusCode(201)
+                .contentType(ContentType.JSON)
                 .body("currency",equalTo("EUR")).extract().path("accountNumber") ;
 
         var financialAccount=financialAccountRepository.getByAccountNumber(accountNumber);
@@ -46,4 +51,92 @@ public class AccountControllerIT extends BaseIT {
                 statusCode(400).
                 body("message",containsString("Invalid body")) ;
     }
+
+    @Test
+    public void shouldReportSummedBalanceOfSplitAccount() {
+
+        String accountNumber = given().accept(ContentType.JSON).
+                body("{\"currency\":\"USD\",\"balanceSlots\":4}").
+                post("/accounts").then()
+                .statusCode(201)
+                .extract().path("accountNumber");
+        assertThat(financialAccountRepository.getAccountMetadata(accountNumber).getBalanceSlots()).isEqualTo(4);
+
+        for (int i = 0; i < 8; i++) {
+            given().accept(ContentType.JSON)
+                    .body(JsonUtils.writeValueAsString(new CreateDepositRequestDTO(UUID.randomUUID().toString(), accountNumber, 10L)))
+                    .post("/accounts/deposit")
+                    .then()
+                    .statusCode(201);
+        }
+
+        given().accept(ContentType.JSON)
+                .get("/accounts/" + accountNumber)
+                .then().log().all()
+                .statusCode(201)
+                .body("balance", equalTo(80.0f));
+    }
+
+    @Test
+    public void shouldReturnInvalidRequestForInvalidBalanceSlots() {
+
+        given().accept(ContentType.JSON).
+                body("{\"currency\":\"USD\",\"balanceSlots\":0}").
+                post("/accounts").then().
+                log().all().
+                assertThat().
+                statusCode(400);
+    }
+
+    @Test
+    public void shouldReturn304WhileAccountIsNotModified() {
+
+        String accountNumber = given().accept(ContentType.JSON).
+                body(JsonUtils.writeValueAsString(new CreateAccountRequestDTO(Currency.USD))).
+                post("/accounts").then()
+                .statusCode(201)
+                .extract().path("accountNumber");
+
+        String etag = given().accept(ContentType.JSON)
+                .get("/accounts/" + accountNumber)
+                .then().log().all()
+                .header("ETag", equalTo("\"0\""))
+                .extract().header("ETag");
+        String transactionsEtag = given().accept(ContentType.JSON)
+                .get("/accounts/" + accountNumber + "/transaction")
+                .then().log().all()
+                .extract().header("ETag");
+
+        given().accept(ContentType.JSON)
+                .header("If-None-Match", etag)
+                .get("/accounts/" + accountNumber)
+                .then().log().all()
+                .statusCode(304)
+                .header("ETag", equalTo(etag));
+        given().accept(ContentType.JSON)
+                .header("If-None-Match", transactionsEtag)
+                .get("/accounts/" + accountNumber + "/transaction")
+                .then().log().all()
+                .statusCode(304);
+
+        given().accept(ContentType.JSON)
+                .body(JsonUtils.writeValueAsString(new CreateDepositRequestDTO(UUID.randomUUID().toString(), accountNumber, 10L)))
+                .post("/accounts/deposit")
+                .then()
+                .statusCode(201);
+
+        given().accept(ContentType.JSON)
+                .header("If-None-Match", etag)
+                .get("/accounts/" + accountNumber)
+                .then().log().all()
+                .statusCode(201)
+                .header("ETag", not(equalTo(etag)))
+                .body("balance", equalTo(10.0f));
+        given().accept(ContentType.JSON)
+                .header("If-None-Match", transactionsEtag)
+                .get("/accounts/" + accountNumber + "/transaction")
+                .then().log().all()
+                .statusCode(201)
+                .body("accountTransactionDTOList.size()", equalTo(1));
+    }
 }
@@ -0,0 +1,96 @@
+package com.revolut.challenge.web.rest;
+
+import com.revolut.challenge.Application;
+import com.revolut.challenge.BaseIT;
+import io.restassured.RestAssured;
+import io.restassured.config.HttpClientConfig;
+import io.restassured.http.ContentType;
+import io.restassured.specification.RequestSpecification;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Runs in its own failsafe execution with {@code request-execution=bounded}, 4 executor threads and a queue of 8.
+ */
+@EnabledIfSystemProperty(named = "request-execution", matches = "bounded")
+public class BoundedRequestExecutionIT extends BaseIT {
+
+    private static final int EXECUTOR_CAPACITY = 4 + 8;
+    private static final int TIMEOUT_MILLIS = 10_000;
+
+    @Test
+    public void shouldRejectWritesWith503WhenExecutorIsFull() throws Exception {
+        List<Socket> imports = new ArrayList<>();
+        try {
+            //Imports whose body never ends hold their executor thread, or their place in the queue, until it does
+            for (int i = 0; i < EXECUTOR_CAPACITY; i++) {
+                var socket = new Socket("127.0.0.1", RestAssured.port);
+                socket.setSoTimeout(TIMEOUT_MILLIS);
+                OutputStream out = socket.getOutputStream();
+                out.write(("POST " + Application.CONTEXT_PATH + "/accounts/transactions/import HTTP/1.1\r\n" +
+                        "Host: 127.0.0.1\r\n" +
+                        "Content-Type: " + Application.NDJSON_CONTENT_TYPE + "\r\n" +
+                        "Transfer-Encoding: chunked\r\n\r\n" +
+                        //Jetty dispatches once content arrives, a blank line without its line break is skipped later
+                        "1\r\n \r\n").getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+                imports.add(socket);
+            }
+            long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            while (executorLoad() < EXECUTOR_CAPACITY && System.currentTimeMillis() < deadline)
+                Thread.sleep(10);
+            assertThat(executorLoad()).isEqualTo(EXECUTOR_CAPACITY);
+
+            request().contentType(ContentType.JSON)
+                    .body("{\"accountNumber\":\"4444\",\"amount\":1}")
+                    .post("/accounts/deposit")
+                    .then()
+                    .statusCode(503)
+                    .header("Retry-After", equalTo("1"));
+
+            //Reads are still served while the executor is full
+            request().get("/metrics/request-executor")
+                    .then()
+                    .statusCode(200)
+                    .body("rejected", equalTo(1));
+
+            for (Socket socket : imports) {
+                socket.getOutputStream().write("0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                socket.getOutputStream().flush();
+            }
+            for (Socket socket : imports) {
+                var reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+                assertThat(reader.readLine()).isEqualTo("HTTP/1.1 200 OK");
+            }
+        } finally {
+            for (Socket socket : imports)
+                socket.close();
+        }
+    }
+
+    private static int executorLoad() {
+        var metrics = request().get("/metrics/request-executor").then().statusCode(200).extract().jsonPath();
+        return metrics.getInt("activeThreads") + metrics.getInt("queueDepth");
+    }
+
+    /**
+     * Request that fails instead of waiting forever when no http thread is left to answer it
+     */
+    private static RequestSpecification request() {
+        return given().config(RestAssured.config().httpClient(HttpClientConfig.httpClientConfig()
+                .setParam("http.connection.timeout", TIMEOUT_MILLIS)
+                .setParam("http.socket.timeout", TIMEOUT_MILLIS)));
+    }
+}
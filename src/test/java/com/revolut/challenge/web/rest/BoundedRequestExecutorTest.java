@@ -0,0 +1,91 @@
+package com.revolut.challenge.web.rest;
+
+import com.revolut.challenge.exception.InsufficientBalanceException;
+import com.revolut.challenge.exception.ServiceUnavailableException;
+import org.junit.jupiter.api.Test;
+import spark.Response;
+import spark.Route;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class BoundedRequestExecutorTest {
+
+    @Test
+    public void shouldRejectWith503AndRetryAfterWhenQueueIsFull() throws Exception {
+        var requestExecutor = new BoundedRequestExecutor(1, 1, 2);
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        Route blocking = requestExecutor.bounded((request, response) -> {
+            started.countDown();
+            release.await();
+            return "done";
+        });
+
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object> running = callers.submit(() -> blocking.handle(null, new TestResponse()));
+            started.await(5, TimeUnit.SECONDS);
+            Future<Object> queued = callers.submit(() -> blocking.handle(null, new TestResponse()));
+            while (requestExecutor.getMetrics().getQueueDepth() == 0)
+                Thread.onSpinWait();
+
+            var rejectedResponse = new TestResponse();
+            assertThatThrownBy(() -> requestExecutor.bounded((request, response) -> "never").handle(new TestRequest(), rejectedResponse))
+                    .isInstanceOf(ServiceUnavailableException.class);
+            assertThat(rejectedResponse.headers).containsEntry("Retry-After", "2");
+            assertThat(requestExecutor.getMetrics().getQueueDepth()).isEqualTo(1);
+
+            release.countDown();
+            assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("done");
+            assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("done");
+        } finally {
+            callers.shutdown();
+            requestExecutor.stop();
+        }
+
+        var metrics = requestExecutor.getMetrics();
+        assertThat(metrics.getRejected()).isEqualTo(1);
+        assertThat(metrics.getQueueDepth()).isZero();
+        assertThat(metrics.getMaxWaitMicros()).isPositive();
+    }
+
+    @Test
+    public void shouldRethrowExceptionOfRoute() {
+        var requestExecutor = new BoundedRequestExecutor(1, 1, 1);
+        try {
+            Route failing = requestExecutor.bounded((request, response) -> {
+                throw new InsufficientBalanceException();
+            });
+
+            assertThatThrownBy(() -> failing.handle(null, new TestResponse()))
+                    .isInstanceOf(InsufficientBalanceException.class);
+        } finally {
+            requestExecutor.stop();
+        }
+    }
+
+    private static final class TestResponse extends Response {
+        private final Map<String, String> headers = new HashMap<>();
+
+        @Override
+        public void header(String header, String value) {
+            headers.put(header, value);
+        }
+    }
+
+    private static final class TestRequest extends spark.Request {
+        @Override
+        public String pathInfo() {
+            return "/test";
+        }
+    }
+}
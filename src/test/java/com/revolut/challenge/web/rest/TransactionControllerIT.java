@@ -1,7 +1,9 @@
 package com.revolut.challenge.web.rest;
 
+import com.revolut.challenge.Application;
 import com.revolut.challenge.BaseIT;
 import com.revolut.challenge.model.FinancialAccount;
+import com.revolut.challenge.model.Money;
 import com.revolut.challenge.model.enumeration.AccountStatusType;
 import com.revolut.challenge.model.enumeration.Currency;
 import com.revolut.challenge.model.enumeration.TransactionType;
@@ -9,16 +11,27 @@ import com.revolut.challenge.repository.AccountTransactionRepository;
 import com.revolut.challenge.repository.FinancialAccountRepository;
 import com.revolut.challenge.util.JsonUtils;
 import com.revolut.challenge.web.dto.CreateDepositRequestDTO;
+import io.restassured.RestAssured;
 import io.restassured.http.ContentType;
+import io.restassured.path.json.JsonPath;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
-import java.math.BigDecimal;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.UUID;
 
 import static io.restassured.RestAssured.given;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 
 
 public class TransactionControllerIT extends BaseIT {
@@ -32,7 +45,7 @@ public class TransactionControllerIT extends BaseIT {
                 .accountNumber("4444")
                 .accountStatusType(AccountStatusType.ACTIVE)
                 .createDatetime(LocalDateTime.now())
-                .balance(new BigDecimal("500"))
+                .balance(Money.ofUnits(500))
                 .currency(Currency.USD)
                 .build());
 
@@ -40,7 +53,7 @@ public class TransactionControllerIT extends BaseIT {
                 .accountNumber("5555")
                 .accountStatusType(AccountStatusType.ACTIVE)
                 .createDatetime(LocalDateTime.now())
-                .balance(new BigDecimal("1000"))
+                .balance(Money.ofUnits(1000))
                 .currency(Currency.USD)
                 .build());
     }
@@ -51,7 +64,7 @@ public class TransactionControllerIT extends BaseIT {
         String accountNumber = "4444";
         String transactionId = UUID.randomUUID().toString();
 
-        financialAccountRepository.updateBalance(dataContext, accountNumber, new BigDecimal("500"));
+        financialAccountRepository.updateBalance(dataContext, accountNumber, Money.ofUnits(500));
 
         given().accept(ContentType.JSON).
                 body(JsonUtils.writeValueAsString(
@@ -61,7 +74,7 @@ public class TransactionControllerIT extends BaseIT {
                 .statusCode(201)
                 .body("transactionId", equalTo(transactionId));
 
-        assertThat(financialAccountRepository.getByAccountNumber(accountNumber).getBalance()).isEqualTo(new BigDecimal("600.00"));
+        assertThat(financialAccountRepository.getByAccountNumber(accountNumber).getBalance()).isEqualTo(Money.ofUnits(600));
         assertThat(accountTransactionRepository.isTransactionPresent(transactionId, TransactionType.DEPOSIT)).isTrue();
     }
 
@@ -81,19 +94,60 @@ public class TransactionControllerIT extends BaseIT {
 
         given().accept(ContentType.JSON).
                 body(JsonUtils.writeValueAsString(
-                        new CreateDepositRequestDTO(transactionId, accountNumber, 100L)))
+                        new CreateDepositRequestDTO(transactionId, accountNumber, 200L)))
                 .post("accounts/deposit")
                 .then().log().all()
                 .statusCode(409);
     }
 
+    @Test
+    public void shouldReplayResponseOfRetriedDepositAndWithdraw() {
+
+        String accountNumber = "4480";
+        financialAccountRepository.save(FinancialAccount.builder()
+                .accountNumber(accountNumber)
+                .accountStatusType(AccountStatusType.ACTIVE)
+                .createDatetime(LocalDateTime.now())
+                .balance(Money.ofUnits(100))
+                .currency(Currency.USD)
+                .build());
+        String transactionId = UUID.randomUUID().toString();
+        String deposit = JsonUtils.writeValueAsString(new CreateDepositRequestDTO(transactionId, accountNumber, 50L));
+
+        byte[] original = given().accept(ContentType.JSON).body(deposit)
+                .post("accounts/deposit")
+                .then().log().all()
+                .statusCode(201)
+                .extract().asByteArray();
+        byte[] replayed = given().accept(ContentType.JSON).body(deposit)
+                .post("accounts/deposit")
+                .then().log().all()
+                .statusCode(201)
+                .contentType(ContentType.JSON)
+                .extract().asByteArray();
+
+        assertThat(replayed).isEqualTo(original);
+        assertThat(financialAccountRepository.getByAccountNumber(accountNumber).getBalance()).isEqualTo(Money.ofUnits(150));
+
+        //A withdraw is replayed separately from a deposit with the same transaction id
+        String withdraw = JsonUtils.writeValueAsString(new CreateDepositRequestDTO(transactionId, accountNumber, 20L));
+        for (int i = 0; i < 2; i++) {
+            given().accept(ContentType.JSON).body(withdraw)
+                    .post("accounts/withdraw")
+                    .then().log().all()
+                    .statusCode(201)
+                    .body("transactionId", equalTo(transactionId));
+        }
+        assertThat(financialAccountRepository.getByAccountNumber(accountNumber).getBalance()).isEqualTo(Money.ofUnits(130));
+    }
+
     @Test
     public void shouldCreateWithdrawForGivenAccount() {
 
         String accountNumber = "4444";
         String transactionId = UUID.randomUUID().toString();
 
-        financialAccountRepository.updateBalance(dataContext, accountNumber, new BigDecimal("500"));
+        financialAccountRepository.updateBalance(dataContext, accountNumber, Money.ofUnits(500));
 
         given().accept(ContentType.JSON).
                 body(JsonUtils.writeValueAsString(
@@ -103,7 +157,7 @@ public class TransactionControllerIT extends BaseIT {
                 .statusCode(201)
                 .body("transactionId", equalTo(transactionId));
 
-        assertThat(financialAccountRepository.getByAccountNumber(accountNumber).getBalance()).isEqualTo(new BigDecimal("400.00"));
+        assertThat(financialAccountRepository.getByAccountNumber(accountNumber).getBalance()).isEqualTo(Money.ofUnits(400));
         assertThat(accountTransactionRepository.isTransactionPresent(transactionId, TransactionType.WITHDRAW)).isTrue();
 
     }
@@ -114,7 +168,7 @@ public class TransactionControllerIT extends BaseIT {
         String accountNumber = "4444";
         String transactionId = UUID.randomUUID().toString();
 
-        financialAccountRepository.updateBalance(dataContext, accountNumber, new BigDecimal("500"));
+        financialAccountRepository.updateBalance(dataContext, accountNumber, Money.ofUnits(500));
 
         given().accept(ContentType.JSON).
                 body(JsonUtils.writeValueAsString(
@@ -140,9 +194,207 @@ public class TransactionControllerIT extends BaseIT {
 
         given().accept(ContentType.JSON).
                 body(JsonUtils.writeValueAsString(
-                        new CreateDepositRequestDTO(transactionId, accountNumber, 100L)))
+                        new CreateDepositRequestDTO(transactionId, accountNumber, 10L)))
                 .post("/accounts/withdraw")
                 .then().log().all()
                 .statusCode(409);
     }
+
+    @Test
+    public void shouldPageAccountTransactionsWithCursor() {
+
+        String accountNumber = "4410";
+        financialAccountRepository.save(FinancialAccount.builder()
+                .accountNumber(accountNumber)
+                .accountStatusType(AccountStatusType.ACTIVE)
+                .createDatetime(LocalDateTime.now())
+                .balance(0)
+                .currency(Currency.USD)
+                .build());
+        var transactionIds = new ArrayList<String>();
+        for (int i = 0; i < 5; i++) {
+            String transactionId = UUID.randomUUID().toString();
+            transactionIds.add(transactionId);
+            given().accept(ContentType.JSON).
+                    body(JsonUtils.writeValueAsString(
+                            new CreateDepositRequestDTO(transactionId, accountNumber, 10L)))
+                    .post("accounts/deposit")
+                    .then()
+                    .statusCode(201);
+        }
+
+        Object next = given().accept(ContentType.JSON)
+                .get("accounts/" + accountNumber + "/transaction?limit=2")
+                .then().log().all()
+                .body("accountTransactionDTOList.transactionId", contains(transactionIds.get(0), transactionIds.get(1)))
+                .body("next", notNullValue())
+                .extract().path("next");
+
+        given().accept(ContentType.JSON)
+                .get("accounts/" + accountNumber + "/transaction?limit=3&after=" + next)
+                .then().log().all()
+                .body("accountTransactionDTOList.transactionId", contains(transactionIds.get(2), transactionIds.get(3), transactionIds.get(4)))
+                .body("next", nullValue());
+
+        given().accept(ContentType.JSON)
+                .get("accounts/" + accountNumber + "/transaction?limit=2&order=desc")
+                .then().log().all()
+                .body("accountTransactionDTOList.transactionId", contains(transactionIds.get(4), transactionIds.get(3)));
+
+        given().accept(ContentType.JSON)
+                .get("accounts/" + accountNumber + "/transaction?limit=0")
+                .then().log().all()
+                .statusCode(400);
+    }
+
+    @Test
+    public void shouldExportAccountTransactionsAsNdjson() {
+
+        String accountNumber = "4420";
+        financialAccountRepository.save(FinancialAccount.builder()
+                .accountNumber(accountNumber)
+                .accountStatusType(AccountStatusType.ACTIVE)
+                .createDatetime(LocalDateTime.now())
+                .balance(0)
+                .currency(Currency.USD)
+                .build());
+        var transactionIds = new ArrayList<String>();
+        for (int i = 0; i < 3; i++) {
+            String transactionId = UUID.randomUUID().toString();
+            transactionIds.add(transactionId);
+            given().accept(ContentType.JSON).
+                    body(JsonUtils.writeValueAsString(
+                            new CreateDepositRequestDTO(transactionId, accountNumber, 10L)))
+                    .post("accounts/deposit")
+                    .then()
+                    .statusCode(201);
+        }
+
+        String body = given()
+                .get("accounts/" + accountNumber + "/transactions/export")
+                .then().log().all()
+                .statusCode(200)
+                .contentType("application/x-ndjson")
+                .extract().asString();
+
+        var lines = body.split("\n");
+        assertThat(lines).hasSize(3).allMatch(line -> line.startsWith("{"));
+        for (int i = 0; i < lines.length; i++) {
+            var transaction = JsonPath.from(lines[i]);
+            assertThat(transaction.getString("transactionId")).isEqualTo(transactionIds.get(i));
+            assertThat(transaction.getDouble("balance")).isEqualTo(10d * (i + 1));
+        }
+
+        given()
+                .get("accounts/5199/transactions/export")
+                .then().log().all()
+                .statusCode(400)
+                .contentType(ContentType.JSON);
+    }
+
+    @Test
+    public void shouldImportNdjsonTransactionsWithPerLineErrors() {
+
+        String accountNumber = "4450";
+        financialAccountRepository.save(FinancialAccount.builder()
+                .accountNumber(accountNumber)
+                .accountStatusType(AccountStatusType.ACTIVE)
+                .createDatetime(LocalDateTime.now())
+                .balance(0)
+                .currency(Currency.USD)
+                .build());
+        String transactionId = UUID.randomUUID().toString();
+        String body = String.join("\n",
+                "{\"transactionType\":\"DEPOSIT\",\"transactionId\":\"" + transactionId + "\",\"accountNumber\":\"4450\",\"amount\":100}",
+                "{\"transactionType\":\"WITHDRAW\",\"accountNumber\":\"4450\",\"amount\":30}",
+                "",
+                "{\"transactionType\":\"WITHDRAW\",\"accountNumber\":",
+                "{\"transactionType\":\"WITHDRAW\",\"accountNumber\":\"4450\",\"amount\":1000}",
+                "{\"transactionType\":\"DEPOSIT\",\"transactionId\":\"" + transactionId + "\",\"accountNumber\":\"4450\",\"amount\":100}",
+                "{\"transactionType\":\"DEPOSIT\",\"accountNumber\":\"4450\",\"amount\":0}",
+                "{\"transactionType\":\"DEPOSIT\",\"accountNumber\":\"5199\",\"amount\":10}");
+
+        String response = given()
+                .contentType("application/x-ndjson")
+                .body(body.getBytes(StandardCharsets.UTF_8))
+                .post("accounts/transactions/import")
+                .then().log().all()
+                .statusCode(200)
+                .contentType("application/x-ndjson")
+                .extract().asString();
+
+        var lines = response.split("\n");
+        assertThat(lines).hasSize(7);
+        assertThat(JsonPath.from(lines[0]).getInt("line")).isEqualTo(4);
+        assertThat(JsonPath.from(lines[1]).getInt("line")).isEqualTo(7);
+        assertThat(JsonPath.from(lines[1]).getString("error.message")).isEqualTo("Amount must be greater than 0");
+        assertThat(JsonPath.from(lines[2]).getInt("line")).isEqualTo(5);
+        assertThat(JsonPath.from(lines[2]).getString("error.message")).isEqualTo("Balance is insufficient");
+        assertThat(JsonPath.from(lines[3]).getInt("line")).isEqualTo(6);
+        assertThat(JsonPath.from(lines[3]).getInt("status")).isEqualTo(409);
+        assertThat(JsonPath.from(lines[4]).getInt("line")).isEqualTo(8);
+        assertThat(JsonPath.from(lines[4]).getInt("status")).isEqualTo(400);
+        var progress = JsonPath.from(lines[6]);
+        assertThat(progress.getLong("processed")).isEqualTo(7);
+        assertThat(progress.getLong("applied")).isEqualTo(2);
+        assertThat(progress.getLong("failed")).isEqualTo(5);
+        assertThat(progress.getBoolean("done")).isTrue();
+
+        assertThat(financialAccountRepository.getByAccountNumber(accountNumber).getBalance()).isEqualTo(Money.ofUnits(70));
+        assertThat(accountTransactionRepository.isTransactionPresent(transactionId, TransactionType.DEPOSIT)).isTrue();
+    }
+
+    @Test
+    public void shouldImportFirstBatchBeforeRestOfBodyWithContentLengthArrives() throws Exception {
+
+        financialAccountRepository.save(FinancialAccount.builder()
+                .accountNumber("4451")
+                .accountStatusType(AccountStatusType.ACTIVE)
+                .createDatetime(LocalDateTime.now())
+                .balance(0)
+                .currency(Currency.USD)
+                .build());
+        var firstBatch = new StringBuilder();
+        for (int i = 0; i < TransactionController.IMPORT_BATCH_SIZE; i++)
+            firstBatch.append("{\"transactionType\":\"DEPOSIT\",\"accountNumber\":\"4451\",\"amount\":1}\n");
+        byte[] first = firstBatch.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] rest = ("x".repeat(TransactionController.IMPORT_MAX_LINE_LENGTH + 1) + "\n" +
+                "{\"transactionType\":\"DEPOSIT\",\"accountNumber\":\"4451\",\"amount\":1}\n").getBytes(StandardCharsets.UTF_8);
+
+        try (var socket = new Socket("127.0.0.1", RestAssured.port)) {
+            socket.setSoTimeout(10_000);
+            OutputStream out = socket.getOutputStream();
+            out.write(("POST " + Application.CONTEXT_PATH + "/accounts/transactions/import HTTP/1.1\r\n" +
+                    "Host: 127.0.0.1\r\n" +
+                    "Content-Type: " + Application.NDJSON_CONTENT_TYPE + "\r\n" +
+                    "Content-Length: " + (first.length + rest.length) + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.write(first);
+            out.flush();
+
+            //The progress of the first batch arrives while the rest of the body is still to be sent
+            var reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            String line = reader.readLine();
+            while (!line.contains("\"processed\":500"))
+                line = reader.readLine();
+            assertThat(financialAccountRepository.getByAccountNumber("4451").getBalance()).isEqualTo(Money.ofUnits(500));
+
+            out.write(rest);
+            out.flush();
+            //Only the error lines, the chunked response also has chunk sizes and progress
+            var errors = new ArrayList<String>();
+            for (line = reader.readLine(); !line.contains("\"done\":true"); line = reader.readLine())
+                if (line.startsWith("{\"line\""))
+                    errors.add(line);
+
+            assertThat(errors).hasSize(1);
+            assertThat(JsonPath.from(errors.get(0)).getInt("line")).isEqualTo(501);
+            assertThat(JsonPath.from(errors.get(0)).getString("error.message"))
+                    .isEqualTo("Line is longer than " + TransactionController.IMPORT_MAX_LINE_LENGTH + " characters");
+            var progress = JsonPath.from(line);
+            assertThat(progress.getLong("processed")).isEqualTo(502);
+            assertThat(progress.getLong("applied")).isEqualTo(501);
+            assertThat(progress.getLong("failed")).isEqualTo(1);
+        }
+        assertThat(financialAccountRepository.getByAccountNumber("4451").getBalance()).isEqualTo(Money.ofUnits(501));
+    }
 }
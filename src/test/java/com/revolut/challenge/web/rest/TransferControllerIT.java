@@ -2,6 +2,7 @@ package com.revolut.challenge.web.rest;
 
 import com.revolut.challenge.BaseIT;
 import com.revolut.challenge.model.FinancialAccount;
+import com.revolut.challenge.model.Money;
 import com.revolut.challenge.model.enumeration.AccountStatusType;
 import com.revolut.challenge.model.enumeration.Currency;
 import com.revolut.challenge.model.enumeration.TransferStatusType;
@@ -13,13 +14,15 @@ import io.restassured.http.ContentType;
 import org.eclipse.jetty.http.HttpStatus;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
 
 import static io.restassured.RestAssured.given;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
 
 
 public class TransferControllerIT extends BaseIT {
@@ -33,7 +36,7 @@ public class TransferControllerIT extends BaseIT {
                 .accountNumber("6666")
                 .accountStatusType(AccountStatusType.ACTIVE)
                 .createDatetime(LocalDateTime.now())
-                .balance(new BigDecimal("500"))
+                .balance(Money.ofUnits(500))
                 .currency(Currency.USD)
                 .build());
 
@@ -41,7 +44,7 @@ public class TransferControllerIT extends BaseIT {
                 .accountNumber("7777")
                 .accountStatusType(AccountStatusType.ACTIVE)
                 .createDatetime(LocalDateTime.now())
-                .balance(new BigDecimal("1000"))
+                .balance(Money.ofUnits(1000))
                 .currency(Currency.USD)
                 .build());
     }
@@ -52,9 +55,9 @@ public class TransferControllerIT extends BaseIT {
         String fromAccountNumber = "6666";
         String toAccountNumber = "7777";
 
-        financialAccountRepository.updateBalance(dataContext, fromAccountNumber, new BigDecimal("500"));
+        financialAccountRepository.updateBalance(dataContext, fromAccountNumber, Money.ofUnits(500));
         financialAccountRepository.updateCurrency(dataContext, fromAccountNumber, Currency.USD);
-        financialAccountRepository.updateBalance(dataContext, toAccountNumber, new BigDecimal("1000"));
+        financialAccountRepository.updateBalance(dataContext, toAccountNumber, Money.ofUnits(1000));
         financialAccountRepository.updateCurrency(dataContext, toAccountNumber, Currency.USD);
 
         String transactionId = UUID.randomUUID().toString();
@@ -70,8 +73,8 @@ public class TransferControllerIT extends BaseIT {
         FinancialAccount fromAccount = financialAccountRepository.getByAccountNumber(fromAccountNumber);
         FinancialAccount toAccount = financialAccountRepository.getByAccountNumber(toAccountNumber);
 
-        assertThat(fromAccount.getBalance()).isEqualTo(new BigDecimal("400.00"));
-        assertThat(toAccount.getBalance()).isEqualTo(new BigDecimal("1100.00"));
+        assertThat(fromAccount.getBalance()).isEqualTo(Money.ofUnits(400));
+        assertThat(toAccount.getBalance()).isEqualTo(Money.ofUnits(1100));
         assertThat(transferRepository.getTransferByAccounts(fromAccount.getId(), toAccount.getId(), TransferStatusType.DONE).isPresent());
     }
 
@@ -81,8 +84,8 @@ public class TransferControllerIT extends BaseIT {
         String fromAccountNumber = "6666";
         String toAccountNumber = "7777";
 
-        financialAccountRepository.updateBalance(dataContext, fromAccountNumber, new BigDecimal("1000"));
-        financialAccountRepository.updateBalance(dataContext, toAccountNumber, new BigDecimal("1000"));
+        financialAccountRepository.updateBalance(dataContext, fromAccountNumber, Money.ofUnits(1000));
+        financialAccountRepository.updateBalance(dataContext, toAccountNumber, Money.ofUnits(1000));
 
         given().accept(ContentType.JSON).
                 body(JsonUtils.writeValueAsString(
@@ -122,4 +125,53 @@ public class TransferControllerIT extends BaseIT {
                 .then().log().all()
                 .statusCode(HttpStatus.BAD_REQUEST_400);
     }
+
+    @Test
+    public void shouldReturnPerItemResultsForTransferBatch() {
+
+        for (String accountNumber : List.of("4440", "4441")) {
+            financialAccountRepository.save(FinancialAccount.builder()
+                    .accountNumber(accountNumber)
+                    .accountStatusType(AccountStatusType.ACTIVE)
+                    .createDatetime(LocalDateTime.now())
+                    .balance(Money.ofUnits(100))
+                    .currency(Currency.USD)
+                    .build());
+        }
+        String transactionId = UUID.randomUUID().toString();
+
+        given().accept(ContentType.JSON).
+                body(JsonUtils.writeValueAsString(List.of(
+                        new TransferMoneyRequestDTO(transactionId, "4440", "4441", 30L),
+                        new TransferMoneyRequestDTO(null, "4440", "4441", 500L),
+                        new TransferMoneyRequestDTO(null, "4440", "4440", 1L))))
+                .post("/accounts/transfers/batch")
+                .then().log().all()
+                .statusCode(HttpStatus.OK_200)
+                .body("results.transactionId[0]", equalTo(transactionId))
+                .body("results.status", contains(201, 400, 400))
+                .body("results[0].error", nullValue())
+                .body("results[1].error.message", equalTo("Balance is insufficient"))
+                .body("results[2].error.message", equalTo("Transfer is invalid for same account"));
+
+        given().accept(ContentType.JSON).
+                body(JsonUtils.writeValueAsString(List.of(
+                        new TransferMoneyRequestDTO(null, "4441", "4440", 10L),
+                        new TransferMoneyRequestDTO(transactionId, "4440", "4441", 10L))))
+                .post("/accounts/transfers/batch?atomic=true")
+                .then().log().all()
+                .statusCode(HttpStatus.OK_200)
+                .body("results.status", contains(409, 409))
+                .body("results[0].error.title", equalTo("Batch aborted"))
+                .body("results[1].error.message", equalTo("Transaction id is duplicated"));
+
+        assertThat(financialAccountRepository.getByAccountNumber("4440").getBalance()).isEqualTo(Money.ofUnits(70));
+        assertThat(financialAccountRepository.getByAccountNumber("4441").getBalance()).isEqualTo(Money.ofUnits(130));
+
+        given().accept(ContentType.JSON).
+                body("[]")
+                .post("/accounts/transfers/batch")
+                .then().log().all()
+                .statusCode(HttpStatus.BAD_REQUEST_400);
+    }
 }